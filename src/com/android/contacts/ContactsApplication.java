@@ -20,13 +20,8 @@ import android.app.Application;
 import android.app.FragmentManager;
 import android.app.LoaderManager;
 import android.content.ContentResolver;
-import android.content.ContentUris;
-import android.content.Context;
 import android.content.SharedPreferences;
-import android.os.AsyncTask;
 import android.os.StrictMode;
-import android.preference.PreferenceManager;
-import android.provider.ContactsContract.Contacts;
 import android.util.Log;
 
 import com.android.contacts.common.testing.InjectedServices;
@@ -111,9 +106,9 @@ public class ContactsApplication extends Application {
                     new StrictMode.ThreadPolicy.Builder().detectAll().penaltyLog().build());
         }
 
-        // Perform the initialization that doesn't have to finish immediately.
-        // We use an async task here just to avoid creating a new thread.
-        (new DelayedInitializer()).execute();
+        // Perform the initialization that doesn't have to finish immediately, in parallel and
+        // in the order the first activity needs it. See StartupPrewarmer.
+        StartupPrewarmer.getInstance(this).start();
 
         if (Log.isLoggable(Constants.PERFORMANCE_TAG, Log.DEBUG)) {
             Log.d(Constants.PERFORMANCE_TAG, "ContactsApplication.onCreate finish");
@@ -121,24 +116,4 @@ public class ContactsApplication extends Application {
 
         AnalyticsUtil.initialize(this);
     }
-
-    private class DelayedInitializer extends AsyncTask<Void, Void, Void> {
-        @Override
-        protected Void doInBackground(Void... params) {
-            final Context context = ContactsApplication.this;
-
-            // Warm up the preferences and the contacts provider.  We delay initialization
-            // of the account type manager because we may not have the contacts group permission
-            // (and thus not have the get accounts permission).
-            PreferenceManager.getDefaultSharedPreferences(context);
-            getContentResolver().getType(ContentUris.withAppendedId(Contacts.CONTENT_URI, 1));
-
-            return null;
-        }
-
-        public void execute() {
-            executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR,
-                    (Void[]) null);
-        }
-    }
 }
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.ContactsContract.Groups;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * App-wide cache of the rows loaded by {@link GroupMetaDataLoader} for
+ * {@link Groups#CONTENT_URI}, shared by the contact editors and the group screens.
+ *
+ * The cache is dropped whenever the contacts provider reports a change that may affect
+ * {@link Groups}, so a loader started while nothing changed can be served from memory without
+ * querying the provider. Cursors handed out by the cache are sorted by account and implement
+ * {@link AccountIndexedCursor}, so per-account lookups do not need to scan every group.
+ */
+public final class GroupMetaDataCache {
+    private static final String TAG = "GroupMetaDataCache";
+
+    private static GroupMetaDataCache sInstance;
+
+    /**
+     * Cursor whose rows are grouped by account, see {@link #getAccountRange}.
+     */
+    public interface AccountIndexedCursor extends Cursor {
+        /**
+         * Returns the first position and one past the last position of the rows belonging to
+         * the given account. Both are equal if the account has no groups.
+         */
+        int[] getAccountRange(String accountName, String accountType, String dataSet);
+    }
+
+    /** Rows of {@link Groups#CONTENT_URI}, sorted by account, and their account index. */
+    private static final class Snapshot {
+        final List<Object[]> rows;
+        final Map<String, int[]> accountRanges;
+        final Map<Long, Object[]> rowsById;
+
+        Snapshot(List<Object[]> rows) {
+            this.rows = rows;
+            this.accountRanges = new HashMap<>();
+            this.rowsById = new HashMap<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                final Object[] row = rows.get(i);
+                final String key = getAccountKey(row);
+                final int[] range = accountRanges.get(key);
+                if (range == null) {
+                    accountRanges.put(key, new int[] {i, i + 1});
+                } else {
+                    range[1] = i + 1;
+                }
+                rowsById.put((Long) row[GroupMetaDataLoader.GROUP_ID], row);
+            }
+        }
+    }
+
+    private static final class IndexedCursor extends MatrixCursor implements AccountIndexedCursor {
+        private final Snapshot mSnapshot;
+
+        IndexedCursor(Snapshot snapshot) {
+            super(GroupMetaDataLoader.COLUMNS, snapshot.rows.size());
+            mSnapshot = snapshot;
+            for (Object[] row : snapshot.rows) {
+                addRow(row);
+            }
+        }
+
+        @Override
+        public int[] getAccountRange(String accountName, String accountType, String dataSet) {
+            final int[] range = mSnapshot.accountRanges.get(
+                    getAccountKey(accountName, accountType, dataSet));
+            return range == null ? new int[] {0, 0} : new int[] {range[0], range[1]};
+        }
+    }
+
+    private static final Comparator<Object[]> ACCOUNT_COMPARATOR = new Comparator<Object[]>() {
+        @Override
+        public int compare(Object[] lhs, Object[] rhs) {
+            return getAccountKey(lhs).compareTo(getAccountKey(rhs));
+        }
+    };
+
+    private final ContentResolver mResolver;
+    private final ContentObserver mObserver = new ContentObserver(null) {
+        @Override
+        public void onChange(boolean selfChange) {
+            invalidate();
+        }
+    };
+
+    /** Guarded by this. Null when nothing is cached or the cached rows may be stale. */
+    private Snapshot mSnapshot;
+    /** Guarded by this. Incremented on every invalidation. */
+    private int mGeneration;
+
+    public static synchronized GroupMetaDataCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new GroupMetaDataCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private GroupMetaDataCache(Context context) {
+        mResolver = context.getContentResolver();
+        mResolver.registerContentObserver(Groups.CONTENT_URI, true, mObserver);
+    }
+
+    /**
+     * Drops the cached rows. This happens automatically when {@link Groups} change.
+     */
+    public synchronized void invalidate() {
+        mSnapshot = null;
+        mGeneration++;
+    }
+
+    /**
+     * Returns the generation to pass to {@link #put}, read before the provider is queried.
+     */
+    public synchronized int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Returns a cursor over the cached rows of {@code groupUri}, or null if they have to be
+     * loaded from the provider. {@code groupUri} is either {@link Groups#CONTENT_URI} or the
+     * uri of a single group.
+     */
+    public Cursor get(Uri groupUri) {
+        final Snapshot snapshot;
+        synchronized (this) {
+            snapshot = mSnapshot;
+        }
+        if (snapshot == null) {
+            return null;
+        }
+        final Cursor cursor;
+        if (Groups.CONTENT_URI.equals(groupUri)) {
+            cursor = new IndexedCursor(snapshot);
+        } else {
+            final Object[] row = snapshot.rowsById.get(parseGroupId(groupUri));
+            if (row == null) {
+                // Not necessarily deleted, e.g. it may be a group of a null account. Let the
+                // provider decide.
+                return null;
+            }
+            final MatrixCursor groupCursor = new MatrixCursor(GroupMetaDataLoader.COLUMNS, 1);
+            groupCursor.addRow(row);
+            cursor = groupCursor;
+        }
+        cursor.setNotificationUri(mResolver, groupUri);
+        return cursor;
+    }
+
+    /**
+     * Caches the rows of {@code cursor}, which must have been loaded by
+     * {@link GroupMetaDataLoader} for {@link Groups#CONTENT_URI}, and returns an indexed cursor
+     * over them. {@code cursor} is closed. Rows read before an invalidation that happened after
+     * {@code generation} was obtained are returned but not cached.
+     */
+    public Cursor put(Cursor cursor, int generation) {
+        final List<Object[]> rows = new ArrayList<>(cursor.getCount());
+        final int columnCount = GroupMetaDataLoader.COLUMNS.length;
+        try {
+            cursor.moveToPosition(-1);
+            while (cursor.moveToNext()) {
+                final Object[] row = new Object[columnCount];
+                row[GroupMetaDataLoader.ACCOUNT_NAME] =
+                        cursor.getString(GroupMetaDataLoader.ACCOUNT_NAME);
+                row[GroupMetaDataLoader.ACCOUNT_TYPE] =
+                        cursor.getString(GroupMetaDataLoader.ACCOUNT_TYPE);
+                row[GroupMetaDataLoader.DATA_SET] = cursor.getString(GroupMetaDataLoader.DATA_SET);
+                row[GroupMetaDataLoader.GROUP_ID] = cursor.getLong(GroupMetaDataLoader.GROUP_ID);
+                row[GroupMetaDataLoader.TITLE] = cursor.getString(GroupMetaDataLoader.TITLE);
+                row[GroupMetaDataLoader.AUTO_ADD] = getIntOrNull(cursor,
+                        GroupMetaDataLoader.AUTO_ADD);
+                row[GroupMetaDataLoader.FAVORITES] = getIntOrNull(cursor,
+                        GroupMetaDataLoader.FAVORITES);
+                row[GroupMetaDataLoader.IS_READ_ONLY] = getIntOrNull(cursor,
+                        GroupMetaDataLoader.IS_READ_ONLY);
+                row[GroupMetaDataLoader.DELETED] = getIntOrNull(cursor,
+                        GroupMetaDataLoader.DELETED);
+                rows.add(row);
+            }
+        } finally {
+            cursor.close();
+        }
+        Collections.sort(rows, ACCOUNT_COMPARATOR);
+
+        final Snapshot snapshot = new Snapshot(Collections.unmodifiableList(rows));
+        synchronized (this) {
+            if (generation == mGeneration) {
+                mSnapshot = snapshot;
+            } else if (Log.isLoggable(TAG, Log.VERBOSE)) {
+                Log.v(TAG, "Groups changed while loading, not caching " + rows.size() + " rows");
+            }
+        }
+        final Cursor result = new IndexedCursor(snapshot);
+        result.setNotificationUri(mResolver, Groups.CONTENT_URI);
+        return result;
+    }
+
+    /**
+     * Returns the positions of the rows of {@code cursor} that may belong to the given account,
+     * as {first, end}. This is the account's range for cursors handed out by the cache, and all
+     * rows otherwise. Callers must still check the account of each row in the range.
+     */
+    public static int[] getAccountRange(Cursor cursor, String accountName, String accountType,
+            String dataSet) {
+        if (cursor instanceof AccountIndexedCursor) {
+            return ((AccountIndexedCursor) cursor).getAccountRange(
+                    accountName, accountType, dataSet);
+        }
+        return new int[] {0, cursor.getCount()};
+    }
+
+    private static Integer getIntOrNull(Cursor cursor, int column) {
+        return cursor.isNull(column) ? null : cursor.getInt(column);
+    }
+
+    private static long parseGroupId(Uri groupUri) {
+        try {
+            return Long.parseLong(groupUri.getLastPathSegment());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String getAccountKey(Object[] row) {
+        return getAccountKey((String) row[GroupMetaDataLoader.ACCOUNT_NAME],
+                (String) row[GroupMetaDataLoader.ACCOUNT_TYPE],
+                (String) row[GroupMetaDataLoader.DATA_SET]);
+    }
+
+    private static String getAccountKey(String accountName, String accountType,
+            String dataSet) {
+        // Keep a null data set distinct from an empty one
+        return accountType + '\u0001' + accountName + '\u0001'
+                + (dataSet == null ? "\u0000" : dataSet);
+    }
+}
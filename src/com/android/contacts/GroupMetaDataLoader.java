@@ -17,16 +17,21 @@ package com.android.contacts;
 
 import android.content.Context;
 import android.content.CursorLoader;
+import android.database.Cursor;
 import android.net.Uri;
 import android.provider.ContactsContract.Groups;
 
 /**
  * Group meta-data loader. Loads all groups or just a single group from the
  * database (if given a {@link Uri}).
+ *
+ * Results are shared through the {@link GroupMetaDataCache}: the loader delivers cached rows as
+ * soon as it is started if no group changed since they were loaded, and only queries the
+ * provider when they are missing or a change is reported.
  */
 public final class GroupMetaDataLoader extends CursorLoader {
 
-    private final static String[] COLUMNS = new String[] {
+    final static String[] COLUMNS = new String[] {
         Groups.ACCOUNT_NAME,
         Groups.ACCOUNT_TYPE,
         Groups.DATA_SET,
@@ -48,10 +53,49 @@ public final class GroupMetaDataLoader extends CursorLoader {
     public final static int IS_READ_ONLY = 7;
     public final static int DELETED = 8;
 
+    private final GroupMetaDataCache mCache;
+    private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver();
+    private boolean mCheckedCache;
+
     public GroupMetaDataLoader(Context context, Uri groupUri) {
         super(context, ensureIsGroupUri(groupUri), COLUMNS, Groups.ACCOUNT_TYPE + " NOT NULL AND "
                 + Groups.ACCOUNT_NAME + " NOT NULL AND " + Groups.DELETED + " != ?"
                 , new String[] {"1"} , null);
+        mCache = GroupMetaDataCache.getInstance(context);
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (!mCheckedCache) {
+            mCheckedCache = true;
+            final Cursor cursor = mCache.get(getUri());
+            if (cursor != null) {
+                // Nothing changed since the groups were last loaded, deliver them right away.
+                // CursorLoader will not load again unless a change is reported.
+                cursor.registerContentObserver(mObserver);
+                deliverResult(cursor);
+            }
+        }
+        super.onStartLoading();
+    }
+
+    @Override
+    public Cursor loadInBackground() {
+        final boolean isAllGroups = Groups.CONTENT_URI.equals(getUri());
+        final int generation = mCache.getGeneration();
+        final Cursor cursor = super.loadInBackground();
+        if (cursor == null || !isAllGroups) {
+            return cursor;
+        }
+        final Cursor cachedCursor = mCache.put(cursor, generation);
+        cachedCursor.registerContentObserver(mObserver);
+        return cachedCursor;
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        mCheckedCache = false;
     }
 
     /**
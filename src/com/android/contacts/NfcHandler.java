@@ -24,6 +24,7 @@ import android.nfc.NdefMessage;
 import android.nfc.NdefRecord;
 import android.nfc.NfcAdapter;
 import android.nfc.NfcEvent;
+import android.os.AsyncTask;
 import android.provider.ContactsContract.Contacts;
 import android.provider.ContactsContract.Profile;
 import android.util.Log;
@@ -39,63 +40,145 @@ import java.io.InputStream;
   * When an NFC link is established, {@link #createMessage}
   * will be called to create the data to be sent over the link,
   * which is a vCard in this case.
+  *
+  * The vCard is built in the background by {@link #prebuild}, whenever the contact is displayed
+  * or changes, so that the message can be sent from memory when the link is established.
   */
 public class NfcHandler implements NfcAdapter.CreateNdefMessageCallback {
 
     private static final String TAG = "ContactNfcHandler";
     private static final String PROFILE_LOOKUP_KEY = "profile";
+    private static final int BUFFER_SIZE = 8 * 1024;
+
     private final Context mContext;
     private final Uri mContactUri;
+    private final NfcAdapter mAdapter;
+
+    /** Guarded by this. The message for the current version of the contact, if built. */
+    private NdefMessage mMessage;
+    /** Guarded by this. Incremented whenever the contact changes. */
+    private int mGeneration;
+    /** The version of the contact passed to {@link #prebuild}, or null. */
+    private String mVersion;
 
-    /* Register NFC handler. This should be called in activities' onCreate(), or similar methods */
-    public static void register(Activity activity, Uri contactUri) {
+    /**
+     * Register NFC handler. This should be called in activities' onCreate(), or similar methods.
+     *
+     * @return the registered handler, or null if NFC isn't available.
+     */
+    public static NfcHandler register(Activity activity, Uri contactUri) {
         NfcAdapter adapter = NfcAdapter.getDefaultAdapter(activity.getApplicationContext());
         if (adapter == null) {
-            return;  // NFC not available on this device
+            return null;  // NFC not available on this device
         }
-        adapter.setNdefPushMessageCallback(new NfcHandler(activity, contactUri), activity);
+        final NfcHandler handler = new NfcHandler(activity, contactUri, adapter);
+        adapter.setNdefPushMessageCallback(handler, activity);
+        return handler;
     }
 
-    public NfcHandler(Context context, Uri contactUri) {
+    public NfcHandler(Context context, Uri contactUri, NfcAdapter adapter) {
         mContext = context;
         mContactUri = contactUri;
+        mAdapter = adapter;
+    }
+
+    /**
+     * Drops the message built for the previous version of the contact, and builds a new one in
+     * the background if Android Beam is enabled. Should be called whenever the contact is
+     * (re)loaded. Nothing is done if the version of the contact didn't change.
+     *
+     * @param version a string that changes whenever the vCard of the contact could change
+     */
+    public void prebuild(String version) {
+        if (mContactUri == null || version.equals(mVersion)) {
+            return;
+        }
+        mVersion = version;
+        final int generation;
+        synchronized (this) {
+            mMessage = null;
+            generation = ++mGeneration;
+        }
+        if (!mAdapter.isEnabled() || !mAdapter.isNdefPushEnabled()) {
+            // The message is built when a link is established, if Beam gets enabled.
+            return;
+        }
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (NfcHandler.this) {
+                    if (generation != mGeneration || mMessage != null) {
+                        return;
+                    }
+                }
+                final NdefMessage message = buildMessage();
+                synchronized (NfcHandler.this) {
+                    if (generation == mGeneration && mMessage == null) {
+                        mMessage = message;
+                    }
+                }
+            }
+        });
     }
 
     @Override
     public NdefMessage createNdefMessage(NfcEvent event) {
-        ContentResolver resolver = mContext.getContentResolver();
-        if (mContactUri != null) {
-            final String lookupKey = Uri.encode(mContactUri.getPathSegments().get(2));
-            final Uri shareUri;
-            // TODO find out where to get this constant from, or find another way
-            // of determining this.
-            if (lookupKey.equals(PROFILE_LOOKUP_KEY)) {
-                shareUri = Profile.CONTENT_VCARD_URI.buildUpon().
-                appendQueryParameter(Contacts.QUERY_PARAMETER_VCARD_NO_PHOTO, "true").
-                build();
-            } else {
-                shareUri = Contacts.CONTENT_VCARD_URI.buildUpon().
-                appendPath(lookupKey).
-                appendQueryParameter(Contacts.QUERY_PARAMETER_VCARD_NO_PHOTO, "true").
-                build();
+        if (mContactUri == null) {
+            Log.w(TAG, "No contact URI to share.");
+            return null;
+        }
+        final int generation;
+        synchronized (this) {
+            if (mMessage != null) {
+                return mMessage;
             }
-            ByteArrayOutputStream ndefBytes = new ByteArrayOutputStream();
-            byte[] buffer = new byte[1024];
-            int r;
-            try {
-                InputStream vcardInputStream = resolver.openInputStream(shareUri);
-                while ((r = vcardInputStream.read(buffer)) > 0) {
-                    ndefBytes.write(buffer, 0, r);
-                }
+            generation = mGeneration;
+        }
+        // Not built yet, or the contact just changed.
+        final NdefMessage message = buildMessage();
+        synchronized (this) {
+            if (generation == mGeneration && mMessage == null) {
+                mMessage = message;
+            }
+        }
+        return message;
+    }
 
-                NdefRecord record = NdefRecord.createMime("text/x-vcard", ndefBytes.toByteArray());
-                return new NdefMessage(record);
-            } catch (IOException e) {
-                Log.e(TAG, "IOException creating vcard.");
+    /**
+     * Reads the vCard of the contact. Returns null on failure.
+     */
+    private NdefMessage buildMessage() {
+        ContentResolver resolver = mContext.getContentResolver();
+        final String lookupKey = Uri.encode(mContactUri.getPathSegments().get(2));
+        final Uri shareUri;
+        // TODO find out where to get this constant from, or find another way
+        // of determining this.
+        if (lookupKey.equals(PROFILE_LOOKUP_KEY)) {
+            shareUri = Profile.CONTENT_VCARD_URI.buildUpon().
+            appendQueryParameter(Contacts.QUERY_PARAMETER_VCARD_NO_PHOTO, "true").
+            build();
+        } else {
+            shareUri = Contacts.CONTENT_VCARD_URI.buildUpon().
+            appendPath(lookupKey).
+            appendQueryParameter(Contacts.QUERY_PARAMETER_VCARD_NO_PHOTO, "true").
+            build();
+        }
+        ByteArrayOutputStream ndefBytes = new ByteArrayOutputStream(BUFFER_SIZE);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int r;
+        try (InputStream vcardInputStream = resolver.openInputStream(shareUri)) {
+            if (vcardInputStream == null) {
+                Log.e(TAG, "No vcard for " + shareUri);
                 return null;
             }
-        } else {
-            Log.w(TAG, "No contact URI to share.");
+            while ((r = vcardInputStream.read(buffer)) > 0) {
+                ndefBytes.write(buffer, 0, r);
+            }
+
+            NdefRecord record = NdefRecord.createMime("text/x-vcard", ndefBytes.toByteArray());
+            return new NdefMessage(record);
+        } catch (IOException e) {
+            Log.e(TAG, "IOException creating vcard.");
             return null;
         }
     }
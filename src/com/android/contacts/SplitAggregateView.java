@@ -16,10 +16,12 @@
 
 package com.android.contacts;
 
+import android.content.ContentUris;
 import android.content.Context;
 import android.database.Cursor;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.provider.ContactsContract.CommonDataKinds.Email;
 import android.provider.ContactsContract.CommonDataKinds.Nickname;
 import android.provider.ContactsContract.CommonDataKinds.Phone;
@@ -39,9 +41,9 @@ import com.android.contacts.common.model.AccountTypeManager;
 import com.android.contacts.common.model.account.AccountType;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A list view for constituent contacts of an aggregate.  Shows the contact name, source icon
@@ -68,11 +70,38 @@ public class SplitAggregateView extends ListView {
         int NICKNAME = 6;
         int EMAIL = 7;
         int PHONE = 8;
+
+        String SELECTION = Data.MIMETYPE + " IN (?,?,?,?)";
+        String[] SELECTION_ARGS = new String[] {
+                StructuredName.CONTENT_ITEM_TYPE, Nickname.CONTENT_ITEM_TYPE,
+                Email.CONTENT_ITEM_TYPE, Phone.CONTENT_ITEM_TYPE
+        };
+
+        /** Groups the rows of each raw contact, so that it can be shown as soon as it's read. */
+        String SORT_ORDER = Data.RAW_CONTACT_ID;
+    }
+
+    /**
+     * The raw contacts of the aggregate, including the ones without any of the data rows of
+     * {@link SplitQuery}.
+     */
+    private interface RawContactsQuery {
+        String[] COLUMNS = new String[] {
+                RawContacts._ID, RawContacts.ACCOUNT_TYPE, RawContacts.DATA_SET
+        };
+
+        int RAW_CONTACT_ID = 0;
+        int ACCOUNT_TYPE = 1;
+        int DATA_SET = 2;
+
+        String SELECTION = RawContacts.CONTACT_ID + "=? AND " + RawContacts.DELETED + "=0";
     }
 
     private final Uri mAggregateUri;
     private OnContactSelectedListener mListener;
     private AccountTypeManager mAccountTypes;
+    private final SplitAggregateAdapter mAdapter;
+    private LoadTask mLoadTask;
 
     /**
      * Listener interface that gets the contact ID of the user-selected contact.
@@ -91,15 +120,26 @@ public class SplitAggregateView extends ListView {
 
         mAccountTypes = AccountTypeManager.getInstance(context);
 
-        final List<RawContactInfo> list = loadData();
-
-        setAdapter(new SplitAggregateAdapter(context, list));
+        mAdapter = new SplitAggregateAdapter(context, new ArrayList<RawContactInfo>());
+        setAdapter(mAdapter);
         setOnItemClickListener(new OnItemClickListener() {
 
             public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                mListener.onContactSelected(list.get(position).rawContactId);
+                mListener.onContactSelected(mAdapter.getItem(position).rawContactId);
             }
         });
+
+        mLoadTask = new LoadTask();
+        mLoadTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mLoadTask != null) {
+            mLoadTask.cancel(false);
+            mLoadTask = null;
+        }
     }
 
     /**
@@ -148,27 +188,77 @@ public class SplitAggregateView extends ListView {
         }
     }
 
+    /**
+     * Loads the data rows shown in the list on a background thread and adds each
+     * {@link RawContactInfo} to the adapter, in sorted position, as soon as all of its rows
+     * have been read.
+     */
+    private class LoadTask extends AsyncTask<Void, RawContactInfo, Void> {
+        private final Context mContext = getContext();
+
+        @Override
+        protected Void doInBackground(Void... params) {
+            loadData(this);
+            return null;
+        }
+
+        @Override
+        protected void onProgressUpdate(RawContactInfo... infos) {
+            for (RawContactInfo info : infos) {
+                mAdapter.insert(info, getInsertPosition(info));
+            }
+        }
+
+        @Override
+        protected void onPostExecute(Void result) {
+            mLoadTask = null;
+        }
+
+        private void publish(RawContactInfo info) {
+            publishProgress(info);
+        }
+    }
+
+    /**
+     * Returns the position after the last item not greater than {@param info}, which keeps the
+     * list sorted, and keeps equal items in the order they were loaded.
+     */
+    private int getInsertPosition(RawContactInfo info) {
+        int position = mAdapter.getCount();
+        while (position > 0 && mAdapter.getItem(position - 1).compareTo(info) > 0) {
+            position--;
+        }
+        return position;
+    }
+
     /**
      * Loads data from the content provider, organizes it into {@link RawContactInfo} objects
-     * and returns a sorted list of {@link RawContactInfo}'s.
+     * and hands each of them to {@param task} once it is complete.
+     *
+     * This method is called on a worker thread.
      */
-    private List<RawContactInfo> loadData() {
-        HashMap<Long, RawContactInfo> rawContactInfos = new HashMap<Long, RawContactInfo>();
+    private void loadData(LoadTask task) {
+        // The data query only returns the rows shown in the list, the raw contacts that have
+        // none of them are shown without additional data.
+        final Map<Long, RawContactInfo> rawContacts = loadRawContacts(task);
         Uri dataUri = Uri.withAppendedPath(mAggregateUri, Data.CONTENT_DIRECTORY);
-        Cursor cursor = getContext().getContentResolver().query(dataUri,
-                SplitQuery.COLUMNS, null, null, null);
-        if (cursor == null) {
-            return Collections.emptyList();
-        }
+        Cursor cursor = task.mContext.getContentResolver().query(dataUri,
+                SplitQuery.COLUMNS, SplitQuery.SELECTION, SplitQuery.SELECTION_ARGS,
+                SplitQuery.SORT_ORDER);
+        RawContactInfo info = null;
         try {
-            while (cursor.moveToNext()) {
+            while (cursor != null && cursor.moveToNext() && !task.isCancelled()) {
                 long rawContactId = cursor.getLong(SplitQuery.RAW_CONTACT_ID);
-                RawContactInfo info = rawContactInfos.get(rawContactId);
-                if (info == null) {
-                    info = new RawContactInfo(rawContactId);
-                    rawContactInfos.put(rawContactId, info);
-                    info.accountType = cursor.getString(SplitQuery.ACCOUNT_TYPE);
-                    info.dataSet = cursor.getString(SplitQuery.DATA_SET);
+                if (info == null || info.rawContactId != rawContactId) {
+                    if (info != null) {
+                        task.publish(info);
+                    }
+                    info = rawContacts.remove(rawContactId);
+                    if (info == null) {
+                        info = new RawContactInfo(rawContactId);
+                        info.accountType = cursor.getString(SplitQuery.ACCOUNT_TYPE);
+                        info.dataSet = cursor.getString(SplitQuery.DATA_SET);
+                    }
                 }
 
                 String mimetype = cursor.getString(SplitQuery.MIMETYPE);
@@ -183,12 +273,45 @@ public class SplitAggregateView extends ListView {
                 }
             }
         } finally {
-            cursor.close();
+            if (cursor != null) {
+                cursor.close();
+            }
         }
+        if (info != null && !task.isCancelled()) {
+            task.publish(info);
+        }
+        for (RawContactInfo rawContact : rawContacts.values()) {
+            if (task.isCancelled()) {
+                break;
+            }
+            task.publish(rawContact);
+        }
+    }
 
-        List<RawContactInfo> list = new ArrayList<RawContactInfo>(rawContactInfos.values());
-        Collections.sort(list);
-        return list;
+    /**
+     * Returns the raw contacts of the aggregate by id, in id order.
+     */
+    private Map<Long, RawContactInfo> loadRawContacts(LoadTask task) {
+        final Map<Long, RawContactInfo> rawContacts = new LinkedHashMap<Long, RawContactInfo>();
+        Cursor cursor = task.mContext.getContentResolver().query(RawContacts.CONTENT_URI,
+                RawContactsQuery.COLUMNS, RawContactsQuery.SELECTION,
+                new String[] {String.valueOf(ContentUris.parseId(mAggregateUri))},
+                RawContacts._ID);
+        if (cursor == null) {
+            return rawContacts;
+        }
+        try {
+            while (cursor.moveToNext()) {
+                final RawContactInfo info =
+                        new RawContactInfo(cursor.getLong(RawContactsQuery.RAW_CONTACT_ID));
+                info.accountType = cursor.getString(RawContactsQuery.ACCOUNT_TYPE);
+                info.dataSet = cursor.getString(RawContactsQuery.DATA_SET);
+                rawContacts.put(info.rawContactId, info);
+            }
+        } finally {
+            cursor.close();
+        }
+        return rawContacts;
     }
 
     private void loadStructuredName(Cursor cursor, RawContactInfo info) {
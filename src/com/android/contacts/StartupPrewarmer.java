@@ -0,0 +1,356 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts;
+
+import android.content.ContentUris;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.provider.ContactsContract.Contacts;
+import android.util.Log;
+
+import com.android.contacts.common.ContactPhotoManager;
+import com.android.contacts.common.model.AccountTypeManager;
+import com.android.contacts.common.model.account.AccountType;
+import com.android.contacts.common.model.dataitem.DataKind;
+import com.android.contacts.common.util.Constants;
+import com.android.contacts.common.util.PermissionsUtil;
+import com.android.contacts.list.ProviderStatusWatcher;
+import com.android.contacts.quickcontact.ResolveCache;
+import com.android.contacts.util.PhonebookCollatorFactory;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms up the state the first {@link com.android.contacts.activities.PeopleActivity} needs,
+ * while the process is starting.
+ *
+ * Each {@link Stage} runs at most once per process. Background stages run on a small pool in
+ * {@link Priority} order; stages that must be set up on the main thread run when it is first
+ * idle, i.e. after the first activity has drawn. UI code that depends on a stage should use
+ * {@link #runWhenDone} rather than make the blocking call itself.
+ *
+ * Per-stage timings are logged with {@link Constants#PERFORMANCE_TAG} and are reported by the
+ * launch performance instrumentation.
+ */
+public final class StartupPrewarmer {
+    private static final String TAG = "StartupPrewarmer";
+
+    /** Background stages rarely block on each other, two threads are enough. */
+    private static final int POOL_SIZE = 2;
+    private static final int KEEP_ALIVE_SECONDS = 1;
+
+    public enum Priority {
+        /** Needed to show the first screen. */
+        CRITICAL(Process.THREAD_PRIORITY_DEFAULT),
+        /** Needed shortly after the first screen is shown. */
+        HIGH(Process.THREAD_PRIORITY_BACKGROUND),
+        /** Nice to have, e.g. for the first sort or search. */
+        LOW(Process.THREAD_PRIORITY_LOWEST);
+
+        final int threadPriority;
+
+        Priority(int threadPriority) {
+            this.threadPriority = threadPriority;
+        }
+    }
+
+    public enum Stage {
+        PROVIDER_STATUS(Priority.CRITICAL, false),
+        ACCOUNT_TYPES(Priority.CRITICAL, false),
+        PREFERENCES(Priority.HIGH, false),
+        CONTACTS_PROVIDER(Priority.HIGH, false),
+        PHOTO_MANAGER(Priority.HIGH, true),
+        COLLATOR(Priority.LOW, false),
+        RESOLVE_CACHE(Priority.LOW, false);
+
+        public final Priority priority;
+        /** Whether the stage creates objects that are bound to the main thread's looper. */
+        final boolean runsOnMainThread;
+
+        Stage(Priority priority, boolean runsOnMainThread) {
+            this.priority = priority;
+            this.runsOnMainThread = runsOnMainThread;
+        }
+    }
+
+    private static StartupPrewarmer sInstance;
+
+    private final Context mContext;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final EnumMap<Stage, StageTask> mTasks = new EnumMap<>(Stage.class);
+    private final CountDownLatch mAllDone = new CountDownLatch(Stage.values().length);
+    private final AtomicInteger mSequence = new AtomicInteger();
+    private ThreadPoolExecutor mExecutor;
+    private long mStartTime;
+
+    public static synchronized StartupPrewarmer getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new StartupPrewarmer(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private StartupPrewarmer(Context context) {
+        mContext = context;
+        for (Stage stage : Stage.values()) {
+            mTasks.put(stage, new StageTask(stage));
+        }
+    }
+
+    /**
+     * Starts every stage. Must be called on the main thread, subsequent calls are ignored.
+     */
+    public void start() {
+        if (mExecutor != null) {
+            return;
+        }
+        mStartTime = SystemClock.elapsedRealtime();
+        mExecutor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger mCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        return new Thread(runnable, TAG + " #" + mCount.incrementAndGet());
+                    }
+                });
+        // The pool is only busy during startup, don't keep its threads around afterwards.
+        mExecutor.allowCoreThreadTimeOut(true);
+
+        for (final StageTask task : mTasks.values()) {
+            task.mQueuedAt = SystemClock.elapsedRealtime();
+            if (task.mStage.runsOnMainThread) {
+                Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+                    @Override
+                    public boolean queueIdle() {
+                        task.run();
+                        return false;
+                    }
+                });
+            } else {
+                mExecutor.execute(task);
+            }
+        }
+    }
+
+    /**
+     * Runs {@code runnable} on the main thread once {@code stage} is done, immediately if it
+     * already is or if the pre-warmer has not been started. Must be called on the main thread.
+     */
+    public void runWhenDone(Stage stage, final Runnable runnable) {
+        final StageTask task = mTasks.get(stage);
+        if (mExecutor == null || task.isDone()) {
+            runnable.run();
+            return;
+        }
+        task.addCallback(runnable);
+    }
+
+    /**
+     * Returns whether {@code stage} has finished, successfully or not.
+     */
+    public boolean isDone(Stage stage) {
+        return mTasks.get(stage).isDone();
+    }
+
+    /**
+     * Waits for all stages to finish. Returns false if they did not finish in time. Must not be
+     * called on the main thread, which runs some of the stages.
+     */
+    public boolean awaitCompletion(long timeoutMillis) throws InterruptedException {
+        return mAllDone.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns how long {@code stage} ran, in milliseconds, or -1 if it has not finished.
+     */
+    public long getStageDurationMillis(Stage stage) {
+        final StageTask task = mTasks.get(stage);
+        return task.mFinishedAt == 0 ? -1 : task.mFinishedAt - task.mStartedAt;
+    }
+
+    /**
+     * Returns how long {@code stage} waited to be run, in milliseconds, or -1 if it has not
+     * started.
+     */
+    public long getStageDelayMillis(Stage stage) {
+        final StageTask task = mTasks.get(stage);
+        return task.mStartedAt == 0 ? -1 : task.mStartedAt - task.mQueuedAt;
+    }
+
+    /**
+     * Returns the time from {@link #start} until the last stage finished, in milliseconds, or -1
+     * if some stages have not finished.
+     */
+    public long getTotalDurationMillis() {
+        long lastFinishedAt = 0;
+        for (StageTask task : mTasks.values()) {
+            if (task.mFinishedAt == 0) {
+                return -1;
+            }
+            lastFinishedAt = Math.max(lastFinishedAt, task.mFinishedAt);
+        }
+        return lastFinishedAt - mStartTime;
+    }
+
+    private void runStage(Stage stage) {
+        switch (stage) {
+            case PROVIDER_STATUS:
+                // Lets the first ProviderStatusWatcher#getProviderStatus() return the actual
+                // status rather than the one of the previous launch.
+                if (PermissionsUtil.hasContactsPermissions(mContext)) {
+                    ProviderStatusWatcher.getInstance(mContext).preload();
+                }
+                break;
+            case ACCOUNT_TYPES:
+                // We may not have the contacts group permission (and thus not have the get
+                // accounts permission) yet, in which case the activity asks for it first.
+                if (PermissionsUtil.hasContactsPermissions(mContext)) {
+                    AccountTypeManager.getInstance(mContext).getAccounts(false);
+                }
+                break;
+            case PREFERENCES:
+                PreferenceManager.getDefaultSharedPreferences(mContext);
+                break;
+            case CONTACTS_PROVIDER:
+                mContext.getContentResolver().getType(
+                        ContentUris.withAppendedId(Contacts.CONTENT_URI, 1));
+                break;
+            case PHOTO_MANAGER:
+                ContactPhotoManager.getInstance(mContext);
+                break;
+            case COLLATOR:
+                PhonebookCollatorFactory.getCollator();
+                break;
+            case RESOLVE_CACHE:
+                // QuickContact looks up the apps that view the data of third party account
+                // types, resolve them before the first contact is opened.
+                if (PermissionsUtil.hasContactsPermissions(mContext)) {
+                    ResolveCache.getInstance(mContext).prewarm(getExternalMimeTypes());
+                }
+                break;
+        }
+    }
+
+    private List<String> getExternalMimeTypes() {
+        final List<String> mimeTypes = new ArrayList<>();
+        for (AccountType accountType :
+                AccountTypeManager.getInstance(mContext).getAccountTypes(false)) {
+            if (!accountType.isExternal()) {
+                continue;
+            }
+            for (DataKind kind : accountType.getSortedDataKinds()) {
+                if (!mimeTypes.contains(kind.mimeType)) {
+                    mimeTypes.add(kind.mimeType);
+                }
+            }
+        }
+        return mimeTypes;
+    }
+
+    private final class StageTask extends FutureTask<Void> implements Comparable<StageTask> {
+        private final Stage mStage;
+        private final int mSequenceNumber = mSequence.getAndIncrement();
+        /** Guarded by this. Null once the callbacks have been posted. */
+        private ArrayList<Runnable> mCallbacks = new ArrayList<>(1);
+        private volatile long mQueuedAt;
+        private volatile long mStartedAt;
+        private volatile long mFinishedAt;
+
+        StageTask(final Stage stage) {
+            super(new Runnable() {
+                @Override
+                public void run() {
+                    runStage(stage);
+                }
+            }, null);
+            mStage = stage;
+        }
+
+        @Override
+        public void run() {
+            mStartedAt = SystemClock.elapsedRealtime();
+            final boolean onPool = !mStage.runsOnMainThread;
+            if (onPool) {
+                Process.setThreadPriority(mStage.priority.threadPriority);
+            }
+            try {
+                super.run();
+            } finally {
+                if (onPool) {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                }
+            }
+        }
+
+        @Override
+        protected void done() {
+            mFinishedAt = SystemClock.elapsedRealtime();
+            try {
+                get();
+            } catch (Exception e) {
+                // Pre-warming is best effort, the stage will be redone when it is needed.
+                Log.w(TAG, "Stage " + mStage + " failed", e);
+            }
+            if (Log.isLoggable(Constants.PERFORMANCE_TAG, Log.DEBUG)) {
+                Log.d(Constants.PERFORMANCE_TAG, "Prewarm " + mStage + ": waited "
+                        + (mStartedAt - mQueuedAt) + "ms, ran " + (mFinishedAt - mStartedAt)
+                        + "ms");
+            }
+
+            final ArrayList<Runnable> callbacks;
+            synchronized (this) {
+                callbacks = mCallbacks;
+                mCallbacks = null;
+            }
+            for (Runnable callback : callbacks) {
+                mMainHandler.post(callback);
+            }
+            mAllDone.countDown();
+        }
+
+        void addCallback(Runnable callback) {
+            synchronized (this) {
+                if (mCallbacks != null) {
+                    mCallbacks.add(callback);
+                    return;
+                }
+            }
+            mMainHandler.post(callback);
+        }
+
+        @Override
+        public int compareTo(StageTask another) {
+            final int result = mStage.priority.compareTo(another.mStage.priority);
+            return result != 0 ? result : mSequenceNumber - another.mSequenceNumber;
+        }
+    }
+}
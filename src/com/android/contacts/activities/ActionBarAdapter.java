@@ -46,6 +46,7 @@ import com.android.contacts.R;
 import com.android.contacts.activities.ActionBarAdapter.Listener.Action;
 import com.android.contacts.common.compat.CompatUtils;
 import com.android.contacts.list.ContactsRequest;
+import com.android.contacts.util.SearchQueryDispatcher;
 
 /**
  * Adapter for the action bar at the top of the Contacts activity.
@@ -114,6 +115,17 @@ public class ActionBarAdapter implements OnCloseListener {
 
     private boolean mShowHomeIcon;
 
+    /** Notifies the listener of query changes once the user pauses typing. */
+    private final SearchQueryDispatcher mQueryDispatcher = new SearchQueryDispatcher(
+            new SearchQueryDispatcher.Listener() {
+                @Override
+                public void onQueryChanged(String query) {
+                    if (mSearchMode && mListener != null && !mActivity.isFinishing()) {
+                        mListener.onAction(Action.CHANGE_SEARCH_QUERY);
+                    }
+                }
+            });
+
     // build action bar with a spinner
     private SelectionMenu mSelectionMenu;
     private PopupListListener mPopupListListener;
@@ -257,8 +269,8 @@ public class ActionBarAdapter implements OnCloseListener {
                 if (!TextUtils.isEmpty(queryString)) {
                     setSearchMode(true);
                 }
-            } else if (mListener != null) {
-                mListener.onAction(Action.CHANGE_SEARCH_QUERY);
+            } else {
+                mQueryDispatcher.setQuery(mQueryString);
             }
             mClearSearchView.setVisibility(
                     TextUtils.isEmpty(queryString) ? View.GONE : View.VISIBLE);
@@ -315,6 +327,7 @@ public class ActionBarAdapter implements OnCloseListener {
     public void setSearchMode(boolean flag) {
         if (mSearchMode != flag) {
             mSearchMode = flag;
+            mQueryDispatcher.cancel();
             update(false /* skipAnimation */);
             if (mSearchView == null) {
                 return;
@@ -28,6 +28,7 @@ import android.content.pm.ResolveInfo;
 import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.provider.ContactsContract.CommonDataKinds.Photo;
 import android.provider.ContactsContract.Contacts;
@@ -285,32 +286,61 @@ public class AttachPhotoActivity extends ContactsActivity {
         saveToContact(contact, deltaList, raw);
     }
 
-    private void saveToContact(Contact contact, RawContactDeltaList deltaList,
-            RawContactDelta raw) {
-
-        // Create a scaled, compressed bitmap to add to the entity-delta list.
+    private void saveToContact(final Contact contact, final RawContactDeltaList deltaList,
+            final RawContactDelta raw) {
+        // Create a scaled, compressed bitmap to add to the entity-delta list, off the UI thread.
         final int size = ContactsUtils.getThumbnailSize(this);
+        final Uri croppedPhotoUri = mCroppedPhotoUri;
+        new AsyncTask<Void, Void, byte[]>() {
+            @Override
+            protected byte[] doInBackground(Void... params) {
+                return compressThumbnail(croppedPhotoUri, size);
+            }
+
+            @Override
+            protected void onPostExecute(byte[] compressed) {
+                if (isFinishing()) {
+                    return;
+                }
+                if (compressed == null) {
+                    finish();
+                    return;
+                }
+                saveToContact(contact, deltaList, raw, compressed);
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Returns the photo at {@param photoUri} scaled to a {@param size} square and compressed,
+     * or null if it can't be read.
+     *
+     * This method is called on a worker thread.
+     */
+    private byte[] compressThumbnail(Uri photoUri, int size) {
         Bitmap bitmap;
         try {
-            bitmap = ContactPhotoUtils.getBitmapFromUri(this, mCroppedPhotoUri);
+            // Only decode as many pixels as the thumbnail needs.
+            bitmap = ContactPhotoUtils.getBitmapFromUri(this, photoUri, size);
         } catch (FileNotFoundException e) {
             Log.w(TAG, "Could not find bitmap");
-            finish();
-            return;
+            return null;
         }
         if (bitmap == null) {
             Log.w(TAG, "Could not decode bitmap");
-            finish();
-            return;
+            return null;
         }
 
         final Bitmap scaled = Bitmap.createScaledBitmap(bitmap, size, size, false);
         final byte[] compressed = ContactPhotoUtils.compressBitmap(scaled);
         if (compressed == null) {
             Log.w(TAG, "could not create scaled and compressed Bitmap");
-            finish();
-            return;
         }
+        return compressed;
+    }
+
+    private void saveToContact(Contact contact, RawContactDeltaList deltaList,
+            RawContactDelta raw, byte[] compressed) {
 
         // Add compressed bitmap to entity-delta... this allows us to save to
         // a new contact; otherwise the entity-delta-list would be empty, and
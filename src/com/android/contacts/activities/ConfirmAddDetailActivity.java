@@ -37,6 +37,7 @@ import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Parcelable;
 import android.os.RemoteException;
+import android.os.SystemClock;
 import android.provider.ContactsContract;
 import android.provider.ContactsContract.CommonDataKinds.Email;
 import android.provider.ContactsContract.CommonDataKinds.Im;
@@ -82,6 +83,8 @@ import com.android.contacts.common.SimContactsOperation;
 import com.android.contacts.util.DialogManager;
 import com.android.contacts.common.util.EmptyService;
 
+import com.google.common.collect.Lists;
+
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -855,6 +858,11 @@ public class ConfirmAddDetailActivity extends Activity implements
         // the danger of the activity being null during a save action
         private static final int PERSIST_TRIES = 3;
 
+        private static final String[] VERSION_PROJECTION = new String[] {
+            RawContacts.VERSION,
+            RawContacts.DELETED,
+        };
+
         private static final int RESULT_UNCHANGED = 0;
         private static final int RESULT_SUCCESS = 1;
         private static final int RESULT_FAILURE = 2;
@@ -865,6 +873,11 @@ public class ConfirmAddDetailActivity extends Activity implements
 
         private boolean isSimAccount;
 
+        private long mStartTime;
+
+        /** Whether the changes were saved by only appending data rows. */
+        private boolean mAppended;
+
         public PersistTask(ConfirmAddDetailActivity target, AccountTypeManager accountTypeManager) {
             this(target, accountTypeManager, false);
         }
@@ -878,6 +891,7 @@ public class ConfirmAddDetailActivity extends Activity implements
 
         @Override
         protected void onPreExecute() {
+            mStartTime = SystemClock.elapsedRealtime();
             sProgressDialog = new WeakReference<ProgressDialog>(ProgressDialog.show(activityTarget,
                     null, activityTarget.getText(R.string.savingContact)));
 
@@ -901,6 +915,10 @@ public class ConfirmAddDetailActivity extends Activity implements
             // Trim any empty fields, and RawContacts, before persisting
             RawContactModifier.trimEmpty(state, mAccountTypeManager);
 
+            // Most of the time the detail is only added to an existing raw contact, which
+            // doesn't need a diff of the whole contact.
+            final RawContactDelta appendTarget = getAppendTarget(state);
+
             // Attempt to persist changes
             int tries = 0;
             Integer result = RESULT_FAILURE;
@@ -911,7 +929,9 @@ public class ConfirmAddDetailActivity extends Activity implements
                     // is read-only, buildDiff() will create aggregation exceptions to join
                     // the new one to the existing contact.
 
-                    if (isSimAccount) {
+                    if (isSimAccount && tries == 1) {
+                        // The card only needs to be written once, even if the database
+                        // write is retried.
                         SimContactsOperation mSimContactsOperation =
                                 new SimContactsOperation(context);
 
@@ -928,6 +948,14 @@ public class ConfirmAddDetailActivity extends Activity implements
                         }
                     }
 
+                    if (appendTarget != null) {
+                        resolver.applyBatch(ContactsContract.AUTHORITY,
+                                buildAppendDiff(appendTarget));
+                        mAppended = true;
+                        result = RESULT_SUCCESS;
+                        break;
+                    }
+
                     final ArrayList<ContentProviderOperation> diff = state.buildDiff();
                     ContentProviderResult[] results = null;
                     if (!diff.isEmpty()) {
@@ -943,7 +971,13 @@ public class ConfirmAddDetailActivity extends Activity implements
                     break;
 
                 } catch (OperationApplicationException e) {
-                    // Version consistency failed, bail without success
+                    // Version consistency failed. Appending a row doesn't conflict with other
+                    // edits of the raw contact, so try again unless it has been deleted.
+                    if (appendTarget != null && refreshVersion(resolver, appendTarget)) {
+                        Log.w(TAG, "Raw contact changed while appending, retrying", e);
+                        continue;
+                    }
+                    // Bail without success
                     Log.e(TAG, "Version consistency failed", e);
                     break;
                 }
@@ -952,6 +986,85 @@ public class ConfirmAddDetailActivity extends Activity implements
             return result;
         }
 
+        /**
+         * Returns the raw contact to append data rows to, if the only changes in {@param state}
+         * are data rows inserted into a single existing raw contact, or null if the whole diff
+         * has to be built.
+         */
+        private static RawContactDelta getAppendTarget(RawContactDeltaList state) {
+            RawContactDelta target = null;
+            for (RawContactDelta rawContactDelta : state) {
+                final ValuesDelta values = rawContactDelta.getValues();
+                if (values.isInsert() || values.isUpdate() || values.isDelete()) {
+                    return null;
+                }
+                for (String mimeType : rawContactDelta.getMimeTypes()) {
+                    for (ValuesDelta entry : rawContactDelta.getMimeEntries(mimeType)) {
+                        if (entry.isUpdate() || entry.isDelete()) {
+                            return null;
+                        }
+                        if (entry.isInsert()) {
+                            if (target != null && target != rawContactDelta) {
+                                return null;
+                            }
+                            target = rawContactDelta;
+                        }
+                    }
+                }
+            }
+            if (target == null || target.getValues().getAsLong(RawContacts.VERSION) == null) {
+                return null;
+            }
+            return target;
+        }
+
+        /**
+         * Builds the inserts of the new data rows of {@param target}, after an assertion that
+         * the raw contact hasn't changed since its version was read.
+         */
+        private static ArrayList<ContentProviderOperation> buildAppendDiff(
+                RawContactDelta target) {
+            final long rawContactId = target.getRawContactId();
+            final ArrayList<ContentProviderOperation> diff = Lists.newArrayList();
+            diff.add(ContentProviderOperation.newAssertQuery(RawContacts.CONTENT_URI)
+                    .withSelection(RawContacts._ID + "=" + rawContactId, null)
+                    .withValue(RawContacts.VERSION,
+                            target.getValues().getAsLong(RawContacts.VERSION))
+                    .build());
+            for (String mimeType : target.getMimeTypes()) {
+                for (ValuesDelta entry : target.getMimeEntries(mimeType)) {
+                    if (entry.isInsert()) {
+                        diff.add(entry.buildDiff(Data.CONTENT_URI)
+                                .withValue(Data.RAW_CONTACT_ID, rawContactId)
+                                .build());
+                    }
+                }
+            }
+            return diff;
+        }
+
+        /**
+         * Reads the current version of {@param target}. Returns false if the raw contact doesn't
+         * exist anymore.
+         */
+        private static boolean refreshVersion(ContentResolver resolver, RawContactDelta target) {
+            final Cursor cursor = resolver.query(ContentUris.withAppendedId(
+                    RawContacts.CONTENT_URI, target.getRawContactId()), VERSION_PROJECTION,
+                    null, null, null);
+            if (cursor == null) {
+                return false;
+            }
+            try {
+                if (!cursor.moveToFirst() || cursor.getInt(1) != 0) {
+                    return false;
+                }
+                target.getValues().put(RawContacts.VERSION, cursor.getLong(0));
+                return true;
+            } finally {
+                cursor.close();
+            }
+        }
+
         /** {@inheritDoc} */
         @Override
         protected void onPostExecute(Integer result) {
@@ -959,6 +1072,11 @@ public class ConfirmAddDetailActivity extends Activity implements
 
             dismissProgressDialog();
 
+            if (VERBOSE_LOGGING) {
+                Log.v(TAG, "Saved detail in " + (SystemClock.elapsedRealtime() - mStartTime)
+                        + "ms, appended: " + mAppended + ", result: " + result);
+            }
+
             // Show a toast message based on the success or failure of the save action.
             if (result == RESULT_SUCCESS) {
                 Toast.makeText(context, R.string.contactSavedToast, Toast.LENGTH_SHORT).show();
@@ -66,6 +66,7 @@ import com.android.contacts.list.OnPostalAddressPickerActionListener;
 import com.android.contacts.common.list.PhoneNumberPickerFragment;
 import com.android.contacts.common.util.ImplicitIntentsUtil;
 import com.android.contacts.list.PostalAddressPickerFragment;
+import com.android.contacts.util.SearchQueryDispatcher;
 import com.google.common.collect.Sets;
 
 import java.util.ArrayList;
@@ -97,6 +98,16 @@ public class ContactSelectionActivity extends ContactsActivity
     private SearchView mSearchView;
     private View mSearchViewContainer;
 
+    private final SearchQueryDispatcher mQueryDispatcher = new SearchQueryDispatcher(
+            new SearchQueryDispatcher.Listener() {
+                @Override
+                public void onQueryChanged(String query) {
+                    if (mListFragment != null && !isFinishing()) {
+                        mListFragment.setQueryString(query, true);
+                    }
+                }
+            });
+
     public ContactSelectionActivity() {
         mIntentResolver = new ContactsIntentResolver(this);
     }
@@ -589,12 +600,13 @@ public class ContactSelectionActivity extends ContactsActivity
 
     @Override
     public boolean onQueryTextChange(String newText) {
-        mListFragment.setQueryString(newText, true);
+        mQueryDispatcher.setQuery(newText);
         return false;
     }
 
     @Override
     public boolean onQueryTextSubmit(String query) {
+        mQueryDispatcher.flush();
         return false;
     }
 
@@ -58,7 +58,6 @@ import android.provider.CallLog;
 import android.provider.ContactsContract;
 import android.provider.CallLog.Calls;
 import android.provider.ContactsContract.CommonDataKinds.Email;
-import android.provider.ContactsContract.CommonDataKinds.GroupMembership;
 import android.provider.ContactsContract.CommonDataKinds.Phone;
 import android.provider.ContactsContract.Contacts;
 import android.provider.ContactsContract.Groups;
@@ -92,6 +91,7 @@ import android.widget.Toast;
 
 import com.android.contacts.activities.PeopleActivity;
 import com.android.contacts.R;
+import com.android.contacts.group.GroupMemberMover;
 import com.android.contacts.common.ContactPhotoManager;
 import com.android.contacts.common.ContactPhotoManager.DefaultImageRequest;
 import com.android.contacts.common.SimContactsConstants;
@@ -1721,36 +1721,19 @@ public class MultiPickContactActivity extends ListActivity implements
         }
     }
 
-    class MoveGroupMemberTask extends AsyncTask<Object, Object, Object> {
-
-        private static final String GROUP_QUERY_GROUP_MEMBER_SELECTION =
-                Data.MIMETYPE + "=? AND "
-                        + GroupMembership.GROUP_ROW_ID + "=?";
-
-        private static final String GROUP_QUERY_RAW_CONTACTS_SELECTION =
-                RawContacts.CONTACT_ID + "=?";
-
-        private static final String GROUP_DELETE_MEMBER_SELECTION = Data.CONTACT_ID
-                + "=? AND "
-                + Data.MIMETYPE
-                + "=? AND "
-                + GroupMembership.GROUP_ROW_ID
-                + "=?";
+    class MoveGroupMemberTask extends AsyncTask<Object, Integer, Object> {
 
         private Bundle mChoiceSet;
         private long mDestGroupId;
         private long mSrcGroupId;
-        private boolean mCanceled = false;
+        private final GroupMemberMover mMover;
 
-        private ArrayList<ContentProviderOperation> mAddOrMoveOperation;
-        private ArrayList<ContentProviderOperation> mDeleteOperation;
-        private ArrayList<String> mGroupMemberList = new ArrayList<String>();
-
-        public MoveGroupMemberTask(Bundle choiceSet,
-                long srcGroupId, long destGroupId) {
+        public MoveGroupMemberTask(Bundle choiceSet, long srcGroupId, long destGroupId) {
             mChoiceSet = choiceSet;
             mSrcGroupId = srcGroupId;
             mDestGroupId = destGroupId;
+            mMover = new GroupMemberMover(mContext.getContentResolver(), srcGroupId,
+                    destGroupId);
         }
 
         @Override
@@ -1764,7 +1747,7 @@ public class MultiPickContactActivity extends ListActivity implements
             mProgressDialog.setCanceledOnTouchOutside(false);
             mProgressDialog.setOnCancelListener(new OnCancelListener() {
                 public void onCancel(DialogInterface dialog) {
-                    mCanceled = true;
+                    mMover.cancel();
                 }
             });
             mProgressDialog.show();
@@ -1772,111 +1755,23 @@ public class MultiPickContactActivity extends ListActivity implements
 
         @Override
         protected Bundle doInBackground(Object... params) {
-            if (mChoiceSet == null || mSrcGroupId <= 0) {
+            if (mChoiceSet == null || mSrcGroupId <= 0 || mDestGroupId <= 0) {
                 return null;
             }
-            ContentResolver resolver = mContext.getContentResolver();
-            Cursor memberCursor = null;
-
-            memberCursor = resolver.query(Data.CONTENT_URI,
-                    new String[] {
-                        Data.CONTACT_ID
-                    },
-                    GROUP_QUERY_GROUP_MEMBER_SELECTION,
-                    new String[] {
-                            GroupMembership.CONTENT_ITEM_TYPE,
-                            String.valueOf(mDestGroupId)
-                    },
-                    null);
-
-            if (memberCursor != null && memberCursor.getCount() > 0) {
-                try {
-                    while (memberCursor.moveToNext()) {
-                        // Mark those contacts that already exist in the dest
-                        // group
-                        mGroupMemberList.add(String.valueOf(memberCursor.getLong(0)));
-                    }
-                } finally {
-                    if (memberCursor != null) {
-                        memberCursor.close();
-                    }
+            mMover.move(mChoiceSet.keySet(), new GroupMemberMover.Listener() {
+                @Override
+                public void onProgress(int done, int total) {
+                    publishProgress(done);
                 }
-            }
-
-            Set<String> keySet = mChoiceSet.keySet();
-            Iterator<String> it = keySet.iterator();
-
-            ContentProviderOperation.Builder builder;
-
-            mAddOrMoveOperation = new ArrayList<ContentProviderOperation>();
-            mDeleteOperation = new ArrayList<ContentProviderOperation>();
-            String id;
-            int count = 0;
-            int maxSize = mChoiceSet.keySet().size();
-            while (!mCanceled && it.hasNext()) {
-                id = it.next();
-                ++count;
-
-                if (mDestGroupId <= 0) {
-                    // Invalid group id, cancel the task
-                    return null;
-                }
-                if (mProgressDialog != null && mProgressDialog.isShowing()
-                        && count < maxSize - (maxSize) / 100) {
-                    mProgressDialog.incrementProgressBy(1);
-                }
-                if (mGroupMemberList.contains(id)) {
-                    // If the contact already exists in the group, need to
-                    // delete those
-                    // contacts that in the previous group
-                    builder = ContentProviderOperation.newDelete(Data.CONTENT_URI);
-                    builder.withSelection(GROUP_DELETE_MEMBER_SELECTION,
-                            new String[] {
-                            id,
-                            GroupMembership.CONTENT_ITEM_TYPE,
-                            String.valueOf(mSrcGroupId)
-                    });
-                    mDeleteOperation.add(builder.build());
-                    continue;
-                }
-                ContentValues values = new ContentValues();
-                values.put(GroupMembership.GROUP_ROW_ID, mDestGroupId);
-                builder = ContentProviderOperation.newUpdate(Data.CONTENT_URI);
-                builder.withSelection(GROUP_DELETE_MEMBER_SELECTION,
-                        new String[] {
-                                id,
-                                GroupMembership.CONTENT_ITEM_TYPE,
-                                String.valueOf(mSrcGroupId)
-                        });
-                builder.withValues(values);
-                mAddOrMoveOperation.add(builder.build());
-            }
+            });
+            return null;
+        }
 
-            if (mDeleteOperation.size() > 0) {
-                if (mDeleteOperation.size() > BUFFER_LENGTH) {
-                    addOrMoveApplyBatchByBuffer(mDeleteOperation, resolver);
-                } else {
-                    try {
-                        resolver.applyBatch(ContactsContract.AUTHORITY, mDeleteOperation);
-                    } catch (RemoteException e) {
-                        e.printStackTrace();
-                    } catch (OperationApplicationException e) {
-                        e.printStackTrace();
-                    }
-                }
-            }
-            if (mAddOrMoveOperation.size() > BUFFER_LENGTH) {
-                addOrMoveApplyBatchByBuffer(mAddOrMoveOperation, resolver);
-            } else {
-                try {
-                    resolver.applyBatch(ContactsContract.AUTHORITY, mAddOrMoveOperation);
-                } catch (RemoteException e) {
-                    e.printStackTrace();
-                } catch (OperationApplicationException e) {
-                    e.printStackTrace();
-                }
+        @Override
+        protected void onProgressUpdate(Integer... progress) {
+            if (mProgressDialog != null && mProgressDialog.isShowing()) {
+                mProgressDialog.setProgress(progress[progress.length - 1]);
             }
-            return null;
         }
 
         @Override
@@ -1887,33 +1782,6 @@ public class MultiPickContactActivity extends ListActivity implements
             }
         }
 
-        private void addOrMoveApplyBatchByBuffer(ArrayList<ContentProviderOperation> list,
-                ContentResolver cr) {
-            final ArrayList<ContentProviderOperation> temp
-                = new ArrayList<ContentProviderOperation>(BUFFER_LENGTH);
-            int bufferSize = list.size() / BUFFER_LENGTH;
-            for (int index = 0; index <= bufferSize; index++) {
-                temp.clear();
-                if (index == bufferSize) {
-                    for (int i = index * BUFFER_LENGTH; i < list.size(); i++) {
-                        temp.add(list.get(i));
-                    }
-                } else {
-                    for (int i = index * BUFFER_LENGTH;
-                            i < index * BUFFER_LENGTH + BUFFER_LENGTH; i++) {
-                        temp.add(list.get(i));
-                    }
-                }
-                if (!temp.isEmpty()) {
-                    try {
-                        cr.applyBatch(ContactsContract.AUTHORITY, temp);
-                    } catch (Exception e) {
-                        Log.e(TAG, "apply batch by buffer error:" + e);
-                    }
-                }
-            }
-        }
-
         private String getProgressDialogTitle() {
             return getString(R.string.title_move_members);
         }
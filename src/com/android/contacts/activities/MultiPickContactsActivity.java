@@ -61,9 +61,7 @@ import android.provider.CallLog;
 import android.provider.CallLog.Calls;
 import android.provider.ContactsContract;
 import android.provider.ContactsContract.CommonDataKinds.Email;
-import android.provider.ContactsContract.CommonDataKinds.GroupMembership;
 import android.provider.ContactsContract.CommonDataKinds.Phone;
-import android.provider.ContactsContract.CommonDataKinds.StructuredName;
 import android.provider.ContactsContract.Contacts;
 import android.provider.ContactsContract.Data;
 import android.provider.ContactsContract.Groups;
@@ -104,6 +102,9 @@ import com.android.contacts.multipicker.SearchFragment;
 import com.android.contacts.list.ContactsPickMode;
 import com.android.contacts.list.OnCheckListActionListener;
 import com.android.contacts.R;
+import com.android.contacts.util.SearchQueryDispatcher;
+import com.android.contacts.util.SimContactsImporter;
+import com.android.contacts.group.GroupMemberMover;
 import com.android.vcard.VCardComposer;
 import com.android.vcard.VCardConfig;
 
@@ -159,6 +160,9 @@ public class MultiPickContactsActivity extends Activity implements ViewPager.OnP
 
     private boolean mSearchUiVisible = false;
 
+    /** Whether a fragment is still completing the selection, the confirm action waits for it. */
+    private boolean mSelectionPending;
+
     private ArrayList<Long> mGroupIds = new ArrayList<Long>();
 
     // which group is selected
@@ -195,6 +199,13 @@ public class MultiPickContactsActivity extends Activity implements ViewPager.OnP
     private ActionBar mActionBar;
     private EditText mSearchView;
     private ViewGroup mSearchViewContainer;
+    private final SearchQueryDispatcher mQueryDispatcher = new SearchQueryDispatcher(
+            new SearchQueryDispatcher.Listener() {
+                @Override
+                public void onQueryChanged(String query) {
+                    updateState(query);
+                }
+            });
     private View mSelectionContainer;
     private Button mSelectionButton;
 
@@ -218,7 +229,6 @@ public class MultiPickContactsActivity extends Activity implements ViewPager.OnP
 
     private int MAX_CONTACTS_NUM_TO_GROUP = 100;
 
-    private static final int BUFFER_LENGTH = 400;
 
     public class ViewPagerAdapter extends FragmentPagerAdapter {
 
@@ -460,7 +470,7 @@ public class MultiPickContactsActivity extends Activity implements ViewPager.OnP
     private class SearchTextWatcher implements TextWatcher {
         @Override
         public void onTextChanged(CharSequence queryString, int start, int before, int count) {
-            updateState(queryString.toString());
+            mQueryDispatcher.setQuery(queryString.toString());
         }
 
         @Override
@@ -664,6 +674,12 @@ public class MultiPickContactsActivity extends Activity implements ViewPager.OnP
             updateActionBar();
         }
 
+        @Override
+        public void setSelectionPending(boolean pending) {
+            mSelectionPending = pending;
+            setOkStatus();
+        }
+
         @Override
         public void exitSearch() {
             if (mPickMode.isSearchMode()) {
@@ -787,6 +803,7 @@ public class MultiPickContactsActivity extends Activity implements ViewPager.OnP
 
     @Override
     public void onDestroy() {
+        mQueryDispatcher.cancel();
         if (mProgressDialog != null) {
             mProgressDialog.cancel();
         }
@@ -851,8 +868,9 @@ public class MultiPickContactsActivity extends Activity implements ViewPager.OnP
     }
 
     private void setOkStatus() {
-        if (mPickMode.isPickPhone() ? (0 == mChoiceSet.size() && 0 == mChoiceNumberSet.size())
-                : 0 == mChoiceSet.size()) {
+        if (mSelectionPending || (mPickMode.isPickPhone()
+                ? (0 == mChoiceSet.size() && 0 == mChoiceNumberSet.size())
+                : 0 == mChoiceSet.size())) {
             mOKButton.setEnabled(false);
             mOKButton.setTextColor(
                     mContext.getResources().getColor(R.color.ok_or_clear_button_disable_color));
@@ -1162,6 +1180,10 @@ public class MultiPickContactsActivity extends Activity implements ViewPager.OnP
         int id = v.getId();
         switch (id) {
             case R.id.btn_ok:
+                if (mSelectionPending) {
+                    // Not every selected row is loaded yet.
+                    break;
+                }
                 if (mPickMode.isSearchMode()) {
                     exitSearchMode(true);
                 }
@@ -1418,30 +1440,20 @@ public class MultiPickContactsActivity extends Activity implements ViewPager.OnP
                     type != null ? type : SimContactsConstants.ACCOUNT_TYPE_PHONE);
             log("import sim contact to account: " + mAccount);
             mTotalCount = mChoiceSet.size();
-            ArrayList<ContentProviderOperation> operationList =
-                    new ArrayList<ContentProviderOperation>();
+            final SimContactsImporter importer = new SimContactsImporter(resolver, mAccount);
 
             for (String key : mChoiceSet.keySet()) {
                 if (mCanceled) {
-                    if (operationList.size() > 0) {
-                        doApplyBatch(operationList, resolver);
-                    }
                     break;
                 }
                 String[] values = mChoiceSet.getStringArray(key);
-                int firstBatch = operationList.size();
-                buildSimContentProviderOperationList(values, resolver, mAccount, firstBatch,
-                        operationList);
-                int size = operationList.size();
-                if (size > 0 && BUFFER_LENGTH - size < 10) {
-                    doApplyBatch(operationList, resolver);
-                }
+                importer.importContact(values[SIM_COLUMN_DISPLAY_NAME], values[SIM_COLUMN_NUMBER],
+                        values[SIM_COLUMN_EMAILS], values[SIM_COLUMN_ANRS]);
                 mActualCount++;
                 mProgressDialog.incrementProgressBy(1);
             }
-            if (operationList.size() > 0) {
-                doApplyBatch(operationList, resolver);
-            }
+            final SimContactsImporter.Result result = importer.finish();
+            log("import sim contacts: " + result);
             finish();
         }
 
@@ -1463,90 +1475,6 @@ public class MultiPickContactsActivity extends Activity implements ViewPager.OnP
         }
     }
 
-    private static void doApplyBatch(ArrayList<ContentProviderOperation> operationList,
-            ContentResolver resolver) {
-        try {
-            resolver.applyBatch(ContactsContract.AUTHORITY, operationList);
-        } catch (Exception e) {
-            Log.w(TAG, String.format("%s: %s", e.toString(), e.getMessage()));
-        } finally {
-            operationList.clear();
-        }
-    }
-
-    private static void buildSimContentProviderOperationList(String[] values,
-            final ContentResolver resolver, Account account, int backReference,
-            ArrayList<ContentProviderOperation> operationList) {
-        final String name = values[SIM_COLUMN_DISPLAY_NAME];
-        final String phoneNumber = values[SIM_COLUMN_NUMBER];
-        final String emailAddresses = values[SIM_COLUMN_EMAILS];
-        final String anrs = values[SIM_COLUMN_ANRS];
-        final String[] emailAddressArray;
-        final String[] anrArray;
-        if (!TextUtils.isEmpty(emailAddresses)) {
-            emailAddressArray = emailAddresses.split(",");
-        } else {
-            emailAddressArray = null;
-        }
-        if (!TextUtils.isEmpty(anrs)) {
-            anrArray = anrs.split(SimContactsConstants.ANR_SEP);
-        } else {
-            anrArray = null;
-        }
-        log(" actuallyImportOneSimContact: name= " + name + ", phoneNumber= " + phoneNumber
-                + ", emails= " + emailAddresses + ", anrs= " + anrs + ", account is " + account
-                + ", backReference=" + backReference);
-        ContentProviderOperation.Builder builder = ContentProviderOperation
-                .newInsert(RawContacts.CONTENT_URI);
-        builder.withValue(RawContacts.AGGREGATION_MODE, RawContacts.AGGREGATION_MODE_SUSPENDED);
-        if (account != null) {
-            builder.withValue(RawContacts.ACCOUNT_NAME, account.name);
-            builder.withValue(RawContacts.ACCOUNT_TYPE, account.type);
-        }
-        operationList.add(builder.build());
-
-        if (!TextUtils.isEmpty(name)) {
-            builder = ContentProviderOperation.newInsert(Data.CONTENT_URI);
-            builder.withValueBackReference(StructuredName.RAW_CONTACT_ID, backReference);
-            builder.withValue(Data.MIMETYPE, StructuredName.CONTENT_ITEM_TYPE);
-            builder.withValue(StructuredName.DISPLAY_NAME, name);
-            operationList.add(builder.build());
-        }
-
-        if (!TextUtils.isEmpty(phoneNumber)) {
-            builder = ContentProviderOperation.newInsert(Data.CONTENT_URI);
-            builder.withValueBackReference(Phone.RAW_CONTACT_ID, backReference);
-            builder.withValue(Data.MIMETYPE, Phone.CONTENT_ITEM_TYPE);
-            builder.withValue(Phone.TYPE, Phone.TYPE_MOBILE);
-            builder.withValue(Phone.NUMBER, phoneNumber);
-            builder.withValue(Data.IS_PRIMARY, 1);
-            operationList.add(builder.build());
-        }
-
-        if (anrArray != null) {
-            for (String anr : anrArray) {
-                builder = ContentProviderOperation.newInsert(Data.CONTENT_URI);
-                builder.withValueBackReference(Phone.RAW_CONTACT_ID, backReference);
-                builder.withValue(Data.MIMETYPE, Phone.CONTENT_ITEM_TYPE);
-                builder.withValue(Phone.TYPE, Phone.TYPE_HOME);
-                builder.withValue(Phone.NUMBER, anr);
-                operationList.add(builder.build());
-            }
-        }
-
-        if (emailAddresses != null) {
-            for (String emailAddress : emailAddressArray) {
-                builder = ContentProviderOperation.newInsert(Data.CONTENT_URI);
-                builder.withValueBackReference(Email.RAW_CONTACT_ID, backReference);
-                builder.withValue(Data.MIMETYPE, Email.CONTENT_ITEM_TYPE);
-                builder.withValue(Email.TYPE, Email.TYPE_MOBILE);
-                builder.withValue(Email.ADDRESS, emailAddress);
-                operationList.add(builder.build());
-            }
-        }
-
-    }
-
     /**
      * After turn on airplane mode, cancel import sim contacts operation.
      */
@@ -1612,30 +1540,19 @@ public class MultiPickContactsActivity extends Activity implements ViewPager.OnP
         }
     }
 
-    class MoveGroupMemberTask extends AsyncTask<Object, Object, Object> {
-
-        private static final String GROUP_QUERY_GROUP_MEMBER_SELECTION = Data.MIMETYPE + "=? AND "
-                + GroupMembership.GROUP_ROW_ID + "=?";
-
-        private static final String GROUP_QUERY_RAW_CONTACTS_SELECTION = RawContacts.CONTACT_ID
-                + "=?";
-
-        private static final String GROUP_DELETE_MEMBER_SELECTION = Data.CONTACT_ID + "=? AND "
-                + Data.MIMETYPE + "=? AND " + GroupMembership.GROUP_ROW_ID + "=?";
+    class MoveGroupMemberTask extends AsyncTask<Object, Integer, Object> {
 
         private Bundle mChoiceSet;
         private long mDestGroupId;
         private long mSrcGroupId;
-        private boolean mCanceled = false;
-
-        private ArrayList<ContentProviderOperation> mAddOrMoveOperation;
-        private ArrayList<ContentProviderOperation> mDeleteOperation;
-        private ArrayList<String> mGroupMemberList = new ArrayList<String>();
+        private final GroupMemberMover mMover;
 
         public MoveGroupMemberTask(Bundle choiceSet, long srcGroupId, long destGroupId) {
             mChoiceSet = choiceSet;
             mSrcGroupId = srcGroupId;
             mDestGroupId = destGroupId;
+            mMover = new GroupMemberMover(mContext.getContentResolver(), srcGroupId,
+                    destGroupId);
         }
 
         @Override
@@ -1649,7 +1566,7 @@ public class MultiPickContactsActivity extends Activity implements ViewPager.OnP
             mProgressDialog.setCanceledOnTouchOutside(false);
             mProgressDialog.setOnCancelListener(new OnCancelListener() {
                 public void onCancel(DialogInterface dialog) {
-                    mCanceled = true;
+                    mMover.cancel();
                 }
             });
             mProgressDialog.show();
@@ -1657,104 +1574,23 @@ public class MultiPickContactsActivity extends Activity implements ViewPager.OnP
 
         @Override
         protected Bundle doInBackground(Object... params) {
-            if (mChoiceSet == null || mSrcGroupId <= 0) {
+            if (mChoiceSet == null || mSrcGroupId <= 0 || mDestGroupId <= 0) {
                 return null;
             }
-            ContentResolver resolver = mContext.getContentResolver();
-            Cursor memberCursor = null;
-
-            memberCursor = resolver.query(Data.CONTENT_URI, new String[] {
-                    Data.CONTACT_ID
-            },
-                    GROUP_QUERY_GROUP_MEMBER_SELECTION, new String[] {
-                            GroupMembership.CONTENT_ITEM_TYPE, String.valueOf(mDestGroupId)
-            },
-                    null);
-
-            if (memberCursor != null && memberCursor.getCount() > 0) {
-                try {
-                    while (memberCursor.moveToNext()) {
-                        // Mark those contacts that already exist in the dest
-                        // group
-                        mGroupMemberList.add(String.valueOf(memberCursor.getLong(0)));
-                    }
-                } finally {
-                    if (memberCursor != null) {
-                        memberCursor.close();
-                    }
-                }
-            }
-
-            Set<String> keySet = mChoiceSet.keySet();
-            Iterator<String> it = keySet.iterator();
-
-            ContentProviderOperation.Builder builder;
-
-            mAddOrMoveOperation = new ArrayList<ContentProviderOperation>();
-            mDeleteOperation = new ArrayList<ContentProviderOperation>();
-            String id;
-            int count = 0;
-            int maxSize = mChoiceSet.keySet().size();
-            while (!mCanceled && it.hasNext()) {
-                id = it.next();
-                ++count;
-
-                if (mDestGroupId <= 0) {
-                    // Invalid group id, cancel the task
-                    return null;
+            mMover.move(mChoiceSet.keySet(), new GroupMemberMover.Listener() {
+                @Override
+                public void onProgress(int done, int total) {
+                    publishProgress(done);
                 }
-                if (mProgressDialog != null && mProgressDialog.isShowing()
-                        && count < maxSize - (maxSize) / 100) {
-                    mProgressDialog.incrementProgressBy(1);
-                }
-                if (mGroupMemberList.contains(id)) {
-                    // If the contact already exists in the group, need to
-                    // delete those
-                    // contacts that in the previous group
-                    builder = ContentProviderOperation.newDelete(Data.CONTENT_URI);
-                    builder.withSelection(GROUP_DELETE_MEMBER_SELECTION, new String[] {
-                            id,
-                            GroupMembership.CONTENT_ITEM_TYPE, String.valueOf(mSrcGroupId)
-                    });
-                    mDeleteOperation.add(builder.build());
-                    continue;
-                }
-                ContentValues values = new ContentValues();
-                values.put(GroupMembership.GROUP_ROW_ID, mDestGroupId);
-                builder = ContentProviderOperation.newUpdate(Data.CONTENT_URI);
-                builder.withSelection(GROUP_DELETE_MEMBER_SELECTION, new String[] {
-                        id,
-                        GroupMembership.CONTENT_ITEM_TYPE, String.valueOf(mSrcGroupId)
-                });
-                builder.withValues(values);
-                mAddOrMoveOperation.add(builder.build());
-            }
+            });
+            return null;
+        }
 
-            if (mDeleteOperation.size() > 0) {
-                if (mDeleteOperation.size() > BUFFER_LENGTH) {
-                    addOrMoveApplyBatchByBuffer(mDeleteOperation, resolver);
-                } else {
-                    try {
-                        resolver.applyBatch(ContactsContract.AUTHORITY, mDeleteOperation);
-                    } catch (RemoteException e) {
-                        e.printStackTrace();
-                    } catch (OperationApplicationException e) {
-                        e.printStackTrace();
-                    }
-                }
-            }
-            if (mAddOrMoveOperation.size() > BUFFER_LENGTH) {
-                addOrMoveApplyBatchByBuffer(mAddOrMoveOperation, resolver);
-            } else {
-                try {
-                    resolver.applyBatch(ContactsContract.AUTHORITY, mAddOrMoveOperation);
-                } catch (RemoteException e) {
-                    e.printStackTrace();
-                } catch (OperationApplicationException e) {
-                    e.printStackTrace();
-                }
+        @Override
+        protected void onProgressUpdate(Integer... progress) {
+            if (mProgressDialog != null && mProgressDialog.isShowing()) {
+                mProgressDialog.setProgress(progress[progress.length - 1]);
             }
-            return null;
         }
 
         @Override
@@ -1765,33 +1601,6 @@ public class MultiPickContactsActivity extends Activity implements ViewPager.OnP
             }
         }
 
-        private void addOrMoveApplyBatchByBuffer(ArrayList<ContentProviderOperation> list,
-                ContentResolver cr) {
-            final ArrayList<ContentProviderOperation> temp =
-                    new ArrayList<ContentProviderOperation>(BUFFER_LENGTH);
-            int bufferSize = list.size() / BUFFER_LENGTH;
-            for (int index = 0; index <= bufferSize; index++) {
-                temp.clear();
-                if (index == bufferSize) {
-                    for (int i = index * BUFFER_LENGTH; i < list.size(); i++) {
-                        temp.add(list.get(i));
-                    }
-                } else {
-                    for (int i = index * BUFFER_LENGTH; i < index * BUFFER_LENGTH
-                            + BUFFER_LENGTH; i++) {
-                        temp.add(list.get(i));
-                    }
-                }
-                if (!temp.isEmpty()) {
-                    try {
-                        cr.applyBatch(ContactsContract.AUTHORITY, temp);
-                    } catch (Exception e) {
-                        Log.e(TAG, "apply batch by buffer error:" + e);
-                    }
-                }
-            }
-        }
-
         private String getProgressDialogTitle() {
             return getString(R.string.title_move_members);
         }
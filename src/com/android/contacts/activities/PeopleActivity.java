@@ -59,6 +59,7 @@ import android.widget.Toolbar;
 
 import com.android.contacts.ContactsActivity;
 import com.android.contacts.R;
+import com.android.contacts.StartupPrewarmer;
 import com.android.contacts.activities.ActionBarAdapter.TabState;
 import com.android.contacts.common.ContactsUtils;
 import com.android.contacts.common.activity.RequestPermissionsActivity;
@@ -217,6 +218,15 @@ public class PeopleActivity extends ContactsActivity implements
     private BroadcastReceiver mExportToSimCompleteListener = null;
     private static final int MAX_COUNT_ALLOW_SHARE_CONTACT = 2000;
 
+    private final Runnable mUpdateGroupsAddAccountsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mGroupsFragment != null && !isFinishing()) {
+                mGroupsFragment.setAddAccountsVisibility(!areGroupWritableAccountsAvailable());
+            }
+        }
+    };
+
     public PeopleActivity() {
         mInstanceId = sNextInstanceId.getAndIncrement();
         mIntentResolver = new ContactsIntentResolver(this);
@@ -774,10 +784,20 @@ public class PeopleActivity extends ContactsActivity implements
         invalidateOptionsMenu();
         showEmptyStateForTab(tab);
         if (tab == TabState.GROUPS) {
-            mGroupsFragment.setAddAccountsVisibility(!areGroupWritableAccountsAvailable());
+            updateGroupsAddAccountsVisibility();
         }
     }
 
+    /**
+     * Shows the "add account" button of the groups tab if there is no group writable account.
+     * Deferred until the accounts have been pre-loaded, instead of waiting for them on the UI
+     * thread.
+     */
+    private void updateGroupsAddAccountsVisibility() {
+        StartupPrewarmer.getInstance(this).runWhenDone(StartupPrewarmer.Stage.ACCOUNT_TYPES,
+                mUpdateGroupsAddAccountsRunnable);
+    }
+
     private void showEmptyStateForTab(int tab) {
         if (mContactsUnavailableFragment != null) {
             switch (getTabPositionForTextDirection(tab)) {
@@ -838,7 +858,7 @@ public class PeopleActivity extends ContactsActivity implements
                 mViewPagerTabs.onPageSelected(position);
                 showEmptyStateForTab(position);
                 if (position == TabState.GROUPS) {
-                    mGroupsFragment.setAddAccountsVisibility(!areGroupWritableAccountsAvailable());
+                    updateGroupsAddAccountsVisibility();
                 }
                 invalidateOptionsMenu();
             }
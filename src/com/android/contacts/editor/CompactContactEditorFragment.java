@@ -27,7 +27,6 @@ import com.android.contacts.util.ContactPhotoUtils;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.ContactsContract;
@@ -203,8 +202,8 @@ public class CompactContactEditorFragment extends ContactEditorBaseFragment impl
     }
 
     public void updatePhoto(Uri uri) throws FileNotFoundException {
-        final Bitmap bitmap = ContactPhotoUtils.getBitmapFromUri(getActivity(), uri);
-        if (bitmap == null || bitmap.getHeight() <= 0 || bitmap.getWidth() <= 0) {
+        // Only check that the image can be decoded, the editor loads the photo itself.
+        if (!ContactPhotoUtils.isValidImage(getActivity(), uri)) {
             Toast.makeText(mContext, R.string.contactPhotoSavedErrorToast,
                     Toast.LENGTH_SHORT).show();
             return;
@@ -164,6 +164,9 @@ public class CompactKindSectionView extends LinearLayout {
     private ViewGroup mEditors;
     private ImageView mIcon;
 
+    private final EditorViewBinder mEditorViewBinder = new EditorViewBinder();
+    private boolean mIsRebuilding;
+
     public CompactKindSectionView(Context context) {
         this(context, /* attrs =*/ null);
     }
@@ -316,7 +319,9 @@ public class CompactKindSectionView extends LinearLayout {
     }
 
     private void rebuildFromState(ValuesDelta primaryValuesDelta) {
-        mEditors.removeAllViews();
+        // Reuse the editors that are already bound to these rows, only inflate the new ones
+        mEditorViewBinder.begin(mEditors);
+        mIsRebuilding = true;
 
         final String mimeType = mKindSectionDataList.getMimeType();
         for (KindSectionData kindSectionData : mKindSectionDataList) {
@@ -341,6 +346,21 @@ public class CompactKindSectionView extends LinearLayout {
                 }
             }
         }
+
+        mIsRebuilding = false;
+        mEditorViewBinder.commit();
+    }
+
+    /**
+     * Adds the view to the end of mEditors, or to the views being bound by
+     * {@link #rebuildFromState}.
+     */
+    private void addEditorView(View view) {
+        if (mIsRebuilding) {
+            mEditorViewBinder.add(view);
+        } else {
+            mEditors.addView(view);
+        }
     }
 
     private void addNameEditorViews(AccountType accountType,
@@ -365,22 +385,29 @@ public class CompactKindSectionView extends LinearLayout {
             ((TextView) accountTypeLayout.findViewById(R.id.account_type_name))
                     .setText(accountType.getDisplayLabel(getContext()));
 
-            mEditors.addView(nameView);
+            addEditorView(nameView);
             return;
         }
 
         // Structured name
-        final StructuredNameEditorView nameView = (StructuredNameEditorView) mLayoutInflater
-                .inflate(R.layout.structured_name_editor_view, mEditors, /* attachToRoot =*/ false);
+        StructuredNameEditorView nameView = mEditorViewBinder.obtain(
+                StructuredNameEditorView.class, valuesDelta);
+        if (nameView == null) {
+            nameView = (StructuredNameEditorView) mLayoutInflater.inflate(
+                    R.layout.structured_name_editor_view, mEditors, /* attachToRoot =*/ false);
+        }
         if (!mIsUserProfile) {
             // Don't set super primary for the me contact
             nameView.setEditorListener(new StructuredNameEditorListener(
                     valuesDelta, rawContactDelta.getRawContactId(), mListener));
         }
         nameView.setDeletable(false);
-        nameView.setValues(
-                accountType.getKindForMimetype(DataKind.PSEUDO_MIME_TYPE_DISPLAY_NAME),
-                valuesDelta, rawContactDelta, /* readOnly =*/ false, mViewIdGenerator);
+        final DataKind nameKind =
+                accountType.getKindForMimetype(DataKind.PSEUDO_MIME_TYPE_DISPLAY_NAME);
+        if (!nameView.isBoundTo(nameKind, valuesDelta, rawContactDelta, /* readOnly =*/ false)) {
+            nameView.setValues(nameKind, valuesDelta, rawContactDelta, /* readOnly =*/ false,
+                    mViewIdGenerator);
+        }
         if (rawContactDelta.getAccountType() != null
                 && rawContactDelta.getAccountType().equals(
                         SimContactsConstants.ACCOUNT_TYPE_SIM)) {
@@ -388,20 +415,28 @@ public class CompactKindSectionView extends LinearLayout {
         }
         // Correct start margin since there is a second icon in the structured name layout
         nameView.findViewById(R.id.kind_icon).setVisibility(View.GONE);
-        mEditors.addView(nameView);
+        addEditorView(nameView);
         if (rawContactDelta.getAccountType() != null
                 && rawContactDelta.getAccountType().equals(
                         SimContactsConstants.ACCOUNT_TYPE_SIM)) {
             return;
         }
         // Phonetic name
-        final PhoneticNameEditorView phoneticNameView = (PhoneticNameEditorView) mLayoutInflater
-                .inflate(R.layout.phonetic_name_editor_view, mEditors, /* attachToRoot =*/ false);
+        PhoneticNameEditorView phoneticNameView = mEditorViewBinder.obtain(
+                PhoneticNameEditorView.class, valuesDelta);
+        if (phoneticNameView == null) {
+            phoneticNameView = (PhoneticNameEditorView) mLayoutInflater.inflate(
+                    R.layout.phonetic_name_editor_view, mEditors, /* attachToRoot =*/ false);
+        }
         phoneticNameView.setEditorListener(new OtherNameKindEditorListener());
         phoneticNameView.setDeletable(false);
-        phoneticNameView.setValues(
-                accountType.getKindForMimetype(DataKind.PSEUDO_MIME_TYPE_PHONETIC_NAME),
-                valuesDelta, rawContactDelta, /* readOnly =*/ false, mViewIdGenerator);
+        final DataKind phoneticNameKind =
+                accountType.getKindForMimetype(DataKind.PSEUDO_MIME_TYPE_PHONETIC_NAME);
+        if (!phoneticNameView.isBoundTo(phoneticNameKind, valuesDelta, rawContactDelta,
+                /* readOnly =*/ false)) {
+            phoneticNameView.setValues(phoneticNameKind, valuesDelta, rawContactDelta,
+                    /* readOnly =*/ false, mViewIdGenerator);
+        }
 
         // Fix the start margin for phonetic name views
         final LinearLayout.LayoutParams layoutParams = new LinearLayout.LayoutParams(
@@ -409,7 +444,7 @@ public class CompactKindSectionView extends LinearLayout {
         layoutParams.setMargins(0, 0, 0, 0);
         phoneticNameView.setLayoutParams(layoutParams);
 
-        mEditors.addView(phoneticNameView);
+        addEditorView(phoneticNameView);
     }
 
     private void addGroupEditorView(RawContactDelta rawContactDelta, DataKind dataKind) {
@@ -422,14 +457,17 @@ public class CompactKindSectionView extends LinearLayout {
         // Correct start margin since there is a second icon in the group layout
         view.findViewById(R.id.kind_icon).setVisibility(View.GONE);
 
-        mEditors.addView(view);
+        addEditorView(view);
     }
 
     private View addNonNameEditorView(RawContactDelta rawContactDelta, DataKind dataKind,
             ValuesDelta valuesDelta, Editor.EditorListener editorListener) {
-        // Inflate the layout
-        final View view = mLayoutInflater.inflate(
-                EditorUiUtils.getLayoutResourceId(dataKind.mimeType), mEditors, false);
+        // Reuse the editor already bound to this row, or inflate the layout
+        View view = mEditorViewBinder.obtain(LabeledEditorView.class, valuesDelta);
+        if (view == null) {
+            view = mLayoutInflater.inflate(
+                    EditorUiUtils.getLayoutResourceId(dataKind.mimeType), mEditors, false);
+        }
         boolean email = true;
 
         view.setEnabled(isEnabled());
@@ -474,12 +512,15 @@ public class CompactKindSectionView extends LinearLayout {
                     }
                 }
             }
-            editor.setValues(dataKind, valuesDelta, rawContactDelta, !dataKind.editable,
-                    mViewIdGenerator);
+            if (!(view instanceof LabeledEditorView) || !((LabeledEditorView) view).isBoundTo(
+                    dataKind, valuesDelta, rawContactDelta, !dataKind.editable)) {
+                editor.setValues(dataKind, valuesDelta, rawContactDelta, !dataKind.editable,
+                        mViewIdGenerator);
+            }
         }
 
         if (email) {
-            mEditors.addView(view);
+            addEditorView(view);
         } else {
             mIcon.setVisibility(View.GONE);
         }
@@ -69,8 +69,6 @@ import android.widget.TextView;
 
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -225,21 +223,27 @@ public class CompactRawContactsEditorView extends LinearLayout implements View.O
      */
     private static final class MimeTypeComparator implements Comparator<String> {
 
-        private static final List<String> MIME_TYPE_ORDER = Arrays.asList(new String[] {
-                StructuredName.CONTENT_ITEM_TYPE,
-                Nickname.CONTENT_ITEM_TYPE,
-                Organization.CONTENT_ITEM_TYPE,
-                Phone.CONTENT_ITEM_TYPE,
-                SipAddress.CONTENT_ITEM_TYPE,
-                Email.CONTENT_ITEM_TYPE,
-                StructuredPostal.CONTENT_ITEM_TYPE,
-                Im.CONTENT_ITEM_TYPE,
-                Website.CONTENT_ITEM_TYPE,
-                Event.CONTENT_ITEM_TYPE,
-                Relation.CONTENT_ITEM_TYPE,
-                Note.CONTENT_ITEM_TYPE,
-                GroupMembership.CONTENT_ITEM_TYPE
-        });
+        private static final Map<String, Integer> MIME_TYPE_ORDER = new HashMap<>();
+        static {
+            final String[] mimeTypes = new String[] {
+                    StructuredName.CONTENT_ITEM_TYPE,
+                    Nickname.CONTENT_ITEM_TYPE,
+                    Organization.CONTENT_ITEM_TYPE,
+                    Phone.CONTENT_ITEM_TYPE,
+                    SipAddress.CONTENT_ITEM_TYPE,
+                    Email.CONTENT_ITEM_TYPE,
+                    StructuredPostal.CONTENT_ITEM_TYPE,
+                    Im.CONTENT_ITEM_TYPE,
+                    Website.CONTENT_ITEM_TYPE,
+                    Event.CONTENT_ITEM_TYPE,
+                    Relation.CONTENT_ITEM_TYPE,
+                    Note.CONTENT_ITEM_TYPE,
+                    GroupMembership.CONTENT_ITEM_TYPE
+            };
+            for (int i = 0; i < mimeTypes.length; i++) {
+                MIME_TYPE_ORDER.put(mimeTypes[i], i);
+            }
+        }
 
         @Override
         public int compare(String mimeType1, String mimeType2) {
@@ -247,43 +251,15 @@ public class CompactRawContactsEditorView extends LinearLayout implements View.O
             if (mimeType1 == null) return -1;
             if (mimeType2 == null) return 1;
 
-            int index1 = MIME_TYPE_ORDER.indexOf(mimeType1);
-            int index2 = MIME_TYPE_ORDER.indexOf(mimeType2);
+            final Integer index1 = MIME_TYPE_ORDER.get(mimeType1);
+            final Integer index2 = MIME_TYPE_ORDER.get(mimeType2);
 
             // Fallback to alphabetical ordering of the mime type if both are not found
-            if (index1 < 0 && index2 < 0) return mimeType1.compareTo(mimeType2);
-            if (index1 < 0) return 1;
-            if (index2 < 0) return -1;
+            if (index1 == null && index2 == null) return mimeType1.compareTo(mimeType2);
+            if (index1 == null) return 1;
+            if (index2 == null) return -1;
 
-            return index1 < index2 ? -1 : 1;
-        }
-    }
-
-    /**
-     * Sorts primary accounts and google account types before others.
-     */
-    private static final class EditorComparator implements Comparator<KindSectionData> {
-
-        private RawContactDeltaComparator mRawContactDeltaComparator;
-
-        private EditorComparator(Context context) {
-            mRawContactDeltaComparator = new RawContactDeltaComparator(context);
-        }
-
-        @Override
-        public int compare(KindSectionData kindSectionData1, KindSectionData kindSectionData2) {
-            if (kindSectionData1 == kindSectionData2) return 0;
-            if (kindSectionData1 == null) return -1;
-            if (kindSectionData2 == null) return 1;
-
-            final RawContactDelta rawContactDelta1 = kindSectionData1.getRawContactDelta();
-            final RawContactDelta rawContactDelta2 = kindSectionData2.getRawContactDelta();
-
-            if (rawContactDelta1 == rawContactDelta2) return 0;
-            if (rawContactDelta1 == null) return -1;
-            if (rawContactDelta2 == null) return 1;
-
-            return mRawContactDeltaComparator.compare(rawContactDelta1, rawContactDelta2);
+            return Integer.compare(index1, index2);
         }
     }
 
@@ -329,6 +305,7 @@ public class CompactRawContactsEditorView extends LinearLayout implements View.O
     private boolean mIsUserProfile;
     private AccountWithDataSet mPrimaryAccount;
     private Map<String,KindSectionDataList> mKindSectionDataMap = new HashMap<>();
+    private RawContactDeltaComparator mRawContactDeltaComparator;
 
     // Account header
     private View mAccountHeaderContainer;
@@ -349,6 +326,11 @@ public class CompactRawContactsEditorView extends LinearLayout implements View.O
     private CompactPhotoEditorView mPhotoView;
     private ViewGroup mKindSectionViews;
     private Map<String,List<CompactKindSectionView>> mKindSectionViewsMap = new HashMap<>();
+    /**
+     * Kind section views bound by the previous {@link #setState} call, keyed by mime type. They
+     * are rebound instead of inflating new ones, which reuses the field editors they contain.
+     */
+    private Map<String,List<CompactKindSectionView>> mScrapKindSectionViewsMap = new HashMap<>();
     private View mMoreFields;
 
     private boolean mIsExpanded;
@@ -624,7 +606,9 @@ public class CompactRawContactsEditorView extends LinearLayout implements View.O
             long photoId, boolean hasNewContact, boolean isUserProfile,
             AccountWithDataSet primaryAccount) {
         mKindSectionDataMap.clear();
-        mKindSectionViews.removeAllViews();
+        mScrapKindSectionViewsMap.clear();
+        mScrapKindSectionViewsMap.putAll(mKindSectionViewsMap);
+        mKindSectionViewsMap.clear();
         mMoreFields.setVisibility(View.VISIBLE);
 
         mMaterialPalette = materialPalette;
@@ -641,12 +625,14 @@ public class CompactRawContactsEditorView extends LinearLayout implements View.O
 
         // Parse the given raw contact deltas
         if (rawContactDeltas == null || rawContactDeltas.isEmpty()) {
+            mKindSectionViews.removeAllViews();
             elog("No raw contact deltas");
             if (mListener != null) mListener.onBindEditorsFailed();
             return;
         }
         parseRawContactDeltas(rawContactDeltas);
         if (mKindSectionDataMap.isEmpty()) {
+            mKindSectionViews.removeAllViews();
             elog("No kind section data parsed from RawContactDelta(s)");
             if (mListener != null) mListener.onBindEditorsFailed();
             return;
@@ -776,7 +762,7 @@ public class CompactRawContactsEditorView extends LinearLayout implements View.O
     private RawContactDeltaList getRawContactDeltaListForSelector(
             RawContactDeltaList rawContactDeltas) {
         // Sort raw contacts so google accounts come first
-        Collections.sort(rawContactDeltas, new RawContactDeltaComparator(getContext()));
+        getRawContactDeltaComparator().sort(rawContactDeltas);
 
         final RawContactDeltaList result = new RawContactDeltaList();
         for (RawContactDelta rawContactDelta : rawContactDeltas) {
@@ -979,6 +965,7 @@ public class CompactRawContactsEditorView extends LinearLayout implements View.O
         entries.addAll(mKindSectionDataMap.entrySet());
 
         vlog("kind: " + entries.size() + " kindSection(s)");
+        final List<View> kindSectionViews = new ArrayList<>();
         int i = -1;
         for (Map.Entry<String, KindSectionDataList> entry : entries) {
             i++;
@@ -996,7 +983,7 @@ public class CompactRawContactsEditorView extends LinearLayout implements View.O
                 final CompactKindSectionView kindSectionView = inflateKindSectionView(
                         mKindSectionViews, kindSectionDataList, mimeType,
                         mPrimaryNameKindSectionData.second);
-                mKindSectionViews.addView(kindSectionView);
+                kindSectionViews.add(kindSectionView);
 
                 // Keep a pointer to all the KindSectionsViews for each mimeType
                 getKindSectionViews(mimeType).add(kindSectionView);
@@ -1024,13 +1011,16 @@ public class CompactRawContactsEditorView extends LinearLayout implements View.O
                     final CompactKindSectionView kindSectionView = inflateKindSectionView(
                             mKindSectionViews, kindSectionDataList, mimeType,
                             /* primaryValueDelta =*/ null);
-                    mKindSectionViews.addView(kindSectionView);
+                    kindSectionViews.add(kindSectionView);
 
                     // Keep a pointer to all the KindSectionsViews for each mimeType
                     getKindSectionViews(mimeType).add(kindSectionView);
                 }
             }
         }
+
+        EditorViewBinder.reconcileChildren(mKindSectionViews, kindSectionViews);
+        mScrapKindSectionViewsMap.clear();
     }
 
     private List<CompactKindSectionView> getKindSectionViews(String mimeType) {
@@ -1045,9 +1035,18 @@ public class CompactRawContactsEditorView extends LinearLayout implements View.O
     private CompactKindSectionView inflateKindSectionView(ViewGroup viewGroup,
             KindSectionDataList kindSectionDataList, String mimeType,
             ValuesDelta primaryValuesDelta) {
-        final CompactKindSectionView kindSectionView = (CompactKindSectionView)
-                mLayoutInflater.inflate(R.layout.compact_item_kind_section, viewGroup,
-                        /* attachToRoot =*/ false);
+        final List<CompactKindSectionView> scrapViews = mScrapKindSectionViewsMap.get(mimeType);
+        final CompactKindSectionView kindSectionView;
+        if (scrapViews != null && !scrapViews.isEmpty()) {
+            kindSectionView = scrapViews.remove(0);
+            // Restore the defaults of a freshly inflated section
+            kindSectionView.setHideWhenEmpty(true);
+            kindSectionView.setShowOneEmptyEditor(false);
+            kindSectionView.setVisibility(View.VISIBLE);
+        } else {
+            kindSectionView = (CompactKindSectionView) mLayoutInflater.inflate(
+                    R.layout.compact_item_kind_section, viewGroup, /* attachToRoot =*/ false);
+        }
         kindSectionView.setIsUserProfile(mIsUserProfile);
 
         if (Phone.CONTENT_ITEM_TYPE.equals(mimeType)
@@ -1063,7 +1062,7 @@ public class CompactRawContactsEditorView extends LinearLayout implements View.O
 
         // Sort non-name editors so they wind up in the order we want
         if (!StructuredName.CONTENT_ITEM_TYPE.equals(mimeType)) {
-            Collections.sort(kindSectionDataList, new EditorComparator(getContext()));
+            sortByRawContactDelta(kindSectionDataList);
         }
 
         kindSectionView.setState(kindSectionDataList, mViewIdGenerator, mListener,
@@ -1072,6 +1071,45 @@ public class CompactRawContactsEditorView extends LinearLayout implements View.O
         return kindSectionView;
     }
 
+    private RawContactDeltaComparator getRawContactDeltaComparator() {
+        if (mRawContactDeltaComparator == null) {
+            mRawContactDeltaComparator = new RawContactDeltaComparator(getContext());
+        }
+        return mRawContactDeltaComparator;
+    }
+
+    /**
+     * Sorts primary accounts and google account types before others, using the sort keys of
+     * the raw contact deltas computed once for the whole list. Kind sections without a raw
+     * contact delta come first.
+     */
+    private void sortByRawContactDelta(KindSectionDataList kindSectionDataList) {
+        final List<KindSectionData> withoutDelta = new ArrayList<>();
+        final List<KindSectionData> withDelta = new ArrayList<>(kindSectionDataList.size());
+        final List<RawContactDelta> rawContactDeltas =
+                new ArrayList<>(kindSectionDataList.size());
+        for (KindSectionData kindSectionData : kindSectionDataList) {
+            final RawContactDelta rawContactDelta = kindSectionData == null
+                    ? null : kindSectionData.getRawContactDelta();
+            if (rawContactDelta == null) {
+                withoutDelta.add(kindSectionData);
+            } else {
+                withDelta.add(kindSectionData);
+                rawContactDeltas.add(rawContactDelta);
+            }
+        }
+        final int[] positions = getRawContactDeltaComparator().getSortPositions(rawContactDeltas);
+        final KindSectionData[] sorted = new KindSectionData[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            sorted[positions[i]] = withDelta.get(i);
+        }
+        kindSectionDataList.clear();
+        kindSectionDataList.addAll(withoutDelta);
+        for (KindSectionData kindSectionData : sorted) {
+            kindSectionDataList.add(kindSectionData);
+        }
+    }
+
     void maybeSetReadOnlyDisplayNameAsPrimary(String readOnlyDisplayName) {
         if (TextUtils.isEmpty(readOnlyDisplayName)) return;
         final CompactKindSectionView primaryNameKindSectionView = getPrimaryNameKindSectionView();
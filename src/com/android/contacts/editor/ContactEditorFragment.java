@@ -21,7 +21,9 @@ import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.provider.ContactsContract;
 import android.provider.ContactsContract.CommonDataKinds.Photo;
 import android.text.TextUtils;
@@ -33,6 +35,7 @@ import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.LinearLayout;
 import android.widget.ListPopupWindow;
+import android.widget.Toast;
 
 import com.android.contacts.ContactSaveService;
 import com.android.contacts.R;
@@ -53,9 +56,10 @@ import com.android.contacts.util.ContactPhotoUtils;
 import com.android.contacts.util.UiClosables;
 
 import java.io.FileNotFoundException;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Contact editor with all fields displayed.
@@ -183,10 +187,21 @@ public class ContactEditorFragment extends ContactEditorBaseFragment implements
         }
 
         // Sort the editors
-        Collections.sort(mState, mComparator);
+        mComparator.sort(mState);
 
-        // Remove any existing editors and rebuild any visible
-        mContent.removeAllViews();
+        final long startTime = SystemClock.elapsedRealtime();
+
+        // Keep the existing editors so the ones for raw contacts that are still visible can be
+        // rebound in place, which only inflates the kinds and fields that were added.
+        final Map<Long, BaseRawContactEditorView> oldEditors = new HashMap<>();
+        for (int i = 0; i < mContent.getChildCount(); i++) {
+            final View view = mContent.getChildAt(i);
+            if (view instanceof BaseRawContactEditorView) {
+                final BaseRawContactEditorView oldEditor = (BaseRawContactEditorView) view;
+                oldEditors.put(oldEditor.getRawContactId(), oldEditor);
+            }
+        }
+        final List<View> editors = new ArrayList<>();
 
         final LayoutInflater inflater = (LayoutInflater) mContext.getSystemService(
                 Context.LAYOUT_INFLATER_SERVICE);
@@ -205,13 +220,16 @@ public class ContactEditorFragment extends ContactEditorBaseFragment implements
                 continue;
             }
 
+            final BaseRawContactEditorView oldEditor = oldEditors.remove(rawContactId);
             final BaseRawContactEditorView editor;
             if (!type.areContactsWritable()) {
-                editor = (BaseRawContactEditorView) inflater.inflate(
-                        R.layout.raw_contact_readonly_editor_view, mContent, false);
+                editor = oldEditor instanceof RawContactReadOnlyEditorView ? oldEditor
+                        : (BaseRawContactEditorView) inflater.inflate(
+                                R.layout.raw_contact_readonly_editor_view, mContent, false);
             } else {
-                editor = (RawContactEditorView) inflater.inflate(R.layout.raw_contact_editor_view,
-                        mContent, false);
+                editor = oldEditor instanceof RawContactEditorView ? oldEditor
+                        : (RawContactEditorView) inflater.inflate(
+                                R.layout.raw_contact_editor_view, mContent, false);
             }
             editor.setListener(this);
             final List<AccountWithDataSet> accounts = AccountTypeManager.getInstance(mContext)
@@ -231,7 +249,7 @@ public class ContactEditorFragment extends ContactEditorBaseFragment implements
                 editor.setCollapsed(i != 0);
             }
 
-            mContent.addView(editor);
+            editors.add(editor);
 
             editor.setState(rawContactDelta, type, mViewIdGenerator, isEditingUserProfile());
             if (mRawContactIdToDisplayAlone != -1) {
@@ -295,8 +313,15 @@ public class ContactEditorFragment extends ContactEditorBaseFragment implements
             }
         }
 
+        EditorViewBinder.reconcileChildren(mContent, editors);
+
         setGroupMetaData();
 
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            Log.v(TAG, "bindEditors: " + editors.size() + " raw contact(s) bound in "
+                    + (SystemClock.elapsedRealtime() - startTime) + "ms");
+        }
+
         // Show editor now that we've loaded state
         mContent.setVisibility(View.VISIBLE);
 
@@ -656,11 +681,35 @@ public class ContactEditorFragment extends ContactEditorBaseFragment implements
             }
 
             @Override
-            public void onPhotoSelected(Uri uri) throws FileNotFoundException {
-                final Bitmap bitmap = ContactPhotoUtils.getBitmapFromUri(mContext, uri);
-                setPhoto(mRawContactId, bitmap, uri);
+            public void onPhotoSelected(final Uri uri) throws FileNotFoundException {
                 mCurrentPhotoHandler = null;
-                bindEditors();
+                // Decode the photo off the UI thread.
+                final Context appContext = mContext.getApplicationContext();
+                new AsyncTask<Void, Void, Bitmap>() {
+                    @Override
+                    protected Bitmap doInBackground(Void... params) {
+                        try {
+                            return ContactPhotoUtils.getBitmapFromUri(appContext, uri);
+                        } catch (FileNotFoundException e) {
+                            Log.w(TAG, "Could not find photo " + uri);
+                            return null;
+                        }
+                    }
+
+                    @Override
+                    protected void onPostExecute(Bitmap bitmap) {
+                        if (!isAdded()) {
+                            return;
+                        }
+                        if (bitmap == null) {
+                            Toast.makeText(mContext, R.string.contactPhotoSavedErrorToast,
+                                    Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        setPhoto(mRawContactId, bitmap, uri);
+                        bindEditors();
+                    }
+                }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
             }
 
             @Override
@@ -294,8 +294,8 @@ public class EditorUiUtils {
     /**  Returns compressed bitmap bytes from the given Uri, scaled to the thumbnail dimensions. */
     public static byte[] getCompressedThumbnailBitmapBytes(Context context, Uri uri)
             throws FileNotFoundException {
-        final Bitmap bitmap = ContactPhotoUtils.getBitmapFromUri(context, uri);
         final int size = ContactsUtils.getThumbnailSize(context);
+        final Bitmap bitmap = ContactPhotoUtils.getBitmapFromUri(context, uri, size);
         final Bitmap bitmapScaled = Bitmap.createScaledBitmap(
                 bitmap, size, size, /* filter =*/ false);
         return ContactPhotoUtils.compressBitmap(bitmapScaled);
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.editor;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.android.contacts.common.model.ValuesDelta;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rebinds the field editors of a section by reusing the {@link LabeledEditorView}s that are
+ * already in its container, instead of removing every child and inflating them all again.
+ *
+ * An editor is reused for a row if it was bound to the same {@link ValuesDelta} instance, e.g.
+ * when the groups metadata finishes loading, or to a row with the same data id, e.g. when the
+ * contact is reloaded after a join. Only rows without such an editor need to be inflated.
+ *
+ * Usage: call {@link #begin} with the container, {@link #obtain} for every row that needs an
+ * editor, {@link #add} for every view in display order, then {@link #commit}.
+ *
+ * <p>This class is not thread safe.
+ */
+final class EditorViewBinder {
+
+    private final IdentityHashMap<ValuesDelta, List<LabeledEditorView>> mEditorsByValues =
+            new IdentityHashMap<>();
+    private final HashMap<Long, List<LabeledEditorView>> mEditorsById = new HashMap<>();
+    private final List<View> mViews = new ArrayList<>();
+    private ViewGroup mContainer;
+
+    /**
+     * Indexes the editors currently in {@code container} so they can be handed out by
+     * {@link #obtain}.
+     */
+    public void begin(ViewGroup container) {
+        mContainer = container;
+        mViews.clear();
+        mEditorsByValues.clear();
+        mEditorsById.clear();
+        for (int i = 0; i < container.getChildCount(); i++) {
+            final View view = container.getChildAt(i);
+            if (!(view instanceof LabeledEditorView)) {
+                continue;
+            }
+            final LabeledEditorView editor = (LabeledEditorView) view;
+            final ValuesDelta values = editor.getValues();
+            if (values == null) {
+                continue;
+            }
+            put(mEditorsByValues, values, editor);
+            final Long id = values.getId();
+            if (id != null) {
+                put(mEditorsById, id, editor);
+            }
+        }
+    }
+
+    /**
+     * Returns an editor of the given class that was bound to {@code values}, or to a row with the
+     * same id, or null if a new one has to be inflated. The editor is made visible again but is
+     * not rebound, see {@link LabeledEditorView#isBoundTo}.
+     */
+    public <T extends LabeledEditorView> T obtain(Class<T> editorClass, ValuesDelta values) {
+        if (mContainer == null || values == null) {
+            return null;
+        }
+        T editor = take(mEditorsByValues.get(values), editorClass);
+        if (editor == null) {
+            final Long id = values.getId();
+            editor = id == null ? null : take(mEditorsById.get(id), editorClass);
+        }
+        if (editor != null) {
+            editor.setVisibility(View.VISIBLE);
+        }
+        return editor;
+    }
+
+    /**
+     * Appends a view to the list of views the container will hold after {@link #commit}.
+     */
+    public void add(View view) {
+        mViews.add(view);
+    }
+
+    /**
+     * Updates the container to hold exactly the views that were added, in order.
+     */
+    public void commit() {
+        if (mContainer == null) {
+            return;
+        }
+        reconcileChildren(mContainer, mViews);
+        mContainer = null;
+        mViews.clear();
+        mEditorsByValues.clear();
+        mEditorsById.clear();
+    }
+
+    /**
+     * Updates {@code container} to hold exactly {@code views}, in order. Children that remain are
+     * not detached, so they keep their focus and do not need to be laid out from scratch.
+     */
+    public static void reconcileChildren(ViewGroup container, List<View> views) {
+        final Set<View> viewsToKeep =
+                Collections.newSetFromMap(new IdentityHashMap<View, Boolean>());
+        viewsToKeep.addAll(views);
+        for (int i = container.getChildCount() - 1; i >= 0; i--) {
+            if (!viewsToKeep.contains(container.getChildAt(i))) {
+                container.removeViewAt(i);
+            }
+        }
+        for (int i = 0; i < views.size(); i++) {
+            final View view = views.get(i);
+            if (i < container.getChildCount() && container.getChildAt(i) == view) {
+                continue;
+            }
+            if (view.getParent() != null) {
+                ((ViewGroup) view.getParent()).removeView(view);
+            }
+            container.addView(view, i);
+        }
+    }
+
+    private static <K> void put(Map<K, List<LabeledEditorView>> map, K key,
+            LabeledEditorView editor) {
+        List<LabeledEditorView> editors = map.get(key);
+        if (editors == null) {
+            editors = new ArrayList<>(1);
+            map.put(key, editors);
+        }
+        editors.add(editor);
+    }
+
+    /**
+     * Removes and returns the first editor of the given class in {@code editors}. The editor is
+     * also removed from both indexes so it cannot be handed out twice.
+     */
+    private <T extends LabeledEditorView> T take(List<LabeledEditorView> editors,
+            Class<T> editorClass) {
+        if (editors == null) {
+            return null;
+        }
+        for (int i = 0; i < editors.size(); i++) {
+            final LabeledEditorView editor = editors.get(i);
+            if (editorClass.isInstance(editor)) {
+                final ValuesDelta values = editor.getValues();
+                remove(mEditorsByValues.get(values), editor);
+                final Long id = values.getId();
+                if (id != null) {
+                    remove(mEditorsById.get(id), editor);
+                }
+                return editorClass.cast(editor);
+            }
+        }
+        return null;
+    }
+
+    private static void remove(List<LabeledEditorView> editors, LabeledEditorView editor) {
+        if (editors != null) {
+            editors.remove(editor);
+        }
+    }
+}
@@ -36,6 +36,7 @@ import android.widget.ListPopupWindow;
 import android.widget.ListView;
 import android.widget.TextView;
 
+import com.android.contacts.GroupMetaDataCache;
 import com.android.contacts.GroupMetaDataLoader;
 import com.android.contacts.R;
 import com.android.contacts.common.model.dataitem.DataKind;
@@ -237,8 +238,10 @@ public class GroupMembershipView extends LinearLayout
         mDefaultGroupId = 0;
 
         StringBuilder sb = new StringBuilder();
-        mGroupMetaData.moveToPosition(-1);
-        while (mGroupMetaData.moveToNext()) {
+        final int[] range = GroupMetaDataCache.getAccountRange(mGroupMetaData, mAccountName,
+                mAccountType, mDataSet);
+        mGroupMetaData.moveToPosition(range[0] - 1);
+        while (mGroupMetaData.moveToNext() && mGroupMetaData.getPosition() < range[1]) {
             String accountName = mGroupMetaData.getString(GroupMetaDataLoader.ACCOUNT_NAME);
             String accountType = mGroupMetaData.getString(GroupMetaDataLoader.ACCOUNT_TYPE);
             String dataSet = mGroupMetaData.getString(GroupMetaDataLoader.DATA_SET);
@@ -307,8 +310,10 @@ public class GroupMembershipView extends LinearLayout
         mAdapter = new GroupMembershipAdapter<GroupSelectionItem>(
                 getContext(), R.layout.group_membership_list_item);
 
-        mGroupMetaData.moveToPosition(-1);
-        while (mGroupMetaData.moveToNext()) {
+        final int[] range = GroupMetaDataCache.getAccountRange(mGroupMetaData, mAccountName,
+                mAccountType, mDataSet);
+        mGroupMetaData.moveToPosition(range[0] - 1);
+        while (mGroupMetaData.moveToNext() && mGroupMetaData.getPosition() < range[1]) {
             String accountName = mGroupMetaData.getString(GroupMetaDataLoader.ACCOUNT_NAME);
             String accountType = mGroupMetaData.getString(GroupMetaDataLoader.ACCOUNT_TYPE);
             String dataSet = mGroupMetaData.getString(GroupMetaDataLoader.DATA_SET);
@@ -64,6 +64,8 @@ public class KindSectionView extends LinearLayout implements EditorListener {
 
     private Listener mListener;
 
+    private final EditorViewBinder mEditorViewBinder = new EditorViewBinder();
+
     public KindSectionView(Context context) {
         this(context, null);
     }
@@ -160,8 +162,8 @@ public class KindSectionView extends LinearLayout implements EditorListener {
      * Build editors for all current {@link #mState} rows.
      */
     private void rebuildFromState() {
-        // Remove any existing editors
-        mEditors.removeAllViews();
+        // Reuse the editors that are already bound to these rows, only inflate the new ones
+        mEditorViewBinder.begin(mEditors);
 
         // Check if we are displaying anything here
         boolean hasEntries = mState.hasMimeEntries(mKind.mimeType);
@@ -172,36 +174,42 @@ public class KindSectionView extends LinearLayout implements EditorListener {
                 if (!entry.isVisible()) continue;
                 if (isEmptyNoop(entry)) continue;
 
-                createEditorView(entry);
+                mEditorViewBinder.add(createEditorView(entry));
             }
         }
+
+        mEditorViewBinder.commit();
     }
 
 
     /**
-     * Creates an EditorView for the given entry. This function must be used while constructing
-     * the views corresponding to the the object-model. The resulting EditorView is also added
-     * to the end of mEditors
+     * Creates an EditorView for the given entry, or rebinds the one that was already showing it.
+     * This function must be used while constructing the views corresponding to the the
+     * object-model. The caller is responsible for adding the resulting EditorView to mEditors.
      */
     private View createEditorView(ValuesDelta entry) {
-        final View view;
-        final int layoutResId = EditorUiUtils.getLayoutResourceId(mKind.mimeType);
-        try {
-            view = mInflater.inflate(layoutResId, mEditors, false);
-        } catch (Exception e) {
-            throw new RuntimeException(
-                    "Cannot allocate editor with layout resource ID " +
-                    layoutResId + " for MIME type " + mKind.mimeType +
-                    " with error " + e.toString());
+        View view = mEditorViewBinder.obtain(LabeledEditorView.class, entry);
+        if (view == null) {
+            final int layoutResId = EditorUiUtils.getLayoutResourceId(mKind.mimeType);
+            try {
+                view = mInflater.inflate(layoutResId, mEditors, false);
+            } catch (Exception e) {
+                throw new RuntimeException(
+                        "Cannot allocate editor with layout resource ID " +
+                        layoutResId + " for MIME type " + mKind.mimeType +
+                        " with error " + e.toString());
+            }
         }
         view.setEnabled(isEnabled());
         if (view instanceof Editor) {
             Editor editor = (Editor) view;
             editor.setDeletable(true);
-            editor.setValues(mKind, entry, mState, mReadOnly, mViewIdGenerator);
+            if (!(view instanceof LabeledEditorView) || !((LabeledEditorView) view).isBoundTo(
+                    mKind, entry, mState, mReadOnly)) {
+                editor.setValues(mKind, entry, mState, mReadOnly, mViewIdGenerator);
+            }
             editor.setEditorListener(this);
         }
-        mEditors.addView(view);
         return view;
     }
 
@@ -258,6 +266,7 @@ public class KindSectionView extends LinearLayout implements EditorListener {
         } else {
             final ValuesDelta values = RawContactModifier.insertChild(mState, mKind);
             final View newField = createEditorView(values);
+            mEditors.addView(newField);
             if (shouldAnimate) {
                 newField.setVisibility(View.GONE);
                 EditorAnimator.getInstance().showFieldFooter(newField);
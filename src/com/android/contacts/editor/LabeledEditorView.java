@@ -427,6 +427,14 @@ public abstract class LabeledEditorView extends LinearLayout implements Editor,
         return mEntry;
     }
 
+    /**
+     * Whether {@link #setValues} was last called with exactly these arguments, in which case the
+     * editor already reflects them and does not need to be rebound.
+     */
+    boolean isBoundTo(DataKind kind, ValuesDelta entry, RawContactDelta state, boolean readOnly) {
+        return mKind == kind && mEntry == entry && mState == state && mReadOnly == readOnly;
+    }
+
     /**
      * Prepare dialog for entering a custom label. The input value is trimmed: white spaces before
      * and after the input text is removed.
@@ -24,15 +24,57 @@ import com.android.contacts.common.model.account.GoogleAccountType;
 import android.content.Context;
 import android.provider.ContactsContract.RawContacts;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 
 /**
  * Compares {@link RawContactDelta}s
+ *
+ * To sort many deltas, use {@link #sort} or {@link #getSortPositions}, which look up the account
+ * type and read the values of each delta once, and pack them in a key of two longs.
  */
 class RawContactDeltaComparator implements Comparator<RawContactDelta> {
 
+    /** Bits of each of the ranks of the account type, data set and account name in a key. */
+    private static final int RANK_BITS = 20;
+    private static final int MAX_RANK = (1 << RANK_BITS) - 1;
+
     private Context mContext;
 
+    /**
+     * The precomputed order of a delta: {@link #key} holds whether the account is read-only and
+     * not Google, and the ranks of its account type, data set and account name. Ties are broken
+     * by the raw contact id, then by the position in the sorted list.
+     */
+    private static final class SortKey implements Comparable<SortKey> {
+        final int index;
+        final long key;
+        final long rawContactId;
+
+        SortKey(int index, long key, long rawContactId) {
+            this.index = index;
+            this.key = key;
+            this.rawContactId = rawContactId;
+        }
+
+        @Override
+        public int compareTo(SortKey other) {
+            if (key != other.key) {
+                return key < other.key ? -1 : 1;
+            }
+            if (rawContactId != other.rawContactId) {
+                return rawContactId < other.rawContactId ? -1 : 1;
+            }
+            return Integer.compare(index, other.index);
+        }
+    }
+
     public RawContactDeltaComparator(Context context) {
         mContext = context;
     }
@@ -130,4 +172,104 @@ class RawContactDeltaComparator implements Comparator<RawContactDelta> {
 
         return Long.compare(oneId, twoId);
     }
+
+    /**
+     * Sorts {@param deltas} in the order of {@link #compare}.
+     */
+    public void sort(List<RawContactDelta> deltas) {
+        final int[] positions = getSortPositions(deltas);
+        final RawContactDelta[] sorted = new RawContactDelta[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            sorted[positions[i]] = deltas.get(i);
+        }
+        for (int i = 0; i < sorted.length; i++) {
+            deltas.set(i, sorted[i]);
+        }
+    }
+
+    /**
+     * Returns the position that each of {@param deltas} has once sorted in the order of
+     * {@link #compare}. Deltas that compare equal keep their relative order.
+     */
+    public int[] getSortPositions(final List<RawContactDelta> deltas) {
+        final int count = deltas.size();
+        final int[] positions = new int[count];
+        if (count > MAX_RANK) {
+            // Too many for the ranks to fit in a key.
+            final List<Integer> indexes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                indexes.add(i);
+            }
+            Collections.sort(indexes, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer one, Integer two) {
+                    return RawContactDeltaComparator.this.compare(deltas.get(one),
+                            deltas.get(two));
+                }
+            });
+            for (int i = 0; i < count; i++) {
+                positions[indexes.get(i)] = i;
+            }
+            return positions;
+        }
+
+        final AccountTypeManager accountTypes = AccountTypeManager.getInstance(mContext);
+        final AccountType[] types = new AccountType[count];
+        final String[] accountNames = new String[count];
+        final TreeSet<String> distinctTypes = new TreeSet<>();
+        final TreeSet<String> distinctDataSets = new TreeSet<>();
+        final TreeSet<String> distinctNames = new TreeSet<>();
+        for (int i = 0; i < count; i++) {
+            final RawContactDelta delta = deltas.get(i);
+            types[i] = accountTypes.getAccountType(
+                    delta.getValues().getAsString(RawContacts.ACCOUNT_TYPE),
+                    delta.getValues().getAsString(RawContacts.DATA_SET));
+            if (types[i].accountType != null) {
+                distinctTypes.add(types[i].accountType);
+            }
+            if (types[i].dataSet != null) {
+                distinctDataSets.add(types[i].dataSet);
+            }
+            final String accountName = delta.getAccountName();
+            accountNames[i] = accountName == null ? "" : accountName;
+            distinctNames.add(accountNames[i]);
+        }
+        // Accounts without type or data set sort after the others.
+        final Map<String, Integer> typeRanks = getRanks(distinctTypes);
+        final Map<String, Integer> dataSetRanks = getRanks(distinctDataSets);
+        final Map<String, Integer> nameRanks = getRanks(distinctNames);
+
+        final SortKey[] keys = new SortKey[count];
+        for (int i = 0; i < count; i++) {
+            final AccountType type = types[i];
+            long key = type.areContactsWritable() ? 0 : 1;
+            final boolean isGoogleAccount = type instanceof GoogleAccountType;
+            key = (key << 1) | (isGoogleAccount ? 0 : 1);
+            // Google accounts only compare by account name.
+            key = (key << RANK_BITS) | (isGoogleAccount ? 0
+                    : getRank(typeRanks, type.accountType));
+            key = (key << RANK_BITS) | (isGoogleAccount ? 0
+                    : getRank(dataSetRanks, type.dataSet));
+            key = (key << RANK_BITS) | nameRanks.get(accountNames[i]);
+            final Long rawContactId = deltas.get(i).getRawContactId();
+            keys[i] = new SortKey(i, key, rawContactId == null ? Long.MIN_VALUE : rawContactId);
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < count; i++) {
+            positions[keys[i].index] = i;
+        }
+        return positions;
+    }
+
+    private static Map<String, Integer> getRanks(TreeSet<String> sortedValues) {
+        final Map<String, Integer> ranks = new HashMap<>(sortedValues.size() * 2);
+        for (String value : sortedValues) {
+            ranks.put(value, ranks.size());
+        }
+        return ranks;
+    }
+
+    private static int getRank(Map<String, Integer> ranks, String value) {
+        return value == null ? ranks.size() : ranks.get(value);
+    }
 }
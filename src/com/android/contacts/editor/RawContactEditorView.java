@@ -37,6 +37,7 @@ import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import com.android.contacts.GroupMetaDataCache;
 import com.android.contacts.GroupMetaDataLoader;
 import com.android.contacts.R;
 import com.android.contacts.common.MoreContactUtils;
@@ -51,6 +52,9 @@ import com.android.contacts.common.SimContactsConstants;
 import com.google.common.base.Objects;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Custom view that provides all the editor interaction for a specific
@@ -193,11 +197,24 @@ public class RawContactEditorView extends BaseRawContactEditorView {
 
         mState = state;
 
-        // Remove any existing sections
-        mFields.removeAllViews();
-
         // Bail if invalid state or account type
-        if (state == null || type == null) return;
+        if (state == null || type == null) {
+            mFields.removeAllViews();
+            return;
+        }
+
+        // Keep the existing sections so they can be rebound rather than inflated again
+        final Map<String, KindSectionView> oldSections = new HashMap<>();
+        for (int i = 0; i < mFields.getChildCount(); i++) {
+            final View view = mFields.getChildAt(i);
+            if (view instanceof KindSectionView) {
+                final DataKind kind = ((KindSectionView) view).getKind();
+                if (kind != null) {
+                    oldSections.put(kind.mimeType, (KindSectionView) view);
+                }
+            }
+        }
+        final List<View> fields = new ArrayList<>();
 
         setId(vig.getId(state, null, null, ViewIdGenerator.NO_VIEW_INDEX));
 
@@ -248,8 +265,10 @@ public class RawContactEditorView extends BaseRawContactEditorView {
 
         mGroupMembershipKind = type.getKindForMimetype(GroupMembership.CONTENT_ITEM_TYPE);
         if (mGroupMembershipKind != null) {
-            mGroupMembershipView = (GroupMembershipView)mInflater.inflate(
-                    R.layout.item_group_membership, mFields, false);
+            if (mGroupMembershipView == null) {
+                mGroupMembershipView = (GroupMembershipView)mInflater.inflate(
+                        R.layout.item_group_membership, mFields, false);
+            }
             mGroupMembershipView.setKind(mGroupMembershipKind);
             mGroupMembershipView.setEnabled(isEnabled());
         }
@@ -303,7 +322,7 @@ public class RawContactEditorView extends BaseRawContactEditorView {
             } else if (GroupMembership.CONTENT_ITEM_TYPE.equals(mimeType)) {
                 if (mGroupMembershipView != null) {
                     mGroupMembershipView.setState(state);
-                    mFields.addView(mGroupMembershipView);
+                    fields.add(mGroupMembershipView);
                 }
             } else if (DataKind.PSEUDO_MIME_TYPE_DISPLAY_NAME.equals(mimeType)
                     || DataKind.PSEUDO_MIME_TYPE_PHONETIC_NAME.equals(mimeType)
@@ -355,14 +374,19 @@ public class RawContactEditorView extends BaseRawContactEditorView {
                 }
 
                 if (kind.fieldList == null) continue;
-                final KindSectionView section = (KindSectionView)mInflater.inflate(
-                        R.layout.item_kind_section, mFields, false);
+                KindSectionView section = oldSections.remove(mimeType);
+                if (section == null) {
+                    section = (KindSectionView)mInflater.inflate(
+                            R.layout.item_kind_section, mFields, false);
+                }
                 section.setEnabled(isEnabled());
                 section.setState(kind, state, /* readOnly =*/ false, vig);
-                mFields.addView(section);
+                fields.add(section);
             }
         }
 
+        EditorViewBinder.reconcileChildren(mFields, fields);
+
         addToDefaultGroupIfNeeded();
     }
 
@@ -422,8 +446,10 @@ public class RawContactEditorView extends BaseRawContactEditorView {
         String accountType = mState.getAccountType();
         String accountName = mState.getAccountName();
         String accountDataSet = mState.getDataSet();
-        mGroupMetaData.moveToPosition(-1);
-        while (mGroupMetaData.moveToNext()) {
+        final int[] range = GroupMetaDataCache.getAccountRange(mGroupMetaData, accountName,
+                accountType, accountDataSet);
+        mGroupMetaData.moveToPosition(range[0] - 1);
+        while (mGroupMetaData.moveToNext() && mGroupMetaData.getPosition() < range[1]) {
             String name = mGroupMetaData.getString(GroupMetaDataLoader.ACCOUNT_NAME);
             String type = mGroupMetaData.getString(GroupMetaDataLoader.ACCOUNT_TYPE);
             String dataSet = mGroupMetaData.getString(GroupMetaDataLoader.DATA_SET);
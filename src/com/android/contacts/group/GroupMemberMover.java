@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.group;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.provider.ContactsContract.CommonDataKinds.GroupMembership;
+import android.provider.ContactsContract.Data;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Moves contacts from one group to another with a few set-based statements.
+ *
+ * Contacts that are already members of the destination group are removed from the source group,
+ * and the memberships of the others are updated to point to the destination group. Both are done
+ * with {@code IN (...)} selections of at most {@link #CHUNK_SIZE} contacts.
+ *
+ * Must be used on a worker thread.
+ */
+public class GroupMemberMover {
+    private static final String TAG = "GroupMemberMover";
+
+    /** Bounds the length of each statement, and how long each one holds the database. */
+    private static final int CHUNK_SIZE = 400;
+
+    private static final String MEMBER_SELECTION =
+            Data.MIMETYPE + "=? AND " + GroupMembership.GROUP_ROW_ID + "=?";
+
+    /**
+     * Callback interface for the progress of a move.
+     */
+    public interface Listener {
+        /** Called on the worker thread after each statement. */
+        void onProgress(int done, int total);
+    }
+
+    private final ContentResolver mResolver;
+    private final long mSrcGroupId;
+    private final long mDestGroupId;
+
+    private volatile boolean mCanceled;
+
+    public GroupMemberMover(ContentResolver resolver, long srcGroupId, long destGroupId) {
+        mResolver = resolver;
+        mSrcGroupId = srcGroupId;
+        mDestGroupId = destGroupId;
+    }
+
+    /**
+     * Stops the move after the current statement. May be called on any thread.
+     */
+    public void cancel() {
+        mCanceled = true;
+    }
+
+    /**
+     * Moves the contacts with the given ids, which are strings as in the selections of the
+     * multipicker. Returns the number of contacts processed, which is less than the number of ids
+     * if the move was canceled.
+     */
+    public int move(Collection<String> contactIds, Listener listener) {
+        final long startTime = SystemClock.elapsedRealtime();
+        final long[] ids = parseIds(contactIds);
+        final long[] destMembers = queryDestMembers();
+
+        // Partition the ids in place: the ones already in the destination group first.
+        int existingCount = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (Arrays.binarySearch(destMembers, ids[i]) >= 0) {
+                final long id = ids[i];
+                ids[i] = ids[existingCount];
+                ids[existingCount++] = id;
+            }
+        }
+
+        int done = 0;
+        while (done < ids.length && !mCanceled) {
+            // A chunk never mixes the two partitions.
+            final int limit = done < existingCount ? existingCount : ids.length;
+            final int end = Math.min(limit, done + CHUNK_SIZE);
+            if (done < existingCount) {
+                deleteMemberships(ids, done, end);
+            } else {
+                moveMemberships(ids, done, end);
+            }
+            done = end;
+            if (listener != null) {
+                listener.onProgress(done, ids.length);
+            }
+        }
+
+        final long elapsed = SystemClock.elapsedRealtime() - startTime;
+        Log.d(TAG, "Moved " + done + " of " + ids.length + " contacts in " + elapsed + "ms ("
+                + (elapsed > 0 ? done * 1000L / elapsed : done) + "/s), "
+                + existingCount + " already in the destination group");
+        return done;
+    }
+
+    private static long[] parseIds(Collection<String> contactIds) {
+        final long[] ids = new long[contactIds.size()];
+        int count = 0;
+        for (String contactId : contactIds) {
+            try {
+                ids[count] = Long.parseLong(contactId);
+                count++;
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "Skipping invalid contact id " + contactId);
+            }
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Returns the sorted ids of the contacts that are members of the destination group.
+     */
+    private long[] queryDestMembers() {
+        final Cursor cursor = mResolver.query(Data.CONTENT_URI, new String[] {Data.CONTACT_ID},
+                MEMBER_SELECTION, new String[] {
+                        GroupMembership.CONTENT_ITEM_TYPE, String.valueOf(mDestGroupId)
+                }, null);
+        if (cursor == null) {
+            return new long[0];
+        }
+        try {
+            final long[] members = new long[cursor.getCount()];
+            int count = 0;
+            while (cursor.moveToNext()) {
+                members[count++] = cursor.getLong(0);
+            }
+            Arrays.sort(members, 0, count);
+            return count == members.length ? members : Arrays.copyOf(members, count);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void deleteMemberships(long[] ids, int start, int end) {
+        mResolver.delete(Data.CONTENT_URI, getSourceSelection(ids, start, end),
+                getSourceSelectionArgs());
+    }
+
+    private void moveMemberships(long[] ids, int start, int end) {
+        final ContentValues values = new ContentValues(1);
+        values.put(GroupMembership.GROUP_ROW_ID, mDestGroupId);
+        mResolver.update(Data.CONTENT_URI, values, getSourceSelection(ids, start, end),
+                getSourceSelectionArgs());
+    }
+
+    /**
+     * Returns a selection of the source group memberships of the contacts in
+     * {@code ids[start..end)}. The ids are numbers, so they are inlined.
+     */
+    private static String getSourceSelection(long[] ids, int start, int end) {
+        final StringBuilder selection = new StringBuilder(MEMBER_SELECTION.length() + 32
+                + (end - start) * 8);
+        selection.append(MEMBER_SELECTION).append(" AND ").append(Data.CONTACT_ID).append(" IN (");
+        for (int i = start; i < end; i++) {
+            if (i > start) {
+                selection.append(',');
+            }
+            selection.append(ids[i]);
+        }
+        return selection.append(')').toString();
+    }
+
+    private String[] getSourceSelectionArgs() {
+        return new String[] {GroupMembership.CONTENT_ITEM_TYPE, String.valueOf(mSrcGroupId)};
+    }
+}
@@ -6,9 +6,8 @@ import android.content.ContentValues;
 import android.content.ContentUris;
 import android.content.Context;
 import android.content.Intent;
-import android.content.res.Resources;
+import android.database.Cursor;
 import android.graphics.drawable.Drawable;
-import android.net.Uri;
 import android.provider.CalendarContract.Attendees;
 import android.provider.CalendarContract.Events;
 import android.text.Spannable;
@@ -17,38 +16,77 @@ import android.text.format.Time;
 import android.util.Log;
 
 /**
- * Represents a calendar event interaction, wrapping the columns in
- * {@link android.provider.CalendarContract.Attendees}.
+ * Represents a calendar event interaction, holding the columns of
+ * {@link android.provider.CalendarContract.Attendees} listed in {@link #PROJECTION}.
  */
 public class CalendarInteraction implements ContactInteraction {
     private static final String TAG = CalendarInteraction.class.getSimpleName();
 
     private static final int CALENDAR_ICON_RES = R.drawable.ic_event_24dp;
 
-    private ContentValues mValues;
+    /** Columns read by {@link #CalendarInteraction(Cursor, int[])}. */
+    static final String[] PROJECTION = new String[] {
+            Attendees.EVENT_ID,
+            Attendees.TITLE,
+            Attendees.DTSTART,
+            Attendees.DTEND,
+            Attendees.ALL_DAY,
+    };
+    private static final int EVENT_ID = 0;
+    private static final int TITLE = 1;
+    private static final int DTSTART = 2;
+    private static final int DTEND = 3;
+    private static final int ALL_DAY = 4;
+
+    /** Value of {@link #mDtstart} and {@link #mDtend} when the column is null. */
+    private static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
+    private final long mEventId;
+    private final String mTitle;
+    private final long mDtstart;
+    private final long mDtend;
+    private final boolean mAllDay;
 
     public CalendarInteraction(ContentValues values) {
-        mValues = values;
+        mEventId = ContactInteractionUtil.unbox(values.getAsLong(Attendees.EVENT_ID), 0);
+        mTitle = values.getAsString(Attendees.TITLE);
+        mDtstart = ContactInteractionUtil.unbox(values.getAsLong(Attendees.DTSTART),
+                UNKNOWN_TIME);
+        mDtend = ContactInteractionUtil.unbox(values.getAsLong(Attendees.DTEND), UNKNOWN_TIME);
+        mAllDay = ContactInteractionUtil.unbox(values.getAsInteger(Attendees.ALL_DAY), 0) == 1;
+    }
+
+    /**
+     * Reads the current row of {@param cursor}.
+     *
+     * @param columnIndexes the positions of {@link #PROJECTION} in {@param cursor}, see
+     * {@link ContactInteractionUtil#getColumnIndexes}
+     */
+    public CalendarInteraction(Cursor cursor, int[] columnIndexes) {
+        mEventId = cursor.getLong(columnIndexes[EVENT_ID]);
+        mTitle = cursor.getString(columnIndexes[TITLE]);
+        mDtstart = ContactInteractionUtil.getLong(cursor, columnIndexes[DTSTART], UNKNOWN_TIME);
+        mDtend = ContactInteractionUtil.getLong(cursor, columnIndexes[DTEND], UNKNOWN_TIME);
+        mAllDay = cursor.getInt(columnIndexes[ALL_DAY]) == 1;
     }
 
     @Override
     public Intent getIntent() {
         return new Intent(Intent.ACTION_VIEW).setData(
-                ContentUris.withAppendedId(Events.CONTENT_URI, getEventId()));
+                ContentUris.withAppendedId(Events.CONTENT_URI, mEventId));
     }
 
     @Override
     public long getInteractionDate() {
-        return getDtstart();
+        return mDtstart;
     }
 
     @Override
     public String getViewHeader(Context context) {
-        String title = getTitle();
-        if (TextUtils.isEmpty(title)) {
+        if (TextUtils.isEmpty(mTitle)) {
             return context.getResources().getString(R.string.untitled_event);
         }
-        return title;
+        return mTitle;
     }
 
     @Override
@@ -62,19 +100,19 @@ public class CalendarInteraction implements ContactInteraction {
         // TODO: build callback to update time zone if different than preferences
         String localTimezone = Time.getCurrentTimezone();
 
-        Long dateEnd = getDtend();
-        Long dateStart = getDtstart();
-        if (dateStart == null && dateEnd == null) {
+        long dateEnd = mDtend;
+        long dateStart = mDtstart;
+        if (dateStart == UNKNOWN_TIME && dateEnd == UNKNOWN_TIME) {
             return null;
-        } else if (dateEnd == null) {
+        } else if (dateEnd == UNKNOWN_TIME) {
             dateEnd = dateStart;
-        } else if (dateStart == null) {
+        } else if (dateStart == UNKNOWN_TIME) {
             dateStart = dateEnd;
         }
 
         String displayedDatetime = CalendarInteractionUtils.getDisplayedDatetime(
                 dateStart, dateEnd, System.currentTimeMillis(), localTimezone,
-                getAllDay(), context);
+                mAllDay, context);
 
         return displayedDatetime;
     }
@@ -94,188 +132,16 @@ public class CalendarInteraction implements ContactInteraction {
         return null;
     }
 
-    public String getAttendeeEmail() {
-        return mValues.getAsString(Attendees.ATTENDEE_EMAIL);
+    public long getEventId() {
+        return mEventId;
     }
 
-    public String getAttendeeIdentity() {
-        return mValues.getAsString(Attendees.ATTENDEE_IDENTITY);
-    }
-
-    public String getAttendeeIdNamespace() {
-        return mValues.getAsString(Attendees.ATTENDEE_ID_NAMESPACE);
-    }
-
-    public String getAttendeeName() {
-        return mValues.getAsString(Attendees.ATTENDEE_NAME);
-    }
-
-    public Integer getAttendeeRelationship() {
-        return mValues.getAsInteger(Attendees.ATTENDEE_RELATIONSHIP);
-    }
-
-    public Integer getAttendeeStatus() {
-        return mValues.getAsInteger(Attendees.ATTENDEE_STATUS);
-    }
-
-    public Integer getAttendeeType() {
-        return mValues.getAsInteger(Attendees.ATTENDEE_TYPE);
-    }
-
-    public Integer getEventId() {
-        return mValues.getAsInteger(Attendees.EVENT_ID);
-    }
-
-    public Integer getAccessLevel() {
-        return mValues.getAsInteger(Attendees.ACCESS_LEVEL);
-    }
-
-    public Boolean getAllDay() {
-        return mValues.getAsInteger(Attendees.ALL_DAY) == 1 ? true : false;
-    }
-
-    public Integer getAvailability() {
-        return mValues.getAsInteger(Attendees.AVAILABILITY);
-    }
-
-    public Integer getCalendarId() {
-        return mValues.getAsInteger(Attendees.CALENDAR_ID);
-    }
-
-    public Boolean getCanInviteOthers() {
-        return mValues.getAsBoolean(Attendees.CAN_INVITE_OTHERS);
-    }
-
-    public String getCustomAppPackage() {
-        return mValues.getAsString(Attendees.CUSTOM_APP_PACKAGE);
-    }
-
-    public String getCustomAppUri() {
-        return mValues.getAsString(Attendees.CUSTOM_APP_URI);
-    }
-
-    public String getDescription() {
-        return mValues.getAsString(Attendees.DESCRIPTION);
-    }
-
-    public Integer getDisplayColor() {
-        return mValues.getAsInteger(Attendees.DISPLAY_COLOR);
-    }
-
-    public Long getDtend() {
-        return mValues.getAsLong(Attendees.DTEND);
-    }
-
-    public Long getDtstart() {
-        return mValues.getAsLong(Attendees.DTSTART);
-    }
-
-    public String getDuration() {
-        return mValues.getAsString(Attendees.DURATION);
-    }
-
-    public Integer getEventColor() {
-        return mValues.getAsInteger(Attendees.EVENT_COLOR);
-    }
-
-    public String getEventColorKey() {
-        return mValues.getAsString(Attendees.EVENT_COLOR_KEY);
-    }
-
-    public String getEventEndTimezone() {
-        return mValues.getAsString(Attendees.EVENT_END_TIMEZONE);
-    }
-
-    public String getEventLocation() {
-        return mValues.getAsString(Attendees.EVENT_LOCATION);
-    }
-
-    public String getExdate() {
-        return mValues.getAsString(Attendees.EXDATE);
-    }
-
-    public String getExrule() {
-        return mValues.getAsString(Attendees.EXRULE);
-    }
-
-    public Boolean getGuestsCanInviteOthers() {
-        return mValues.getAsBoolean(Attendees.GUESTS_CAN_INVITE_OTHERS);
-    }
-
-    public Boolean getGuestsCanModify() {
-        return mValues.getAsBoolean(Attendees.GUESTS_CAN_MODIFY);
-    }
-
-    public Boolean getGuestsCanSeeGuests() {
-        return mValues.getAsBoolean(Attendees.GUESTS_CAN_SEE_GUESTS);
-    }
-
-    public Boolean getHasAlarm() {
-        return mValues.getAsBoolean(Attendees.HAS_ALARM);
-    }
-
-    public Boolean getHasAttendeeData() {
-        return mValues.getAsBoolean(Attendees.HAS_ATTENDEE_DATA);
-    }
-
-    public Boolean getHasExtendedProperties() {
-        return mValues.getAsBoolean(Attendees.HAS_EXTENDED_PROPERTIES);
-    }
-
-    public String getIsOrganizer() {
-        return mValues.getAsString(Attendees.IS_ORGANIZER);
-    }
-
-    public Long getLastDate() {
-        return mValues.getAsLong(Attendees.LAST_DATE);
-    }
-
-    public Boolean getLastSynced() {
-        return mValues.getAsBoolean(Attendees.LAST_SYNCED);
-    }
-
-    public String getOrganizer() {
-        return mValues.getAsString(Attendees.ORGANIZER);
-    }
-
-    public Boolean getOriginalAllDay() {
-        return mValues.getAsBoolean(Attendees.ORIGINAL_ALL_DAY);
-    }
-
-    public String getOriginalId() {
-        return mValues.getAsString(Attendees.ORIGINAL_ID);
-    }
-
-    public Long getOriginalInstanceTime() {
-        return mValues.getAsLong(Attendees.ORIGINAL_INSTANCE_TIME);
-    }
-
-    public String getOriginalSyncId() {
-        return mValues.getAsString(Attendees.ORIGINAL_SYNC_ID);
-    }
-
-    public String getRdate() {
-        return mValues.getAsString(Attendees.RDATE);
-    }
-
-    public String getRrule() {
-        return mValues.getAsString(Attendees.RRULE);
-    }
-
-    public Integer getSelfAttendeeStatus() {
-        return mValues.getAsInteger(Attendees.SELF_ATTENDEE_STATUS);
-    }
-
-    public Integer getStatus() {
-        return mValues.getAsInteger(Attendees.STATUS);
+    public boolean getAllDay() {
+        return mAllDay;
     }
 
     public String getTitle() {
-        return mValues.getAsString(Attendees.TITLE);
-    }
-
-    public String getUid2445() {
-        return mValues.getAsString(Attendees.UID_2445);
+        return mTitle;
     }
 
     @Override
@@ -8,17 +8,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 import android.Manifest.permission;
 import android.content.AsyncTaskLoader;
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
-import android.database.DatabaseUtils;
 import android.provider.CalendarContract;
-import android.provider.CalendarContract.Calendars;
 import android.util.Log;
 
 
@@ -31,6 +30,14 @@ import android.util.Log;
 public class CalendarInteractionsLoader extends AsyncTaskLoader<List<ContactInteraction>> {
     private static final String TAG = CalendarInteractionsLoader.class.getSimpleName();
 
+    /** The columns of {@link CalendarInteraction}, and the attendee email that matched. */
+    private static final String[] EVENTS_PROJECTION;
+    static {
+        final int count = CalendarInteraction.PROJECTION.length;
+        EVENTS_PROJECTION = Arrays.copyOf(CalendarInteraction.PROJECTION, count + 1);
+        EVENTS_PROJECTION[count] = CalendarContract.Attendees.ATTENDEE_EMAIL;
+    }
+
     private List<String> mEmailAddresses;
     private int mMaxFutureToRetrieve;
     private int mMaxPastToRetrieve;
@@ -62,41 +69,51 @@ public class CalendarInteractionsLoader extends AsyncTaskLoader<List<ContactInte
                 || mEmailAddresses == null || mEmailAddresses.size() < 1) {
             return Collections.emptyList();
         }
-        // Perform separate calendar queries for events in the past and future.
-        Cursor cursor = getSharedEventsCursor(/* isFuture= */ true, mMaxFutureToRetrieve);
-        List<ContactInteraction> interactions = getInteractionsFromEventsCursor(cursor);
-        cursor = getSharedEventsCursor(/* isFuture= */ false, mMaxPastToRetrieve);
-        List<ContactInteraction> interactions2 = getInteractionsFromEventsCursor(cursor);
+        final List<String> calendarIds =
+                OwnedCalendarIdsCache.getInstance(getContext()).getCalendarIds();
+        if (calendarIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final long timeMillis = System.currentTimeMillis();
 
-        ArrayList<ContactInteraction> allInteractions = new ArrayList<ContactInteraction>(
-                interactions.size() + interactions2.size());
-        allInteractions.addAll(interactions);
-        allInteractions.addAll(interactions2);
+        // Past and future events are read in a single query. Most attendee emails are stored
+        // the way they were typed or lower cased, so try an exact match first. Only the emails
+        // that matched no event fall back to the dot and case insensitive comparison, which
+        // can't use an index.
+        final List<String> emails = getExactMatchEmails(mEmailAddresses);
+        final String exactClause = exactEmailComparisonClause(emails.size());
+        Cursor cursor = getSharedEventsCursor(exactClause, emails, calendarIds, timeMillis);
+        final List<String> unmatchedEmails = getUnmatchedEmails(cursor, mEmailAddresses);
+        if (!unmatchedEmails.isEmpty()) {
+            cursor.close();
+            final List<String> args = new ArrayList<>(emails);
+            args.addAll(unmatchedEmails);
+            cursor = getSharedEventsCursor("(" + exactClause + " OR "
+                    + caseAndDotInsensitiveEmailComparisonClause(unmatchedEmails.size()) + ")",
+                    args, calendarIds, timeMillis);
+        }
+        final List<ContactInteraction> allInteractions =
+                getInteractionsFromEventsCursor(cursor, timeMillis);
 
         Log.v(TAG, "# ContactInteraction Loaded: " + allInteractions.size());
         return allInteractions;
     }
 
     /**
-     * @return events inside phone owners' calendars, that are shared with people inside mEmails
+     * @return events inside phone owners' calendars, between the past and the future cutoffs,
+     * that are shared with people inside {@param emails}, sorted by start time.
      */
-    private Cursor getSharedEventsCursor(boolean isFuture, int limit) {
-        List<String> calendarIds = getOwnedCalendarIds();
-        if (calendarIds == null) {
-            return null;
-        }
-        long timeMillis = System.currentTimeMillis();
-
+    private Cursor getSharedEventsCursor(String emailComparisonClause, List<String> emails,
+            List<String> calendarIds, long timeMillis) {
         List<String> selectionArgs = new ArrayList<>();
-        selectionArgs.addAll(mEmailAddresses);
+        selectionArgs.addAll(emails);
         selectionArgs.addAll(calendarIds);
 
         // Add time constraints to selectionArgs
-        String timeOperator = isFuture ? " > " : " < ";
         long pastTimeCutoff = timeMillis - mNumberPastMillisecondToSearchLocalCalendar;
         long futureTimeCutoff = timeMillis
                 + mNumberFutureMillisecondToSearchLocalCalendar;
-        String[] timeArguments = {String.valueOf(timeMillis), String.valueOf(pastTimeCutoff),
+        String[] timeArguments = {String.valueOf(pastTimeCutoff),
                 String.valueOf(futureTimeCutoff)};
         selectionArgs.addAll(Arrays.asList(timeArguments));
 
@@ -104,19 +121,68 @@ public class CalendarInteractionsLoader extends AsyncTaskLoader<List<ContactInte
         String IS_NOT_TEMPORARY_COPY_OF_LOCAL_EVENT
                 = CalendarContract.Attendees.LAST_SYNCED + " = 0";
 
-        String orderBy = CalendarContract.Attendees.DTSTART + (isFuture ? " ASC " : " DESC ");
-        String selection = caseAndDotInsensitiveEmailComparisonClause(mEmailAddresses.size())
+        String orderBy = CalendarContract.Attendees.DTSTART + " ASC";
+        String selection = emailComparisonClause
                 + " AND " + CalendarContract.Attendees.CALENDAR_ID
                 + " IN " + ContactInteractionUtil.questionMarks(calendarIds.size())
-                + " AND " + CalendarContract.Attendees.DTSTART + timeOperator + " ? "
                 + " AND " + CalendarContract.Attendees.DTSTART + " > ? "
                 + " AND " + CalendarContract.Attendees.DTSTART + " < ? "
                 + " AND " + IS_NOT_TEMPORARY_COPY_OF_LOCAL_EVENT;
 
         return getContext().getContentResolver().query(CalendarContract.Attendees.CONTENT_URI,
-                /* projection = */ null, selection,
-                selectionArgs.toArray(new String[selectionArgs.size()]),
-                orderBy + " LIMIT " + limit);
+                EVENTS_PROJECTION, selection,
+                selectionArgs.toArray(new String[selectionArgs.size()]), orderBy);
+    }
+
+    /**
+     * Returns the addresses of {@param emailAddresses} that aren't the email of any attendee of
+     * {@param cursor}, regardless of case. Returns an empty list if {@param cursor} is null,
+     * since the query failed.
+     */
+    private static List<String> getUnmatchedEmails(Cursor cursor, List<String> emailAddresses) {
+        if (cursor == null) {
+            return Collections.emptyList();
+        }
+        final Set<String> attendeeEmails = new HashSet<>();
+        final int emailColumn = cursor.getColumnIndexOrThrow(
+                CalendarContract.Attendees.ATTENDEE_EMAIL);
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            final String email = cursor.getString(emailColumn);
+            if (email != null) {
+                attendeeEmails.add(email.toLowerCase(Locale.ROOT));
+            }
+        }
+        cursor.moveToPosition(-1);
+        final List<String> unmatched = new ArrayList<>();
+        for (String email : emailAddresses) {
+            if (!attendeeEmails.contains(email.toLowerCase(Locale.ROOT))) {
+                unmatched.add(email);
+            }
+        }
+        return unmatched;
+    }
+
+    /**
+     * Returns {@param emailAddresses} followed by their lower case versions, without duplicates.
+     */
+    private static List<String> getExactMatchEmails(List<String> emailAddresses) {
+        final Set<String> emails = new LinkedHashSet<>(emailAddresses.size() * 2);
+        emails.addAll(emailAddresses);
+        for (String email : emailAddresses) {
+            emails.add(email.toLowerCase(Locale.ROOT));
+        }
+        return new ArrayList<>(emails);
+    }
+
+    /**
+     * Returns a clause that checks whether an attendee's email is equal to one of
+     * {@param count} values.
+     */
+    private String exactEmailComparisonClause(int count) {
+        Preconditions.checkArgument(count > 0, "Count needs to be positive");
+        return CalendarContract.Attendees.ATTENDEE_EMAIL + " IN "
+                + ContactInteractionUtil.questionMarks(count);
     }
 
     /**
@@ -144,26 +210,47 @@ public class CalendarInteractionsLoader extends AsyncTaskLoader<List<ContactInte
     }
 
     /**
-     * @return A list with upto one Card. The Card contains events from {@param Cursor}.
-     * Only returns unique events.
+     * @return the future events of {@param cursor}, soonest first, followed by its past events,
+     * most recent first, up to the maximum number of each. Only returns unique events.
      */
-    private List<ContactInteraction> getInteractionsFromEventsCursor(Cursor cursor) {
+    private List<ContactInteraction> getInteractionsFromEventsCursor(Cursor cursor,
+            long timeMillis) {
         try {
             if (cursor == null || cursor.getCount() == 0) {
                 return Collections.emptyList();
             }
-            Set<String> uniqueUris = new HashSet<String>();
-            ArrayList<ContactInteraction> interactions = new ArrayList<ContactInteraction>();
+            Set<Long> uniqueEventIds = new HashSet<Long>();
+            ArrayList<ContactInteraction> futureInteractions = new ArrayList<ContactInteraction>();
+            ArrayList<ContactInteraction> pastInteractions = new ArrayList<ContactInteraction>();
+            final int[] columnIndexes = ContactInteractionUtil.getColumnIndexes(cursor,
+                    CalendarInteraction.PROJECTION);
+            final int dtStartColumn = cursor.getColumnIndexOrThrow(
+                    CalendarContract.Attendees.DTSTART);
+
+            // Future events are read forwards and past events backwards, both starting from now.
+            int firstFuturePosition = cursor.getCount();
             while (cursor.moveToNext()) {
-                ContentValues values = new ContentValues();
-                DatabaseUtils.cursorRowToContentValues(cursor, values);
-                CalendarInteraction calendarInteraction = new CalendarInteraction(values);
-                if (!uniqueUris.contains(calendarInteraction.getIntent().getData().toString())) {
-                    uniqueUris.add(calendarInteraction.getIntent().getData().toString());
-                    interactions.add(calendarInteraction);
+                if (cursor.getLong(dtStartColumn) > timeMillis) {
+                    firstFuturePosition = cursor.getPosition();
+                    break;
+                }
+            }
+            for (int i = firstFuturePosition; cursor.moveToPosition(i)
+                    && futureInteractions.size() < mMaxFutureToRetrieve; i++) {
+                addUniqueInteraction(cursor, columnIndexes, uniqueEventIds, futureInteractions);
+            }
+            for (int i = firstFuturePosition - 1; cursor.moveToPosition(i)
+                    && pastInteractions.size() < mMaxPastToRetrieve; i--) {
+                if (cursor.getLong(dtStartColumn) < timeMillis) {
+                    addUniqueInteraction(cursor, columnIndexes, uniqueEventIds,
+                            pastInteractions);
                 }
             }
 
+            ArrayList<ContactInteraction> interactions = new ArrayList<ContactInteraction>(
+                    futureInteractions.size() + pastInteractions.size());
+            interactions.addAll(futureInteractions);
+            interactions.addAll(pastInteractions);
             return interactions;
         } finally {
             if (cursor != null) {
@@ -172,28 +259,11 @@ public class CalendarInteractionsLoader extends AsyncTaskLoader<List<ContactInte
         }
     }
 
-    /**
-     * @return the Ids of calendars that are owned by accounts on the phone.
-     */
-    private List<String> getOwnedCalendarIds() {
-        String[] projection = new String[] {Calendars._ID, Calendars.CALENDAR_ACCESS_LEVEL};
-        Cursor cursor = getContext().getContentResolver().query(Calendars.CONTENT_URI, projection,
-                Calendars.VISIBLE + " = 1 AND " + Calendars.CALENDAR_ACCESS_LEVEL + " = ? ",
-                new String[] {String.valueOf(Calendars.CAL_ACCESS_OWNER)}, null);
-        try {
-            if (cursor == null || cursor.getCount() < 1) {
-                return null;
-            }
-            cursor.moveToPosition(-1);
-            List<String> calendarIds = new ArrayList<>(cursor.getCount());
-            while (cursor.moveToNext()) {
-                calendarIds.add(String.valueOf(cursor.getInt(0)));
-            }
-            return calendarIds;
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
+    private static void addUniqueInteraction(Cursor cursor, int[] columnIndexes,
+            Set<Long> uniqueEventIds, List<ContactInteraction> interactions) {
+        CalendarInteraction calendarInteraction = new CalendarInteraction(cursor, columnIndexes);
+        if (uniqueEventIds.add(calendarInteraction.getEventId())) {
+            interactions.add(calendarInteraction);
         }
     }
 
@@ -23,6 +23,7 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources;
+import android.database.Cursor;
 import android.graphics.PorterDuff;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
@@ -33,8 +34,8 @@ import android.text.Spannable;
 import android.text.TextDirectionHeuristics;
 
 /**
- * Represents a call log event interaction, wrapping the columns in
- * {@link android.provider.CallLog.Calls}.
+ * Represents a call log event interaction, holding the columns of
+ * {@link android.provider.CallLog.Calls} listed in {@link #PROJECTION}.
  *
  * This class does not return log entries related to voicemail or SIP calls. Additionally,
  * this class ignores number presentation. Number presentation affects how to identify phone
@@ -51,10 +52,51 @@ public class CallLogInteraction implements ContactInteraction {
     private static final int CALL_ARROW_ICON_RES = R.drawable.ic_call_arrow;
     private static BidiFormatter sBidiFormatter = BidiFormatter.getInstance();
 
-    private ContentValues mValues;
+    /** Columns read by {@link #CallLogInteraction(Cursor, int[])}. */
+    static final String[] PROJECTION = new String[] {
+            Calls.NUMBER,
+            Calls.DATE,
+            Calls.TYPE,
+            Calls.CACHED_NUMBER_TYPE,
+            Calls.CACHED_NUMBER_LABEL,
+    };
+    private static final int NUMBER = 0;
+    private static final int DATE = 1;
+    private static final int TYPE = 2;
+    private static final int CACHED_NUMBER_TYPE = 3;
+    private static final int CACHED_NUMBER_LABEL = 4;
+
+    /** Value of the long and int fields when the column is null. */
+    private static final int UNKNOWN = -1;
+
+    private final String mNumber;
+    private final long mDate;
+    private final int mType;
+    private final int mCachedNumberType;
+    private final String mCachedNumberLabel;
 
     public CallLogInteraction(ContentValues values) {
-        mValues = values;
+        mNumber = values.getAsString(Calls.NUMBER);
+        mDate = ContactInteractionUtil.unbox(values.getAsLong(Calls.DATE), UNKNOWN);
+        mType = ContactInteractionUtil.unbox(values.getAsInteger(Calls.TYPE), UNKNOWN);
+        mCachedNumberType = ContactInteractionUtil.unbox(
+                values.getAsInteger(Calls.CACHED_NUMBER_TYPE), UNKNOWN);
+        mCachedNumberLabel = values.getAsString(Calls.CACHED_NUMBER_LABEL);
+    }
+
+    /**
+     * Reads the current row of {@param cursor}.
+     *
+     * @param columnIndexes the positions of {@link #PROJECTION} in {@param cursor}, see
+     * {@link ContactInteractionUtil#getColumnIndexes}
+     */
+    public CallLogInteraction(Cursor cursor, int[] columnIndexes) {
+        mNumber = cursor.getString(columnIndexes[NUMBER]);
+        mDate = ContactInteractionUtil.getLong(cursor, columnIndexes[DATE], UNKNOWN);
+        mType = ContactInteractionUtil.getInt(cursor, columnIndexes[TYPE], UNKNOWN);
+        mCachedNumberType = ContactInteractionUtil.getInt(cursor,
+                columnIndexes[CACHED_NUMBER_TYPE], UNKNOWN);
+        mCachedNumberLabel = cursor.getString(columnIndexes[CACHED_NUMBER_LABEL]);
     }
 
     @Override
@@ -71,25 +113,22 @@ public class CallLogInteraction implements ContactInteraction {
 
     @Override
     public long getInteractionDate() {
-        Long date = getDate();
-        return date == null ? -1 : date;
+        return mDate;
     }
 
     @Override
     public String getViewBody(Context context) {
-        Integer numberType = getCachedNumberType();
-        if (numberType == null) {
+        if (mCachedNumberType == UNKNOWN) {
             return null;
         }
-        return Phone.getTypeLabel(context.getResources(), getCachedNumberType(),
-                getCachedNumberLabel()).toString();
+        return Phone.getTypeLabel(context.getResources(), mCachedNumberType,
+                mCachedNumberLabel).toString();
     }
 
     @Override
     public String getViewFooter(Context context) {
-        Long date = getDate();
-        return date == null ? null : ContactInteractionUtil.formatDateStringFromTimestamp(
-                date, context);
+        return mDate == UNKNOWN ? null : ContactInteractionUtil.formatDateStringFromTimestamp(
+                mDate, context);
     }
 
     @Override
@@ -106,11 +145,7 @@ public class CallLogInteraction implements ContactInteraction {
     public Drawable getFooterIcon(Context context) {
         Drawable callArrow = null;
         Resources res = context.getResources();
-        Integer type = getType();
-        if (type == null) {
-            return null;
-        }
-        switch (type) {
+        switch (mType) {
             case Calls.INCOMING_TYPE:
                 callArrow = res.getDrawable(CALL_ARROW_ICON_RES);
                 callArrow.setColorFilter(res.getColor(R.color.call_arrow_green),
@@ -130,54 +165,27 @@ public class CallLogInteraction implements ContactInteraction {
         return callArrow;
     }
 
-    public String getCachedName() {
-        return mValues.getAsString(Calls.CACHED_NAME);
-    }
-
     public String getCachedNumberLabel() {
-        return mValues.getAsString(Calls.CACHED_NUMBER_LABEL);
-    }
-
-    public Integer getCachedNumberType() {
-        return mValues.getAsInteger(Calls.CACHED_NUMBER_TYPE);
-    }
-
-    public Long getDate() {
-        return mValues.getAsLong(Calls.DATE);
-    }
-
-    public Long getDuration() {
-        return mValues.getAsLong(Calls.DURATION);
+        return mCachedNumberLabel;
     }
 
-    public Boolean getIsRead() {
-        return mValues.getAsBoolean(Calls.IS_READ);
-    }
-
-    public Integer getLimitParamKey() {
-        return mValues.getAsInteger(Calls.LIMIT_PARAM_KEY);
-    }
-
-    public Boolean getNew() {
-        return mValues.getAsBoolean(Calls.NEW);
+    /**
+     * @return the cached number type, or -1 if unknown
+     */
+    public int getCachedNumberType() {
+        return mCachedNumberType;
     }
 
     public String getNumber() {
-        final String number = mValues.getAsString(Calls.NUMBER);
-        return number == null ? null :
-            sBidiFormatter.unicodeWrap(number, TextDirectionHeuristics.LTR);
+        return mNumber == null ? null :
+            sBidiFormatter.unicodeWrap(mNumber, TextDirectionHeuristics.LTR);
     }
 
-    public Integer getNumberPresentation() {
-        return mValues.getAsInteger(Calls.NUMBER_PRESENTATION);
-    }
-
-    public Integer getOffsetParamKey() {
-        return mValues.getAsInteger(Calls.OFFSET_PARAM_KEY);
-    }
-
-    public Integer getType() {
-        return mValues.getAsInteger(Calls.TYPE);
+    /**
+     * @return the call type, or -1 if unknown
+     */
+    public int getType() {
+        return mType;
     }
 
     @Override
@@ -192,11 +200,7 @@ public class CallLogInteraction implements ContactInteraction {
     private String getCallTypeString(Context context) {
         String callType = "";
         Resources res = context.getResources();
-        Integer type = getType();
-        if (type == null) {
-            return callType;
-        }
-        switch (type) {
+        switch (mType) {
             case Calls.INCOMING_TYPE:
                 callType = res.getString(R.string.content_description_recent_call_type_incoming);
                 break;
@@ -16,11 +16,9 @@
 package com.android.contacts.interactions;
 
 import android.content.AsyncTaskLoader;
-import android.content.ContentValues;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.database.Cursor;
-import android.database.DatabaseUtils;
 import android.net.Uri;
 import android.provider.CallLog.Calls;
 import android.text.TextUtils;
@@ -118,18 +116,18 @@ public class CallLogInteractionsLoader extends AsyncTaskLoader<List<ContactInter
         // as we don't also set the {@link android.provider.CallLog.Calls.LIMIT_PARAM_KEY} that
         // becomes available in KK.
         final String orderByAndLimit = Calls.DATE + " DESC LIMIT " + mMaxToRetrieve;
-        final Cursor cursor = getContext().getContentResolver().query(uri, null, null, null,
-                orderByAndLimit);
+        final Cursor cursor = getContext().getContentResolver().query(uri,
+                CallLogInteraction.PROJECTION, null, null, orderByAndLimit);
         try {
             if (cursor == null || cursor.getCount() < 1) {
                 return Collections.emptyList();
             }
             cursor.moveToPosition(-1);
-            List<ContactInteraction> interactions = new ArrayList<>();
+            final int[] columnIndexes = ContactInteractionUtil.getColumnIndexes(cursor,
+                    CallLogInteraction.PROJECTION);
+            List<ContactInteraction> interactions = new ArrayList<>(cursor.getCount());
             while (cursor.moveToNext()) {
-                final ContentValues values = new ContentValues();
-                DatabaseUtils.cursorRowToContentValues(cursor, values);
-                interactions.add(new CallLogInteraction(values));
+                interactions.add(new CallLogInteraction(cursor, columnIndexes));
             }
             return interactions;
         } finally {
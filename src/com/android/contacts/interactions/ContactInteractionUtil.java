@@ -18,13 +18,18 @@ package com.android.contacts.interactions;
 import com.google.common.base.Preconditions;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.text.format.DateUtils;
+import android.util.LruCache;
 
 import com.android.contacts.common.testing.NeededForTesting;
 
 import java.text.DateFormat;
 
 import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
 
 import com.android.contacts.R;
 
@@ -47,13 +52,63 @@ public class ContactInteractionUtil {
         return sb.append(")").toString();
     }
 
+    /**
+     * @return the positions of {@param columns} in {@param cursor}, to be looked up once per
+     * cursor rather than once per row.
+     */
+    public static int[] getColumnIndexes(Cursor cursor, String[] columns) {
+        final int[] columnIndexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            columnIndexes[i] = cursor.getColumnIndexOrThrow(columns[i]);
+        }
+        return columnIndexes;
+    }
+
+    /**
+     * @return the value of {@param column} as a long, or {@param defaultValue} if it is null.
+     */
+    static long getLong(Cursor cursor, int column, long defaultValue) {
+        return cursor.isNull(column) ? defaultValue : cursor.getLong(column);
+    }
+
+    /**
+     * @return the value of {@param column} as an int, or {@param defaultValue} if it is null.
+     */
+    static int getInt(Cursor cursor, int column, int defaultValue) {
+        return cursor.isNull(column) ? defaultValue : cursor.getInt(column);
+    }
+
+    /**
+     * @return {@param value}, or {@param defaultValue} if it is null.
+     */
+    static long unbox(Long value, long defaultValue) {
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * @return {@param value}, or {@param defaultValue} if it is null.
+     */
+    static int unbox(Integer value, int defaultValue) {
+        return value == null ? defaultValue : value;
+    }
+
     /**
      * Same as {@link formatDateStringFromTimestamp(long, Context, Calendar)} but uses the current
-     * time.
+     * time. The day boundaries and labels are cached until the day, time zone or locale changes,
+     * since this runs for every interaction that is bound.
      */
     @NeededForTesting
     public static String formatDateStringFromTimestamp(long timestamp, Context context) {
-        return formatDateStringFromTimestamp(timestamp, context, Calendar.getInstance());
+        final long now = System.currentTimeMillis();
+        final Locale locale = context.getResources().getConfiguration().locale;
+        DateBuckets buckets = sDateBuckets;
+        if (buckets == null || !buckets.isValid(now, locale)) {
+            final Calendar today = Calendar.getInstance();
+            today.setTimeInMillis(now);
+            buckets = new DateBuckets(today, locale);
+            sDateBuckets = buckets;
+        }
+        return buckets.format(timestamp, context);
     }
 
     /**
@@ -67,35 +122,108 @@ public class ContactInteractionUtil {
     @NeededForTesting
     public static String formatDateStringFromTimestamp(long timestamp, Context context,
             Calendar compareCalendar) {
-        Calendar interactionCalendar = Calendar.getInstance();
-        interactionCalendar.setTimeInMillis(timestamp);
+        return new DateBuckets(compareCalendar, context.getResources().getConfiguration().locale)
+                .format(timestamp, context);
+    }
 
-        // compareCalendar is initialized to today
-        if (compareCalendarDayYear(interactionCalendar, compareCalendar)) {
-            return DateFormat.getTimeInstance(DateFormat.SHORT).format(
-                    interactionCalendar.getTime());
-        }
+    /** Day boundaries of the last call to {@link #formatDateStringFromTimestamp(long, Context)}. */
+    private static volatile DateBuckets sDateBuckets;
 
-        // Turn compareCalendar to yesterday
-        compareCalendar.add(Calendar.DAY_OF_YEAR, -1);
-        if (compareCalendarDayYear(interactionCalendar, compareCalendar)) {
-            return context.getString(R.string.yesterday);
-        }
+    /** Short time format of the current thread, for the locale and time zone it was made for. */
+    private static final ThreadLocal<TimeFormat> sTimeFormat = new ThreadLocal<>();
 
-        // Turn compareCalendar to tomorrow
-        compareCalendar.add(Calendar.DAY_OF_YEAR, 2);
-        if (compareCalendarDayYear(interactionCalendar, compareCalendar)) {
-            return context.getString(R.string.tomorrow);
+    private static final class TimeFormat {
+        final Locale locale;
+        final TimeZone timeZone;
+        final DateFormat format;
+
+        TimeFormat(Locale locale, TimeZone timeZone) {
+            this.locale = locale;
+            this.timeZone = timeZone;
+            format = DateFormat.getTimeInstance(DateFormat.SHORT, locale);
+            format.setTimeZone(timeZone);
         }
-        return DateUtils.formatDateTime(context, interactionCalendar.getTimeInMillis(),
-                DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_NO_YEAR);
     }
 
     /**
-     * Compares the day and year of two calendars.
+     * Start of yesterday, today, tomorrow and the day after relative to a given day, with the
+     * labels already computed for that day.
      */
-    private static boolean compareCalendarDayYear(Calendar c1, Calendar c2) {
-        return c1.get(Calendar.YEAR) == c2.get(Calendar.YEAR) &&
-                c1.get(Calendar.DAY_OF_YEAR) == c2.get(Calendar.DAY_OF_YEAR);
+    private static final class DateBuckets {
+        private static final int MAX_LABELS = 64;
+        private static final long MINUTE_MILLIS = 60 * 1000;
+        private static final long DAY_MILLIS = 24 * 60 * MINUTE_MILLIS;
+
+        private final Locale mLocale;
+        private final TimeZone mTimeZone;
+        private final long mYesterdayStart;
+        private final long mTodayStart;
+        private final long mTomorrowStart;
+        private final long mDayAfterTomorrowStart;
+        /**
+         * Labels of times today, by start of the minute, and of other days, by day since the
+         * epoch. The two kinds of keys can't collide for dates after 1970-01-01 01:00.
+         */
+        private final LruCache<Long, String> mLabels = new LruCache<>(MAX_LABELS);
+
+        DateBuckets(Calendar today, Locale locale) {
+            mLocale = locale;
+            mTimeZone = today.getTimeZone();
+            final Calendar day = (Calendar) today.clone();
+            day.set(Calendar.HOUR_OF_DAY, 0);
+            day.set(Calendar.MINUTE, 0);
+            day.set(Calendar.SECOND, 0);
+            day.set(Calendar.MILLISECOND, 0);
+            mTodayStart = day.getTimeInMillis();
+            day.add(Calendar.DAY_OF_YEAR, -1);
+            mYesterdayStart = day.getTimeInMillis();
+            day.add(Calendar.DAY_OF_YEAR, 2);
+            mTomorrowStart = day.getTimeInMillis();
+            day.add(Calendar.DAY_OF_YEAR, 1);
+            mDayAfterTomorrowStart = day.getTimeInMillis();
+        }
+
+        boolean isValid(long now, Locale locale) {
+            return now >= mTodayStart && now < mTomorrowStart && mLocale.equals(locale)
+                    && mTimeZone.equals(TimeZone.getDefault());
+        }
+
+        String format(long timestamp, Context context) {
+            if (timestamp >= mYesterdayStart && timestamp < mTodayStart) {
+                return context.getString(R.string.yesterday);
+            }
+            if (timestamp >= mTomorrowStart && timestamp < mDayAfterTomorrowStart) {
+                return context.getString(R.string.tomorrow);
+            }
+            final boolean isToday = timestamp >= mTodayStart && timestamp < mTomorrowStart;
+            final Long key = isToday ? floor(timestamp, MINUTE_MILLIS) : getLocalDay(timestamp);
+            String label = mLabels.get(key);
+            if (label == null) {
+                label = isToday ? getTimeFormat().format(new Date(timestamp))
+                        : DateUtils.formatDateTime(context, timestamp,
+                                DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_NO_YEAR);
+                mLabels.put(key, label);
+            }
+            return label;
+        }
+
+        private DateFormat getTimeFormat() {
+            TimeFormat timeFormat = sTimeFormat.get();
+            if (timeFormat == null || !timeFormat.locale.equals(mLocale)
+                    || !timeFormat.timeZone.equals(mTimeZone)) {
+                timeFormat = new TimeFormat(mLocale, mTimeZone);
+                sTimeFormat.set(timeFormat);
+            }
+            return timeFormat.format;
+        }
+
+        /** Returns the number of days between the epoch and {@param timestamp}, local time. */
+        private long getLocalDay(long timestamp) {
+            return floor(timestamp + mTimeZone.getOffset(timestamp), DAY_MILLIS) / DAY_MILLIS;
+        }
+
+        private static long floor(long value, long unit) {
+            return value - ((value % unit) + unit) % unit;
+        }
     }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.interactions;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.provider.CalendarContract.Calendars;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * App-wide cache of the ids of the visible calendars owned by accounts on the phone, used by
+ * {@link CalendarInteractionsLoader}. The ids are dropped whenever the calendar provider reports
+ * a change to {@link Calendars}.
+ */
+final class OwnedCalendarIdsCache {
+    private static OwnedCalendarIdsCache sInstance;
+
+    private final ContentResolver mResolver;
+    private final ContentObserver mObserver = new ContentObserver(null) {
+        @Override
+        public void onChange(boolean selfChange) {
+            invalidate();
+        }
+    };
+
+    /** Guarded by this. Null when nothing is cached or the cached ids may be stale. */
+    private List<String> mCalendarIds;
+    /** Guarded by this. Incremented on every invalidation. */
+    private int mGeneration;
+
+    /**
+     * Must only be called once the app has been granted the calendar permission.
+     */
+    public static synchronized OwnedCalendarIdsCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new OwnedCalendarIdsCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private OwnedCalendarIdsCache(Context context) {
+        mResolver = context.getContentResolver();
+        mResolver.registerContentObserver(Calendars.CONTENT_URI, true, mObserver);
+    }
+
+    public synchronized void invalidate() {
+        mCalendarIds = null;
+        mGeneration++;
+    }
+
+    /**
+     * @return the ids of calendars that are owned by accounts on the phone. The list is empty if
+     * there are none.
+     */
+    public List<String> getCalendarIds() {
+        final int generation;
+        synchronized (this) {
+            if (mCalendarIds != null) {
+                return mCalendarIds;
+            }
+            generation = mGeneration;
+        }
+
+        final List<String> calendarIds = Collections.unmodifiableList(queryCalendarIds());
+        synchronized (this) {
+            if (generation == mGeneration) {
+                mCalendarIds = calendarIds;
+            }
+        }
+        return calendarIds;
+    }
+
+    private List<String> queryCalendarIds() {
+        final String[] projection = new String[] {Calendars._ID};
+        final Cursor cursor = mResolver.query(Calendars.CONTENT_URI, projection,
+                Calendars.VISIBLE + " = 1 AND " + Calendars.CALENDAR_ACCESS_LEVEL + " = ? ",
+                new String[] {String.valueOf(Calendars.CAL_ACCESS_OWNER)}, null);
+        if (cursor == null) {
+            return Collections.emptyList();
+        }
+        try {
+            final List<String> calendarIds = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                calendarIds.add(String.valueOf(cursor.getLong(0)));
+            }
+            return calendarIds;
+        } finally {
+            cursor.close();
+        }
+    }
+}
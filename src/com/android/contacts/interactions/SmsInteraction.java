@@ -21,6 +21,7 @@ import com.android.contacts.common.util.ContactDisplayUtils;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
+import android.database.Cursor;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.provider.Telephony.Sms;
@@ -29,7 +30,7 @@ import android.text.Spannable;
 import android.text.TextDirectionHeuristics;
 
 /**
- * Represents an sms interaction, wrapping the columns in
+ * Represents an sms interaction, holding the columns listed in {@link #PROJECTION} of
  * {@link android.provider.Telephony.Sms}.
  */
 public class SmsInteraction implements ContactInteraction {
@@ -38,10 +39,44 @@ public class SmsInteraction implements ContactInteraction {
     private static final int SMS_ICON_RES = R.drawable.ic_message_24dp_mirrored;
     private static BidiFormatter sBidiFormatter = BidiFormatter.getInstance();
 
-    private ContentValues mValues;
+    /** Columns read by {@link #SmsInteraction(Cursor, int[])}. */
+    static final String[] PROJECTION = new String[] {
+            Sms.ADDRESS,
+            Sms.BODY,
+            Sms.DATE,
+            Sms.TYPE,
+    };
+    private static final int ADDRESS = 0;
+    private static final int BODY = 1;
+    private static final int DATE = 2;
+    private static final int TYPE = 3;
+
+    /** Value of the long and int fields when the column is null. */
+    private static final int UNKNOWN = -1;
+
+    private final String mAddress;
+    private final String mBody;
+    private final long mDate;
+    private final int mType;
 
     public SmsInteraction(ContentValues values) {
-        mValues = values;
+        mAddress = values.getAsString(Sms.ADDRESS);
+        mBody = values.getAsString(Sms.BODY);
+        mDate = ContactInteractionUtil.unbox(values.getAsLong(Sms.DATE), UNKNOWN);
+        mType = ContactInteractionUtil.unbox(values.getAsInteger(Sms.TYPE), UNKNOWN);
+    }
+
+    /**
+     * Reads the current row of {@param cursor}.
+     *
+     * @param columnIndexes the positions of {@link #PROJECTION} in {@param cursor}, see
+     * {@link ContactInteractionUtil#getColumnIndexes}
+     */
+    public SmsInteraction(Cursor cursor, int[] columnIndexes) {
+        mAddress = cursor.getString(columnIndexes[ADDRESS]);
+        mBody = cursor.getString(columnIndexes[BODY]);
+        mDate = ContactInteractionUtil.getLong(cursor, columnIndexes[DATE], UNKNOWN);
+        mType = ContactInteractionUtil.getInt(cursor, columnIndexes[TYPE], UNKNOWN);
     }
 
     @Override
@@ -53,14 +88,13 @@ public class SmsInteraction implements ContactInteraction {
 
     @Override
     public long getInteractionDate() {
-        Long date = getDate();
-        return date == null ? -1 : date;
+        return mDate;
     }
 
     @Override
     public String getViewHeader(Context context) {
-        String body = getBody();
-        if (getType() == Sms.MESSAGE_TYPE_SENT) {
+        String body = mBody;
+        if (mType == Sms.MESSAGE_TYPE_SENT) {
             body = context.getResources().getString(R.string.message_from_you_prefix, body);
         }
         return body;
@@ -73,9 +107,8 @@ public class SmsInteraction implements ContactInteraction {
 
     @Override
     public String getViewFooter(Context context) {
-        Long date = getDate();
-        return date == null ? null : ContactInteractionUtil.formatDateStringFromTimestamp(
-                date, context);
+        return mDate == UNKNOWN ? null : ContactInteractionUtil.formatDateStringFromTimestamp(
+                mDate, context);
     }
 
     @Override
@@ -94,70 +127,19 @@ public class SmsInteraction implements ContactInteraction {
     }
 
     public String getAddress() {
-        final String address = mValues.getAsString(Sms.ADDRESS);
-        return address == null ? null :
-            sBidiFormatter.unicodeWrap(address, TextDirectionHeuristics.LTR);
+        return mAddress == null ? null :
+            sBidiFormatter.unicodeWrap(mAddress, TextDirectionHeuristics.LTR);
     }
 
     public String getBody() {
-        return mValues.getAsString(Sms.BODY);
-    }
-
-    public Long getDate() {
-        return mValues.getAsLong(Sms.DATE);
-    }
-
-
-    public Long getDateSent() {
-        return mValues.getAsLong(Sms.DATE_SENT);
-    }
-
-    public Integer getErrorCode() {
-        return mValues.getAsInteger(Sms.ERROR_CODE);
-    }
-
-    public Boolean getLocked() {
-        return mValues.getAsBoolean(Sms.LOCKED);
-    }
-
-    public Integer getPerson() {
-        return mValues.getAsInteger(Sms.PERSON);
-    }
-
-    public Integer getProtocol() {
-        return mValues.getAsInteger(Sms.PROTOCOL);
-    }
-
-    public Boolean getRead() {
-        return mValues.getAsBoolean(Sms.READ);
-    }
-
-    public Boolean getReplyPathPresent() {
-        return mValues.getAsBoolean(Sms.REPLY_PATH_PRESENT);
-    }
-
-    public Boolean getSeen() {
-        return mValues.getAsBoolean(Sms.SEEN);
-    }
-
-    public String getServiceCenter() {
-        return mValues.getAsString(Sms.SERVICE_CENTER);
-    }
-
-    public Integer getStatus() {
-        return mValues.getAsInteger(Sms.STATUS);
-    }
-
-    public String getSubject() {
-        return mValues.getAsString(Sms.SUBJECT);
-    }
-
-    public Integer getThreadId() {
-        return mValues.getAsInteger(Sms.THREAD_ID);
+        return mBody;
     }
 
-    public Integer getType() {
-        return mValues.getAsInteger(Sms.TYPE);
+    /**
+     * @return the message type, or -1 if unknown
+     */
+    public int getType() {
+        return mType;
     }
 
     @Override
@@ -16,16 +16,12 @@
 package com.android.contacts.interactions;
 
 import android.content.AsyncTaskLoader;
-import android.content.ContentValues;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.database.Cursor;
-import android.database.DatabaseUtils;
 import android.provider.Telephony;
 import android.util.Log;
 
-import com.android.contacts.common.compat.TelephonyThreadsCompat;
-
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -34,8 +30,8 @@ import java.util.List;
  * Loads the most recent sms between the passed in phone numbers.
  *
  * This is a two part process. The first step is retrieving the threadIds for each of the phone
- * numbers using fuzzy matching. The next step is to run another query against these threadIds
- * to retrieve the actual sms.
+ * numbers using fuzzy matching, from {@link SmsThreadIdCache}. The next step is to run another
+ * query against these threadIds to retrieve the actual sms.
  */
 public class SmsInteractionsLoader extends AsyncTaskLoader<List<ContactInteraction>> {
 
@@ -66,28 +62,20 @@ public class SmsInteractionsLoader extends AsyncTaskLoader<List<ContactInteracti
         }
 
         // Retrieve the thread IDs
-        List<String> threadIdStrings = new ArrayList<>();
-        for (String phone : mPhoneNums) {
-            // TODO: the phone numbers added to the ContactInteraction result should retain their
-            // original formatting since TalkBack is not reading the normalized numbers correctly
-            try {
-                threadIdStrings.add(String.valueOf(
-                        TelephonyThreadsCompat.getOrCreateThreadId(getContext(), phone)));
-            } catch (Exception e) {
-                // Do nothing. Telephony.Threads.getOrCreateThreadId() throws exceptions when
-                // it can't find/create a threadId (b/17657656).
-            }
-        }
+        // TODO: the phone numbers added to the ContactInteraction result should retain their
+        // original formatting since TalkBack is not reading the normalized numbers correctly
+        List<String> threadIdStrings =
+                SmsThreadIdCache.getInstance(getContext()).getThreadIds(mPhoneNums);
 
         // Query the SMS database for the threads
         Cursor cursor = getSmsCursorFromThreads(threadIdStrings);
         if (cursor != null) {
             try {
-                List<ContactInteraction> interactions = new ArrayList<>();
+                final int[] columnIndexes = ContactInteractionUtil.getColumnIndexes(cursor,
+                        SmsInteraction.PROJECTION);
+                List<ContactInteraction> interactions = new ArrayList<>(cursor.getCount());
                 while (cursor.moveToNext()) {
-                    ContentValues values = new ContentValues();
-                    DatabaseUtils.cursorRowToContentValues(cursor, values);
-                    interactions.add(new SmsInteraction(values));
+                    interactions.add(new SmsInteraction(cursor, columnIndexes));
                 }
 
                 return interactions;
@@ -111,7 +99,7 @@ public class SmsInteractionsLoader extends AsyncTaskLoader<List<ContactInteracti
 
         return getContext().getContentResolver().query(
                 Telephony.Sms.CONTENT_URI,
-                /* projection = */ null,
+                SmsInteraction.PROJECTION,
                 selection,
                 threadIds.toArray(new String[threadIds.size()]),
                 Telephony.Sms.DEFAULT_SORT_ORDER
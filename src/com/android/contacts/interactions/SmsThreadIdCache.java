@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.interactions;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.BaseColumns;
+import android.provider.Telephony;
+import android.telephony.PhoneNumberUtils;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * App-wide cache of the ids of the sms threads with a single recipient, by phone number, used by
+ * {@link SmsInteractionsLoader}.
+ *
+ * Unlike {@link Telephony.Threads#getOrCreateThreadId}, the threads are only looked up, so
+ * viewing a contact never creates an empty thread. Lookups are done with two read-only queries
+ * for all the numbers that aren't cached, and the cache is dropped whenever the telephony
+ * provider reports a change.
+ */
+final class SmsThreadIdCache {
+    private static final String TAG = "SmsThreadIdCache";
+
+    private static final int MAX_NUMBERS = 64;
+
+    private static final Uri CANONICAL_ADDRESSES_URI =
+            Uri.withAppendedPath(Telephony.MmsSms.CONTENT_URI, "canonical-addresses");
+    private static final Uri SIMPLE_THREADS_URI = Telephony.Threads.CONTENT_URI.buildUpon()
+            .appendQueryParameter("simple", "true").build();
+
+    private static final String[] CANONICAL_ADDRESSES_PROJECTION = new String[] {
+            BaseColumns._ID,
+            Telephony.CanonicalAddressesColumns.ADDRESS,
+    };
+    private static final String[] THREADS_PROJECTION = new String[] {
+            Telephony.Threads._ID,
+            Telephony.Threads.RECIPIENT_IDS,
+    };
+
+    private static final long[] NO_THREADS = new long[0];
+
+    private static SmsThreadIdCache sInstance;
+
+    private final ContentResolver mResolver;
+    private final ContentObserver mObserver = new ContentObserver(null) {
+        @Override
+        public void onChange(boolean selfChange) {
+            invalidate();
+        }
+    };
+
+    /** Thread ids by phone number. Numbers without a thread are cached with no ids. */
+    private final LruCache<String, long[]> mThreadIds = new LruCache<>(MAX_NUMBERS);
+    /** Guarded by this. Incremented on every invalidation. */
+    private int mGeneration;
+
+    public static synchronized SmsThreadIdCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new SmsThreadIdCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private SmsThreadIdCache(Context context) {
+        mResolver = context.getContentResolver();
+        mResolver.registerContentObserver(Telephony.MmsSms.CONTENT_URI, true, mObserver);
+    }
+
+    public synchronized void invalidate() {
+        mThreadIds.evictAll();
+        mGeneration++;
+    }
+
+    /**
+     * @return the ids of the existing threads with one of {@param phoneNumbers}, without
+     * duplicates.
+     */
+    public List<String> getThreadIds(String[] phoneNumbers) {
+        final Set<String> threadIds = new LinkedHashSet<>();
+        final List<String> missingNumbers = new ArrayList<>();
+        final int generation;
+        synchronized (this) {
+            generation = mGeneration;
+            for (String phoneNumber : phoneNumbers) {
+                final long[] ids = mThreadIds.get(phoneNumber);
+                if (ids == null) {
+                    missingNumbers.add(phoneNumber);
+                } else {
+                    addThreadIds(threadIds, ids);
+                }
+            }
+        }
+        if (missingNumbers.isEmpty()) {
+            return new ArrayList<>(threadIds);
+        }
+
+        final Map<String, long[]> loaded;
+        try {
+            loaded = queryThreadIds(missingNumbers);
+        } catch (RuntimeException e) {
+            // The telephony provider may be missing or not accessible. Just don't show sms.
+            Log.w(TAG, "Failed to look up sms threads", e);
+            return new ArrayList<>(threadIds);
+        }
+        synchronized (this) {
+            final boolean cache = generation == mGeneration;
+            for (Map.Entry<String, long[]> entry : loaded.entrySet()) {
+                addThreadIds(threadIds, entry.getValue());
+                if (cache) {
+                    mThreadIds.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return new ArrayList<>(threadIds);
+    }
+
+    private static void addThreadIds(Set<String> threadIds, long[] ids) {
+        for (long id : ids) {
+            threadIds.add(String.valueOf(id));
+        }
+    }
+
+    /**
+     * Looks up the canonical addresses matching {@param phoneNumbers}, then the threads whose
+     * only recipient is one of these addresses.
+     */
+    private Map<String, long[]> queryThreadIds(List<String> phoneNumbers) {
+        final Map<String, List<String>> numbersByAddressId = new HashMap<>();
+        Cursor cursor = mResolver.query(CANONICAL_ADDRESSES_URI, CANONICAL_ADDRESSES_PROJECTION,
+                null, null, null);
+        if (cursor != null) {
+            try {
+                while (cursor.moveToNext()) {
+                    final String address = cursor.getString(1);
+                    for (String phoneNumber : phoneNumbers) {
+                        if (isSameAddress(address, phoneNumber)) {
+                            final String addressId = cursor.getString(0);
+                            List<String> numbers = numbersByAddressId.get(addressId);
+                            if (numbers == null) {
+                                numbers = new ArrayList<>(1);
+                                numbersByAddressId.put(addressId, numbers);
+                            }
+                            numbers.add(phoneNumber);
+                        }
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        final Map<String, List<Long>> threadIdsByNumber = new HashMap<>();
+        if (!numbersByAddressId.isEmpty()) {
+            final List<String> addressIds = new ArrayList<>(numbersByAddressId.keySet());
+            cursor = mResolver.query(SIMPLE_THREADS_URI, THREADS_PROJECTION,
+                    Telephony.Threads.RECIPIENT_IDS + " IN "
+                            + ContactInteractionUtil.questionMarks(addressIds.size()),
+                    addressIds.toArray(new String[addressIds.size()]), null);
+            if (cursor != null) {
+                try {
+                    while (cursor.moveToNext()) {
+                        final long threadId = cursor.getLong(0);
+                        for (String number : numbersByAddressId.get(cursor.getString(1))) {
+                            List<Long> threadIds = threadIdsByNumber.get(number);
+                            if (threadIds == null) {
+                                threadIds = new ArrayList<>(1);
+                                threadIdsByNumber.put(number, threadIds);
+                            }
+                            threadIds.add(threadId);
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+        }
+
+        final Map<String, long[]> result = new HashMap<>(phoneNumbers.size());
+        for (String phoneNumber : phoneNumbers) {
+            final List<Long> threadIds = threadIdsByNumber.get(phoneNumber);
+            if (threadIds == null) {
+                result.put(phoneNumber, NO_THREADS);
+            } else {
+                final long[] ids = new long[threadIds.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = threadIds.get(i);
+                }
+                result.put(phoneNumber, ids);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isSameAddress(String address, String phoneNumber) {
+        if (address == null || phoneNumber == null) {
+            return false;
+        }
+        if (Telephony.Mms.isEmailAddress(phoneNumber)) {
+            return address.equalsIgnoreCase(phoneNumber);
+        }
+        return PhoneNumberUtils.compare(address, phoneNumber);
+    }
+}
@@ -61,6 +61,7 @@ public class JoinContactListFragment extends ContactEntryListFragment<JoinContac
                 }
                 case JoinContactListAdapter.PARTITION_ALL_CONTACTS: {
                     JoinContactLoader loader = new JoinContactLoader(getActivity());
+                    loader.setSuggestionsListener(mSuggestionsListener);
                     JoinContactListAdapter adapter = getAdapter();
                     if (adapter != null) {
                         adapter.configureLoader(loader, 0);
@@ -96,6 +97,18 @@ public class JoinContactListFragment extends ContactEntryListFragment<JoinContac
         }
     };
 
+    private final JoinContactLoader.SuggestionsListener mSuggestionsListener =
+            new JoinContactLoader.SuggestionsListener() {
+        @Override
+        public void onSuggestionsLoaded(Cursor suggestionCursor) {
+            // Show the suggestions while the full list is still loading.
+            final JoinContactListAdapter adapter = getAdapter();
+            if (adapter != null) {
+                adapter.setSuggestionsCursor(suggestionCursor);
+            }
+        }
+    };
+
     public JoinContactListFragment() {
         setPhotoLoaderEnabled(true);
         setSectionHeaderDisplayEnabled(true);
@@ -20,6 +20,16 @@ import android.content.CursorLoader;
 import android.database.Cursor;
 import android.database.CursorWrapper;
 import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A specialized loader for the Join Contacts UI.  It executes two queries:
@@ -27,11 +37,38 @@ import android.net.Uri;
  *
  * This loader also loads the "suggestion" cursor, which can be accessed with:
  * {@code ((JoinContactLoaderResult) result).suggestionCursor }
+ *
+ * The two queries run concurrently: the suggestions on a pool thread, and the full list on the
+ * loader thread. The suggestions are delivered to the {@link SuggestionsListener}, if any, as soon
+ * as they are ready, and the full list follows as the result of the loader. Canceling the load,
+ * e.g. because the filter changed, cancels both queries.
  */
 public class JoinContactLoader extends CursorLoader {
 
+    /** States of the suggestions of a load: not delivered yet, shown by the listener, done. */
+    private static final int SUGGESTIONS_PENDING = 0;
+    private static final int SUGGESTIONS_DELIVERED = 1;
+    private static final int SUGGESTIONS_OWNED = 2;
+
     private String[] mProjection;
     private Uri mSuggestionUri;
+    private SuggestionsListener mSuggestionsListener;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /** Guarded by this. Cancels the suggestions query of the current load. */
+    private CancellationSignal mSuggestionsCancellationSignal;
+
+    /**
+     * Receives the suggestions before the full contact list is loaded.
+     */
+    public interface SuggestionsListener {
+        /**
+         * Called on the main thread. The cursor is the one that will be returned in the
+         * {@link JoinContactLoaderResult} of the same load, which closes it.
+         */
+        void onSuggestionsLoaded(Cursor suggestionCursor);
+    }
 
     /**
      * Actual returned class.  It's guaranteed that this loader always returns an instance of this
@@ -44,6 +81,9 @@ public class JoinContactLoader extends CursorLoader {
     public static class JoinContactLoaderResult extends CursorWrapper {
         public final Cursor suggestionCursor;
 
+        /** Whether the suggestions were already given to the {@link SuggestionsListener}. */
+        private boolean mSuggestionsDelivered;
+
         public JoinContactLoaderResult(Cursor baseCursor, Cursor suggestionCursor) {
             super(baseCursor);
             this.suggestionCursor = suggestionCursor;
@@ -71,6 +111,10 @@ public class JoinContactLoader extends CursorLoader {
         this.mSuggestionUri = uri;
     }
 
+    public void setSuggestionsListener(SuggestionsListener listener) {
+        mSuggestionsListener = listener;
+    }
+
     @Override
     public void setProjection(String[] projection) {
         super.setProjection(projection);
@@ -79,27 +123,137 @@ public class JoinContactLoader extends CursorLoader {
 
     @Override
     public Cursor loadInBackground() {
-        // First execute the suggestions query, then call super.loadInBackground
-        // to load the entire list
-        final Cursor suggestionsCursor = getContext().getContentResolver()
-                .query(mSuggestionUri, mProjection, null, null, null);
-        if (suggestionsCursor == null) {
-            return null;
+        final CancellationSignal cancellationSignal;
+        synchronized (this) {
+            if (isLoadInBackgroundCanceled()) {
+                throw new OperationCanceledException();
+            }
+            cancellationSignal = new CancellationSignal();
+            mSuggestionsCancellationSignal = cancellationSignal;
         }
-        Cursor cursorToClose = suggestionsCursor;
+
+        final AtomicInteger suggestionsState = new AtomicInteger(SUGGESTIONS_PENDING);
+        final FutureTask<Cursor> suggestionsTask = new FutureTask<>(new Callable<Cursor>() {
+            @Override
+            public Cursor call() {
+                final Cursor cursor = getContext().getContentResolver().query(mSuggestionUri,
+                        mProjection, null, null, null, cancellationSignal);
+                if (cursor != null) {
+                    cursor.getCount();  // Fill the window off the main thread.
+                    deliverSuggestions(cursor, suggestionsState);
+                }
+                return cursor;
+            }
+        });
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(suggestionsTask);
+
+        Cursor baseCursor = null;
         try {
-            final Cursor baseCursor = super.loadInBackground();
-            if (baseCursor != null) {
-                final JoinContactLoaderResult result =
-                        new JoinContactLoaderResult(baseCursor, suggestionsCursor);
-                cursorToClose = null;
-                return result;
+            baseCursor = super.loadInBackground();
+        } finally {
+            if (baseCursor == null) {
+                // Failed or canceled, so is the suggestions query.
+                cancellationSignal.cancel();
+                final boolean delivered = suggestionsState.getAndSet(SUGGESTIONS_OWNED)
+                        == SUGGESTIONS_DELIVERED;
+                final Cursor suggestionsCursor = getSuggestionsQuietly(suggestionsTask);
+                // Unless the listener already displays it: the next load replaces it there.
+                if (suggestionsCursor != null && !delivered) {
+                    suggestionsCursor.close();
+                }
+                clearCancellationSignal();
             }
+        }
+        if (baseCursor == null) {
+            return null;
+        }
+
+        final Cursor suggestionsCursor;
+        final boolean delivered;
+        try {
+            suggestionsCursor = getSuggestions(suggestionsTask);
+        } catch (RuntimeException e) {
+            baseCursor.close();
+            throw e;
         } finally {
-            if (cursorToClose != null) {
-                cursorToClose.close();
+            delivered = suggestionsState.getAndSet(SUGGESTIONS_OWNED) == SUGGESTIONS_DELIVERED;
+            clearCancellationSignal();
+        }
+        if (suggestionsCursor == null) {
+            baseCursor.close();
+            return null;
+        }
+        final JoinContactLoaderResult result =
+                new JoinContactLoaderResult(baseCursor, suggestionsCursor);
+        result.mSuggestionsDelivered = delivered;
+        return result;
+    }
+
+    @Override
+    public void cancelLoadInBackground() {
+        super.cancelLoadInBackground();
+        synchronized (this) {
+            if (mSuggestionsCancellationSignal != null) {
+                mSuggestionsCancellationSignal.cancel();
+            }
+        }
+    }
+
+    @Override
+    public void onCanceled(Cursor cursor) {
+        if (cursor instanceof JoinContactLoaderResult
+                && ((JoinContactLoaderResult) cursor).mSuggestionsDelivered) {
+            // The listener still displays the suggestions until the next load replaces them.
+            ((JoinContactLoaderResult) cursor).getWrappedCursor().close();
+            return;
+        }
+        super.onCanceled(cursor);
+    }
+
+    private synchronized void clearCancellationSignal() {
+        mSuggestionsCancellationSignal = null;
+    }
+
+    private void deliverSuggestions(final Cursor cursor, final AtomicInteger state) {
+        if (mSuggestionsListener == null) {
+            return;
+        }
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!isStarted() || isAbandoned() || isLoadInBackgroundCanceled()) {
+                    return;
+                }
+                if (state.compareAndSet(SUGGESTIONS_PENDING, SUGGESTIONS_DELIVERED)) {
+                    mSuggestionsListener.onSuggestionsLoaded(cursor);
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits for the suggestions query, and rethrows its failure.
+     */
+    private static Cursor getSuggestions(FutureTask<Cursor> task) {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
             }
+            throw new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException();
+        }
+    }
+
+    private static Cursor getSuggestionsQuietly(FutureTask<Cursor> task) {
+        try {
+            return getSuggestions(task);
+        } catch (RuntimeException e) {
+            return null;
         }
-        return null;
     }
 }
@@ -111,6 +111,12 @@ public interface OnCheckListActionListener {
      */
     void onUpdateActionBar();
 
+    /**
+     * disable the confirm action while the selection is incomplete, e.g. while the rows of a
+     * select all are still loaded
+     */
+    void setSelectionPending(boolean pending);
+
     /**
      * exit search mode
      */
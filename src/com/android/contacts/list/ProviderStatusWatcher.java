@@ -15,13 +15,15 @@
  */
 package com.android.contacts.list;
 
-import android.content.ContentValues;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
 import android.provider.ContactsContract.ProviderStatus;
 import android.util.Log;
 
@@ -34,6 +36,10 @@ import java.util.ArrayList;
 /**
  * A singleton that keeps track of the last known provider status.
  *
+ * The status is never queried on the UI thread. Until the first query finishes,
+ * {@link #getProviderStatus()} returns the status that was last known in a previous launch, and
+ * listeners are notified once the actual status is loaded, as they are whenever it changes.
+ *
  * All methods must be called on the UI thread unless noted otherwise.
  *
  * All members must be set on the UI thread unless noted otherwise.
@@ -53,17 +59,13 @@ public class ProviderStatusWatcher extends ContentObserver {
         ProviderStatus.STATUS
     };
 
-    /**
-     * We'll wait for this amount of time on the UI thread if the load hasn't finished.
-     */
-    private static final int LOAD_WAIT_TIMEOUT_MS = 1000;
+    /** Preference holding the last status loaded, used until the status of a launch is known. */
+    private static final String PREF_LAST_KNOWN_STATUS = "ProviderStatusWatcher.lastKnownStatus";
 
     private static ProviderStatusWatcher sInstance;
 
     private final Context mContext;
-    private final Handler mHandler = new Handler();
-
-    private final Object mSignal = new Object();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
 
     private int mStartRequestedCount;
 
@@ -71,7 +73,11 @@ public class ProviderStatusWatcher extends ContentObserver {
 
     /** Last known provider status.  This can be changed on a worker thread.
      *  See {@link ProviderStatus#STATUS} */
-    private Integer mProviderStatus;
+    private volatile Integer mProviderStatus;
+
+    /** Status of the previous launch, or null if it hasn't been read yet.  This can be set on
+     *  a worker thread. */
+    private volatile Integer mLastKnownStatus;
 
     private final ArrayList<ProviderStatusListener> mListeners = Lists.newArrayList();
 
@@ -82,6 +88,13 @@ public class ProviderStatusWatcher extends ContentObserver {
         }
     };
 
+    private final Runnable mLoadedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            onProviderStatusLoaded();
+        }
+    };
+
     /**
      * Returns the singleton instance.
      */
@@ -160,43 +173,25 @@ public class ProviderStatusWatcher extends ContentObserver {
     /**
      * @return last known provider status.
      *
-     * If this method is called when we haven't started the status query or the query is still in
-     * progress, it will start a query in a worker thread if necessary, and *wait for the result*.
-     *
-     * This means this method is essentially a blocking {@link ProviderStatus#CONTENT_URI} query.
-     * This URI is not backed by the file system, so is usually fast enough to perform on the main
-     * thread, but in extreme cases (when the system takes a while to bring up the contacts
-     * provider?) this may still cause ANRs.
-     *
-     * In order to avoid that, if we can't load the status within {@link #LOAD_WAIT_TIMEOUT_MS},
-     * we'll give up and just returns {@link ProviderStatusCompat#STATUS_BUSY} in order to unblock
-     * the UI thread.  The actual result will be delivered later via {@link ProviderStatusListener}.
+     * This method never waits for the {@link ProviderStatus#CONTENT_URI} query, nor reads the
+     * preferences. If the status hasn't been loaded yet, it starts loading it and returns the
+     * status last known in a previous launch if it was read already, or
+     * {@link ProviderStatusCompat#STATUS_NORMAL} since the provider is usually ready. The actual
+     * result will be delivered later via {@link ProviderStatusListener}.
      * (If {@link ProviderStatusCompat#STATUS_BUSY} is returned, the app (should) shows an according
      * message, like "contacts are being updated".)
      */
     public int getProviderStatus() {
-        waitForLoaded();
-
-        if (mProviderStatus == null) {
-            return ProviderStatusCompat.STATUS_BUSY;
+        final Integer providerStatus = mProviderStatus;
+        if (providerStatus != null) {
+            return providerStatus;
         }
-
-        return mProviderStatus;
-    }
-
-    private void waitForLoaded() {
-        if (mProviderStatus == null) {
-            if (mLoaderTask == null) {
-                // For some reason the loader couldn't load the status.  Let's start it again.
-                startLoading();
-            }
-            synchronized (mSignal) {
-                try {
-                    mSignal.wait(LOAD_WAIT_TIMEOUT_MS);
-                } catch (InterruptedException ignore) {
-                }
-            }
+        if (mLoaderTask == null) {
+            // For some reason the loader couldn't load the status.  Let's start it again.
+            startLoading();
         }
+        final Integer lastKnownStatus = mLastKnownStatus;
+        return lastKnownStatus != null ? lastKnownStatus : ProviderStatusCompat.STATUS_NORMAL;
     }
 
     private void startLoading() {
@@ -212,31 +207,80 @@ public class ProviderStatusWatcher extends ContentObserver {
         mLoaderTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
     }
 
-    private class LoaderTask extends AsyncTask<Void, Void, Boolean> {
-        @Override
-        protected Boolean doInBackground(Void... params) {
+    /**
+     * Loads the provider status if it isn't known yet, so that the UI doesn't have to use the
+     * status of the previous launch. Listeners are notified if it is loaded.
+     *
+     * This method may be called on any thread, it performs a blocking query.
+     */
+    public void preload() {
+        if (mProviderStatus == null) {
+            // The UI uses the status of the previous launch until the query finishes.
+            loadLastKnownStatus();
+        }
+        if (mProviderStatus == null && loadProviderStatus()) {
+            mHandler.post(mLoadedRunnable);
+        }
+    }
+
+    /**
+     * Queries the provider status and saves it for the next launch.  Returns whether the status
+     * could be loaded.
+     *
+     * This method is called on a worker thread.
+     */
+    private boolean loadProviderStatus() {
+        Cursor cursor = mContext.getContentResolver().query(ProviderStatus.CONTENT_URI,
+                PROJECTION, null, null, null);
+        if (cursor != null) {
             try {
-                Cursor cursor = mContext.getContentResolver().query(ProviderStatus.CONTENT_URI,
-                        PROJECTION, null, null, null);
-                if (cursor != null) {
-                    try {
-                        if (cursor.moveToFirst()) {
-                            // Note here we can't just say "Status", as AsyncTask has the "Status"
-                            // enum too.
-                            mProviderStatus = cursor.getInt(0);
-                            return true;
-                        }
-                    } finally {
-                        cursor.close();
+                if (cursor.moveToFirst()) {
+                    final int providerStatus = cursor.getInt(0);
+                    final Integer previousStatus = mProviderStatus;
+                    mProviderStatus = providerStatus;
+                    if (previousStatus == null || previousStatus != providerStatus) {
+                        getPreferences().edit().putInt(PREF_LAST_KNOWN_STATUS, providerStatus)
+                                .apply();
                     }
+                    return true;
                 }
-                return false;
             } finally {
-                synchronized (mSignal) {
-                    mSignal.notifyAll();
-                }
+                cursor.close();
             }
         }
+        return false;
+    }
+
+    /**
+     * Reads the status of the previous launch, if it hasn't been read yet.
+     *
+     * This method is called on a worker thread.
+     */
+    private void loadLastKnownStatus() {
+        if (mLastKnownStatus == null) {
+            mLastKnownStatus = getPreferences().getInt(PREF_LAST_KNOWN_STATUS,
+                    ProviderStatusCompat.STATUS_NORMAL);
+        }
+    }
+
+    private SharedPreferences getPreferences() {
+        return PreferenceManager.getDefaultSharedPreferences(mContext);
+    }
+
+    /**
+     * Delivers a newly loaded status to the listeners.
+     */
+    private void onProviderStatusLoaded() {
+        mLastKnownStatus = mProviderStatus;
+        notifyListeners();
+    }
+
+    private class LoaderTask extends AsyncTask<Void, Void, Boolean> {
+        @Override
+        protected Boolean doInBackground(Void... params) {
+            loadLastKnownStatus();
+            return loadProviderStatus();
+        }
 
         @Override
         protected void onCancelled(Boolean result) {
@@ -247,7 +291,7 @@ public class ProviderStatusWatcher extends ContentObserver {
         protected void onPostExecute(Boolean loaded) {
             cleanUp();
             if (loaded != null && loaded) {
-                notifyListeners();
+                onProviderStatusLoaded();
             }
         }
 
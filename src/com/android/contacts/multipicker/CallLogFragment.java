@@ -165,6 +165,8 @@ public class CallLogFragment extends ListFragment {
 
         @Override
         public void onChange(boolean selfChange) {
+            // A batch of changes only needs the last query.
+            mQueryHandler.cancelOperation(QUERY_TOKEN);
             startQuery();
         }
     }
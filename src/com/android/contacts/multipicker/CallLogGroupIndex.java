@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.multipicker;
+
+import android.database.Cursor;
+
+import java.util.Arrays;
+
+/**
+ * The calls of a call log cursor and how they are grouped into list items, in primitive arrays.
+ *
+ * Whether a call joins a group depends on the first call of the group. The index remembers that
+ * decision for each call, so that the index of a cursor with a few calls more or less than the
+ * previous one only compares the calls whose group starts with a different call.
+ */
+final class CallLogGroupIndex {
+
+    /**
+     * The values of a call that grouping depends on.
+     */
+    static final class CallRow {
+        String number;
+        int callType;
+        String accountComponentName;
+        String accountId;
+
+        void read(Cursor cursor) {
+            number = cursor.getString(CallLogQueryHandler.NUMBER);
+            callType = cursor.getInt(CallLogQueryHandler.CALL_TYPE);
+            accountComponentName = cursor.getString(CallLogQueryHandler.ACCOUNT_COMPONENT_NAME);
+            accountId = cursor.getString(CallLogQueryHandler.ACCOUNT_ID);
+        }
+    }
+
+    interface Grouper {
+        /** Returns whether {@param call} belongs to the group that starts with {@param first}. */
+        boolean shouldGroup(CallRow first, CallRow call);
+    }
+
+    static final CallLogGroupIndex EMPTY = new CallLogGroupIndex(0);
+
+    /** By cursor position. */
+    private final long[] mCallIds;
+    private final int[] mCallTypes;
+    private final int[] mFeatures;
+    /** The first call of the group each call was compared with, and whether it joined it. */
+    private final long[] mGroupFirstIds;
+    private final boolean[] mJoined;
+
+    /** The call ids in ascending order, and their cursor positions. */
+    private long[] mSortedIds;
+    private int[] mSortedPositions;
+
+    /** The first cursor position and the size of each list item. */
+    private final int[] mGroupStarts;
+    private final int[] mGroupSizes;
+    private int mGroupCount;
+
+    /** Number of grouping decisions taken from the previous index, for logging. */
+    private int mReusedCount;
+
+    private CallLogGroupIndex(int count) {
+        mCallIds = new long[count];
+        mCallTypes = new int[count];
+        mFeatures = new int[count];
+        mGroupFirstIds = new long[count];
+        mJoined = new boolean[count];
+        mGroupStarts = new int[count];
+        mGroupSizes = new int[count];
+    }
+
+    /**
+     * Reads the calls of {@param cursor} and groups them, reusing the decisions of
+     * {@param previous} for the calls that are compared with the same first call as before.
+     */
+    static CallLogGroupIndex build(Cursor cursor, CallLogGroupIndex previous, Grouper grouper) {
+        final int count = cursor == null ? 0 : cursor.getCount();
+        if (count == 0) {
+            return EMPTY;
+        }
+        final CallLogGroupIndex index = new CallLogGroupIndex(count);
+        CallRow first = new CallRow();
+        CallRow call = new CallRow();
+        long firstId = 0;
+        // Whether first holds the values of the first call of the current group.
+        boolean firstRead = false;
+
+        for (int position = 0; position < count; position++) {
+            cursor.moveToPosition(position);
+            final long id = cursor.getLong(CallLogQueryHandler.ID);
+            index.mCallIds[position] = id;
+            index.mCallTypes[position] = cursor.getInt(CallLogQueryHandler.CALL_TYPE);
+            index.mFeatures[position] = cursor.getInt(CallLogQueryHandler.FEATURES);
+
+            boolean joined = false;
+            boolean callRead = false;
+            if (position > 0) {
+                final int previousPosition = previous.getPosition(id);
+                if (previousPosition > 0 && previous.mGroupFirstIds[previousPosition] == firstId) {
+                    joined = previous.mJoined[previousPosition];
+                    index.mReusedCount++;
+                } else {
+                    if (!firstRead) {
+                        cursor.moveToPosition(index.mGroupStarts[index.mGroupCount - 1]);
+                        first.read(cursor);
+                        cursor.moveToPosition(position);
+                        firstRead = true;
+                    }
+                    call.read(cursor);
+                    callRead = true;
+                    joined = grouper.shouldGroup(first, call);
+                }
+                index.mGroupFirstIds[position] = firstId;
+                index.mJoined[position] = joined;
+            }
+
+            if (joined) {
+                index.mGroupSizes[index.mGroupCount - 1]++;
+            } else {
+                index.mGroupStarts[index.mGroupCount] = position;
+                index.mGroupSizes[index.mGroupCount] = 1;
+                index.mGroupCount++;
+                firstId = id;
+                firstRead = callRead;
+                if (callRead) {
+                    final CallRow swap = first;
+                    first = call;
+                    call = swap;
+                }
+            }
+        }
+        index.sortIds();
+        return index;
+    }
+
+    private void sortIds() {
+        final int count = mCallIds.length;
+        // Pack the ids with their positions to sort them together. Call log ids fit in 32 bits
+        // on any real device, sort a copy otherwise.
+        boolean packable = true;
+        for (int i = 0; i < count && packable; i++) {
+            packable = mCallIds[i] >= 0 && mCallIds[i] <= Integer.MAX_VALUE;
+        }
+        mSortedIds = new long[count];
+        mSortedPositions = new int[count];
+        if (packable) {
+            final long[] packed = new long[count];
+            for (int i = 0; i < count; i++) {
+                packed[i] = (mCallIds[i] << 32) | i;
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < count; i++) {
+                mSortedIds[i] = packed[i] >>> 32;
+                mSortedPositions[i] = (int) (packed[i] & 0xffffffffL);
+            }
+        } else {
+            mSortedIds = Arrays.copyOf(mCallIds, count);
+            Arrays.sort(mSortedIds);
+            for (int i = 0; i < count; i++) {
+                mSortedPositions[Arrays.binarySearch(mSortedIds, mCallIds[i])] = i;
+            }
+        }
+    }
+
+    /** Returns the cursor position of the call with the given id, or -1. */
+    int getPosition(long callId) {
+        if (mSortedIds == null) {
+            return -1;
+        }
+        final int i = Arrays.binarySearch(mSortedIds, callId);
+        return i < 0 ? -1 : mSortedPositions[i];
+    }
+
+    int getCallCount() {
+        return mCallIds.length;
+    }
+
+    long getCallId(int position) {
+        return mCallIds[position];
+    }
+
+    int getGroupCount() {
+        return mGroupCount;
+    }
+
+    int getGroupStart(int group) {
+        return mGroupStarts[group];
+    }
+
+    int getGroupSize(int group) {
+        return mGroupSizes[group];
+    }
+
+    int getReusedCount() {
+        return mReusedCount;
+    }
+
+    /** Returns the id of the first call of the group of the call at {@param position}. */
+    long getGroupFirstId(int position) {
+        return mJoined[position] ? mGroupFirstIds[position] : mCallIds[position];
+    }
+
+    /**
+     * Returns whether {@param group} has the same calls as the group of {@param previous} that
+     * starts with the same call. A group changes when the calls before or after it were removed
+     * and the remaining calls were grouped differently.
+     */
+    boolean hasSameCalls(int group, CallLogGroupIndex previous) {
+        final int start = mGroupStarts[group];
+        final int size = mGroupSizes[group];
+        final int previousStart = previous.getPosition(mCallIds[start]);
+        if (previousStart < 0 || previous.mJoined[previousStart]) {
+            return false;
+        }
+        for (int i = 1; i < size; i++) {
+            if (previous.getPosition(mCallIds[start + i]) != previousStart + i
+                    || !previous.mJoined[previousStart + i]) {
+                return false;
+            }
+        }
+        final int next = previousStart + size;
+        return next == previous.getCallCount() || !previous.mJoined[next];
+    }
+
+    /** Returns the ids of the {@param size} calls from cursor position {@param start}. */
+    String[] getCallIds(int start, int size) {
+        final String[] ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = String.valueOf(mCallIds[start + i]);
+        }
+        return ids;
+    }
+
+    int[] getCallTypes(int start, int size) {
+        return Arrays.copyOfRange(mCallTypes, start, start + size);
+    }
+
+    int getFeatures(int start, int size) {
+        int features = 0;
+        for (int i = start; i < start + size; i++) {
+            features |= mFeatures[i];
+        }
+        return features;
+    }
+
+    /**
+     * Returns the sorted ids of the calls of this index that aren't in {@param sortedIds}, or
+     * null if {@param sortedIds} contains calls that aren't in this index.
+     */
+    long[] getRemovedIds(long[] sortedIds) {
+        final long[] removed = new long[mSortedIds == null ? 0 : mSortedIds.length];
+        int removedCount = 0;
+        int j = 0;
+        for (int i = 0; i < removed.length; i++) {
+            if (j < sortedIds.length && sortedIds[j] < mSortedIds[i]) {
+                return null;
+            }
+            if (j < sortedIds.length && sortedIds[j] == mSortedIds[i]) {
+                j++;
+            } else {
+                removed[removedCount++] = mSortedIds[i];
+            }
+        }
+        return j < sortedIds.length ? null : Arrays.copyOf(removed, removedCount);
+    }
+}
@@ -52,9 +52,12 @@ public class CallLogQueryHandler extends NoNullCursorAsyncQueryHandler {
     private static final String[] EMPTY_STRING_ARRAY = new String[0];
 
     private static final String TAG = "CallLogQueryHandler";
-    private static final int NUM_LOGS_TO_DISPLAY = 1000;
+    static final int NUM_LOGS_TO_DISPLAY = 1000;
 
     public static final int QUERY_CALLLOG_TOKEN = 54;
+    public static final int QUERY_CALLLOG_IDS_TOKEN = 55;
+
+    private static final String[] IDS_PROJECTION = new String[] {Calls._ID};
 
     private final WeakReference<Listener> mListener;
 
@@ -131,6 +134,26 @@ public class CallLogQueryHandler extends NoNullCursorAsyncQueryHandler {
     }
 
     public void fetchCalls(int token) {
+        final Uri uri = getCallLogUri().buildUpon()
+                .appendQueryParameter(Calls.LIMIT_PARAM_KEY, Integer.toString(NUM_LOGS_TO_DISPLAY))
+                .build();
+        fetchCalls(token, uri, _PROJECTION, 0);
+    }
+
+    /**
+     * Fetches the ids of the calls from {@param oldestDate} on, to find the calls of a list
+     * loaded with {@link #fetchCalls} that were deleted. The query isn't limited like
+     * {@link #fetchCalls}: when calls are deleted, the older calls that move into the limit are
+     * not calls that were added.
+     *
+     * @param oldestDate the date of the oldest call of the list, or 0 if the list has all calls
+     */
+    public void fetchCallIds(long oldestDate) {
+        cancelOperation(QUERY_CALLLOG_IDS_TOKEN);
+        fetchCalls(QUERY_CALLLOG_IDS_TOKEN, getCallLogUri(), IDS_PROJECTION, oldestDate);
+    }
+
+    private void fetchCalls(int token, Uri uri, String[] projection, long oldestDate) {
         StringBuilder where = new StringBuilder();
         List<String> selectionArgs = Lists.newArrayList();
 
@@ -138,13 +161,16 @@ public class CallLogQueryHandler extends NoNullCursorAsyncQueryHandler {
         where.append(Voicemails.DELETED);
         where.append(" = 0");
 
-        final String selection = where.length() > 0 ? where.toString() : null;
-        Uri uri = getCallLogUri().buildUpon()
-                .appendQueryParameter(Calls.LIMIT_PARAM_KEY, Integer.toString(NUM_LOGS_TO_DISPLAY))
-                .build();
+        if (oldestDate > 0) {
+            where.append(" AND ");
+            where.append(Calls.DATE);
+            where.append(" >= ?");
+            selectionArgs.add(Long.toString(oldestDate));
+        }
 
+        final String selection = where.length() > 0 ? where.toString() : null;
         startQuery(token, null, uri,
-                _PROJECTION, selection, selectionArgs.toArray(EMPTY_STRING_ARRAY),
+                projection, selection, selectionArgs.toArray(EMPTY_STRING_ARRAY),
                 Calls.DEFAULT_SORT_ORDER);
     }
 
@@ -159,6 +185,16 @@ public class CallLogQueryHandler extends NoNullCursorAsyncQueryHandler {
                 if (updateAdapterData(cursor)) {
                     cursor = null;
                 }
+            } else if (token == QUERY_CALLLOG_IDS_TOKEN) {
+                final Listener listener = mListener.get();
+                if (listener != null) {
+                    final long[] ids = new long[cursor.getCount()];
+                    int count = 0;
+                    while (cursor.moveToNext()) {
+                        ids[count++] = cursor.getLong(0);
+                    }
+                    listener.onCallIdsFetched(ids);
+                }
             } else {
                 Log.w(TAG, "Unknown query completed: ignoring: " + token);
             }
@@ -179,5 +215,8 @@ public class CallLogQueryHandler extends NoNullCursorAsyncQueryHandler {
 
     public interface Listener {
         boolean onCallsFetched(Cursor combinedCursor);
+
+        /** Called with the result of {@link #fetchCallIds}, in the order of the call log. */
+        void onCallIdsFetched(long[] callIds);
     }
 }
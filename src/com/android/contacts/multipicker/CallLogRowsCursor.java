@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.multipicker;
+
+import android.database.AbstractCursor;
+import android.database.Cursor;
+
+import java.util.Arrays;
+
+/**
+ * Shows a subset of the rows of a call log cursor, so that deleted calls can be dropped from the
+ * list without querying the call log again.
+ *
+ * The base cursor is owned by the last cursor derived with {@link #without}, which closes it.
+ */
+final class CallLogRowsCursor extends AbstractCursor {
+    private final Cursor mBase;
+    /** The positions in the base cursor of the rows of this cursor. */
+    private final int[] mRows;
+    private boolean mOwnsBase = true;
+
+    private CallLogRowsCursor(Cursor base, int[] rows) {
+        mBase = base;
+        mRows = rows;
+    }
+
+    /**
+     * Returns a cursor with all the rows of {@param base}.
+     */
+    static CallLogRowsCursor wrap(Cursor base) {
+        final int[] rows = new int[base.getCount()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        return new CallLogRowsCursor(base, rows);
+    }
+
+    /**
+     * Returns a cursor without the calls with the given ids, which takes over the base cursor:
+     * closing this cursor doesn't close it anymore.
+     *
+     * @param sortedCallIds the ids of the calls to drop, in ascending order
+     * @param index the index of this cursor
+     */
+    CallLogRowsCursor without(long[] sortedCallIds, CallLogGroupIndex index) {
+        final int[] rows = new int[mRows.length];
+        int count = 0;
+        for (int i = 0; i < mRows.length; i++) {
+            if (Arrays.binarySearch(sortedCallIds, index.getCallId(i)) < 0) {
+                rows[count++] = mRows[i];
+            }
+        }
+        mOwnsBase = false;
+        return new CallLogRowsCursor(mBase, Arrays.copyOf(rows, count));
+    }
+
+    @Override
+    public boolean onMove(int oldPosition, int newPosition) {
+        return mBase.moveToPosition(mRows[newPosition]);
+    }
+
+    @Override
+    public int getCount() {
+        return mRows.length;
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return mBase.getColumnNames();
+    }
+
+    @Override
+    public String getString(int column) {
+        return mBase.getString(column);
+    }
+
+    @Override
+    public short getShort(int column) {
+        return mBase.getShort(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return mBase.getInt(column);
+    }
+
+    @Override
+    public long getLong(int column) {
+        return mBase.getLong(column);
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return mBase.getFloat(column);
+    }
+
+    @Override
+    public double getDouble(int column) {
+        return mBase.getDouble(column);
+    }
+
+    @Override
+    public byte[] getBlob(int column) {
+        return mBase.getBlob(column);
+    }
+
+    @Override
+    public int getType(int column) {
+        return mBase.getType(column);
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return mBase.isNull(column);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (mOwnsBase) {
+            mBase.close();
+        }
+    }
+}
@@ -82,6 +82,8 @@ import com.android.contacts.list.ContactsPickMode;
 import com.android.contacts.list.OnCheckListActionListener;
 import com.android.contacts.R;
 
+import com.google.common.annotations.VisibleForTesting;
+
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -165,6 +167,14 @@ public class ContactsFragment extends ListFragment {
     private static final int DATA_CONTACT_ID = 6;
 
     private static final int QUERY_TOKEN = 43;
+    private static final int PAGE_QUERY_TOKEN = 44;
+    private static final int INDEX_QUERY_TOKEN = 45;
+
+    /** Rows of the first page, which fill the first screens of the list. */
+    private static final int FIRST_PAGE_SIZE = 100;
+    private static final int PAGE_SIZE = 500;
+    /** The next page is loaded when the list shows a row this close to the last row loaded. */
+    private static final int PREFETCH_DISTANCE = 50;
 
     public static final int ACTION_ADD_GROUP_MEMBER = 0;
     public static final int ACTION_MOVE_GROUP_MEMBER = 1;
@@ -204,6 +214,21 @@ public class ContactsFragment extends ListFragment {
 
     private SectionIndexer mIndexer;
 
+    /**
+     * The query of the list when it is loaded in pages, see {@link #isPagedQuery}. The pages
+     * loaded so far are in {@link #mPageCursor}.
+     */
+    private ContactsPageQuery mPageQuery;
+    private ContactsPageCursor mPageCursor;
+    private Bundle mIndexExtras;
+    /** Incremented when the paged query is restarted, to drop the results of the previous one. */
+    private int mPageGeneration;
+    private boolean mPageLoading;
+    /** The position the pages are loaded up to, e.g. the section the list is fast scrolled to. */
+    private int mLoadTarget = -1;
+    /** Whether the rows of the pages still to load are selected as they arrive. */
+    private boolean mSelectAllPending;
+
     private View mHeaderView;
 
     // Only in pick phone mode, use this to count selected items number.
@@ -294,6 +319,25 @@ public class ContactsFragment extends ListFragment {
         mCheckListListener = checkListListener;
     }
 
+    /**
+     * Sets up the fragment without attaching it to an activity, so that the selection logic can
+     * be run against {@code cursor} in tests. Must be called on the main thread.
+     */
+    @VisibleForTesting
+    void setUpForTest(Context context, int mode, OnCheckListActionListener checkListListener,
+            Cursor cursor) {
+        mContext = context;
+        mPickMode = ContactsPickMode.getInstance();
+        mPickMode.setMode(mode);
+        mMode = mode;
+        mCheckListListener = checkListListener;
+        mContactListAdapter = new ContactItemListAdapter(context);
+        if (mPickMode.isPickPhone()) {
+            checkedList = new ArrayList<String>();
+        }
+        mContactListAdapter.changeCursor(cursor);
+    }
+
     @Override
     public void onListItemClick(ListView l, View v, int position, long id) {
         mCheckListListener.onHideSoftKeyboard();
@@ -363,6 +407,7 @@ public class ContactsFragment extends ListFragment {
     @Override
     public void onDestroy() {
         mQueryHandler.removeCallbacksAndMessages(QUERY_TOKEN);
+        cancelPages();
 
         if (mContactListAdapter.getCursor() != null) {
             mContactListAdapter.getCursor().close();
@@ -428,8 +473,7 @@ public class ContactsFragment extends ListFragment {
             default:
                 uri = Contacts.CONTENT_URI;
         }
-        return uri.buildUpon().appendQueryParameter(Contacts.EXTRA_ADDRESS_BOOK_INDEX, "true")
-                .build();
+        return uri;
     }
 
     /**
@@ -622,12 +666,150 @@ public class ContactsFragment extends ListFragment {
         String[] projection = getProjectionForQuery();
         String selection = getSelectionForQuery();
         String[] selectionArgs = getSelectionArgsForQuery();
+        mQueryHandler.cancelOperation(QUERY_TOKEN);
+        cancelPages();
+        if (isPagedQuery()) {
+            startPagedQuery(uri, projection, selection, selectionArgs);
+            return;
+        }
+        uri = uri.buildUpon().appendQueryParameter(Contacts.EXTRA_ADDRESS_BOOK_INDEX, "true")
+                .build();
         mQueryHandler.startQuery(QUERY_TOKEN, null, uri, projection, selection, selectionArgs,
                 getSortOrder(projection));
     }
 
+    /**
+     * Returns whether the list is loaded in pages: the first page is shown without waiting for
+     * the others, which are loaded as the list is scrolled. The lists of search results and of
+     * SIM contacts, and the contact info list, are loaded with one query.
+     */
+    private boolean isPagedQuery() {
+        switch (mPickMode.getMode()) {
+            case ContactsPickMode.MODE_DEFAULT_CONTACT:
+                // The group member uris may not honor the limit of a page.
+                return mPickMode.getIntent().getIntExtra(ADD_MOVE_GROUP_MEMBER_KEY,
+                        ACTION_DEFAULT_VALUE) == ACTION_DEFAULT_VALUE;
+            case ContactsPickMode.MODE_DEFAULT_CONTACT_VCARD:
+            case ContactsPickMode.MODE_DEFAULT_PHONE:
+            case ContactsPickMode.MODE_DEFAULT_EMAIL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void startPagedQuery(Uri uri, String[] projection, String selection,
+            String[] selectionArgs) {
+        final boolean dataRows = mPickMode.isPickPhone() || mPickMode.isPickEmail();
+        mPageQuery = new ContactsPageQuery(uri, projection, selection, selectionArgs,
+                dataRows ? Data.CONTACT_ID : Contacts._ID, dataRows);
+        // The queries run one after the other, the first page goes first. The index is
+        // computed from the ids only, instead of with the rows of every page.
+        loadNextPage(FIRST_PAGE_SIZE);
+        mQueryHandler.startQuery(INDEX_QUERY_TOKEN, mPageGeneration, mPageQuery.getIndexUri(),
+                ContactsPageQuery.INDEX_PROJECTION, mPageQuery.getListSelection(),
+                mPageQuery.getListSelectionArgs(), ContactsPageQuery.INDEX_SORT_ORDER);
+    }
+
+    private void loadNextPage(int limit) {
+        if (mPageQuery == null || mPageQuery.isComplete() || mPageLoading) {
+            return;
+        }
+        mPageLoading = true;
+        mQueryHandler.startQuery(PAGE_QUERY_TOKEN, mPageGeneration, mPageQuery.getPageUri(limit),
+                mPageQuery.getProjection(), mPageQuery.getSelection(),
+                mPageQuery.getSelectionArgs(), mPageQuery.getSortOrder());
+    }
+
+    /**
+     * Loads the pages up to {@param position}.
+     */
+    private void loadUpTo(int position) {
+        mLoadTarget = Math.max(mLoadTarget, position);
+        loadNextPage(PAGE_SIZE);
+    }
+
+    /**
+     * Stops loading the pages of the list. The pages loaded so far are closed with the cursor
+     * of the adapter.
+     */
+    private void cancelPages() {
+        mQueryHandler.cancelOperation(PAGE_QUERY_TOKEN);
+        mQueryHandler.cancelOperation(INDEX_QUERY_TOKEN);
+        mPageGeneration++;
+        mPageQuery = null;
+        mPageCursor = null;
+        mIndexExtras = null;
+        mPageLoading = false;
+        mLoadTarget = -1;
+        setSelectAllPending(false);
+    }
+
+    /**
+     * The confirm action waits for a pending select all, the selection count must not grow
+     * after the user has confirmed.
+     */
+    private void setSelectAllPending(boolean pending) {
+        if (mSelectAllPending == pending) {
+            return;
+        }
+        mSelectAllPending = pending;
+        if (mCheckListListener != null) {
+            mCheckListListener.setSelectionPending(pending);
+        }
+    }
+
+    private void onPageLoaded(int generation, Cursor page) {
+        if (generation != mPageGeneration) {
+            if (page != null) {
+                page.close();
+            }
+            return;
+        }
+        mPageLoading = false;
+        if (page == null) {
+            // The rest of the rows can't be selected, keep the ones selected so far.
+            setSelectAllPending(false);
+            return;
+        }
+        final int start = mPageCursor == null ? 0 : mPageCursor.getCount();
+        final int count = mPageQuery.addPage(page);
+        mPageCursor = mPageCursor == null
+                ? ContactsPageCursor.wrap(page, count, mIndexExtras)
+                : mPageCursor.append(page, count);
+        mContactListAdapter.changeCursor(mPageCursor);
+
+        if (mSelectAllPending) {
+            selectRows(mPageCursor, start, mPageCursor.getCount());
+            mCheckListListener.onUpdateActionBar();
+        }
+        if (mPageQuery.isComplete()) {
+            setSelectAllPending(false);
+            log("Loaded " + mPageCursor.getCount() + " rows in " + mPageCursor.getPageCount()
+                    + " pages");
+        } else if (mSelectAllPending || mLoadTarget >= mPageCursor.getCount()) {
+            loadNextPage(PAGE_SIZE);
+        }
+    }
+
+    private void onIndexLoaded(int generation, Cursor cursor) {
+        if (cursor == null) {
+            return;
+        }
+        if (generation == mPageGeneration) {
+            mIndexExtras = cursor.getExtras();
+            if (mPageCursor != null) {
+                mPageCursor.setIndexExtras(mIndexExtras);
+                mContactListAdapter.updateIndexer(mPageCursor);
+                mContactListAdapter.notifyDataSetChanged();
+            }
+        }
+        cursor.close();
+    }
+
     public void doFilter(String s) {
         query = s;
+        cancelPages();
         if (TextUtils.isEmpty(s)) {
             // mPickMode.exitSearchMode();
             // startQuery();
@@ -668,7 +850,17 @@ public class ContactsFragment extends ListFragment {
             if (mHeaderView != null && mPickMode.isSearchMode()) {
                 getListView().removeHeaderView(mHeaderView);
             }
-            mContactListAdapter.changeCursor(cursor);
+            switch (token) {
+                case PAGE_QUERY_TOKEN:
+                    onPageLoaded((Integer) cookie, cursor);
+                    break;
+                case INDEX_QUERY_TOKEN:
+                    onIndexLoaded((Integer) cookie, cursor);
+                    break;
+                default:
+                    mContactListAdapter.changeCursor(cursor);
+                    break;
+            }
         }
     }
 
@@ -996,6 +1188,9 @@ public class ContactsFragment extends ListFragment {
             if (!getCursor().moveToPosition(position)) {
                 throw new IllegalStateException("couldn't move cursor to position " + position);
             }
+            if (position >= getCount() - PREFETCH_DISTANCE) {
+                loadNextPage(PAGE_SIZE);
+            }
 
             if (convertView != null && convertView.getTag() != null) {
                 v = convertView;
@@ -1079,6 +1274,16 @@ public class ContactsFragment extends ListFragment {
          * @return relative position of the section in the indexed partition
          */
         public int getPositionForSection(int sectionIndex) {
+            final int position = getIndexedPositionForSection(sectionIndex);
+            if (mPageQuery != null && position >= getCount() && getCount() > 0) {
+                // The section isn't loaded yet, e.g. when fast scrolling.
+                loadUpTo(position);
+                return getCount() - 1;
+            }
+            return position;
+        }
+
+        private int getIndexedPositionForSection(int sectionIndex) {
             if (mIndexer == null) {
                 return -1;
             }
@@ -1109,7 +1314,7 @@ public class ContactsFragment extends ListFragment {
 
             mPlacementCache.position = position;
             int section = getSectionForPosition(position);
-            if (section != -1 && getPositionForSection(section) == position) {
+            if (section != -1 && getIndexedPositionForSection(section) == position) {
                 mPlacementCache.firstInSection = true;
                 mPlacementCache.sectionHeader = (String) getSections()[section];
             } else {
@@ -1117,7 +1322,8 @@ public class ContactsFragment extends ListFragment {
                 mPlacementCache.sectionHeader = null;
             }
 
-            mPlacementCache.lastInSection = (getPositionForSection(section + 1) - 1 == position);
+            mPlacementCache.lastInSection =
+                    (getIndexedPositionForSection(section + 1) - 1 == position);
             return mPlacementCache;
         }
     }
@@ -1198,91 +1404,17 @@ public class ContactsFragment extends ListFragment {
         if (cursor == null) {
             return;
         }
-        ContactItemCache cache = new ContactItemCache();
         String key;
         // selected all contacts
         if (isSelectedAll) {
-            int count = cursor.getCount();
-            for (int i = 0; i < count; i++) {
-                cursor.moveToPosition(i);
-                // only pick sim mode, id index is SIM_COLUMN_ID
-                // other mode, id index is 0
-                if (mPickMode.isPickSim()) {
-                    key = String.valueOf(cursor.getLong(SIM_COLUMN_ID));
-                } else {
-                    key = String.valueOf(cursor.getLong(0));
-                }
-                if (!mCheckListListener.onContainsKey(key)) {
-                    String[] value = null;
-                    if (mPickMode.isPickContact()) {
-                        cache.lookupKey = cursor
-                                .getString(SUMMARY_LOOKUP_KEY_COLUMN_INDEX);
-                        cache.name = cursor
-                                .getString(SUMMARY_DISPLAY_NAME_PRIMARY_COLUMN_INDEX);
-                        cache.nameRawContactId = cursor
-                                .getLong(SUMMARY_CONTACT_COLUMN_RAW_CONTACT_ID);
-                        String photoUri = cursor.getString(SUMMARY_CONTACT_COLUMN_PHOTO_URI);
-                        cache.photoUri = UriUtils.parseUriOrNull(photoUri);
-                        value = new String[] {
-                                cache.lookupKey,
-                                key, String.valueOf(cache.nameRawContactId),
-                                photoUri, cache.name
-                        };
-                    } else if (mPickMode.isPickPhone()) {
-                        cache.name = cursor
-                                .getString(PHONE_COLUMN_DISPLAY_NAME);
-                        cache.number = cursor.getString(PHONE_COLUMN_NUMBER);
-                        cache.label = cursor.getString(PHONE_COLUMN_LABEL);
-                        cache.type = String.valueOf(cursor
-                                .getInt(PHONE_COLUMN_TYPE));
-                        value = new String[] {
-                                cache.name, cache.number,
-                                cache.type, cache.label, cache.contact_id
-                        };
-                        if (!checkedList.contains(key)) {
-                            checkedList.add(key);
-                        }
-                    } else if (mPickMode.isPickEmail()) {
-                        cache.name = cursor
-                                .getString(EMAIL_COLUMN_DISPLAY_NAME);
-                        cache.email = cursor.getString(EMAIL_COLUMN_ADDRESS);
-                        value = new String[] {
-                                cache.name, cache.email
-                        };
-                    } else if (mPickMode.isPickSim()) {
-                        cache.name = cursor.getString(SIM_COLUMN_DISPLAY_NAME);
-                        cache.number = cursor.getString(SIM_COLUMN_NUMBER);
-                        cache.email = cursor.getString(SIM_COLUMN_EMAILS);
-                        cache.anrs = cursor.getString(SIM_COLUMN_ANRS);
-                        value = new String[] {
-                                cache.name, cache.number,
-                                cache.email, cache.anrs
-                        };
-                    } else if (mPickMode.isPickContactInfo()) {
-                        cache.name = cursor.getString(DATA_DISPLAY_NAME);
-                        cache.type = cursor.getString(DATA_MIMETYPE_COLUMN);
-                        if (cache.type.equals(Phone.CONTENT_ITEM_TYPE)) {
-                            cache.number = cursor.getString(DATA_DATA1_COLUMN);
-                        } else if (cache.type.equals(Email.CONTENT_ITEM_TYPE)) {
-                            cache.email = cursor.getString(DATA_DATA1_COLUMN);
-                        }
-                        cache.label = cursor.getString(DATA_DATA3_COLUMN);
-                        cache.contact_id = cursor.getString(DATA_CONTACT_ID);
-                        value = new String[] {
-                                cache.contact_id, cache.name,
-                                cache.number, cache.email
-                        };
-                    } else if (mPickMode.isPickContactVcard()) {
-                        cache.name = cursor.getString(SUMMARY_DISPLAY_NAME_PRIMARY_COLUMN_INDEX);
-                        cache.lookupKey = cursor.getString(SUMMARY_LOOKUP_KEY_COLUMN_INDEX);
-                        value = new String[] {
-                                cache.name, cache.lookupKey
-                        };
-                    }
-                    mCheckListListener.putValue(key, value);
-                }
+            selectRows(cursor, 0, cursor.getCount());
+            if (mPageQuery != null && !mPageQuery.isComplete()) {
+                // Select the rows of the other pages as they are loaded.
+                setSelectAllPending(true);
+                loadNextPage(PAGE_SIZE);
             }
         } else {
+            setSelectAllPending(false);
             // deselected all contacts
             if (!mPickMode.isPickPhone()) {
                 mCheckListListener.onClear();
@@ -1305,6 +1437,93 @@ public class ContactsFragment extends ListFragment {
         mContactListAdapter.notifyDataSetChanged();
     }
 
+    /**
+     * Selects the rows of {@param cursor} from position {@param start} to {@param end}.
+     */
+    private void selectRows(Cursor cursor, int start, int end) {
+        ContactItemCache cache = new ContactItemCache();
+        String key;
+        for (int i = start; i < end; i++) {
+            cursor.moveToPosition(i);
+            // only pick sim mode, id index is SIM_COLUMN_ID
+            // other mode, id index is 0
+            if (mPickMode.isPickSim()) {
+                key = String.valueOf(cursor.getLong(SIM_COLUMN_ID));
+            } else {
+                key = String.valueOf(cursor.getLong(0));
+            }
+            if (!mCheckListListener.onContainsKey(key)) {
+                String[] value = null;
+                if (mPickMode.isPickContact()) {
+                    cache.lookupKey = cursor
+                            .getString(SUMMARY_LOOKUP_KEY_COLUMN_INDEX);
+                    cache.name = cursor
+                            .getString(SUMMARY_DISPLAY_NAME_PRIMARY_COLUMN_INDEX);
+                    cache.nameRawContactId = cursor
+                            .getLong(SUMMARY_CONTACT_COLUMN_RAW_CONTACT_ID);
+                    String photoUri = cursor.getString(SUMMARY_CONTACT_COLUMN_PHOTO_URI);
+                    cache.photoUri = UriUtils.parseUriOrNull(photoUri);
+                    value = new String[] {
+                            cache.lookupKey,
+                            key, String.valueOf(cache.nameRawContactId),
+                            photoUri, cache.name
+                    };
+                } else if (mPickMode.isPickPhone()) {
+                    cache.name = cursor
+                            .getString(PHONE_COLUMN_DISPLAY_NAME);
+                    cache.number = cursor.getString(PHONE_COLUMN_NUMBER);
+                    cache.label = cursor.getString(PHONE_COLUMN_LABEL);
+                    cache.type = String.valueOf(cursor
+                            .getInt(PHONE_COLUMN_TYPE));
+                    value = new String[] {
+                            cache.name, cache.number,
+                            cache.type, cache.label, cache.contact_id
+                    };
+                    if (!checkedList.contains(key)) {
+                        checkedList.add(key);
+                    }
+                } else if (mPickMode.isPickEmail()) {
+                    cache.name = cursor
+                            .getString(EMAIL_COLUMN_DISPLAY_NAME);
+                    cache.email = cursor.getString(EMAIL_COLUMN_ADDRESS);
+                    value = new String[] {
+                            cache.name, cache.email
+                    };
+                } else if (mPickMode.isPickSim()) {
+                    cache.name = cursor.getString(SIM_COLUMN_DISPLAY_NAME);
+                    cache.number = cursor.getString(SIM_COLUMN_NUMBER);
+                    cache.email = cursor.getString(SIM_COLUMN_EMAILS);
+                    cache.anrs = cursor.getString(SIM_COLUMN_ANRS);
+                    value = new String[] {
+                            cache.name, cache.number,
+                            cache.email, cache.anrs
+                    };
+                } else if (mPickMode.isPickContactInfo()) {
+                    cache.name = cursor.getString(DATA_DISPLAY_NAME);
+                    cache.type = cursor.getString(DATA_MIMETYPE_COLUMN);
+                    if (cache.type.equals(Phone.CONTENT_ITEM_TYPE)) {
+                        cache.number = cursor.getString(DATA_DATA1_COLUMN);
+                    } else if (cache.type.equals(Email.CONTENT_ITEM_TYPE)) {
+                        cache.email = cursor.getString(DATA_DATA1_COLUMN);
+                    }
+                    cache.label = cursor.getString(DATA_DATA3_COLUMN);
+                    cache.contact_id = cursor.getString(DATA_CONTACT_ID);
+                    value = new String[] {
+                            cache.contact_id, cache.name,
+                            cache.number, cache.email
+                    };
+                } else if (mPickMode.isPickContactVcard()) {
+                    cache.name = cursor.getString(SUMMARY_DISPLAY_NAME_PRIMARY_COLUMN_INDEX);
+                    cache.lookupKey = cursor.getString(SUMMARY_LOOKUP_KEY_COLUMN_INDEX);
+                    value = new String[] {
+                            cache.name, cache.lookupKey
+                    };
+                }
+                mCheckListListener.putValue(key, value);
+            }
+        }
+    }
+
     @Override
     public void setUserVisibleHint(boolean isVisibleToUser) {
         super.setUserVisibleHint(isVisibleToUser);
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.multipicker;
+
+import android.database.AbstractCursor;
+import android.database.Cursor;
+import android.os.Bundle;
+
+import java.util.Arrays;
+
+/**
+ * Shows the pages loaded by a {@link ContactsPageQuery} as one cursor, so that a page can be
+ * added to the list without copying the rows loaded before.
+ *
+ * The pages are owned by the last cursor derived with {@link #append}, which closes them.
+ */
+final class ContactsPageCursor extends AbstractCursor {
+    private final Cursor[] mPages;
+    /** The position of the first row of each page, and the number of rows used of each. */
+    private final int[] mPageStarts;
+    private final int[] mPageCounts;
+    private final int mCount;
+    private Bundle mIndexExtras;
+    private boolean mOwnsPages = true;
+
+    /** The page the current row is in. */
+    private int mCurrentPage;
+
+    private ContactsPageCursor(Cursor[] pages, int[] pageStarts, int[] pageCounts,
+            Bundle indexExtras) {
+        mPages = pages;
+        mPageStarts = pageStarts;
+        mPageCounts = pageCounts;
+        final int last = pages.length - 1;
+        mCount = pageStarts[last] + pageCounts[last];
+        mIndexExtras = indexExtras;
+    }
+
+    /**
+     * Returns a cursor with the first {@param count} rows of {@param page}.
+     */
+    static ContactsPageCursor wrap(Cursor page, int count, Bundle indexExtras) {
+        return new ContactsPageCursor(new Cursor[] {page}, new int[] {0}, new int[] {count},
+                indexExtras);
+    }
+
+    /**
+     * Returns a cursor with the rows of this cursor followed by the first {@param count} rows
+     * of {@param page}, which takes over the pages: closing this cursor doesn't close them
+     * anymore.
+     */
+    ContactsPageCursor append(Cursor page, int count) {
+        final int pageCount = mPages.length;
+        final Cursor[] pages = Arrays.copyOf(mPages, pageCount + 1);
+        final int[] pageStarts = Arrays.copyOf(mPageStarts, pageCount + 1);
+        final int[] pageCounts = Arrays.copyOf(mPageCounts, pageCount + 1);
+        pages[pageCount] = page;
+        pageStarts[pageCount] = mCount;
+        pageCounts[pageCount] = count;
+        mOwnsPages = false;
+        return new ContactsPageCursor(pages, pageStarts, pageCounts, mIndexExtras);
+    }
+
+    int getPageCount() {
+        return mPages.length;
+    }
+
+    /**
+     * Sets the address book index returned by {@link #getExtras}, which is loaded separately.
+     */
+    void setIndexExtras(Bundle indexExtras) {
+        mIndexExtras = indexExtras;
+    }
+
+    @Override
+    public Bundle getExtras() {
+        return mIndexExtras == null ? Bundle.EMPTY : mIndexExtras;
+    }
+
+    @Override
+    public boolean onMove(int oldPosition, int newPosition) {
+        // Rows are mostly read in order, look in the current page first.
+        int page = mCurrentPage;
+        if (newPosition < mPageStarts[page]
+                || newPosition >= mPageStarts[page] + mPageCounts[page]) {
+            page = Arrays.binarySearch(mPageStarts, newPosition);
+            if (page < 0) {
+                page = -page - 2;
+            }
+            // Skip the pages without rows that start at the same position.
+            while (newPosition >= mPageStarts[page] + mPageCounts[page]) {
+                page++;
+            }
+            mCurrentPage = page;
+        }
+        return mPages[page].moveToPosition(newPosition - mPageStarts[page]);
+    }
+
+    private Cursor getCurrentPage() {
+        return mPages[mCurrentPage];
+    }
+
+    @Override
+    public int getCount() {
+        return mCount;
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return mPages[0].getColumnNames();
+    }
+
+    @Override
+    public String getString(int column) {
+        return getCurrentPage().getString(column);
+    }
+
+    @Override
+    public short getShort(int column) {
+        return getCurrentPage().getShort(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return getCurrentPage().getInt(column);
+    }
+
+    @Override
+    public long getLong(int column) {
+        return getCurrentPage().getLong(column);
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return getCurrentPage().getFloat(column);
+    }
+
+    @Override
+    public double getDouble(int column) {
+        return getCurrentPage().getDouble(column);
+    }
+
+    @Override
+    public byte[] getBlob(int column) {
+        return getCurrentPage().getBlob(column);
+    }
+
+    @Override
+    public int getType(int column) {
+        return getCurrentPage().getType(column);
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return getCurrentPage().isNull(column);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (mOwnsPages) {
+            for (Cursor page : mPages) {
+                page.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.multipicker;
+
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.BaseColumns;
+import android.provider.ContactsContract;
+import android.provider.ContactsContract.Contacts;
+
+import java.util.Arrays;
+
+/**
+ * Queries a list of contacts or of their data in pages, in the order the provider uses for
+ * {@link Contacts#SORT_KEY_PRIMARY}: by phonebook bucket, then by sort key. Rows with the same
+ * sort key are ordered by contact id.
+ *
+ * Each page starts after the bucket, sort key and contact id of the last row of the previous
+ * page, so the provider only reads the rows of the page instead of skipping the rows before it.
+ * When a contact has several rows, a page never ends in the middle of its rows.
+ *
+ * The address book index of the whole list is loaded separately, with {@link #getIndexUri},
+ * {@link #INDEX_PROJECTION} and {@link #INDEX_SORT_ORDER}. Its counts match the positions of
+ * the rows since the pages follow the same order.
+ */
+final class ContactsPageQuery {
+
+    static final String[] INDEX_PROJECTION = new String[] {
+            BaseColumns._ID,
+    };
+
+    /**
+     * The provider only bundles the address book index for this exact sort order, which it
+     * rewrites to order by bucket first.
+     */
+    static final String INDEX_SORT_ORDER = Contacts.SORT_KEY_PRIMARY;
+
+    /** The phonebook bucket of the sort key, the first column of the provider's sort order. */
+    private static final String PHONEBOOK_BUCKET = "phonebook_bucket";
+
+    private final Uri mUri;
+    private final String[] mProjection;
+    private final String mSelection;
+    private final String[] mSelectionArgs;
+    /** The column with the contact id, {@link Contacts#_ID} or {@code contact_id}. */
+    private final String mContactIdColumn;
+    /** Whether a contact may have more than one row. */
+    private final boolean mMultipleRowsPerContact;
+
+    /** The positions of the bucket, sort key and contact id in the projection. */
+    private final int mBucketIndex;
+    private final int mSortKeyIndex;
+    private final int mContactIdIndex;
+
+    private int mLimit;
+    private boolean mHasLastRow;
+    /** The bucket of the last row, or null if it has none. */
+    private Long mLastBucket;
+    private String mLastSortKey;
+    private long mLastContactId;
+    private boolean mComplete;
+
+    /**
+     * @param uri the uri to query, without a limit or the address book index
+     * @param projection the columns of the rows, the bucket, sort key and contact id are added
+     *         to them
+     */
+    ContactsPageQuery(Uri uri, String[] projection, String selection, String[] selectionArgs,
+            String contactIdColumn, boolean multipleRowsPerContact) {
+        mUri = uri;
+        mSelection = selection;
+        mSelectionArgs = selectionArgs;
+        mContactIdColumn = contactIdColumn;
+        mMultipleRowsPerContact = multipleRowsPerContact;
+        mBucketIndex = projection.length;
+        mSortKeyIndex = projection.length + 1;
+        mContactIdIndex = projection.length + 2;
+        mProjection = Arrays.copyOf(projection, projection.length + 3);
+        mProjection[mBucketIndex] = PHONEBOOK_BUCKET;
+        mProjection[mSortKeyIndex] = Contacts.SORT_KEY_PRIMARY;
+        mProjection[mContactIdIndex] = contactIdColumn;
+    }
+
+    /**
+     * Returns the uri of the next page, which has at most {@param limit} rows.
+     */
+    Uri getPageUri(int limit) {
+        mLimit = limit;
+        return mUri.buildUpon()
+                .appendQueryParameter(ContactsContract.LIMIT_PARAM_KEY, String.valueOf(limit))
+                .build();
+    }
+
+    Uri getIndexUri() {
+        return mUri.buildUpon().appendQueryParameter(Contacts.EXTRA_ADDRESS_BOOK_INDEX, "true")
+                .build();
+    }
+
+    String[] getProjection() {
+        return mProjection;
+    }
+
+    /** Returns the selection of the rows of the whole list. */
+    String getListSelection() {
+        return mSelection;
+    }
+
+    String[] getListSelectionArgs() {
+        return mSelectionArgs;
+    }
+
+    /** Returns the selection of the rows after the last page. */
+    String getSelection() {
+        if (!mHasLastRow) {
+            return mSelection;
+        }
+        // The buckets and ids are numbers, so they are inlined. The comparisons of the sort key
+        // use the collation of the column, like the order of the list. Null values come first.
+        final String sortKey = Contacts.SORT_KEY_PRIMARY;
+        final String afterInBucket;
+        if (mLastSortKey == null) {
+            afterInBucket = "(" + sortKey + " IS NOT NULL OR " + mContactIdColumn + ">"
+                    + mLastContactId + ")";
+        } else {
+            afterInBucket = "(" + sortKey + ">? OR (" + sortKey + "=? AND " + mContactIdColumn
+                    + ">" + mLastContactId + "))";
+        }
+        final String after;
+        if (mLastBucket == null) {
+            after = "(" + PHONEBOOK_BUCKET + " IS NOT NULL OR (" + PHONEBOOK_BUCKET
+                    + " IS NULL AND " + afterInBucket + "))";
+        } else {
+            after = "(" + PHONEBOOK_BUCKET + ">" + mLastBucket + " OR (" + PHONEBOOK_BUCKET
+                    + "=" + mLastBucket + " AND " + afterInBucket + "))";
+        }
+        return mSelection == null ? after : "(" + mSelection + ") AND " + after;
+    }
+
+    String[] getSelectionArgs() {
+        if (!mHasLastRow || mLastSortKey == null) {
+            return mSelectionArgs;
+        }
+        final int count = mSelectionArgs == null ? 0 : mSelectionArgs.length;
+        final String[] args = mSelectionArgs == null
+                ? new String[2] : Arrays.copyOf(mSelectionArgs, count + 2);
+        args[count] = mLastSortKey;
+        args[count + 1] = mLastSortKey;
+        return args;
+    }
+
+    /**
+     * Returns the sort order of the pages. It doesn't start with the sort key, so the provider
+     * uses it as is, and it orders the rows like the provider orders the index query.
+     */
+    String getSortOrder() {
+        final String order = PHONEBOOK_BUCKET + "," + Contacts.SORT_KEY_PRIMARY + ","
+                + mContactIdColumn;
+        return mMultipleRowsPerContact ? order + "," + BaseColumns._ID : order;
+    }
+
+    /**
+     * Records the last row of a page loaded with {@link #getPageUri}. Returns the number of rows
+     * of the page to show: the rows of the last contact of a full page are loaded again with the
+     * next page, unless the contact fills the whole page.
+     */
+    int addPage(Cursor page) {
+        int count = page.getCount();
+        if (count < mLimit) {
+            mComplete = true;
+            return count;
+        }
+        if (mMultipleRowsPerContact) {
+            page.moveToPosition(count - 1);
+            final long lastContactId = page.getLong(mContactIdIndex);
+            int end = count - 1;
+            while (end > 0 && page.moveToPosition(end - 1)
+                    && page.getLong(mContactIdIndex) == lastContactId) {
+                end--;
+            }
+            if (end > 0) {
+                count = end;
+            }
+        }
+        page.moveToPosition(count - 1);
+        mLastBucket = page.isNull(mBucketIndex) ? null : page.getLong(mBucketIndex);
+        mLastSortKey = page.getString(mSortKeyIndex);
+        mLastContactId = page.getLong(mContactIdIndex);
+        mHasLastRow = true;
+        return count;
+    }
+
+    /** Returns whether the last page was loaded. */
+    boolean isComplete() {
+        return mComplete;
+    }
+}
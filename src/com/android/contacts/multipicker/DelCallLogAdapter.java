@@ -22,6 +22,7 @@ import android.content.res.Resources;
 import android.database.Cursor;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
+import android.os.SystemClock;
 import android.provider.CallLog;
 import android.provider.CallLog.Calls;
 import android.provider.ContactsContract.CommonDataKinds.Phone;
@@ -34,6 +35,7 @@ import android.text.BidiFormatter;
 import android.text.TextDirectionHeuristics;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -59,6 +61,8 @@ import java.util.Set;
 
 public class DelCallLogAdapter extends GroupingListAdapter implements View.OnClickListener {
 
+    private static final String TAG = "DelCallLogAdapter";
+
     private static final Set<String> LEGACY_UNKNOWN_NUMBERS = Sets.newHashSet("-1", "-2", "-3");
 
     public static final int STAND_ALONE_ITEM_SIZE = 1;
@@ -71,6 +75,26 @@ public class DelCallLogAdapter extends GroupingListAdapter implements View.OnCli
 
     private ContactPhotoManager mContactPhotoManager;
 
+    private CallLogGroupIndex mGroupIndex = CallLogGroupIndex.EMPTY;
+
+    private final CallLogGroupIndex.Grouper mGrouper = new CallLogGroupIndex.Grouper() {
+        @Override
+        public boolean shouldGroup(CallLogGroupIndex.CallRow first,
+                CallLogGroupIndex.CallRow call) {
+            if (!equalNumbers(first.number, call.number)
+                    || !isSameAccount(first.accountComponentName, call.accountComponentName,
+                            first.accountId, call.accountId)) {
+                // Should only group with calls from the same number.
+                return false;
+            } else if (first.callType == Calls.VOICEMAIL_TYPE) {
+                // Never group voicemail.
+                return false;
+            }
+            // Incoming, outgoing, and missed calls group together.
+            return call.callType != Calls.VOICEMAIL_TYPE;
+        }
+    };
+
     public interface CallFetcher {
         void fetchCalls();
     }
@@ -83,74 +107,40 @@ public class DelCallLogAdapter extends GroupingListAdapter implements View.OnCli
 
     @Override
     protected void addGroups(Cursor cursor) {
-        if (cursor == null) {
-            return;
-        }
-        final int count = cursor.getCount();
-        if (count == 0) {
-            return;
-        }
-        int currentGroupSize = 1;
-        cursor.moveToFirst();
-        // The number of the first entry in the group.
-        String firstNumber = cursor.getString(CallLogQueryHandler.NUMBER);
-        // This is the type of the first call in the group.
-        int firstCallType = cursor.getInt(CallLogQueryHandler.CALL_TYPE);
-        // The account information of the first entry in the group.
-        String firstAccountComponentName = cursor
-                .getString(CallLogQueryHandler.ACCOUNT_COMPONENT_NAME);
-        String firstAccountId = cursor.getString(CallLogQueryHandler.ACCOUNT_ID);
-
-        while (cursor.moveToNext()) {
-            // The number of the current row in the cursor.
-            final String currentNumber = cursor.getString(CallLogQueryHandler.NUMBER);
-            final int callType = cursor.getInt(CallLogQueryHandler.CALL_TYPE);
-            final String currentAccountComponentName = cursor
-                    .getString(CallLogQueryHandler.ACCOUNT_COMPONENT_NAME);
-            final String currentAccountId = cursor.getString(CallLogQueryHandler.ACCOUNT_ID);
-            // Judge whether number is same.
-            final boolean isSameNumber = equalNumbers(firstNumber, currentNumber);
-            final boolean isSameAccount = isSameAccount(
-                    firstAccountComponentName, currentAccountComponentName,
-                    firstAccountId, currentAccountId);
-            boolean shouldGroup;
-
-            if (!isSameNumber || !isSameAccount) {
-                // Should only group with calls from the same number.
-                shouldGroup = false;
-            } else if (firstCallType == Calls.VOICEMAIL_TYPE) {
-                // Never group voicemail.
-                shouldGroup = false;
-            } else {
-                // Incoming, outgoing, and missed calls group together.
-                shouldGroup = callType != Calls.VOICEMAIL_TYPE;
-            }
-
-            if (shouldGroup) {
-                // Increment the size of the group to include the current call,
-                // but do not create the group until we find a call that does not match.
-                currentGroupSize++;
-            } else {
-                // Create a group for the previous set of calls, excluding the
-                // current one, but do not create a group for a single call.
-                if (currentGroupSize > 1) {
-                    addGroup(cursor.getPosition() - currentGroupSize, currentGroupSize, false);
-                }
-                // Start a new group; it will include at least the current call.
-                currentGroupSize = 1;
-                // The current entry is now the first in the group.
-                firstNumber = currentNumber;
-                firstCallType = callType;
-                firstAccountComponentName = currentAccountComponentName;
-                firstAccountId = currentAccountId;
+        final long startTime = SystemClock.elapsedRealtime();
+        mGroupIndex = CallLogGroupIndex.build(cursor, mGroupIndex, mGrouper);
+        for (int group = 0; group < mGroupIndex.getGroupCount(); group++) {
+            // Do not create a group for a single call.
+            final int groupSize = mGroupIndex.getGroupSize(group);
+            if (groupSize > 1) {
+                addGroup(mGroupIndex.getGroupStart(group), groupSize, false);
             }
         }
-        // If the last set of calls at the end of the call log was itself a
-        // group, create it now.
-        if (currentGroupSize > 1) {
-            addGroup(count - currentGroupSize, currentGroupSize, false);
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            Log.v(TAG, "Grouped " + mGroupIndex.getCallCount() + " calls in "
+                    + (SystemClock.elapsedRealtime() - startTime) + "ms, "
+                    + mGroupIndex.getReusedCount() + " decisions reused");
         }
+    }
+
+    /**
+     * Returns the calls of the current cursor and their groups.
+     */
+    CallLogGroupIndex getGroupIndex() {
+        return mGroupIndex;
+    }
 
+    /**
+     * Drops the calls with the given ids from the list, without querying the call log again.
+     * Only the calls whose group starts with another call than before are grouped again.
+     *
+     * @param sortedCallIds ids of deleted calls, in ascending order
+     */
+    void removeCalls(long[] sortedCallIds) {
+        final Cursor cursor = getCursor();
+        if (cursor instanceof CallLogRowsCursor) {
+            changeCursor(((CallLogRowsCursor) cursor).without(sortedCallIds, mGroupIndex));
+        }
     }
 
     boolean equalNumbers(String number1, String number2) {
@@ -361,14 +351,7 @@ public class DelCallLogAdapter extends GroupingListAdapter implements View.OnCli
      * @return The features.
      */
     private int getCallFeatures(Cursor cursor, int groupSize) {
-        int features = 0;
-        int position = cursor.getPosition();
-        for (int index = 0; index < groupSize; ++index) {
-            features |= cursor.getInt(CallLogQueryHandler.FEATURES);
-            cursor.moveToNext();
-        }
-        cursor.moveToPosition(position);
-        return features;
+        return mGroupIndex.getFeatures(cursor.getPosition(), groupSize);
     }
 
     /**
@@ -379,16 +362,7 @@ public class DelCallLogAdapter extends GroupingListAdapter implements View.OnCli
      * @return Array of call Ids.
      */
     public String[] getCallIds(final Cursor cursor, final int groupSize) {
-        // Restore the position in the cursor at the end.
-        int startingPosition = cursor.getPosition();
-        String[] ids = new String[groupSize];
-        // Copy the ids of the rows in the group.
-        for (int index = 0; index < groupSize; index++) {
-            ids[index] = String.valueOf(cursor.getInt(CallLogQueryHandler.ID));
-            cursor.moveToNext();
-        }
-        cursor.moveToPosition(startingPosition);
-        return ids;
+        return mGroupIndex.getCallIds(cursor.getPosition(), groupSize);
     }
 
     private Drawable getAccountIcon(Context context, PhoneAccountHandle accountHandle) {
@@ -428,14 +402,7 @@ public class DelCallLogAdapter extends GroupingListAdapter implements View.OnCli
      * @return
      */
     public int[] getCallTypes(PhoneCallDetails details, Cursor cursor, int count) {
-        int position = cursor.getPosition();
-        int[] callTypes = new int[count];
-        for (int index = 0; index < count; ++index) {
-            callTypes[index] = cursor.getInt(CallLogQueryHandler.CALL_TYPE);
-            cursor.moveToNext();
-        }
-        cursor.moveToPosition(position);
-        return callTypes;
+        return mGroupIndex.getCallTypes(cursor.getPosition(), count);
     }
 
     /**
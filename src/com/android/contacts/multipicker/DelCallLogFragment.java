@@ -33,8 +33,11 @@ import android.app.Activity;
 import android.app.ListFragment;
 import android.content.ContentResolver;
 import android.content.Context;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.os.Bundle;
+import android.os.Handler;
+import android.provider.CallLog.Calls;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -45,9 +48,15 @@ import com.android.contacts.R;
 import com.android.contacts.activities.MultiPickContactsActivity;
 import com.android.contacts.list.OnCheckListActionListener;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+
 public class DelCallLogFragment extends ListFragment
         implements CallLogQueryHandler.Listener, DelCallLogAdapter.CallFetcher {
 
+    /** Coalesces the change notifications of batch deletes. */
+    private static final long CALL_LOG_CHANGE_DELAY_MILLIS = 300;
+
     private OnCheckListActionListener mCheckListListener;
 
     private ContentResolver resolver;
@@ -56,6 +65,31 @@ public class DelCallLogFragment extends ListFragment
     private DelCallLogAdapter mDelCallLogAdapter;
     private Context mContext;
 
+    /**
+     * The date of the oldest call of the list, or 0 if the list has all calls. The calls after
+     * the list aren't checked for changes.
+     */
+    private long mOldestCallDate;
+
+    private final Handler mHandler = new Handler();
+    private final Runnable mCheckCallLogChanges = new Runnable() {
+        @Override
+        public void run() {
+            if (mDelCallLogAdapter.getGroupIndex().getCallCount() == 0) {
+                fetchCalls();
+            } else {
+                mCallLogQueryHandler.fetchCallIds(mOldestCallDate);
+            }
+        }
+    };
+    private final ContentObserver mCallLogObserver = new ContentObserver(mHandler) {
+        @Override
+        public void onChange(boolean selfChange) {
+            mHandler.removeCallbacks(mCheckCallLogChanges);
+            mHandler.postDelayed(mCheckCallLogChanges, CALL_LOG_CHANGE_DELAY_MILLIS);
+        }
+    };
+
     @Override
     public void fetchCalls() {
         mCallLogQueryHandler.fetchCalls(CallLogQueryHandler.QUERY_CALLLOG_TOKEN);
@@ -67,10 +101,78 @@ public class DelCallLogFragment extends ListFragment
             // Did not take the cursor
             return false;
         }
-        mDelCallLogAdapter.changeCursor(combinedCursor);
+        mOldestCallDate = 0;
+        if (combinedCursor.getCount() >= CallLogQueryHandler.NUM_LOGS_TO_DISPLAY
+                && combinedCursor.moveToLast()) {
+            mOldestCallDate = combinedCursor.getLong(CallLogQueryHandler.DATE);
+        }
+        mDelCallLogAdapter.changeCursor(CallLogRowsCursor.wrap(combinedCursor));
         return true;
     }
 
+    @Override
+    public void onCallIdsFetched(long[] callIds) {
+        if (getActivity() == null || getActivity().isFinishing()
+                || mDelCallLogAdapter.getCursor() == null) {
+            return;
+        }
+        Arrays.sort(callIds);
+        final long[] removedIds = mDelCallLogAdapter.getGroupIndex().getRemovedIds(callIds);
+        if (removedIds == null) {
+            // There are new calls.
+            fetchCalls();
+        } else if (removedIds.length > 0) {
+            final CallLogGroupIndex previous = mDelCallLogAdapter.getGroupIndex();
+            mDelCallLogAdapter.removeCalls(removedIds);
+            // Items are selected by the id of their first call.
+            for (long id : removedIds) {
+                mCheckListListener.onRemove(String.valueOf(id));
+            }
+            updateChangedSelections(previous);
+            mCheckListListener.onUpdateActionBar();
+        }
+    }
+
+    /**
+     * Updates the selections of the groups that were grouped differently after calls were
+     * removed. Such a group stays selected if all its calls were selected, with the id of its
+     * new first call as the key, and the selections of the groups it was made of are dropped.
+     */
+    private void updateChangedSelections(CallLogGroupIndex previous) {
+        final CallLogGroupIndex index = mDelCallLogAdapter.getGroupIndex();
+        final ArrayList<String> staleKeys = new ArrayList<String>();
+        final ArrayList<Integer> selectedGroups = new ArrayList<Integer>();
+        for (int group = 0; group < index.getGroupCount(); group++) {
+            if (index.hasSameCalls(group, previous)) {
+                continue;
+            }
+            final int start = index.getGroupStart(group);
+            boolean selected = true;
+            for (int position = start; position < start + index.getGroupSize(group);
+                    position++) {
+                final int previousPosition = previous.getPosition(index.getCallId(position));
+                final String key = String.valueOf(previous.getGroupFirstId(previousPosition));
+                if (mCheckListListener.onContainsKey(key)) {
+                    staleKeys.add(key);
+                } else {
+                    selected = false;
+                }
+            }
+            if (selected) {
+                selectedGroups.add(group);
+            }
+        }
+        // Drop the stale selections first, a new key may be the key of one of them.
+        for (String key : staleKeys) {
+            mCheckListListener.onRemove(key);
+        }
+        for (int group : selectedGroups) {
+            final int start = index.getGroupStart(group);
+            mCheckListListener.putValue(String.valueOf(index.getCallId(start)),
+                    index.getCallIds(start, index.getGroupSize(group)));
+        }
+    }
+
     @Override
     public void onAttach(Context context) {
         super.onAttach(context);
@@ -111,10 +213,13 @@ public class DelCallLogFragment extends ListFragment
         getListView().addHeaderView(view, null, false);
         setListAdapter(mDelCallLogAdapter);
         fetchCalls();
+        resolver.registerContentObserver(Calls.CONTENT_URI, true, mCallLogObserver);
     }
 
     @Override
     public void onDestroy() {
+        resolver.unregisterContentObserver(mCallLogObserver);
+        mHandler.removeCallbacks(mCheckCallLogChanges);
         if (mDelCallLogAdapter.getCursor() != null) {
             mDelCallLogAdapter.getCursor().close();
         }
@@ -159,34 +264,17 @@ public class DelCallLogFragment extends ListFragment
             return;
         }
 
-        String key;
-        String[] value;
-
-        if (isSelectedAll) {
-            for (int position = 0; position < count; position++) {
-                Cursor cursor = (Cursor) mDelCallLogAdapter.getItem(position);
-                if (cursor == null) {
-                    continue;
-                }
-                int groupSize = mDelCallLogAdapter.isGroupHeader(position)
-                        ? mDelCallLogAdapter.getGroupSize(position)
-                        : mDelCallLogAdapter.STAND_ALONE_ITEM_SIZE;
-
-                value = mDelCallLogAdapter.getCallIds(cursor, groupSize);
-                key = String.valueOf(cursor.getInt(CallLogQueryHandler.ID));
-
-                if (!mCheckListListener.onContainsKey(key)) {
-                    mCheckListListener.putValue(key, value);
-                }
-            }
-        } else {
-            for (int position = 0; position < count; position++) {
-                Cursor cursor = (Cursor) mDelCallLogAdapter.getItem(position);
-                if (cursor == null) {
-                    continue;
-                }
-                key = String.valueOf(cursor.getInt(CallLogQueryHandler.ID));
+        // Walk the groups of the index instead of positioning the cursor on each list item.
+        final CallLogGroupIndex index = mDelCallLogAdapter.getGroupIndex();
+        for (int group = 0; group < index.getGroupCount(); group++) {
+            final int start = index.getGroupStart(group);
+            // The key is the id of the first call of the group.
+            final String key = String.valueOf(index.getCallId(start));
+            if (!isSelectedAll) {
                 mCheckListListener.onRemove(key);
+            } else if (!mCheckListListener.onContainsKey(key)) {
+                mCheckListListener.putValue(key,
+                        index.getCallIds(start, index.getGroupSize(group)));
             }
         }
         mCheckListListener.onUpdateActionBar();
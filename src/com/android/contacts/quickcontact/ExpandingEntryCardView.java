@@ -24,6 +24,7 @@ import android.app.Activity;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
+import android.content.res.ColorStateList;
 import android.content.res.Resources;
 import android.content.SharedPreferences;
 import android.graphics.ColorFilter;
@@ -72,7 +73,10 @@ import com.android.contacts.common.dialog.CallSubjectDialog;
 import com.android.contacts.detail.ContactDisplayUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Display entries in a LinearLayout that can be expanded to show all entries.
@@ -88,6 +92,14 @@ public class ExpandingEntryCardView extends CardView {
     public static final int DURATION_COLLAPSE_ANIMATION_CHANGE_BOUNDS = 300;
     public static final int PRESENCE_AVAILABILITY_FETCH = 0;
 
+    /**
+     * Number of hidden entries inflated synchronously when the card expands. This is enough to
+     * fill the visible part of the expanded card.
+     */
+    private static final int EXPAND_EAGER_INFLATE_COUNT = 8;
+    /** Number of remaining entries inflated per frame after the card has expanded. */
+    private static final int EXPAND_INFLATE_BATCH_SIZE = 6;
+
     private static final String SHARE_FILE_NMAE = "video_callling_reminder";
     private boolean isSupportVideoCall = false;
     private boolean isEnable = false;
@@ -264,6 +276,27 @@ public class ExpandingEntryCardView extends CardView {
         public Bundle getThirdExtras() {
             return mThirdExtras;
         }
+
+        /**
+         * Returns a copy of this entry with its own drawables, which can be shown while this
+         * entry is shown somewhere else.
+         */
+        Entry copy(Resources res) {
+            return new Entry(mId, newDrawable(mIcon, res), mHeader, mSubHeader,
+                    newDrawable(mSubHeaderIcon, res), mText, newDrawable(mTextIcon, res),
+                    mPrimaryContentDescription, mIntent, newDrawable(mAlternateIcon, res),
+                    mAlternateIntent, mAlternateContentDescription, mShouldApplyColor,
+                    mIsEditable, mEntryContextMenuInfo, newDrawable(mThirdIcon, res),
+                    mThirdIntent, mThirdContentDescription, mThirdAction, mThirdExtras,
+                    mIconResourceId);
+        }
+
+        private static Drawable newDrawable(Drawable drawable, Resources res) {
+            if (drawable == null || drawable.getConstantState() == null) {
+                return drawable;
+            }
+            return drawable.getConstantState().newDrawable(res);
+        }
     }
 
     public interface ExpandingEntryCardViewListener {
@@ -291,6 +324,13 @@ public class ExpandingEntryCardView extends CardView {
     private int mNumEntries = 0;
     private boolean mAllEntriesInflated = false;
     private List<List<View>> mEntryViews;
+    /**
+     * Entry views released by a previous {@link #initialize} call. These are rebound before any
+     * new view is inflated, so refreshing the card's data does not inflate it all over again.
+     */
+    private final List<EntryView> mScrapEntryViews = new ArrayList<EntryView>();
+    private final TintedDrawableCache mTintedDrawableCache = new TintedDrawableCache();
+    private int mEntryHeaderColor;
     private LinearLayout mEntriesViewGroup;
     private final ImageView mExpandCollapseArrow;
     private int mThemeColor;
@@ -314,6 +354,24 @@ public class ExpandingEntryCardView extends CardView {
     private List<View> mSeparators;
     private LinearLayout mContainer;
 
+    /**
+     * Inflates the next batch of entries that were not inflated when the card expanded, and
+     * reschedules itself until every entry is in the card.
+     */
+    private final Runnable mInflateEntriesBatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!mIsExpanded || mAllEntriesInflated) {
+                return;
+            }
+            inflateEntries(LayoutInflater.from(getContext()), EXPAND_INFLATE_BATCH_SIZE);
+            insertEntriesIntoViewGroup();
+            if (!mAllEntriesInflated) {
+                postOnAnimation(this);
+            }
+        }
+    };
+
     private final OnClickListener mExpandCollapseButtonListener = new OnClickListener() {
         @Override
         public void onClick(View v) {
@@ -403,6 +461,8 @@ public class ExpandingEntryCardView extends CardView {
         mIsAlwaysExpanded = isAlwaysExpanded;
         // If isAlwaysExpanded is true, mIsExpanded should be true
         mIsExpanded |= mIsAlwaysExpanded;
+        removeCallbacks(mInflateEntriesBatchRunnable);
+        recycleEntryViews();
         mEntryViews = new ArrayList<List<View>>(entries.size());
         mEntries = entries;
         mNumEntries = 0;
@@ -423,15 +483,52 @@ public class ExpandingEntryCardView extends CardView {
         mListener = listener;
         mAnimationViewGroup = animationViewGroup;
 
+        // Icons of new views are tinted as they are bound, only the card chrome needs color here
+        applyColor();
         if (mIsExpanded) {
             updateExpandCollapseButton(getCollapseButtonText(), /* duration = */ 0);
-            inflateAllEntries(layoutInflater);
+            inflateEntries(layoutInflater, mCollapsedEntriesCount + EXPAND_EAGER_INFLATE_COUNT);
         } else {
             updateExpandCollapseButton(getExpandButtonText(), /* duration = */ 0);
             inflateInitialEntries(layoutInflater);
         }
         insertEntriesIntoViewGroup();
-        applyColor();
+        if (mIsExpanded && !mAllEntriesInflated) {
+            postOnAnimation(mInflateEntriesBatchRunnable);
+        }
+    }
+
+    /**
+     * Detaches the entry views of the current data set and keeps them for reuse by
+     * {@link #createEntryView}.
+     */
+    private void recycleEntryViews() {
+        mEntriesViewGroup.removeAllViews();
+        if (mEntryViews == null) {
+            return;
+        }
+        for (List<View> viewList : mEntryViews) {
+            for (View view : viewList) {
+                if (view instanceof EntryView) {
+                    mScrapEntryViews.add((EntryView) view);
+                }
+            }
+        }
+        mEntryViews = null;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mIsExpanded && mEntries != null && !mAllEntriesInflated) {
+            postOnAnimation(mInflateEntriesBatchRunnable);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(mInflateEntriesBatchRunnable);
     }
 
     /**
@@ -480,10 +577,29 @@ public class ExpandingEntryCardView extends CardView {
     }
 
     private void insertEntriesIntoViewGroup() {
-        mEntriesViewGroup.removeAllViews();
-
-        for (View view : getViewsToDisplay(mIsExpanded)) {
-            mEntriesViewGroup.addView(view);
+        final List<View> viewsToDisplay = getViewsToDisplay(mIsExpanded);
+
+        // Reconcile the children in place instead of removing and re-adding all of them. The
+        // collapsed views are a subsequence of the expanded ones, so after dropping the views that
+        // should no longer be shown the remaining children are already in order and only the
+        // missing ones need to be inserted.
+        final Set<View> viewsToKeep =
+                Collections.newSetFromMap(new IdentityHashMap<View, Boolean>());
+        viewsToKeep.addAll(viewsToDisplay);
+        for (int i = mEntriesViewGroup.getChildCount() - 1; i >= 0; i--) {
+            if (!viewsToKeep.contains(mEntriesViewGroup.getChildAt(i))) {
+                mEntriesViewGroup.removeViewAt(i);
+            }
+        }
+        for (int i = 0; i < viewsToDisplay.size(); i++) {
+            final View view = viewsToDisplay.get(i);
+            if (i < mEntriesViewGroup.getChildCount() && mEntriesViewGroup.getChildAt(i) == view) {
+                continue;
+            }
+            if (view.getParent() != null) {
+                ((ViewGroup) view.getParent()).removeView(view);
+            }
+            mEntriesViewGroup.addView(view, i);
         }
 
         removeView(mExpandCollapseButton);
@@ -502,6 +618,10 @@ public class ExpandingEntryCardView extends CardView {
         if (isExpanded) {
             for (int i = 0; i < mEntryViews.size(); i++) {
                 List<View> viewList = mEntryViews.get(i);
+                if (viewList.isEmpty()) {
+                    // Not inflated yet, see inflateEntries()
+                    break;
+                }
                 if (i > 0) {
                     View separator;
                     if (mSeparators.size() <= i - 1) {
@@ -515,6 +635,11 @@ public class ExpandingEntryCardView extends CardView {
                 for (View view : viewList) {
                     viewsToDisplay.add(view);
                 }
+                if (viewList.size() < mEntries.get(i).size()) {
+                    // Only show the entries that precede the first one still to be inflated, so
+                    // that the card grows downwards as the remaining entries are inflated.
+                    break;
+                }
             }
         } else {
             // We want to insert mCollapsedEntriesCount entries into the group. extraEntries is the
@@ -685,13 +810,25 @@ public class ExpandingEntryCardView extends CardView {
      * Inflates all entries.
      */
     private void inflateAllEntries(LayoutInflater layoutInflater) {
+        inflateEntries(layoutInflater, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Inflates up to {@code maxToInflate} of the entries that have not been inflated yet, in the
+     * order they are displayed when the card is expanded.
+     */
+    private void inflateEntries(LayoutInflater layoutInflater, int maxToInflate) {
         if (mAllEntriesInflated) {
             return;
         }
+        int numInflated = 0;
         for (int i = 0; i < mEntries.size(); i++) {
             List<Entry> entryList = mEntries.get(i);
             List<View> viewList = mEntryViews.get(i);
             for (int j = viewList.size(); j < entryList.size(); j++) {
+                if (numInflated >= maxToInflate) {
+                    return;
+                }
                 final int iconVisibility;
                 final Entry entry = entryList.get(j);
                 // If the entry does not have an icon, mark gone. Else if it has an icon, show
@@ -704,15 +841,20 @@ public class ExpandingEntryCardView extends CardView {
                     iconVisibility = View.INVISIBLE;
                 }
                 viewList.add(createEntryView(layoutInflater, entry, iconVisibility));
+                numInflated++;
             }
         }
         mAllEntriesInflated = true;
     }
 
     public void setColorAndFilter(int color, ColorFilter colorFilter) {
+        if (mThemeColor == color && mThemeColorFilter == colorFilter) {
+            return;
+        }
         mThemeColor = color;
         mThemeColorFilter = colorFilter;
         applyColor();
+        applyColorToEntryViews();
     }
 
     public void setEntryContactName(String name){
@@ -724,6 +866,7 @@ public class ExpandingEntryCardView extends CardView {
     }
 
     public void setEntryHeaderColor(int color) {
+        mEntryHeaderColor = color;
         if (mEntries != null) {
             for (List<View> entryList : mEntryViews) {
                 for (View entryView : entryList) {
@@ -740,66 +883,104 @@ public class ExpandingEntryCardView extends CardView {
      * The ColorFilter is passed in along with the color so that a new one only needs to be created
      * once for the entire activity.
      * 1. Title
-     * 2. Entry icons
-     * 3. Expand/Collapse Text
-     * 4. Expand/Collapse Button
+     * 2. Expand/Collapse Text
+     * 3. Expand/Collapse Button
+     *
+     * Entry icons are tinted when their view is bound, see {@link #getTintedDrawable}.
      */
     public void applyColor() {
         if (mThemeColor != 0 && mThemeColorFilter != null) {
+            mTintedDrawableCache.setColorFilter(mThemeColor, mThemeColorFilter);
+
             // Title
             if (mTitleTextView != null) {
                 mTitleTextView.setTextColor(mThemeColor);
             }
 
-            // Entry icons
-            if (mEntries != null) {
-                for (List<Entry> entryList : mEntries) {
-                    for (Entry entry : entryList) {
-                        if (entry.shouldApplyColor()) {
-                            Drawable icon = entry.getIcon();
-                            if (icon != null) {
-                                icon.mutate();
-                                icon.setColorFilter(mThemeColorFilter);
-                            }
-                        }
-                        Drawable alternateIcon = entry.getAlternateIcon();
-                        if (alternateIcon != null) {
-                            alternateIcon.mutate();
-                            alternateIcon.setColorFilter(mThemeColorFilter);
-                        }
-                        Drawable thirdIcon = entry.getThirdIcon();
-                        if (thirdIcon != null) {
-                            thirdIcon.mutate();
-                            thirdIcon.setColorFilter(mThemeColorFilter);
-                        }
-                    }
-                }
-            }
-
             // Expand/Collapse
             mExpandCollapseTextView.setTextColor(mThemeColor);
             mExpandCollapseArrow.setColorFilter(mThemeColorFilter);
         }
     }
 
+    /**
+     * Re-tints the icons of the entry views that have already been inflated, and the badges.
+     */
+    private void applyColorToEntryViews() {
+        if (mThemeColor == 0 || mThemeColorFilter == null || mEntryViews == null) {
+            return;
+        }
+        for (List<View> viewList : mEntryViews) {
+            for (View view : viewList) {
+                if (view instanceof EntryView) {
+                    bindEntryIcons((EntryView) view);
+                }
+            }
+        }
+        if (!mBadges.isEmpty()) {
+            mBadges.clear();
+            mBadgeIds.clear();
+            updateBadges();
+        }
+    }
+
+    /**
+     * Returns the drawable to display for {@code drawable}, tinted with the theme color if one
+     * has been set.
+     */
+    private Drawable getTintedDrawable(Drawable drawable, boolean shouldApplyColor) {
+        if (!shouldApplyColor || mThemeColor == 0 || mThemeColorFilter == null) {
+            return drawable;
+        }
+        return mTintedDrawableCache.getTinted(getResources(), drawable);
+    }
+
+    private void bindEntryIcons(EntryView view) {
+        final Entry entry = view.getEntry();
+        if (entry.getIcon() != null) {
+            view.mIcon.setImageDrawable(
+                    getTintedDrawable(entry.getIcon(), entry.shouldApplyColor()));
+        }
+        if (view.mAlternateIcon.getVisibility() == View.VISIBLE) {
+            view.mAlternateIcon.setImageDrawable(
+                    getTintedDrawable(entry.getAlternateIcon(), /* shouldApplyColor = */ true));
+        }
+        if (view.mThirdIcon.getVisibility() == View.VISIBLE) {
+            view.mThirdIcon.setImageDrawable(
+                    getTintedDrawable(entry.getThirdIcon(), /* shouldApplyColor = */ true));
+        }
+    }
+
+    /**
+     * Returns a recycled entry view reset to its inflated state, or inflates a new one.
+     */
+    private EntryView obtainEntryView(LayoutInflater layoutInflater) {
+        if (!mScrapEntryViews.isEmpty()) {
+            final EntryView view = mScrapEntryViews.remove(mScrapEntryViews.size() - 1);
+            view.resetForReuse();
+            return view;
+        }
+        return (EntryView) layoutInflater.inflate(R.layout.expanding_entry_card_item, this, false);
+    }
+
     private View createEntryView(LayoutInflater layoutInflater, final Entry entry,
             int iconVisibility) {
-        final EntryView view = (EntryView) layoutInflater.inflate(
-                R.layout.expanding_entry_card_item, this, false);
+        final EntryView view = obtainEntryView(layoutInflater);
 
+        view.setEntry(entry);
         view.setContextMenuInfo(entry.getEntryContextMenuInfo());
         if (!TextUtils.isEmpty(entry.getPrimaryContentDescription())) {
             view.setContentDescription(entry.getPrimaryContentDescription());
         }
 
-        final ImageView icon = (ImageView) view.findViewById(R.id.icon);
+        final ImageView icon = view.mIcon;
         icon.setVisibility(iconVisibility);
-        if (entry.getIcon() != null) {
-            icon.setImageDrawable(entry.getIcon());
-        }
 
-        final TextView home = (TextView) view.findViewById(R.id.home);
-        final TextView header = (TextView) view.findViewById(R.id.header);
+        final TextView home = view.mHome;
+        final TextView header = view.mHeader;
+        if (mEntryHeaderColor != 0) {
+            header.setTextColor(mEntryHeaderColor);
+        }
         String num = entry.getHeader();
         if (!TextUtils.isEmpty(num)) {
             header.setText(num);
@@ -808,28 +989,28 @@ public class ExpandingEntryCardView extends CardView {
             header.setVisibility(View.GONE);
         }
 
-        final TextView subHeader = (TextView) view.findViewById(R.id.sub_header);
+        final TextView subHeader = view.mSubHeader;
         if (!TextUtils.isEmpty(entry.getSubHeader())) {
             subHeader.setText(entry.getSubHeader());
         } else {
             subHeader.setVisibility(View.GONE);
         }
 
-        final ImageView subHeaderIcon = (ImageView) view.findViewById(R.id.icon_sub_header);
+        final ImageView subHeaderIcon = view.mSubHeaderIcon;
         if (entry.getSubHeaderIcon() != null) {
             subHeaderIcon.setImageDrawable(entry.getSubHeaderIcon());
         } else {
             subHeaderIcon.setVisibility(View.GONE);
         }
 
-        final TextView text = (TextView) view.findViewById(R.id.text);
+        final TextView text = view.mText;
         if (!TextUtils.isEmpty(entry.getText())) {
             text.setText(entry.getText());
         } else {
             text.setVisibility(View.GONE);
         }
 
-        final ImageView textIcon = (ImageView) view.findViewById(R.id.icon_text);
+        final ImageView textIcon = view.mTextIcon;
         if (entry.getTextIcon() != null) {
             textIcon.setImageDrawable(entry.getTextIcon());
         } else {
@@ -874,11 +1055,10 @@ public class ExpandingEntryCardView extends CardView {
                     view.getPaddingBottom());
         }
 
-        final ImageView alternateIcon = (ImageView) view.findViewById(R.id.icon_alternate);
-        final ImageView thirdIcon = (ImageView) view.findViewById(R.id.third_icon);
+        final ImageView alternateIcon = view.mAlternateIcon;
+        final ImageView thirdIcon = view.mThirdIcon;
 
         if (entry.getAlternateIcon() != null && entry.getAlternateIntent() != null) {
-            alternateIcon.setImageDrawable(entry.getAlternateIcon());
             alternateIcon.setOnClickListener(mOnClickListener);
             alternateIcon.setTag(new EntryTag(entry.getId(), entry.getAlternateIntent()));
             alternateIcon.setVisibility(View.VISIBLE);
@@ -909,7 +1089,6 @@ public class ExpandingEntryCardView extends CardView {
         }
         if (entry.getThirdIcon() != null && entry.getThirdAction() != Entry.ACTION_NONE
                 && (mEnablePresence ? showVTicon : true/*This true is used for the keep AOSP*/)) {
-            thirdIcon.setImageDrawable(entry.getThirdIcon());
             if (entry.getThirdAction() == Entry.ACTION_INTENT) {
                 thirdIcon.setOnClickListener(mOnClickListener);
                 thirdIcon.setTag(new EntryTag(entry.getId(), entry.getThirdIntent()));
@@ -933,6 +1112,7 @@ public class ExpandingEntryCardView extends CardView {
             thirdIcon.setVisibility(View.VISIBLE);
             thirdIcon.setContentDescription(entry.getThirdContentDescription());
         }
+        bindEntryIcons(view);
 
         // Set a custom touch listener for expanding the extra icon touch areas
         view.setOnTouchListener(new EntryTouchListener(view, alternateIcon, thirdIcon));
@@ -970,7 +1150,9 @@ public class ExpandingEntryCardView extends CardView {
             // Inflate badges if not yet created
             if (mBadges.size() < mEntries.size() - numberOfMimeTypesShown) {
                 for (int i = numberOfMimeTypesShown; i < mEntries.size(); i++) {
-                    Drawable badgeDrawable = mEntries.get(i).get(0).getIcon();
+                    final Entry badgeEntry = mEntries.get(i).get(0);
+                    Drawable badgeDrawable = getTintedDrawable(badgeEntry.getIcon(),
+                            badgeEntry.shouldApplyColor());
                     int badgeResourceId = mEntries.get(i).get(0).getIconResourceId();
                     // Do not add the same badge twice
                     if (badgeResourceId != 0 && mBadgeIds.contains(badgeResourceId)) {
@@ -1025,6 +1207,9 @@ public class ExpandingEntryCardView extends CardView {
             @Override
             public void onTransitionEnd(Transition transition) {
                 mListener.onExpandDone();
+                if (mIsExpanded && !mAllEntriesInflated) {
+                    postOnAnimation(mInflateEntriesBatchRunnable);
+                }
             }
 
             @Override
@@ -1043,14 +1228,19 @@ public class ExpandingEntryCardView extends CardView {
         TransitionManager.beginDelayedTransition(transitionViewContainer, transitionSet);
 
         mIsExpanded = true;
-        // In order to insert new entries, we may need to inflate them for the first time
-        inflateAllEntries(LayoutInflater.from(getContext()));
+        // In order to insert new entries, we may need to inflate them for the first time. Only
+        // the first few are inflated now, the rest follow in batches once the transition is done.
+        inflateEntries(LayoutInflater.from(getContext()), EXPAND_EAGER_INFLATE_COUNT);
         insertEntriesIntoViewGroup();
         updateExpandCollapseButton(getCollapseButtonText(),
                 DURATION_EXPAND_ANIMATION_CHANGE_BOUNDS);
     }
 
     private void collapse() {
+        // The collapsed card shows the head of every list, make sure the batches that were still
+        // pending when the card expanded have all been inflated.
+        removeCallbacks(mInflateEntriesBatchRunnable);
+        inflateAllEntries(LayoutInflater.from(getContext()));
         final List<View> views = calculateEntriesToRemoveDuringCollapse();
 
         // This animation requires layout changes, unlike the expand() animation: the action bar
@@ -1156,6 +1346,24 @@ public class ExpandingEntryCardView extends CardView {
 
     public static final class EntryView extends RelativeLayout {
         private EntryContextMenuInfo mEntryContextMenuInfo;
+        private Entry mEntry;
+
+        ImageView mIcon;
+        TextView mHeader;
+        TextView mHome;
+        TextView mSubHeader;
+        ImageView mSubHeaderIcon;
+        TextView mText;
+        ImageView mTextIcon;
+        ImageView mAlternateIcon;
+        ImageView mThirdIcon;
+
+        /** State of the freshly inflated view, restored by {@link #resetForReuse}. */
+        private Drawable mDefaultBackground;
+        private int mDefaultPaddingTop;
+        private int mDefaultHeaderTopMargin;
+        private int mDefaultHeaderBottomMargin;
+        private ColorStateList mDefaultHeaderTextColors;
 
         public EntryView(Context context) {
             super(context);
@@ -1165,6 +1373,85 @@ public class ExpandingEntryCardView extends CardView {
             super(context, attrs);
         }
 
+        @Override
+        protected void onFinishInflate() {
+            super.onFinishInflate();
+            mIcon = (ImageView) findViewById(R.id.icon);
+            mHeader = (TextView) findViewById(R.id.header);
+            mHome = (TextView) findViewById(R.id.home);
+            mSubHeader = (TextView) findViewById(R.id.sub_header);
+            mSubHeaderIcon = (ImageView) findViewById(R.id.icon_sub_header);
+            mText = (TextView) findViewById(R.id.text);
+            mTextIcon = (ImageView) findViewById(R.id.icon_text);
+            mAlternateIcon = (ImageView) findViewById(R.id.icon_alternate);
+            mThirdIcon = (ImageView) findViewById(R.id.third_icon);
+
+            mDefaultBackground = getBackground();
+            mDefaultPaddingTop = getPaddingTop();
+            final RelativeLayout.LayoutParams headerLayoutParams =
+                    (RelativeLayout.LayoutParams) mHeader.getLayoutParams();
+            mDefaultHeaderTopMargin = headerLayoutParams.topMargin;
+            mDefaultHeaderBottomMargin = headerLayoutParams.bottomMargin;
+            mDefaultHeaderTextColors = mHeader.getTextColors();
+        }
+
+        /**
+         * Undoes everything {@link ExpandingEntryCardView#createEntryView} may have changed, so
+         * the view can be bound to another entry.
+         */
+        void resetForReuse() {
+            mEntry = null;
+            mEntryContextMenuInfo = null;
+            setContentDescription(null);
+            setOnClickListener(null);
+            setClickable(false);
+            setOnTouchListener(null);
+            setOnCreateContextMenuListener(null);
+            setLongClickable(false);
+            setTag(null);
+            setBackground(mDefaultBackground);
+            setPaddingRelative(getPaddingStart(), mDefaultPaddingTop, getPaddingEnd(),
+                    getPaddingBottom());
+            setAlpha(1);
+
+            final ViewGroup.LayoutParams layoutParams = getLayoutParams();
+            if (layoutParams != null) {
+                layoutParams.height = LayoutParams.WRAP_CONTENT;
+            }
+            final RelativeLayout.LayoutParams headerLayoutParams =
+                    (RelativeLayout.LayoutParams) mHeader.getLayoutParams();
+            headerLayoutParams.topMargin = mDefaultHeaderTopMargin;
+            headerLayoutParams.bottomMargin = mDefaultHeaderBottomMargin;
+            mHeader.setLayoutParams(headerLayoutParams);
+            mHeader.setTextColor(mDefaultHeaderTextColors);
+
+            mIcon.setImageDrawable(null);
+            mHeader.setText(null);
+            mHome.setText(null);
+            mSubHeader.setText(null);
+            mSubHeaderIcon.setImageDrawable(null);
+            mText.setText(null);
+            mTextIcon.setImageDrawable(null);
+            for (View view : new View[] {mHeader, mSubHeader, mSubHeaderIcon, mText, mTextIcon}) {
+                view.setVisibility(View.VISIBLE);
+            }
+            for (ImageView icon : new ImageView[] {mAlternateIcon, mThirdIcon}) {
+                icon.setImageDrawable(null);
+                icon.setOnClickListener(null);
+                icon.setTag(null);
+                icon.setContentDescription(null);
+                icon.setVisibility(View.GONE);
+            }
+        }
+
+        void setEntry(Entry entry) {
+            mEntry = entry;
+        }
+
+        Entry getEntry() {
+            return mEntry;
+        }
+
         public void setContextMenuInfo(EntryContextMenuInfo info) {
             mEntryContextMenuInfo = info;
         }
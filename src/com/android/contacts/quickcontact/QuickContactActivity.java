@@ -24,16 +24,19 @@ import android.app.Fragment;
 import android.app.LoaderManager.LoaderCallbacks;
 import android.app.SearchManager;
 import android.content.ActivityNotFoundException;
+import android.content.BroadcastReceiver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.Loader;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.content.res.ColorStateList;
 import android.content.res.Configuration;
 import android.content.res.Resources;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
@@ -73,6 +76,7 @@ import android.provider.ContactsContract.DataUsageFeedback;
 import android.provider.ContactsContract.Intents;
 import android.provider.ContactsContract.QuickContact;
 import android.provider.ContactsContract.RawContacts;
+import android.provider.ContactsContract.StatusUpdates;
 import android.support.v4.content.ContextCompat;
 import android.support.v7.graphics.Palette;
 import android.support.v7.widget.CardView;
@@ -86,6 +90,7 @@ import android.text.TextUtils;
 import android.telephony.TelephonyManager;
 import android.telephony.SubscriptionManager;
 import android.util.Log;
+import android.util.LruCache;
 import android.view.ContextMenu;
 import android.view.ContextMenu.ContextMenuInfo;
 import android.view.LayoutInflater;
@@ -261,6 +266,8 @@ public class QuickContactActivity extends ContactsActivity
      * instead of referencing this URI.
      */
     private Uri mLookupUri;
+    /** Shares {@link #mLookupUri} over NFC. Null if NFC isn't available. */
+    private NfcHandler mNfcHandler;
     private String[] mExcludeMimes;
     private int mExtraMode;
     private String mExtraPrioritizedMimeType;
@@ -304,6 +311,14 @@ public class QuickContactActivity extends ContactsActivity
      * The last copy of Cp2DataCardModel that was passed to {@link #populateContactAndAboutCard}.
      */
     private Cp2DataCardModel mCachedCp2DataCardModel;
+    /**
+     * Models built for recently shown contacts, by lookup key. They outlive the activity, so that
+     * reopening a contact, or flicking between recent contacts, doesn't rebuild them.
+     */
+    private static final LruCache<String, VersionedCp2DataCardModel> sCp2DataCardModelCache =
+            new LruCache<>(MAX_CACHED_CP2_DATA_CARD_MODELS);
+    /** Whether the cache is cleared on the changes its versions don't capture. */
+    private static boolean sCp2DataCardModelCacheWatched;
     /**
      *  This scrim's opacity is controlled in two different ways. 1) Before the initial entrance
      *  animation finishes, the opacity is animated by a value animator. This is designed to
@@ -371,6 +386,7 @@ public class QuickContactActivity extends ContactsActivity
             QuickContactActivity.class.getCanonicalName() + ".KEY_LOADER_EXTRA_EMAILS";
     private static final int MAX_PAST_CALENDAR_RETRIEVE = 3;
     private static final int MAX_FUTURE_CALENDAR_RETRIEVE = 3;
+    private static final int MAX_CACHED_CP2_DATA_CARD_MODELS = 8;
     private static final long PAST_MILLISECOND_TO_SEARCH_LOCAL_CALENDAR =
             1L * 24L * 60L * 60L * 1000L /* 1 day */;
     private static final long FUTURE_MILLISECOND_TO_SEARCH_LOCAL_CALENDAR =
@@ -955,6 +971,7 @@ public class QuickContactActivity extends ContactsActivity
         }
 
         tm = (TelephonyManager) getSystemService(Context.TELEPHONY_SERVICE);
+        watchCp2DataCardModelCache(getApplicationContext());
 
         processIntent(getIntent());
 
@@ -1220,7 +1237,7 @@ public class QuickContactActivity extends ContactsActivity
         }
         mContactLoader.forceLoad();
 
-        NfcHandler.register(this, mLookupUri);
+        mNfcHandler = NfcHandler.register(this, mLookupUri);
     }
 
     private void destroyInteractionLoaders() {
@@ -1280,6 +1297,10 @@ public class QuickContactActivity extends ContactsActivity
         Trace.beginSection("bindContactData");
         mContactData = data;
         invalidateOptionsMenu();
+        if (mNfcHandler != null) {
+            // The vCard has to be built again if the contact changed.
+            mNfcHandler.prebuild(getVCardVersion(data));
+        }
 
         Trace.endSection();
         Trace.beginSection("Set display photo & name");
@@ -1302,6 +1323,23 @@ public class QuickContactActivity extends ContactsActivity
         mContactCard.setEntryContactName(displayName);
         Trace.endSection();
 
+        if (mEntriesAndActionsTask != null) {
+            mEntriesAndActionsTask.cancel(/* mayInterruptIfRunning = */ false);
+            mEntriesAndActionsTask = null;
+        }
+
+        // The model only depends on the data of the contact, which can't have changed if the
+        // versions of its raw contacts and data rows haven't.
+        final String lookupKey = data.getLookupKey();
+        final String version = getCp2DataCardModelVersion(data);
+        final VersionedCp2DataCardModel cached = lookupKey == null ? null
+                : sCp2DataCardModelCache.get(lookupKey);
+        if (cached != null && cached.version.equals(version)) {
+            bindDataToCards(cached.model.copy(getResources()));
+            showActivity();
+            return;
+        }
+
         mEntriesAndActionsTask = new AsyncTask<Void, Void, Cp2DataCardModel>() {
 
             @Override
@@ -1313,11 +1351,16 @@ public class QuickContactActivity extends ContactsActivity
             @Override
             protected void onPostExecute(Cp2DataCardModel cardDataModel) {
                 super.onPostExecute(cardDataModel);
+                if (lookupKey != null) {
+                    sCp2DataCardModelCache.put(lookupKey,
+                            new VersionedCp2DataCardModel(version, cardDataModel));
+                }
                 // Check that original AsyncTask parameters are still valid and the activity
                 // is still running before binding to UI. A new intent could invalidate
                 // the results, for example.
                 if (data == mContactData && !isCancelled()) {
-                    bindDataToCards(cardDataModel);
+                    // Binding adds entries to the model, keep the cached one untouched.
+                    bindDataToCards(cardDataModel.copy(getResources()));
                     showActivity();
                 }
             }
@@ -1325,6 +1368,85 @@ public class QuickContactActivity extends ContactsActivity
         mEntriesAndActionsTask.execute();
     }
 
+    /**
+     * Returns a string that changes whenever a {@link Cp2DataCardModel} built for {@code data}
+     * could be different: when a raw contact or data row is added, removed or updated, when the
+     * usage stats or presence of the data change, when the calling features change, or when the
+     * excluded mimetypes or the configuration change. The other inputs of the model clear the
+     * cache, see {@link #watchCp2DataCardModelCache}.
+     */
+    private String getCp2DataCardModelVersion(Contact data) {
+        final Configuration config = getResources().getConfiguration();
+        final StringBuilder version = new StringBuilder();
+        version.append(data.getId()).append('|')
+                .append(config.locale).append(':').append(config.densityDpi)
+                .append(':').append(config.fontScale).append('|')
+                .append(Arrays.toString(mExcludeMimes)).append('|')
+                .append(CallUtil.getVideoCallingAvailability(this)).append(':')
+                .append(CallUtil.isCallWithSubjectSupported(this)).append(':')
+                .append(mEnablePresence);
+        for (RawContact rawContact : data.getRawContacts()) {
+            version.append('|').append(rawContact.getId()).append(':')
+                    .append(rawContact.getValues().getAsLong(RawContacts.VERSION));
+            for (DataItem dataItem : rawContact.getDataItems()) {
+                final ContentValues values = dataItem.getContentValues();
+                version.append(',').append(dataItem.getId())
+                        .append(':').append(values.getAsLong(Data.DATA_VERSION))
+                        .append(':').append(values.getAsLong(Data.TIMES_USED))
+                        .append(':').append(values.getAsLong(Data.LAST_TIME_USED))
+                        .append(':').append(values.getAsInteger(Data.CARRIER_PRESENCE))
+                        .append(':').append(values.getAsInteger(Data.CHAT_CAPABILITY))
+                        .append(':').append(values.getAsInteger(Data.PRESENCE))
+                        .append(':').append(values.getAsLong(Data.STATUS_TIMESTAMP));
+            }
+        }
+        return version.toString();
+    }
+
+    /**
+     * Returns a string that changes whenever the vCard of {@code data} could change: when its
+     * lookup URI changes, or when a raw contact is added, removed or updated.
+     */
+    private static String getVCardVersion(Contact data) {
+        final StringBuilder version = new StringBuilder();
+        version.append(data.getLookupUri());
+        for (RawContact rawContact : data.getRawContacts()) {
+            version.append('|').append(rawContact.getId()).append(':')
+                    .append(rawContact.getValues().getAsLong(RawContacts.VERSION));
+        }
+        return version.toString();
+    }
+
+    /**
+     * Clears {@link #sCp2DataCardModelCache} when packages change, which changes the actions
+     * resolved for third party mimetypes, and when status updates change, which don't change
+     * the data versions.
+     */
+    private static synchronized void watchCp2DataCardModelCache(Context appContext) {
+        if (sCp2DataCardModelCacheWatched) {
+            return;
+        }
+        sCp2DataCardModelCacheWatched = true;
+        final IntentFilter filter = new IntentFilter(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addDataScheme("package");
+        appContext.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                sCp2DataCardModelCache.evictAll();
+            }
+        }, filter);
+        appContext.getContentResolver().registerContentObserver(StatusUpdates.CONTENT_URI,
+                false, new ContentObserver(null) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        sCp2DataCardModelCache.evictAll();
+                    }
+                });
+    }
+
     private void bindDataToCards(Cp2DataCardModel cp2DataCardModel) {
         startInteractionLoaders(cp2DataCardModel);
         populateContactAndAboutCard(cp2DataCardModel, /* shouldAddPhoneticName */ true);
@@ -1756,6 +1878,42 @@ public class QuickContactActivity extends ContactsActivity
         public List<List<Entry>> aboutCardEntries;
         public List<List<Entry>> contactCardEntries;
         public String customAboutCardName;
+
+        /**
+         * Returns a copy whose lists of entries can be changed, e.g. by
+         * {@link #populateContactAndAboutCard}, without affecting this model. The entries of
+         * the copy have their own drawables, which are never shared between activities.
+         */
+        public Cp2DataCardModel copy(Resources res) {
+            final Cp2DataCardModel copy = new Cp2DataCardModel();
+            copy.dataItemsMap = dataItemsMap;
+            copy.aboutCardEntries = copyEntries(aboutCardEntries, res);
+            copy.contactCardEntries = copyEntries(contactCardEntries, res);
+            copy.customAboutCardName = customAboutCardName;
+            return copy;
+        }
+
+        private static List<List<Entry>> copyEntries(List<List<Entry>> entries, Resources res) {
+            final List<List<Entry>> copy = new ArrayList<>(entries.size());
+            for (List<Entry> group : entries) {
+                final List<Entry> groupCopy = new ArrayList<>(group.size());
+                for (Entry entry : group) {
+                    groupCopy.add(entry.copy(res));
+                }
+                copy.add(groupCopy);
+            }
+            return copy;
+        }
+    }
+
+    private static class VersionedCp2DataCardModel {
+        public final String version;
+        public final Cp2DataCardModel model;
+
+        public VersionedCp2DataCardModel(String version, Cp2DataCardModel model) {
+            this.version = version;
+            this.model = model;
+        }
     }
 
     private static class MutableString {
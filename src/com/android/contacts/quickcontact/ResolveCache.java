@@ -17,6 +17,8 @@
 package com.android.contacts.quickcontact;
 
 import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.ContentUris;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
@@ -24,20 +26,30 @@ import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.AsyncTask;
 import android.provider.ContactsContract.CommonDataKinds.SipAddress;
+import android.provider.ContactsContract.Data;
 import android.text.TextUtils;
+import android.util.LruCache;
 
 import com.android.contacts.util.PhoneCapabilityTester;
 import com.google.common.collect.Sets;
 
-import java.lang.ref.SoftReference;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Internally hold a cache of scaled icons based on {@link PackageManager}
- * queries, keyed internally on MIME-type.
+ * queries, keyed internally on MIME-type, action, data scheme and target package of the
+ * intent.
+ *
+ * Entries are only dropped for the packages that are installed, changed or removed, and icons
+ * are kept in a bounded cache of their own.
  */
 public class ResolveCache {
     /**
@@ -61,6 +73,8 @@ public class ResolveCache {
             "com.google.android.browser",
             "com.android.browser");
 
+    private static final int MAX_ICONS = 32;
+
     private final Context mContext;
     private final PackageManager mPackageManager;
 
@@ -86,54 +100,90 @@ public class ResolveCache {
         return sInstance;
     }
 
-    private synchronized static void flush() {
-        sInstance = null;
-    }
-
     /**
-     * Called anytime a package is installed, uninstalled etc, so that we can wipe our cache
+     * Called anytime a package is installed, uninstalled etc, so that we can drop the entries
+     * it may affect.
      */
     private BroadcastReceiver mPackageIntentReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
-            flush();
+            final Uri data = intent.getData();
+            final String packageName = data == null ? null : data.getSchemeSpecificPart();
+            if (TextUtils.isEmpty(packageName)) {
+                clear();
+                return;
+            }
+            removeEntriesOfPackage(packageName);
+            if (!Intent.ACTION_PACKAGE_REMOVED.equals(intent.getAction())) {
+                // The package may now handle intents it didn't before. Checking it requires
+                // package manager queries, which don't belong on the main thread.
+                AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        removeEntriesHandledBy(packageName);
+                    }
+                });
+            }
         }
     };
 
     /**
      * Cached entry holding the best {@link ResolveInfo} for a specific
-     * MIME-type, along with a {@link SoftReference} to its icon.
+     * MIME-type and intent, along with the key of its icon in {@link #mIcons}.
      */
     private static class Entry {
+        /** Intent the entry was resolved for, null if it can't be resolved. */
+        public Intent intent;
         public ResolveInfo bestResolve;
-        public Drawable icon;
+        public String iconKey;
+        /** Packages of all the activities that matched {@link #intent}. */
+        public HashSet<String> packageNames = new HashSet<String>();
     }
 
-    private HashMap<String, Entry> mCache = new HashMap<String, Entry>();
-
+    /** Guarded by this. */
+    private final HashMap<String, Entry> mCache = new HashMap<String, Entry>();
+    private final LruCache<String, Drawable> mIcons = new LruCache<String, Drawable>(MAX_ICONS);
 
     private ResolveCache(Context context) {
         mContext = context;
         mPackageManager = context.getPackageManager();
     }
 
+    private static String getKey(String mimeType, Intent intent) {
+        if (intent == null) {
+            return mimeType;
+        }
+        String packageName = intent.getPackage();
+        if (packageName == null && intent.getComponent() != null) {
+            packageName = intent.getComponent().getPackageName();
+        }
+        return mimeType + '|' + intent.getAction() + '|' + intent.getScheme() + '|'
+                + packageName;
+    }
+
     /**
      * Get the {@link Entry} best associated with the given mimetype and intent,
      * or create and populate a new one if it doesn't exist.
      */
     protected Entry getEntry(String mimeType, Intent intent) {
-        Entry entry = mCache.get(mimeType);
-        if (entry != null) return entry;
-        entry = new Entry();
-
         if (SipAddress.CONTENT_ITEM_TYPE.equals(mimeType)
                 && !PhoneCapabilityTester.isSipPhone(mContext)) {
             intent = null;
         }
+        final String key = getKey(mimeType, intent);
+        synchronized (this) {
+            final Entry entry = mCache.get(key);
+            if (entry != null) return entry;
+        }
 
+        final Entry entry = new Entry();
         if (intent != null) {
+            entry.intent = new Intent(intent);
             final List<ResolveInfo> matches = mPackageManager.queryIntentActivities(intent,
                     PackageManager.MATCH_DEFAULT_ONLY);
+            for (ResolveInfo match : matches) {
+                entry.packageNames.add(match.activityInfo.packageName);
+            }
 
             // Pick first match, otherwise best found
             ResolveInfo bestResolve = null;
@@ -145,14 +195,18 @@ public class ResolveCache {
             }
 
             if (bestResolve != null) {
-                final Drawable icon = bestResolve.loadIcon(mPackageManager);
-
                 entry.bestResolve = bestResolve;
-                entry.icon = icon;
+                entry.iconKey = new ComponentName(bestResolve.activityInfo.packageName,
+                        bestResolve.activityInfo.name).flattenToShortString();
+                if (mIcons.get(entry.iconKey) == null) {
+                    mIcons.put(entry.iconKey, bestResolve.loadIcon(mPackageManager));
+                }
             }
         }
 
-        mCache.put(mimeType, entry);
+        synchronized (this) {
+            mCache.put(key, entry);
+        }
         return entry;
     }
 
@@ -207,10 +261,77 @@ public class ResolveCache {
      * {@link PackageManager} query.
      */
     public Drawable getIcon(String mimeType, Intent intent) {
-        return getEntry(mimeType, intent).icon;
+        final Entry entry = getEntry(mimeType, intent);
+        if (entry.bestResolve == null) {
+            return null;
+        }
+        Drawable icon = mIcons.get(entry.iconKey);
+        if (icon == null) {
+            icon = entry.bestResolve.loadIcon(mPackageManager);
+            mIcons.put(entry.iconKey, icon);
+        }
+        return icon;
     }
 
-    public void clear() {
+    /**
+     * Resolves the intents QuickContact uses to view data items of {@code mimeTypes}, so that
+     * showing them doesn't have to. Must not be called on the main thread.
+     */
+    public void prewarm(List<String> mimeTypes) {
+        for (String mimeType : mimeTypes) {
+            // Only the type and the scheme of the data matter for resolving.
+            final Intent intent = new Intent(Intent.ACTION_VIEW);
+            intent.setDataAndType(ContentUris.withAppendedId(Data.CONTENT_URI, 1), mimeType);
+            getEntry(mimeType, intent);
+        }
+    }
+
+    public synchronized void clear() {
         mCache.clear();
+        mIcons.evictAll();
+    }
+
+    /**
+     * Drops the entries that resolved to {@code packageName} or that it could handle.
+     */
+    private void removeEntriesOfPackage(String packageName) {
+        synchronized (this) {
+            final Iterator<Entry> entries = mCache.values().iterator();
+            while (entries.hasNext()) {
+                if (entries.next().packageNames.contains(packageName)) {
+                    entries.remove();
+                }
+            }
+        }
+        final Map<String, Drawable> icons = mIcons.snapshot();
+        for (String iconKey : icons.keySet()) {
+            if (iconKey.startsWith(packageName + "/")) {
+                mIcons.remove(iconKey);
+            }
+        }
+    }
+
+    /**
+     * Drops the entries whose intent {@code packageName} can now handle.
+     */
+    private void removeEntriesHandledBy(String packageName) {
+        final List<Map.Entry<String, Entry>> entries;
+        synchronized (this) {
+            entries = new ArrayList<Map.Entry<String, Entry>>(mCache.entrySet());
+        }
+        for (Map.Entry<String, Entry> entry : entries) {
+            final Intent intent = entry.getValue().intent;
+            if (intent == null || (intent.getPackage() != null
+                    && !intent.getPackage().equals(packageName))) {
+                continue;
+            }
+            final Intent packageIntent = new Intent(intent).setPackage(packageName);
+            if (!mPackageManager.queryIntentActivities(packageIntent,
+                    PackageManager.MATCH_DEFAULT_ONLY).isEmpty()) {
+                synchronized (this) {
+                    mCache.remove(entry.getKey());
+                }
+            }
+        }
     }
 }
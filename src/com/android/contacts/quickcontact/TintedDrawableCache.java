@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.contacts.quickcontact;
+
+import android.content.res.Resources;
+import android.graphics.ColorFilter;
+import android.graphics.drawable.Drawable;
+import android.util.ArrayMap;
+import android.util.SparseArray;
+
+/**
+ * Cache of color filtered entry icons, keyed by theme color and by the
+ * {@link Drawable.ConstantState} of the source icon.
+ *
+ * Entries of the same kind (e.g. every phone number of a contact) share a single constant state,
+ * so only one mutated and tinted copy is made per icon and color. Callers get a fresh drawable
+ * backed by that tinted state, which avoids mutating and re-tinting every entry's drawable each
+ * time a card is themed.
+ */
+final class TintedDrawableCache {
+
+    /** Theme colors rarely change for a card, so only a handful of them are retained. */
+    private static final int MAX_CACHED_COLORS = 2;
+
+    private final SparseArray<ArrayMap<Drawable.ConstantState, Drawable>> mTintedByColor =
+            new SparseArray<>(MAX_CACHED_COLORS);
+
+    private int mColor;
+    private ColorFilter mColorFilter;
+
+    /**
+     * Sets the color and filter used by subsequent calls to {@link #getTinted}.
+     */
+    public void setColorFilter(int color, ColorFilter colorFilter) {
+        if (mColorFilter != colorFilter) {
+            // A new filter instance for an already cached color makes the old copies stale.
+            mTintedByColor.remove(color);
+        }
+        mColor = color;
+        mColorFilter = colorFilter;
+    }
+
+    /**
+     * Returns a drawable that draws {@code source} with the current color filter, or
+     * {@code source} itself if no filter has been set.
+     */
+    public Drawable getTinted(Resources res, Drawable source) {
+        if (source == null || mColorFilter == null) {
+            return source;
+        }
+        final Drawable.ConstantState state = source.getConstantState();
+        if (state == null) {
+            // Cannot be shared, fall back to tinting the drawable in place.
+            source.mutate();
+            source.setColorFilter(mColorFilter);
+            return source;
+        }
+
+        ArrayMap<Drawable.ConstantState, Drawable> tintedDrawables = mTintedByColor.get(mColor);
+        if (tintedDrawables == null) {
+            if (mTintedByColor.size() >= MAX_CACHED_COLORS) {
+                mTintedByColor.clear();
+            }
+            tintedDrawables = new ArrayMap<>();
+            mTintedByColor.put(mColor, tintedDrawables);
+        }
+
+        Drawable tinted = tintedDrawables.get(state);
+        if (tinted == null) {
+            tinted = state.newDrawable(res).mutate();
+            tinted.setColorFilter(mColorFilter);
+            tintedDrawables.put(state, tinted);
+        }
+
+        // Hand out a new drawable backed by the tinted state, since a drawable instance can only
+        // be attached to one view. Setting the filter again is a no-op for drawables that keep it
+        // in their shared state, and required for those that keep it per instance.
+        final Drawable.ConstantState tintedState = tinted.getConstantState();
+        if (tintedState == null) {
+            return tinted;
+        }
+        final Drawable copy = tintedState.newDrawable(res);
+        copy.setColorFilter(mColorFilter);
+        return copy;
+    }
+
+    public void clear() {
+        mTintedByColor.clear();
+    }
+}
@@ -20,11 +20,18 @@ package com.android.contacts.util;
 import android.content.ClipData;
 import android.content.Context;
 import android.content.Intent;
+import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Environment;
+import android.provider.ContactsContract.DisplayPhoto;
 import android.provider.MediaStore;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructStat;
 import android.support.v4.content.FileProvider;
 import android.util.Log;
 
@@ -33,10 +40,12 @@ import com.google.common.io.Closeables;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
@@ -50,6 +59,27 @@ public class ContactPhotoUtils {
 
     private static final String PHOTO_DATE_FORMAT = "'IMG'_yyyyMMdd_HHmmss";
 
+    /** Used when the provider doesn't report the maximum dimension of display photos. */
+    private static final int DEFAULT_MAX_DISPLAY_PHOTO_DIM = 720;
+
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+    private static final int INITIAL_COMPRESS_BUFFER_SIZE = 64 * 1024;
+
+    /** Compress buffers that grew larger than this aren't kept for the next photo. */
+    private static final int MAX_POOLED_COMPRESS_BUFFER_SIZE = 512 * 1024;
+
+    private static volatile int sMaxDisplayPhotoDim;
+
+    private static final ThreadLocal<byte[]> sCopyBuffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[COPY_BUFFER_SIZE];
+        }
+    };
+
+    private static final ThreadLocal<ReusableByteArrayOutputStream> sCompressBuffer =
+            new ThreadLocal<>();
+
     /**
      * Generate a new, unique file to be used as an out-of-band communication
      * channel, since hi-res Bitmaps are too big to serialize into a Bundle.
@@ -90,16 +120,99 @@ public class ContactPhotoUtils {
     }
 
     /**
-     * Given a uri pointing to a bitmap, reads it into a bitmap and returns it.
+     * Returns the maximum width and height of the display photos stored by the provider. The
+     * value is only queried once per process.
+     */
+    public static int getMaxDisplayPhotoDim(Context context) {
+        int maxDim = sMaxDisplayPhotoDim;
+        if (maxDim != 0) {
+            return maxDim;
+        }
+        final Cursor c = context.getContentResolver().query(
+                DisplayPhoto.CONTENT_MAX_DIMENSIONS_URI,
+                new String[]{DisplayPhoto.DISPLAY_MAX_DIM}, null, null, null);
+        if (c != null) {
+            try {
+                if (c.moveToFirst()) {
+                    maxDim = c.getInt(0);
+                }
+            } finally {
+                c.close();
+            }
+        }
+        if (maxDim <= 0) {
+            return DEFAULT_MAX_DISPLAY_PHOTO_DIM;
+        }
+        sMaxDisplayPhotoDim = maxDim;
+        return maxDim;
+    }
+
+    /**
+     * Given a uri pointing to a bitmap, reads it into a bitmap and returns it. The bitmap is
+     * downsampled so that it is not much larger than a display photo. The display photo size is
+     * not queried here, the size loaded by {@link #getMaxDisplayPhotoDim} or a default is used.
      * @throws FileNotFoundException
      */
     public static Bitmap getBitmapFromUri(Context context, Uri uri) throws FileNotFoundException {
+        final int maxDim = sMaxDisplayPhotoDim;
+        return getBitmapFromUri(context, uri,
+                maxDim != 0 ? maxDim : DEFAULT_MAX_DISPLAY_PHOTO_DIM);
+    }
+
+    /**
+     * Returns whether the uri points to an image with a width and a height, only decoding its
+     * bounds.
+     * @throws FileNotFoundException
+     */
+    public static boolean isValidImage(Context context, Uri uri) throws FileNotFoundException {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
         final InputStream imageStream = context.getContentResolver().openInputStream(uri);
         try {
-            return BitmapFactory.decodeStream(imageStream);
+            BitmapFactory.decodeStream(imageStream, null, options);
+        } finally {
+            Closeables.closeQuietly(imageStream);
+        }
+        return options.outWidth > 0 && options.outHeight > 0;
+    }
+
+    /**
+     * Given a uri pointing to a bitmap, reads it into a bitmap and returns it. The image is
+     * downsampled by a power of two while both of its dimensions stay at least {@param minDim},
+     * so that decoding takes memory in proportion to {@param minDim} rather than to the size of
+     * the image.
+     * @throws FileNotFoundException
+     */
+    public static Bitmap getBitmapFromUri(Context context, Uri uri, int minDim)
+            throws FileNotFoundException {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        InputStream imageStream = context.getContentResolver().openInputStream(uri);
+        try {
+            BitmapFactory.decodeStream(imageStream, null, options);
         } finally {
             Closeables.closeQuietly(imageStream);
         }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = getSampleSize(options.outWidth, options.outHeight, minDim);
+        imageStream = context.getContentResolver().openInputStream(uri);
+        try {
+            return BitmapFactory.decodeStream(imageStream, null, options);
+        } finally {
+            Closeables.closeQuietly(imageStream);
+        }
+    }
+
+    private static int getSampleSize(int width, int height, int minDim) {
+        int sampleSize = 1;
+        if (width <= 0 || height <= 0 || minDim <= 0) {
+            return sampleSize;
+        }
+        while (width / (sampleSize * 2) >= minDim && height / (sampleSize * 2) >= minDim) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
     }
 
     /**
@@ -107,16 +220,43 @@ public class ContactPhotoUtils {
      * something goes wrong.
      */
     public static byte[] compressBitmap(Bitmap bitmap) {
-        final int size = bitmap.getWidth() * bitmap.getHeight() * 4;
-        final ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        return compressBitmap(bitmap, Bitmap.CompressFormat.PNG, 100);
+    }
+
+    /**
+     * Creates a byte[] containing the bitmap compressed in {@param format}, or null if
+     * something goes wrong. The buffer that the bitmap is compressed into is reused by the
+     * next call on the same thread.
+     */
+    public static byte[] compressBitmap(Bitmap bitmap, Bitmap.CompressFormat format,
+            int quality) {
+        ReusableByteArrayOutputStream out = sCompressBuffer.get();
+        if (out == null) {
+            out = new ReusableByteArrayOutputStream(INITIAL_COMPRESS_BUFFER_SIZE);
+        }
         try {
-            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
-            out.flush();
-            out.close();
+            if (!bitmap.compress(format, quality, out)) {
+                Log.w(TAG, "Unable to serialize photo");
+                return null;
+            }
             return out.toByteArray();
-        } catch (IOException e) {
-            Log.w(TAG, "Unable to serialize photo: " + e.toString());
-            return null;
+        } finally {
+            if (out.capacity() <= MAX_POOLED_COMPRESS_BUFFER_SIZE) {
+                out.reset();
+                sCompressBuffer.set(out);
+            } else {
+                sCompressBuffer.remove();
+            }
+        }
+    }
+
+    private static class ReusableByteArrayOutputStream extends ByteArrayOutputStream {
+        ReusableByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        int capacity() {
+            return buf.length;
         }
     }
 
@@ -153,14 +293,25 @@ public class ContactPhotoUtils {
         }
         try (FileOutputStream outputStream = context.getContentResolver()
                  .openAssetFileDescriptor(outputUri, "rw").createOutputStream();
-             InputStream inputStream = context.getContentResolver().openInputStream(inputUri)) {
-
-            final byte[] buffer = new byte[16 * 1024];
-            int length;
-            int totalLength = 0;
-            while ((length = inputStream.read(buffer)) > 0) {
-                outputStream.write(buffer, 0, length);
-                totalLength += length;
+             AssetFileDescriptor input = context.getContentResolver()
+                 .openAssetFileDescriptor(inputUri, "r")) {
+
+            long totalLength = -1;
+            if (isWholeRegularFile(input)) {
+                // Let the kernel copy regular files, without going through a java buffer.
+                totalLength = transfer(input, outputStream.getChannel());
+            }
+            if (totalLength < 0) {
+                // Pipes, ranges of files and files whose transfer failed.
+                totalLength = 0;
+                try (InputStream inputStream = input.createInputStream()) {
+                    final byte[] buffer = sCopyBuffer.get();
+                    int length;
+                    while ((length = inputStream.read(buffer)) > 0) {
+                        outputStream.write(buffer, 0, length);
+                        totalLength += length;
+                    }
+                }
             }
             Log.v(TAG, "Wrote " + totalLength + " bytes for photo " + inputUri.toString());
         } catch (IOException | NullPointerException e) {
@@ -173,4 +324,61 @@ public class ContactPhotoUtils {
         }
         return true;
     }
+
+    /**
+     * Returns whether {@param afd} is a regular file, from its first to its last byte. Pipes
+     * and ranges of files, such as assets, must be read through their stream.
+     */
+    private static boolean isWholeRegularFile(AssetFileDescriptor afd) {
+        if (afd.getStartOffset() != 0) {
+            return false;
+        }
+        try {
+            final StructStat stat = Os.fstat(afd.getFileDescriptor());
+            return OsConstants.S_ISREG(stat.st_mode)
+                    && (afd.getDeclaredLength() == AssetFileDescriptor.UNKNOWN_LENGTH
+                            || afd.getDeclaredLength() == stat.st_size);
+        } catch (ErrnoException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Copies the whole file of {@param in} to {@param out} with the file channels. Returns the
+     * number of bytes copied, or -1 if the channels failed, in which case {@param out} is left
+     * as it was, ready for another copy.
+     */
+    private static long transfer(AssetFileDescriptor in, FileChannel out) throws IOException {
+        final FileChannel inChannel = new FileInputStream(in.getFileDescriptor()).getChannel();
+        final long outStart = out.position();
+        try {
+            return transfer(inChannel, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Falling back to a buffered copy: " + e);
+            out.truncate(outStart);
+            out.position(outStart);
+            inChannel.position(0);
+            return -1;
+        }
+    }
+
+    /**
+     * Copies the content of {@param in}, from its current position to its end, to {@param out}.
+     * Returns the number of bytes copied. {@param in} is left positioned after the last byte
+     * copied.
+     */
+    private static long transfer(FileChannel in, FileChannel out) throws IOException {
+        final long start = in.position();
+        final long size = in.size();
+        long position = start;
+        while (position < size) {
+            final long transferred = in.transferTo(position, size - position, out);
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+        }
+        in.position(position);
+        return position - start;
+    }
 }
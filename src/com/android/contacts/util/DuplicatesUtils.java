@@ -163,7 +163,10 @@ public class DuplicatesUtils {
                     new String[]{account.name, account.type});
             if (map != null && map.size() > 0) {
                 ArrayList<ContactsInfo> lst1;
-                Iterator<String> iterator = map.keySet().iterator();
+                // Offer the duplicates in the order of the contact list.
+                final List<String> names = new ArrayList<>(map.keySet());
+                PhonebookCollatorFactory.sortNames(names);
+                Iterator<String> iterator = names.iterator();
                 while (mSearchState && iterator.hasNext()) {
                     List<String> mergePhoneList = new ArrayList();
                     List<String> mergeEmailList = new ArrayList();
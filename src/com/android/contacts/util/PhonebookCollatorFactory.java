@@ -16,15 +16,180 @@
 
 package com.android.contacts.util;
 
+import android.os.AsyncTask;
+
+import java.text.CollationKey;
 import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * Returns the collator that can be used to sort contact list entries. This
  * collator is the same as the one that is used in sqlite.
+ *
+ * The collator is created once per locale, and created again when the default locale changes.
+ * To sort many names, use {@link #sortByName}, which computes the collation key of each name
+ * once, on several threads for long lists.
  */
 public final class PhonebookCollatorFactory {
+    /** Lists at least this long have their collation keys computed in parallel. */
+    private static final int PARALLEL_THRESHOLD = 2000;
+    private static final int MAX_THREADS = 4;
+
+    /** Guarded by the class. The locale of {@link #sCollator}. */
+    private static Locale sLocale;
+    /** Guarded by the class. Only cloned, since collators aren't thread safe. */
+    private static Collator sCollator;
+
+    /**
+     * Returns the name of an item to sort.
+     */
+    public interface NameGetter<T> {
+        String getName(T item);
+    }
+
+    private static final NameGetter<String> IDENTITY = new NameGetter<String>() {
+        @Override
+        public String getName(String item) {
+            return item;
+        }
+    };
+
+    private static final class Entry<T> implements Comparable<Entry<T>> {
+        final T item;
+        final CollationKey key;
+
+        Entry(T item, CollationKey key) {
+            this.item = item;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Entry<T> another) {
+            return key.compareTo(another.key);
+        }
+    }
+
+    private PhonebookCollatorFactory() {
+    }
+
+    /**
+     * Returns a collator for the default locale, which the caller may use and modify on its
+     * thread.
+     */
     public static final Collator getCollator() {
-        return Collator.getInstance(Locale.getDefault());
+        final Locale locale = Locale.getDefault();
+        synchronized (PhonebookCollatorFactory.class) {
+            if (sCollator == null || !locale.equals(sLocale)) {
+                sCollator = Collator.getInstance(locale);
+                sLocale = locale;
+            }
+            return (Collator) sCollator.clone();
+        }
+    }
+
+    /**
+     * Sorts names in the order of {@link #getCollator}. Null names sort first.
+     */
+    public static void sortNames(List<String> names) {
+        sortByName(names, IDENTITY);
+    }
+
+    /**
+     * Sorts {@param items} by the names returned by {@param nameGetter}, in the order of
+     * {@link #getCollator}. Items with equal names keep their relative order, and null names sort
+     * first.
+     */
+    public static <T> void sortByName(List<T> items, NameGetter<T> nameGetter) {
+        final int count = items.size();
+        if (count < 2) {
+            return;
+        }
+        final Object[] entries = items.toArray();
+        final int threads = count < PARALLEL_THRESHOLD ? 1
+                : Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors());
+        final int chunkSize = (count + threads - 1) / threads;
+
+        // The first chunk is done on this thread, the others on the pool.
+        final List<FutureTask<Void>> tasks = new ArrayList<>(threads - 1);
+        for (int start = chunkSize; start < count; start += chunkSize) {
+            final FutureTask<Void> task = new FutureTask<>(
+                    new KeyTask<T>(entries, start, Math.min(count, start + chunkSize), nameGetter));
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(task);
+            tasks.add(task);
+        }
+        new KeyTask<T>(entries, 0, Math.min(count, chunkSize), nameGetter).call();
+        for (FutureTask<Void> task : tasks) {
+            // Does the chunk here if the pool didn't start it yet.
+            task.run();
+            waitFor(task);
+        }
+
+        // Stable, so items with the same key keep their order.
+        Arrays.sort(entries);
+        for (int i = 0; i < count; i++) {
+            @SuppressWarnings("unchecked")
+            final Entry<T> entry = (Entry<T>) entries[i];
+            items.set(i, entry.item);
+        }
+    }
+
+    private static void waitFor(FutureTask<Void> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    task.get();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Replaces the items in {@code entries[start..end)} with entries holding their collation
+     * keys.
+     */
+    private static final class KeyTask<T> implements Callable<Void> {
+        private final Object[] mEntries;
+        private final int mStart;
+        private final int mEnd;
+        private final NameGetter<T> mNameGetter;
+
+        KeyTask(Object[] entries, int start, int end, NameGetter<T> nameGetter) {
+            mEntries = entries;
+            mStart = start;
+            mEnd = end;
+            mNameGetter = nameGetter;
+        }
+
+        @Override
+        public Void call() {
+            final Collator collator = getCollator();
+            for (int i = mStart; i < mEnd; i++) {
+                @SuppressWarnings("unchecked")
+                final T item = (T) mEntries[i];
+                final String name = mNameGetter.getName(item);
+                mEntries[i] = new Entry<>(item, collator.getCollationKey(name == null ? "" : name));
+            }
+            return null;
+        }
     }
 }
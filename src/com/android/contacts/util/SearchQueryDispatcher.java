@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.util;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+
+/**
+ * Delivers the queries typed in a search box to a {@link Listener}, once the user pauses typing.
+ *
+ * Every query handed to the listener restarts the list loaders and directory searches, and
+ * restarting a loader cancels its previous query. Without this, a fast typist starts and
+ * cancels a provider query for every keystroke.
+ *
+ * The delay adapts to the typing speed: it is a bit longer than the recent interval between
+ * keystrokes, between {@link #MIN_DELAY_MILLIS} and {@link #MAX_DELAY_MILLIS}. Clearing the
+ * query is delivered right away.
+ *
+ * Must be used on the main thread.
+ */
+public class SearchQueryDispatcher {
+    private static final String TAG = "SearchQueryDispatcher";
+
+    private static final long MIN_DELAY_MILLIS = 50;
+    private static final long MAX_DELAY_MILLIS = 300;
+
+    /** Used until the typing speed is known. */
+    private static final long INITIAL_INTERVAL_MILLIS = 150;
+
+    /**
+     * Receives the queries.
+     */
+    public interface Listener {
+        void onQueryChanged(String query);
+    }
+
+    private final Handler mHandler = new Handler();
+    private final Listener mListener;
+
+    private final Runnable mDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatch();
+        }
+    };
+
+    private String mPendingQuery;
+    private boolean mHasPendingQuery;
+    private long mLastKeystrokeTime;
+    /** Smoothed interval between recent keystrokes. */
+    private long mTypingIntervalMillis = INITIAL_INTERVAL_MILLIS;
+
+    private int mRequestedCount;
+    private int mDispatchedCount;
+
+    public SearchQueryDispatcher(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Schedules the delivery of {@param query}, which replaces the one that is still pending.
+     */
+    public void setQuery(String query) {
+        mRequestedCount++;
+        final long now = SystemClock.elapsedRealtime();
+        final long interval = now - mLastKeystrokeTime;
+        mLastKeystrokeTime = now;
+        if (interval < 2 * MAX_DELAY_MILLIS) {
+            // Only count keystrokes of the same burst of typing.
+            mTypingIntervalMillis = (3 * mTypingIntervalMillis + interval) / 4;
+        }
+
+        mPendingQuery = query;
+        mHasPendingQuery = true;
+        mHandler.removeCallbacks(mDispatchRunnable);
+        if (TextUtils.isEmpty(query)) {
+            dispatch();
+        } else {
+            mHandler.postDelayed(mDispatchRunnable, getDelayMillis());
+        }
+    }
+
+    /**
+     * Delivers the pending query now, e.g. when the user submits the search.
+     */
+    public void flush() {
+        mHandler.removeCallbacks(mDispatchRunnable);
+        dispatch();
+    }
+
+    /**
+     * Drops the pending query, e.g. when leaving the search or destroying the activity.
+     */
+    public void cancel() {
+        mHandler.removeCallbacks(mDispatchRunnable);
+        mPendingQuery = null;
+        mHasPendingQuery = false;
+    }
+
+    /** Returns the number of queries typed. */
+    public int getRequestedCount() {
+        return mRequestedCount;
+    }
+
+    /** Returns the number of queries delivered to the listener. */
+    public int getDispatchedCount() {
+        return mDispatchedCount;
+    }
+
+    private long getDelayMillis() {
+        return Math.max(MIN_DELAY_MILLIS,
+                Math.min(MAX_DELAY_MILLIS, mTypingIntervalMillis * 3 / 2));
+    }
+
+    private void dispatch() {
+        if (!mHasPendingQuery) {
+            return;
+        }
+        final String query = mPendingQuery;
+        mPendingQuery = null;
+        mHasPendingQuery = false;
+        mDispatchedCount++;
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            Log.v(TAG, "Dispatched " + mDispatchedCount + " of " + mRequestedCount
+                    + " queries, delay " + getDelayMillis() + "ms");
+        }
+        mListener.onQueryChanged(query);
+    }
+}
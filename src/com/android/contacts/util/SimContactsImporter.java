@@ -0,0 +1,353 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.util;
+
+import android.accounts.Account;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.provider.ContactsContract;
+import android.provider.ContactsContract.CommonDataKinds.Email;
+import android.provider.ContactsContract.CommonDataKinds.Phone;
+import android.provider.ContactsContract.CommonDataKinds.StructuredName;
+import android.provider.ContactsContract.Data;
+import android.provider.ContactsContract.RawContacts;
+import android.telephony.PhoneNumberUtils;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.android.contacts.common.SimContactsConstants;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports SIM contacts into an account on the phone.
+ *
+ * Contacts whose name and number already exist in the account, or that were imported earlier by
+ * the same importer, are skipped. The others are inserted in batches of at most
+ * {@link #MAX_OPERATIONS_PER_BATCH} operations, with aggregation suspended, and aggregated in one
+ * pass by {@link #finish()}.
+ *
+ * Must be used on a worker thread.
+ */
+public class SimContactsImporter {
+    private static final String TAG = "SimContactsImporter";
+
+    private static final int MAX_OPERATIONS_PER_BATCH = 400;
+
+    /** Number of raw contacts whose aggregation mode is restored per update. */
+    private static final int AGGREGATION_CHUNK_SIZE = 400;
+
+    private static final String[] EXISTING_PROJECTION = new String[] {
+            Data.RAW_CONTACT_ID,
+            Data.MIMETYPE,
+            Data.DATA1,
+    };
+
+    /**
+     * Counts of a finished import.
+     */
+    public static class Result {
+        /** Contacts written to the provider, the contacts of failed batches aren't counted. */
+        public final int imported;
+        public final int skipped;
+        public final long elapsedMillis;
+
+        Result(int imported, int skipped, long elapsedMillis) {
+            this.imported = imported;
+            this.skipped = skipped;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /** Returns the number of contacts handled per second. */
+        public long getRate() {
+            final int count = imported + skipped;
+            return elapsedMillis > 0 ? count * 1000L / elapsedMillis : count;
+        }
+
+        @Override
+        public String toString() {
+            return "imported " + imported + ", skipped " + skipped + " in " + elapsedMillis
+                    + "ms (" + getRate() + "/s)";
+        }
+    }
+
+    private final ContentResolver mResolver;
+    private final Account mAccount;
+
+    /** Names and numbers of the contacts in the account, see {@link #getKey}. */
+    private Set<String> mExistingKeys;
+
+    private final ArrayList<ContentProviderOperation> mOperations = new ArrayList<>();
+    /**
+     * Keys of the contacts in {@link #mOperations}, by the index of their raw contact insert. They
+     * are added to {@link #mExistingKeys} once the contact is written.
+     */
+    private final Map<Integer, String> mQueuedKeys = new HashMap<>();
+    private final Set<String> mQueuedKeySet = new HashSet<>();
+    private final List<Long> mRawContactIds = new ArrayList<>();
+    private final long mStartTime = SystemClock.elapsedRealtime();
+    private int mImported;
+    private int mSkipped;
+
+    public SimContactsImporter(ContentResolver resolver, Account account) {
+        mResolver = resolver;
+        mAccount = account;
+    }
+
+    /**
+     * Imports a contact read from the SIM card, unless it already exists in the account.
+     *
+     * @param emails addresses separated by commas, as stored on the SIM card
+     * @param anrs additional numbers separated by {@link SimContactsConstants#ANR_SEP}
+     * @return false if the contact was skipped, true if its insertion was queued.
+     */
+    public boolean importContact(String name, String number, String emails, String anrs) {
+        if (mExistingKeys == null) {
+            mExistingKeys = queryExistingKeys();
+        }
+        final String key = getKey(name, number);
+        if (key != null && (mExistingKeys.contains(key) || mQueuedKeySet.contains(key))) {
+            mSkipped++;
+            return false;
+        }
+
+        final int opCount = 1 + (TextUtils.isEmpty(name) ? 0 : 1)
+                + (TextUtils.isEmpty(number) ? 0 : 1)
+                + (TextUtils.isEmpty(emails) ? 0 : emails.split(",").length)
+                + (TextUtils.isEmpty(anrs) ? 0 : anrs.split(SimContactsConstants.ANR_SEP).length);
+        if (mOperations.size() + opCount > MAX_OPERATIONS_PER_BATCH) {
+            flush();
+        }
+        if (key != null) {
+            mQueuedKeys.put(mOperations.size(), key);
+            mQueuedKeySet.add(key);
+        }
+        buildInsertOperations(name, number, emails, anrs);
+        return true;
+    }
+
+    /**
+     * Applies the remaining operations and lets the provider aggregate the imported contacts.
+     */
+    public Result finish() {
+        flush();
+        restoreAggregation();
+        final Result result = new Result(mImported, mSkipped,
+                SystemClock.elapsedRealtime() - mStartTime);
+        Log.d(TAG, "SIM import to " + mAccount + ": " + result);
+        return result;
+    }
+
+    private void buildInsertOperations(String name, String number, String emails,
+            String anrs) {
+        final int backReference = mOperations.size();
+        ContentProviderOperation.Builder builder =
+                ContentProviderOperation.newInsert(RawContacts.CONTENT_URI);
+        builder.withValue(RawContacts.AGGREGATION_MODE, RawContacts.AGGREGATION_MODE_SUSPENDED);
+        if (mAccount != null) {
+            builder.withValue(RawContacts.ACCOUNT_NAME, mAccount.name);
+            builder.withValue(RawContacts.ACCOUNT_TYPE, mAccount.type);
+        }
+        // Other writers may go ahead between contacts, never within one.
+        builder.withYieldAllowed(true);
+        mOperations.add(builder.build());
+
+        if (!TextUtils.isEmpty(name)) {
+            builder = ContentProviderOperation.newInsert(Data.CONTENT_URI);
+            builder.withValueBackReference(StructuredName.RAW_CONTACT_ID, backReference);
+            builder.withValue(Data.MIMETYPE, StructuredName.CONTENT_ITEM_TYPE);
+            builder.withValue(StructuredName.DISPLAY_NAME, name);
+            mOperations.add(builder.build());
+        }
+
+        if (!TextUtils.isEmpty(number)) {
+            builder = ContentProviderOperation.newInsert(Data.CONTENT_URI);
+            builder.withValueBackReference(Phone.RAW_CONTACT_ID, backReference);
+            builder.withValue(Data.MIMETYPE, Phone.CONTENT_ITEM_TYPE);
+            builder.withValue(Phone.TYPE, Phone.TYPE_MOBILE);
+            builder.withValue(Phone.NUMBER, number);
+            builder.withValue(Data.IS_PRIMARY, 1);
+            mOperations.add(builder.build());
+        }
+
+        if (!TextUtils.isEmpty(anrs)) {
+            for (String anr : anrs.split(SimContactsConstants.ANR_SEP)) {
+                builder = ContentProviderOperation.newInsert(Data.CONTENT_URI);
+                builder.withValueBackReference(Phone.RAW_CONTACT_ID, backReference);
+                builder.withValue(Data.MIMETYPE, Phone.CONTENT_ITEM_TYPE);
+                builder.withValue(Phone.TYPE, Phone.TYPE_HOME);
+                builder.withValue(Phone.NUMBER, anr);
+                mOperations.add(builder.build());
+            }
+        }
+
+        if (!TextUtils.isEmpty(emails)) {
+            for (String email : emails.split(",")) {
+                builder = ContentProviderOperation.newInsert(Data.CONTENT_URI);
+                builder.withValueBackReference(Email.RAW_CONTACT_ID, backReference);
+                builder.withValue(Data.MIMETYPE, Email.CONTENT_ITEM_TYPE);
+                builder.withValue(Email.TYPE, Email.TYPE_MOBILE);
+                builder.withValue(Email.ADDRESS, email);
+                mOperations.add(builder.build());
+            }
+        }
+    }
+
+    private void flush() {
+        if (mOperations.isEmpty()) {
+            return;
+        }
+        try {
+            final ContentProviderResult[] results =
+                    mResolver.applyBatch(ContactsContract.AUTHORITY, mOperations);
+            // Count the contacts from the results, since a failed batch writes none of them.
+            for (int i = 0; i < results.length; i++) {
+                if (results[i].uri != null
+                        && RawContacts.CONTENT_URI.equals(mOperations.get(i).getUri())) {
+                    mRawContactIds.add(ContentUris.parseId(results[i].uri));
+                    mImported++;
+                    final String key = mQueuedKeys.get(i);
+                    if (key != null) {
+                        mExistingKeys.add(key);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, String.format("%s: %s", e.toString(), e.getMessage()));
+        } finally {
+            // The keys of a failed batch are dropped, so its contacts can be imported again.
+            mOperations.clear();
+            mQueuedKeys.clear();
+            mQueuedKeySet.clear();
+        }
+    }
+
+    /**
+     * Sets the aggregation mode of the imported raw contacts back to the default, which makes
+     * the provider aggregate them.
+     */
+    private void restoreAggregation() {
+        final ContentValues values = new ContentValues(1);
+        values.put(RawContacts.AGGREGATION_MODE, RawContacts.AGGREGATION_MODE_DEFAULT);
+        for (int start = 0; start < mRawContactIds.size(); start += AGGREGATION_CHUNK_SIZE) {
+            final int end = Math.min(mRawContactIds.size(), start + AGGREGATION_CHUNK_SIZE);
+            final StringBuilder selection = new StringBuilder(RawContacts._ID).append(" IN (");
+            for (int i = start; i < end; i++) {
+                if (i > start) {
+                    selection.append(',');
+                }
+                selection.append(mRawContactIds.get(i));
+            }
+            selection.append(')');
+            try {
+                mResolver.update(RawContacts.CONTENT_URI, values, selection.toString(), null);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Failed to aggregate imported contacts", e);
+            }
+        }
+        mRawContactIds.clear();
+    }
+
+    /**
+     * Reads the names and numbers of the contacts in the account, with one query.
+     */
+    private Set<String> queryExistingKeys() {
+        final Set<String> keys = new HashSet<>();
+        if (mAccount == null) {
+            return keys;
+        }
+        final Map<Long, String> names = new HashMap<>();
+        final Map<Long, List<String>> numbers = new HashMap<>();
+        final Cursor cursor = mResolver.query(Data.CONTENT_URI, EXISTING_PROJECTION,
+                RawContacts.ACCOUNT_NAME + "=? AND " + RawContacts.ACCOUNT_TYPE + "=? AND "
+                        + Data.MIMETYPE + " IN (?,?)",
+                new String[] {
+                        mAccount.name, mAccount.type,
+                        StructuredName.CONTENT_ITEM_TYPE, Phone.CONTENT_ITEM_TYPE
+                }, null);
+        if (cursor == null) {
+            return keys;
+        }
+        try {
+            while (cursor.moveToNext()) {
+                final long rawContactId = cursor.getLong(0);
+                if (StructuredName.CONTENT_ITEM_TYPE.equals(cursor.getString(1))) {
+                    names.put(rawContactId, cursor.getString(2));
+                } else {
+                    List<String> rawContactNumbers = numbers.get(rawContactId);
+                    if (rawContactNumbers == null) {
+                        rawContactNumbers = new ArrayList<>(1);
+                        numbers.put(rawContactId, rawContactNumbers);
+                    }
+                    rawContactNumbers.add(cursor.getString(2));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        for (Map.Entry<Long, String> entry : names.entrySet()) {
+            final List<String> rawContactNumbers = numbers.remove(entry.getKey());
+            addKeys(keys, entry.getValue(), rawContactNumbers);
+        }
+        // Raw contacts without a name.
+        for (List<String> rawContactNumbers : numbers.values()) {
+            addKeys(keys, null, rawContactNumbers);
+        }
+        return keys;
+    }
+
+    private static void addKeys(Set<String> keys, String name, List<String> numbers) {
+        if (numbers == null) {
+            final String key = getKey(name, null);
+            if (key != null) {
+                keys.add(key);
+            }
+            return;
+        }
+        for (String number : numbers) {
+            final String key = getKey(name, number);
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the key that identifies a contact with the given name and number, or null if both
+     * are empty.
+     */
+    private static String getKey(String name, String number) {
+        final String normalizedName = name == null ? "" : name.trim();
+        final String normalizedNumber =
+                TextUtils.isEmpty(number) ? "" : PhoneNumberUtils.normalizeNumber(number);
+        if (normalizedName.isEmpty() && normalizedNumber.isEmpty()) {
+            return null;
+        }
+        return normalizedName + '\n' + normalizedNumber;
+    }
+}
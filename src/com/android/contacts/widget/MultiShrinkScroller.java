@@ -18,13 +18,16 @@ import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorMatrix;
+import android.graphics.ColorFilter;
 import android.graphics.ColorMatrixColorFilter;
 import android.graphics.drawable.GradientDrawable;
 import android.hardware.display.DisplayManager;
+import android.os.SystemClock;
 import android.os.Trace;
 import android.support.v4.view.ViewCompat;
 import android.support.v4.view.animation.PathInterpolatorCompat;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.util.TypedValue;
 import android.view.Display;
 import android.view.Gravity;
@@ -94,6 +97,12 @@ public class MultiShrinkScroller extends FrameLayout {
      */
     private static final float DESIRED_INTERMEDIATE_LETTER_TILE_ALPHA = 0.8f;
 
+    /**
+     * Maximum number of photo color filters kept in {@link #mPhotoColorFilters}. A filter is
+     * cached per toolbar height, so this covers the whole range of most headers.
+     */
+    private static final int MAX_CACHED_PHOTO_COLOR_FILTERS = 512;
+
     private float[] mLastEventPosition = { 0, 0 };
     private VelocityTracker mVelocityTracker;
     private boolean mIsBeingDragged = false;
@@ -182,6 +191,31 @@ public class MultiShrinkScroller extends FrameLayout {
             0, 0, 0, 1, 0
     };
 
+    /**
+     * Photo color filters by toolbar height, since the filter only depends on the height once the
+     * tint color, the kind of photo and the header height range are known. Avoids allocating a
+     * filter on every frame.
+     */
+    private final SparseArray<ColorFilter> mPhotoColorFilters = new SparseArray<>();
+    private int mPhotoColorFiltersTint;
+    private boolean mPhotoColorFiltersForLetterTile;
+    private int mPhotoColorFiltersMinimumHeight;
+    private int mPhotoColorFiltersMaximumHeight;
+
+    // Stored as fields to avoid allocations when the title padding is recalculated.
+    private final int[] mInvisiblePlaceholderLocation = new int[2];
+    private final int[] mToolbarLocation = new int[2];
+
+    /**
+     * If true, the title follows the header by translation instead of by margins, so that
+     * scrolling doesn't need to lay it out again. The margins are only set once, as a baseline.
+     * The toolbar and the transparent view above it still change height by layout.
+     */
+    private boolean mIsTitleTranslationEnabled = true;
+    private boolean mHasTitleBaseline;
+
+    private FrameTimeListener mFrameTimeListener;
+
     private final Interpolator mTextSizePathInterpolator =
             PathInterpolatorCompat.create(0.16f, 0.4f, 0.2f, 1);
 
@@ -191,6 +225,17 @@ public class MultiShrinkScroller extends FrameLayout {
     private GradientDrawable mActionBarGradientDrawable = new GradientDrawable(
             GradientDrawable.Orientation.BOTTOM_TOP, mGradientColors);
 
+    /**
+     * Instrumentation hook called after each scroll update of the header.
+     */
+    public interface FrameTimeListener {
+        /**
+         * @param updateNanos time spent updating the header and the scroll position
+         * @param layoutRequested whether the update will cause a layout pass
+         */
+        void onScrollFrameUpdated(long updateNanos, boolean layoutRequested);
+    }
+
     public interface MultiShrinkScrollerListener {
         void onScrolledOffBottom();
 
@@ -393,6 +438,8 @@ public class MultiShrinkScroller extends FrameLayout {
                 }
 
                 calculateCollapsedLargeTitlePadding();
+                // Lay the title out once more now that the header has its final size.
+                mHasTitleBaseline = false;
                 updateHeaderTextSizeAndMargin();
                 configureGradientViewHeights();
             }
@@ -736,8 +783,25 @@ public class MultiShrinkScroller extends FrameLayout {
         animator.start();
     }
 
+    /**
+     * Sets a listener timing the scroll updates, or null.
+     */
+    public void setFrameTimeListener(FrameTimeListener listener) {
+        mFrameTimeListener = listener;
+    }
+
+    /**
+     * Sets whether the title follows the header by translation (the default) or by margins.
+     */
+    public void setTitleTranslationEnabled(boolean enabled) {
+        mIsTitleTranslationEnabled = enabled;
+        mHasTitleBaseline = false;
+        updateHeaderTextSizeAndMargin();
+    }
+
     @Override
     public void scrollTo(int x, int y) {
+        final long startTime = mFrameTimeListener != null ? SystemClock.elapsedRealtimeNanos() : 0;
         final int delta = y - getScroll();
         boolean wasFullscreen = getScrollNeededToBeFullScreen() <= 0;
         if (delta > 0) {
@@ -760,6 +824,10 @@ public class MultiShrinkScroller extends FrameLayout {
                         getTransparentHeightRatio(getTransparentViewHeight()));
             }
         }
+        if (mFrameTimeListener != null) {
+            mFrameTimeListener.onScrollFrameUpdated(
+                    SystemClock.elapsedRealtimeNanos() - startTime, isLayoutRequested());
+        }
     }
 
     /**
@@ -972,15 +1040,18 @@ public class MultiShrinkScroller extends FrameLayout {
     }
 
     private void setTransparentViewHeight(int height) {
-        mTransparentView.getLayoutParams().height = height;
-        mTransparentView.setLayoutParams(mTransparentView.getLayoutParams());
+        final ViewGroup.LayoutParams layoutParams = mTransparentView.getLayoutParams();
+        if (layoutParams.height == height) {
+            return;
+        }
+        layoutParams.height = height;
+        mTransparentView.setLayoutParams(layoutParams);
     }
 
     private void scrollUp(int delta) {
         if (getTransparentViewHeight() != 0) {
             final int originalValue = getTransparentViewHeight();
-            setTransparentViewHeight(getTransparentViewHeight() - delta);
-            setTransparentViewHeight(Math.max(0, getTransparentViewHeight()));
+            setTransparentViewHeight(Math.max(0, originalValue - delta));
             delta -= originalValue - getTransparentViewHeight();
         }
         final ViewGroup.LayoutParams toolbarLayoutParams
@@ -990,7 +1061,9 @@ public class MultiShrinkScroller extends FrameLayout {
             toolbarLayoutParams.height -= delta;
             toolbarLayoutParams.height = Math.max(toolbarLayoutParams.height,
                     getFullyCompressedHeaderHeight());
-            mToolbar.setLayoutParams(toolbarLayoutParams);
+            if (toolbarLayoutParams.height != originalValue) {
+                mToolbar.setLayoutParams(toolbarLayoutParams);
+            }
             delta -= originalValue - toolbarLayoutParams.height;
         }
         mScrollView.scrollBy(0, delta);
@@ -1025,7 +1098,9 @@ public class MultiShrinkScroller extends FrameLayout {
             toolbarLayoutParams.height -= delta;
             toolbarLayoutParams.height = Math.min(toolbarLayoutParams.height,
                     getMaximumScrollableHeaderHeight());
-            mToolbar.setLayoutParams(toolbarLayoutParams);
+            if (toolbarLayoutParams.height != originalValue) {
+                mToolbar.setLayoutParams(toolbarLayoutParams);
+            }
             delta -= originalValue - toolbarLayoutParams.height;
         }
         setTransparentViewHeight(getTransparentViewHeight() - delta);
@@ -1094,14 +1169,12 @@ public class MultiShrinkScroller extends FrameLayout {
      * finishes moving into its target location/size.
      */
     private void calculateCollapsedLargeTitlePadding() {
-        int invisiblePlaceHolderLocation[] = new int[2];
-        int largeTextViewRectLocation[] = new int[2];
-        mInvisiblePlaceholderTextView.getLocationOnScreen(invisiblePlaceHolderLocation);
-        mToolbar.getLocationOnScreen(largeTextViewRectLocation);
+        mInvisiblePlaceholderTextView.getLocationOnScreen(mInvisiblePlaceholderLocation);
+        mToolbar.getLocationOnScreen(mToolbarLocation);
         // Distance between top of toolbar to the center of the target rectangle.
-        final int desiredTopToCenter = invisiblePlaceHolderLocation[1]
+        final int desiredTopToCenter = mInvisiblePlaceholderLocation[1]
                 + mInvisiblePlaceholderTextView.getHeight() / 2
-                - largeTextViewRectLocation[1];
+                - mToolbarLocation[1];
         // Padding needed on the mTitleAndPhoneticNameView so that it has the same amount of
         // padding as the target rectangle.
         mCollapsedTitleBottomMargin =
@@ -1121,8 +1194,8 @@ public class MultiShrinkScroller extends FrameLayout {
         // Need to add more to margin start if there is a start column
         int startColumnWidth = mStartColumn == null ? 0 : mStartColumn.getWidth();
 
-        titleLayoutParams.setMarginStart((int) (mCollapsedTitleStartMargin * (1 - x)
-                + mMaximumTitleMargin * x) + startColumnWidth);
+        final int marginStart = (int) (mCollapsedTitleStartMargin * (1 - x)
+                + mMaximumTitleMargin * x) + startColumnWidth;
         // How offset the title should be from the bottom of the toolbar
         final int pretendBottomMargin =  (int) (mCollapsedTitleBottomMargin * (1 - x)
                 + mMaximumTitleMargin * x) ;
@@ -1130,11 +1203,26 @@ public class MultiShrinkScroller extends FrameLayout {
         // calling mTitleAndPhoneticNameView.getHeight() use the mMaximumHeaderTextSize for this
         // calculation. The getHeight() value acts unexpectedly when mTitleAndPhoneticNameView is
         // partially clipped by its parent.
-        titleLayoutParams.topMargin = getTransparentViewHeight()
+        final int topMargin = getTransparentViewHeight()
                 + toolbarLayoutParams.height - pretendBottomMargin
                 - mMaximumHeaderTextSize;
+
+        if (mIsTitleTranslationEnabled && mHasTitleBaseline) {
+            // Move the title from where it was laid out, without another layout pass.
+            final int startDirection =
+                    getLayoutDirection() == View.LAYOUT_DIRECTION_RTL ? -1 : 1;
+            mTitleAndPhoneticNameView.setTranslationX(
+                    startDirection * (marginStart - titleLayoutParams.getMarginStart()));
+            mTitleAndPhoneticNameView.setTranslationY(topMargin - titleLayoutParams.topMargin);
+            return;
+        }
+        titleLayoutParams.setMarginStart(marginStart);
+        titleLayoutParams.topMargin = topMargin;
         titleLayoutParams.bottomMargin = 0;
         mTitleAndPhoneticNameView.setLayoutParams(titleLayoutParams);
+        mTitleAndPhoneticNameView.setTranslationX(0);
+        mTitleAndPhoneticNameView.setTranslationY(0);
+        mHasTitleBaseline = true;
     }
 
     private void updatePhotoTintAndDropShadow() {
@@ -1159,8 +1247,23 @@ public class MultiShrinkScroller extends FrameLayout {
             ViewCompat.setElevation(mPhotoViewContainer, 0);
         }
 
-        // Reuse an existing mColorFilter (to avoid GC pauses) to change the photo's tint.
-        mPhotoView.clearColorFilter();
+        final boolean isLetterTile = mPhotoView.isBasedOffLetterTile();
+        if (mPhotoColorFiltersTint != mHeaderTintColor
+                || mPhotoColorFiltersForLetterTile != isLetterTile
+                || mPhotoColorFiltersMinimumHeight != mMinimumPortraitHeaderHeight
+                || mPhotoColorFiltersMaximumHeight != mMaximumPortraitHeaderHeight
+                || mPhotoColorFilters.size() >= MAX_CACHED_PHOTO_COLOR_FILTERS) {
+            mPhotoColorFilters.clear();
+            mPhotoColorFiltersTint = mHeaderTintColor;
+            mPhotoColorFiltersForLetterTile = isLetterTile;
+            // The filters are interpolated between these heights.
+            mPhotoColorFiltersMinimumHeight = mMinimumPortraitHeaderHeight;
+            mPhotoColorFiltersMaximumHeight = mMaximumPortraitHeaderHeight;
+        }
+        final ColorFilter cachedFilter = mPhotoColorFilters.get(toolbarHeight);
+
+        // Reuse an existing mColorFilter (to avoid GC pauses) to change the photo's tint. On a
+        // cache hit only the gradient alpha is computed, postConcat() allocates.
         mColorMatrix.reset();
 
         final int gradientAlpha;
@@ -1176,11 +1279,15 @@ public class MultiShrinkScroller extends FrameLayout {
             // 4) The entire process should look awesome.
             final float ratio = calculateHeightRatioToBlendingStartHeight(toolbarHeight);
             final float alpha = 1.0f - (float) Math.min(Math.pow(ratio, 1.5f) * 2f, 1f);
-            final float tint = (float) Math.min(Math.pow(ratio, 1.5f) * 3f, 1f);
-            mColorMatrix.setSaturation(alpha);
-            mColorMatrix.postConcat(alphaMatrix(alpha, Color.WHITE));
-            mColorMatrix.postConcat(multiplyBlendMatrix(mHeaderTintColor, tint));
+            if (cachedFilter == null) {
+                final float tint = (float) Math.min(Math.pow(ratio, 1.5f) * 3f, 1f);
+                mColorMatrix.setSaturation(alpha);
+                mColorMatrix.postConcat(alphaMatrix(alpha, Color.WHITE));
+                mColorMatrix.postConcat(multiplyBlendMatrix(mHeaderTintColor, tint));
+            }
             gradientAlpha = (int) (255 * alpha);
+        } else if (cachedFilter != null) {
+            gradientAlpha = 0;
         } else if (mIsTwoPanel) {
             mColorMatrix.reset();
             mColorMatrix.postConcat(alphaMatrix(DESIRED_INTERMEDIATE_LETTER_TILE_ALPHA,
@@ -1203,8 +1310,14 @@ public class MultiShrinkScroller extends FrameLayout {
             gradientAlpha = 0;
         }
 
-        // TODO: remove re-allocation of ColorMatrixColorFilter objects (b/17627000)
-        mPhotoView.setColorFilter(new ColorMatrixColorFilter(mColorMatrix));
+        if (cachedFilter != null) {
+            // Setting the same filter again doesn't invalidate the photo.
+            mPhotoView.setColorFilter(cachedFilter);
+        } else {
+            final ColorFilter filter = new ColorMatrixColorFilter(mColorMatrix);
+            mPhotoColorFilters.put(toolbarHeight, filter);
+            mPhotoView.setColorFilter(filter);
+        }
 
         // Tell the photo view what tint we are trying to achieve. Depending on the type of
         // drawable used, the photo view may or may not use this tint.
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts;
+
+import android.content.Intent;
+import android.test.ServiceTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+
+import com.android.contacts.benchmark.BenchmarkEnvironment;
+import com.android.contacts.benchmark.BenchmarkRunner;
+import com.android.contacts.benchmark.SyntheticContacts;
+
+/**
+ * Benchmarks the batch actions of {@link ContactSaveService} against a fake provider. Intents
+ * are handled synchronously on the test thread.
+ */
+@LargeTest
+public class ContactSaveServiceBenchmark extends ServiceTestCase<ContactSaveService> {
+    private static final int JOINED_CONTACT_COUNT = 30;
+    private static final int DELETED_CONTACT_COUNT = 500;
+
+    private BenchmarkEnvironment mEnvironment;
+
+    public ContactSaveServiceBenchmark() {
+        super(ContactSaveService.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mEnvironment = new BenchmarkEnvironment(getSystemContext(),
+                SyntheticContacts.Size.MEDIUM);
+        mEnvironment.install();
+        setContext(mEnvironment.context);
+        setupService();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mEnvironment.uninstall();
+        super.tearDown();
+    }
+
+    public void testJoinSeveralContacts() throws Exception {
+        final long[] contactIds = getContactIds(JOINED_CONTACT_COUNT);
+        final Intent intent = ContactSaveService.createJoinSeveralContactsIntent(
+                mEnvironment.context, contactIds);
+        runBenchmark("ContactSaveService.joinSeveralContacts/" + JOINED_CONTACT_COUNT, intent,
+                JOINED_CONTACT_COUNT * (JOINED_CONTACT_COUNT - 1));
+    }
+
+    public void testDeleteMultipleContacts() throws Exception {
+        final long[] contactIds = getContactIds(DELETED_CONTACT_COUNT);
+        final Intent intent = ContactSaveService.createDeleteMultipleContactsIntent(
+                mEnvironment.context, contactIds);
+        runBenchmark("ContactSaveService.deleteMultipleContacts/" + DELETED_CONTACT_COUNT, intent,
+                DELETED_CONTACT_COUNT);
+    }
+
+    private void runBenchmark(String name, final Intent intent, final int expectedWrites)
+            throws Exception {
+        mEnvironment.runner.run(name, 1, 10, new BenchmarkRunner.Operation() {
+            @Override
+            public void run() {
+                final int writes = mEnvironment.provider.getWriteCount();
+                getService().onHandleIntent(intent);
+                assertEquals(expectedWrites, mEnvironment.provider.getWriteCount() - writes);
+            }
+        }, null);
+    }
+
+    private long[] getContactIds(int count) {
+        final long[] contactIds = new long[count];
+        for (int i = 0; i < count; i++) {
+            contactIds[i] = i + 1;
+        }
+        return contactIds;
+    }
+}
@@ -20,13 +20,20 @@ import android.app.Activity;
 import android.content.ComponentName;
 import android.content.Intent;
 import android.os.Bundle;
+import android.util.Log;
 
 import com.android.contacts.common.test.LaunchPerformanceBase;
 
+import java.util.Locale;
+
 /**
  * Instrumentation class for Address Book launch performance testing.
  */
 public class ContactsLaunchPerformance extends LaunchPerformanceBase {
+    private static final String TAG = "ContactsLaunchPerformance";
+
+    /** How long to wait for the startup pre-warming to finish after the launch. */
+    private static final long PREWARM_TIMEOUT_MS = 10000;
 
     @Override
     public void onCreate(Bundle arguments) {
@@ -39,12 +46,34 @@ public class ContactsLaunchPerformance extends LaunchPerformanceBase {
     }
 
     /**
-     * Calls LaunchApp and finish.
+     * Calls LaunchApp, reports the startup pre-warming timings and finish.
      */
     @Override
     public void onStart() {
         super.onStart();
         LaunchApp();
+        reportPrewarmTimings();
         finish(Activity.RESULT_OK, mResults);
     }
+
+    /**
+     * Adds how long each {@link StartupPrewarmer.Stage} waited and ran to the results, in
+     * milliseconds. Stages that did not finish are reported as -1.
+     */
+    private void reportPrewarmTimings() {
+        final StartupPrewarmer prewarmer = StartupPrewarmer.getInstance(getTargetContext());
+        try {
+            if (!prewarmer.awaitCompletion(PREWARM_TIMEOUT_MS)) {
+                Log.w(TAG, "Pre-warming did not finish in " + PREWARM_TIMEOUT_MS + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (StartupPrewarmer.Stage stage : StartupPrewarmer.Stage.values()) {
+            final String key = "prewarm_" + stage.name().toLowerCase(Locale.US);
+            mResults.putLong(key + "_delay_ms", prewarmer.getStageDelayMillis(stage));
+            mResults.putLong(key + "_duration_ms", prewarmer.getStageDurationMillis(stage));
+        }
+        mResults.putLong("prewarm_total_ms", prewarmer.getTotalDurationMillis());
+    }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.benchmark;
+
+import android.content.ContentValues;
+import android.provider.ContactsContract.CommonDataKinds.StructuredName;
+import android.test.InstrumentationTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+
+import com.android.contacts.common.model.ValuesDelta;
+import com.android.contacts.editor.AggregationSuggestionEngine;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link AggregationSuggestionEngine#getSuggestions}, for a name shared by many
+ * contacts.
+ */
+@LargeTest
+public class AggregationSuggestionEngineBenchmark extends InstrumentationTestCase {
+    private static final int SUGGESTIONS_LIMIT = 3;
+    private static final long SUGGESTIONS_TIMEOUT_SECONDS = 30;
+
+    private BenchmarkEnvironment mEnvironment;
+    private AggregationSuggestionEngine mEngine;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mEngine != null) {
+            mEngine.quit();
+        }
+        if (mEnvironment != null) {
+            mEnvironment.uninstall();
+        }
+        super.tearDown();
+    }
+
+    public void testGetSuggestions_small() throws Exception {
+        runBenchmark(SyntheticContacts.Size.SMALL);
+    }
+
+    public void testGetSuggestions_medium() throws Exception {
+        runBenchmark(SyntheticContacts.Size.MEDIUM);
+    }
+
+    public void testGetSuggestions_large() throws Exception {
+        runBenchmark(SyntheticContacts.Size.LARGE);
+    }
+
+    private void runBenchmark(SyntheticContacts.Size size) throws Exception {
+        mEnvironment = new BenchmarkEnvironment(getInstrumentation(), size);
+        mEnvironment.install();
+
+        // The engine delivers its results on the thread it was created on.
+        final CountDownLatch loaded = new CountDownLatch(1);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mEngine = new AggregationSuggestionEngine(mEnvironment.context);
+                mEngine.setSuggestionsLimit(SUGGESTIONS_LIMIT);
+                mEngine.setListener(new AggregationSuggestionEngine.Listener() {
+                    @Override
+                    public void onAggregationSuggestionChange() {
+                        loaded.countDown();
+                    }
+                });
+                mEngine.start();
+            }
+        });
+
+        final ContentValues name = new ContentValues();
+        name.put(StructuredName.DISPLAY_NAME, mEnvironment.dataset.getMostCommonName());
+        mEngine.onNameChange(ValuesDelta.fromAfter(name));
+        assertTrue("No suggestions loaded",
+                loaded.await(SUGGESTIONS_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        mEnvironment.runner.run(mEnvironment.getName("AggregationSuggestionEngine.getSuggestions"),
+                3, mEnvironment.getIterations(50), new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() {
+                        assertEquals(SUGGESTIONS_LIMIT, mEngine.getSuggestions().size());
+                    }
+                }, null);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.benchmark;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.pm.PackageManager;
+
+/**
+ * Context that routes provider requests to a {@link FakeContactsProvider} and grants every
+ * permission, so benchmarks neither depend on nor modify the device's contacts.
+ *
+ * Code that goes through the application context (e.g. the aggregation suggestion engine) is
+ * covered by also injecting the resolver with
+ * {@link com.android.contacts.ContactsApplication#injectServices}.
+ */
+public class BenchmarkContext extends ContextWrapper {
+    private final ContentResolver mResolver;
+
+    public BenchmarkContext(Context base, ContentResolver resolver) {
+        super(base);
+        mResolver = resolver;
+    }
+
+    @Override
+    public ContentResolver getContentResolver() {
+        return mResolver;
+    }
+
+    @Override
+    public Context getApplicationContext() {
+        // Loaders keep the application context, which must still use the fake provider.
+        return this;
+    }
+
+    @Override
+    public int checkSelfPermission(String permission) {
+        return PackageManager.PERMISSION_GRANTED;
+    }
+
+    @Override
+    public int checkCallingOrSelfPermission(String permission) {
+        return PackageManager.PERMISSION_GRANTED;
+    }
+
+    @Override
+    public int checkPermission(String permission, int pid, int uid) {
+        return PackageManager.PERMISSION_GRANTED;
+    }
+}
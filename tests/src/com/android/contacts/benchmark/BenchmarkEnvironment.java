@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.benchmark;
+
+import android.app.Instrumentation;
+import android.content.ContentResolver;
+import android.content.Context;
+
+import com.android.contacts.ContactsApplication;
+import com.android.contacts.common.testing.InjectedServices;
+
+/**
+ * Fake contacts provider, context and runner shared by one benchmark test.
+ *
+ * {@link #install} makes the app use the fake provider through
+ * {@link ContactsApplication#injectServices}, {@link #uninstall} must be called from
+ * {@code tearDown()}.
+ */
+public final class BenchmarkEnvironment {
+    public final SyntheticContacts dataset;
+    public final FakeContactsProvider provider;
+    public final ContentResolver resolver;
+    public final BenchmarkContext context;
+    public final BenchmarkRunner runner;
+
+    public BenchmarkEnvironment(Instrumentation instrumentation, SyntheticContacts.Size size) {
+        this(instrumentation.getTargetContext(), instrumentation, size);
+    }
+
+    /**
+     * Creates an environment for tests that don't have access to the instrumentation, e.g.
+     * {@link android.test.ServiceTestCase}. Results are only logged.
+     */
+    public BenchmarkEnvironment(Context targetContext, SyntheticContacts.Size size) {
+        this(targetContext, null, size);
+    }
+
+    private BenchmarkEnvironment(Context targetContext, Instrumentation instrumentation,
+            SyntheticContacts.Size size) {
+        dataset = SyntheticContacts.get(size);
+        provider = new FakeContactsProvider(dataset);
+        resolver = provider.createContentResolver();
+        context = new BenchmarkContext(targetContext, resolver);
+        runner = new BenchmarkRunner(instrumentation);
+    }
+
+    public void install() {
+        final InjectedServices services = new InjectedServices();
+        services.setContentResolver(resolver);
+        ContactsApplication.injectServices(services);
+    }
+
+    public void uninstall() {
+        ContactsApplication.injectServices(null);
+    }
+
+    /**
+     * Returns the number of measured iterations for a dataset size, so that each benchmark
+     * takes a similar amount of time.
+     */
+    public int getIterations(int smallIterations) {
+        switch (dataset.size) {
+            case SMALL:
+                return smallIterations;
+            case MEDIUM:
+                return Math.max(3, smallIterations / 4);
+            default:
+                return Math.max(3, smallIterations / 10);
+        }
+    }
+
+    /**
+     * Returns a benchmark name that includes the dataset size.
+     */
+    public String getName(String benchmark) {
+        return benchmark + "/" + dataset.size.contactCount;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.benchmark;
+
+import android.app.Instrumentation;
+import android.os.Bundle;
+import android.os.Debug;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Runs an operation repeatedly and reports how long it took and how much it allocated.
+ *
+ * Results are logged with the {@link #TAG} tag and sent as instrumentation status, one bundle
+ * per benchmark, with the keys below. The median is the number to compare across builds.
+ *
+ * <pre>
+ *   adb shell am instrument -w -e package com.android.contacts.benchmark \
+ *     com.android.contacts.tests/android.test.InstrumentationTestRunner
+ * </pre>
+ */
+public final class BenchmarkRunner {
+    public static final String TAG = "ContactsBenchmark";
+
+    public static final String KEY_NAME = "benchmark";
+    public static final String KEY_ITERATIONS = "iterations";
+    public static final String KEY_MEDIAN_MS = "median_ms";
+    public static final String KEY_MIN_MS = "min_ms";
+    public static final String KEY_ALLOCATIONS = "allocations_per_op";
+    public static final String KEY_ALLOCATED_BYTES = "allocated_bytes_per_op";
+
+    /** Operation being measured. */
+    public interface Operation {
+        void run() throws Exception;
+    }
+
+    private final Instrumentation mInstrumentation;
+
+    /**
+     * @param instrumentation used to report results, or null to only log them
+     */
+    public BenchmarkRunner(Instrumentation instrumentation) {
+        mInstrumentation = instrumentation;
+    }
+
+    /**
+     * Runs {@code operation} {@code warmups} times, then measures {@code iterations} runs.
+     * {@code reset}, if not null, runs before every run of {@code operation} and isn't measured.
+     */
+    @SuppressWarnings("deprecation")
+    public Bundle run(String name, int warmups, int iterations, Operation operation,
+            Operation reset) throws Exception {
+        for (int i = 0; i < warmups; i++) {
+            if (reset != null) {
+                reset.run();
+            }
+            operation.run();
+        }
+
+        final long[] durations = new long[iterations];
+        long allocations = 0;
+        long allocatedBytes = 0;
+        Runtime.getRuntime().gc();
+        Debug.startAllocCounting();
+        try {
+            for (int i = 0; i < iterations; i++) {
+                if (reset != null) {
+                    reset.run();
+                }
+                Debug.resetThreadAllocCount();
+                Debug.resetThreadAllocSize();
+                final long start = System.nanoTime();
+                operation.run();
+                durations[i] = System.nanoTime() - start;
+                allocations += Debug.getThreadAllocCount();
+                allocatedBytes += Debug.getThreadAllocSize();
+            }
+        } finally {
+            Debug.stopAllocCounting();
+        }
+
+        Arrays.sort(durations);
+        final Bundle results = new Bundle();
+        results.putString(KEY_NAME, name);
+        results.putInt(KEY_ITERATIONS, iterations);
+        results.putDouble(KEY_MEDIAN_MS, durations[iterations / 2] / 1e6);
+        results.putDouble(KEY_MIN_MS, durations[0] / 1e6);
+        results.putLong(KEY_ALLOCATIONS, allocations / iterations);
+        results.putLong(KEY_ALLOCATED_BYTES, allocatedBytes / iterations);
+
+        Log.i(TAG, String.format(Locale.US, "%s: median %.3fms, min %.3fms, %d allocations"
+                + " (%d bytes) per op over %d iterations", name,
+                results.getDouble(KEY_MEDIAN_MS), results.getDouble(KEY_MIN_MS),
+                results.getLong(KEY_ALLOCATIONS), results.getLong(KEY_ALLOCATED_BYTES),
+                iterations));
+        if (mInstrumentation != null) {
+            mInstrumentation.sendStatus(0, results);
+        }
+        return results;
+    }
+}
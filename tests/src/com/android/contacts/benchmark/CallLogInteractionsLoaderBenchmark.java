@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.benchmark;
+
+import android.content.pm.PackageManager;
+import android.test.InstrumentationTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import com.android.contacts.interactions.CallLogInteractionsLoader;
+
+/**
+ * Benchmarks {@link CallLogInteractionsLoader#loadInBackground} for a contact with two frequently
+ * called numbers, with the limit used by QuickContact.
+ */
+@LargeTest
+public class CallLogInteractionsLoaderBenchmark extends InstrumentationTestCase {
+    private static final int MAX_TO_RETRIEVE = 3;
+
+    private BenchmarkEnvironment mEnvironment;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mEnvironment != null) {
+            mEnvironment.uninstall();
+        }
+        super.tearDown();
+    }
+
+    public void testLoadInBackground_small() throws Exception {
+        runBenchmark(SyntheticContacts.Size.SMALL);
+    }
+
+    public void testLoadInBackground_medium() throws Exception {
+        runBenchmark(SyntheticContacts.Size.MEDIUM);
+    }
+
+    public void testLoadInBackground_large() throws Exception {
+        runBenchmark(SyntheticContacts.Size.LARGE);
+    }
+
+    private void runBenchmark(SyntheticContacts.Size size) throws Exception {
+        if (!getInstrumentation().getTargetContext().getPackageManager()
+                .hasSystemFeature(PackageManager.FEATURE_TELEPHONY)) {
+            // The loader doesn't query anything without telephony.
+            Log.w(BenchmarkRunner.TAG, "Skipping call log benchmark, no telephony");
+            return;
+        }
+        mEnvironment = new BenchmarkEnvironment(getInstrumentation(), size);
+        mEnvironment.install();
+
+        final SyntheticContacts dataset = mEnvironment.dataset;
+        final CallLogInteractionsLoader loader = new CallLogInteractionsLoader(
+                mEnvironment.context,
+                new String[] {dataset.getFrequentNumber(0), dataset.getFrequentNumber(1)},
+                MAX_TO_RETRIEVE);
+        mEnvironment.runner.run(mEnvironment.getName("CallLogInteractionsLoader.loadInBackground"),
+                5, mEnvironment.getIterations(100), new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() {
+                        assertEquals(MAX_TO_RETRIEVE, loader.loadInBackground().size());
+                    }
+                }, null);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.benchmark;
+
+import android.content.Context;
+import android.test.InstrumentationTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+
+import com.android.contacts.interactions.ContactInteractionUtil;
+
+import java.util.Calendar;
+
+/**
+ * Benchmarks {@link ContactInteractionUtil#formatDateStringFromTimestamp} for the dates of the
+ * interactions of a recent card: a few today, yesterday and tomorrow, and the rest spread over
+ * the previous weeks. Each operation formats {@link #TIMESTAMP_COUNT} dates.
+ */
+@LargeTest
+public class ContactInteractionUtilBenchmark extends InstrumentationTestCase {
+    private static final int TIMESTAMP_COUNT = 100;
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+
+    private Context mContext;
+    private long[] mTimestamps;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext = getInstrumentation().getTargetContext();
+        final long now = System.currentTimeMillis();
+        mTimestamps = new long[TIMESTAMP_COUNT];
+        for (int i = 0; i < TIMESTAMP_COUNT; i++) {
+            // Every 7 hours from tomorrow back, so that recent days repeat.
+            mTimestamps[i] = now + 24 * HOUR_MILLIS - i * 7 * HOUR_MILLIS;
+        }
+    }
+
+    public void testFormatDateStringFromTimestamp() throws Exception {
+        new BenchmarkRunner(getInstrumentation()).run(
+                "ContactInteractionUtil.formatDateStringFromTimestamp/" + TIMESTAMP_COUNT,
+                10, 200, new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() {
+                        for (long timestamp : mTimestamps) {
+                            assertNotNull(ContactInteractionUtil.formatDateStringFromTimestamp(
+                                    timestamp, mContext));
+                        }
+                    }
+                }, null);
+    }
+
+    /**
+     * Baseline: the overload taking a calendar computes the day boundaries and labels on every
+     * call.
+     */
+    public void testFormatDateStringFromTimestamp_uncached() throws Exception {
+        new BenchmarkRunner(getInstrumentation()).run(
+                "ContactInteractionUtil.formatDateStringFromTimestamp_uncached/"
+                        + TIMESTAMP_COUNT,
+                10, 200, new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() {
+                        for (long timestamp : mTimestamps) {
+                            assertNotNull(ContactInteractionUtil.formatDateStringFromTimestamp(
+                                    timestamp, mContext, Calendar.getInstance()));
+                        }
+                    }
+                }, null);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.benchmark;
+
+import android.accounts.Account;
+import android.app.ProgressDialog;
+import android.test.InstrumentationTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+
+import com.android.contacts.util.DuplicatesUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Benchmarks {@link DuplicatesUtils#calculateMergeRawContacts}.
+ */
+@LargeTest
+public class DuplicatesUtilsBenchmark extends InstrumentationTestCase {
+    private BenchmarkEnvironment mEnvironment;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mEnvironment != null) {
+            mEnvironment.uninstall();
+        }
+        DuplicatesUtils.mSearchState = false;
+        DuplicatesUtils.clearMergeRawContacts();
+        super.tearDown();
+    }
+
+    public void testCalculateMergeRawContacts_small() throws Exception {
+        runBenchmark(SyntheticContacts.Size.SMALL);
+    }
+
+    public void testCalculateMergeRawContacts_medium() throws Exception {
+        runBenchmark(SyntheticContacts.Size.MEDIUM);
+    }
+
+    public void testCalculateMergeRawContacts_large() throws Exception {
+        runBenchmark(SyntheticContacts.Size.LARGE);
+    }
+
+    private void runBenchmark(SyntheticContacts.Size size) throws Exception {
+        mEnvironment = new BenchmarkEnvironment(getInstrumentation(), size);
+        mEnvironment.install();
+
+        // The progress dialog is updated but never shown.
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                DuplicatesUtils.setDialog(
+                        new ProgressDialog(getInstrumentation().getTargetContext()));
+            }
+        });
+        final List<Account> accounts = Collections.singletonList(new Account(
+                SyntheticContacts.ACCOUNT_NAME, SyntheticContacts.ACCOUNT_TYPE));
+
+        mEnvironment.runner.run(mEnvironment.getName("DuplicatesUtils.calculateMergeRawContacts"),
+                1, mEnvironment.getIterations(10), new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() {
+                        assertTrue(DuplicatesUtils.calculateMergeRawContacts(
+                                mEnvironment.context, accounts, mEnvironment.resolver));
+                    }
+                }, new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() {
+                        DuplicatesUtils.mSearchState = true;
+                    }
+                });
+        assertFalse(DuplicatesUtils.getMergeRawContacts().isEmpty());
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.benchmark;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.CallLog;
+import android.provider.CallLog.Calls;
+import android.provider.ContactsContract;
+import android.provider.ContactsContract.Contacts;
+import android.provider.ContactsContract.ProviderStatus;
+import android.test.mock.MockContentProvider;
+import android.test.mock.MockContentResolver;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory contacts and call log provider serving a {@link SyntheticContacts} dataset.
+ *
+ * Writes are counted but not applied, so every benchmark iteration sees the same data.
+ */
+public class FakeContactsProvider extends MockContentProvider {
+
+    private final SyntheticContacts mDataset;
+    private final AtomicInteger mQueryCount = new AtomicInteger();
+    private final AtomicInteger mWriteCount = new AtomicInteger();
+
+    public FakeContactsProvider(SyntheticContacts dataset) {
+        mDataset = dataset;
+    }
+
+    /**
+     * Returns a resolver that sends both contacts and call log requests to this provider.
+     */
+    public MockContentResolver createContentResolver() {
+        final MockContentResolver resolver = new MockContentResolver();
+        resolver.addProvider(ContactsContract.AUTHORITY, this);
+        resolver.addProvider(CallLog.AUTHORITY, this);
+        return resolver;
+    }
+
+    public int getQueryCount() {
+        return mQueryCount.get();
+    }
+
+    public int getWriteCount() {
+        return mWriteCount.get();
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
+            String sortOrder) {
+        mQueryCount.incrementAndGet();
+        final List<String> segments = uri.getPathSegments();
+        final String table = segments.isEmpty() ? "" : segments.get(0);
+
+        if (CallLog.AUTHORITY.equals(uri.getAuthority())) {
+            if (segments.size() == 3 && "filter".equals(segments.get(1))) {
+                return mDataset.calls.query(projection,
+                        and(Calls.CACHED_NORMALIZED_NUMBER + "=?", selection),
+                        prepend(segments.get(2), selectionArgs), sortOrder);
+            }
+            return mDataset.calls.query(projection, selection, selectionArgs, sortOrder);
+        }
+
+        switch (table) {
+            case "contacts":
+                if (segments.size() == 3
+                        && Contacts.AggregationSuggestions.CONTENT_DIRECTORY.equals(
+                                segments.get(2))) {
+                    return querySuggestions(uri, projection);
+                }
+                if (segments.size() == 3 && "filter".equals(segments.get(1))) {
+                    return queryContactsFilter(segments.get(2), projection);
+                }
+                if (segments.size() == 2) {
+                    return mDataset.contacts.query(projection,
+                            and(Contacts._ID + "=?", selection),
+                            prepend(segments.get(1), selectionArgs), sortOrder);
+                }
+                return mDataset.contacts.query(projection, selection, selectionArgs, sortOrder);
+            case "raw_contacts":
+                return mDataset.rawContacts.query(projection, selection, selectionArgs, sortOrder);
+            case "raw_contact_entities":
+                return mDataset.rawContactEntities.query(projection, selection, selectionArgs,
+                        sortOrder);
+            case "data":
+                return mDataset.data.query(projection, selection, selectionArgs, sortOrder);
+            case "groups":
+                if (segments.size() == 2) {
+                    return mDataset.groups.query(projection, and("_id=?", selection),
+                            prepend(segments.get(1), selectionArgs), sortOrder);
+                }
+                return mDataset.groups.query(projection, selection, selectionArgs, sortOrder);
+            case "provider_status":
+                final MatrixCursor cursor = new MatrixCursor(new String[] {
+                        ProviderStatus.STATUS
+                });
+                cursor.addRow(new Object[] {ProviderStatus.STATUS_NORMAL});
+                return cursor;
+            default:
+                return new MatrixCursor(projection != null ? projection : new String[0]);
+        }
+    }
+
+    private Cursor querySuggestions(Uri uri, String[] projection) {
+        final String limitParam = uri.getQueryParameter("limit");
+        final int limit = TextUtils.isEmpty(limitParam) ? 5 : Integer.parseInt(limitParam);
+        final long excludedContactId = Long.parseLong(uri.getPathSegments().get(1));
+        final StringBuilder ids = new StringBuilder();
+        int count = 0;
+        for (String parameter : uri.getQueryParameters("query")) {
+            final String name = parameter.substring(parameter.indexOf(':') + 1);
+            for (Long contactId : mDataset.getContactIdsByName(name)) {
+                if (contactId == excludedContactId || count >= limit) {
+                    continue;
+                }
+                if (count++ > 0) {
+                    ids.append(',');
+                }
+                ids.append(contactId);
+            }
+        }
+        return mDataset.contacts.query(projection, Contacts._ID + " IN (" + ids + ")", null,
+                null);
+    }
+
+    private Cursor queryContactsFilter(String filter, String[] projection) {
+        final String prefix = filter.toLowerCase(Locale.US);
+        final StringBuilder ids = new StringBuilder();
+        final FakeTable contacts = mDataset.contacts;
+        for (int i = 0; i < contacts.getCount(); i++) {
+            final String name = (String) contacts.get(i, Contacts.DISPLAY_NAME_PRIMARY);
+            if (name.toLowerCase(Locale.US).startsWith(prefix)) {
+                if (ids.length() > 0) {
+                    ids.append(',');
+                }
+                ids.append(contacts.get(i, Contacts._ID));
+            }
+        }
+        return contacts.query(projection, Contacts._ID + " IN (" + ids + ")", null, null);
+    }
+
+    private static String and(String term, String selection) {
+        return TextUtils.isEmpty(selection) ? term : term + " AND " + selection;
+    }
+
+    private static String[] prepend(String arg, String[] selectionArgs) {
+        final int count = selectionArgs == null ? 0 : selectionArgs.length;
+        final String[] args = new String[count + 1];
+        args[0] = arg;
+        if (count > 0) {
+            System.arraycopy(selectionArgs, 0, args, 1, count);
+        }
+        return args;
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        mWriteCount.incrementAndGet();
+        return uri;
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        mWriteCount.incrementAndGet();
+        return 1;
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        mWriteCount.incrementAndGet();
+        return 1;
+    }
+
+    @Override
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations) {
+        final ContentProviderResult[] results = new ContentProviderResult[operations.size()];
+        for (int i = 0; i < results.length; i++) {
+            mWriteCount.incrementAndGet();
+            results[i] = new ContentProviderResult(1);
+        }
+        return results;
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        return null;
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.benchmark;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory table backing {@link FakeContactsProvider}.
+ *
+ * Queries support the subset of SQL the benchmarked code uses: a selection made of terms joined
+ * with AND, each being {@code column = ?}, {@code column = literal} or
+ * {@code column IN (literals)}, and a sort order of one column optionally followed by
+ * {@code LIMIT n}. Terms that are not understood are ignored, so a query may return more rows
+ * than the real provider would.
+ *
+ * Columns passed to {@link #addIndex} are looked up by hash rather than scanned, so that the
+ * cost of the fake doesn't dominate the benchmarks of code that queries one contact at a time.
+ */
+public final class FakeTable {
+
+    private static final Pattern AND = Pattern.compile("\\s+AND\\s+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern EQUALS = Pattern.compile(
+            "\\(?\\s*(\\w+)\\s*=\\s*(\\?|'[^']*'|-?\\d+)\\s*\\)?");
+    private static final Pattern IN = Pattern.compile(
+            "\\(?\\s*(\\w+)\\s+IN\\s*\\(([^)]*)\\)\\s*\\)?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ORDER = Pattern.compile(
+            "\\s*(\\w+)(?:\\s+(ASC|DESC))?(?:\\s+LIMIT\\s+(\\d+))?\\s*", Pattern.CASE_INSENSITIVE);
+
+    private final Map<String, Integer> mColumns;
+    private final List<Object[]> mRows;
+    /** Row positions by value, per indexed column position. Shared by all views of the rows. */
+    private final Map<Integer, Map<String, List<Integer>>> mIndexes;
+
+    public FakeTable(String... columns) {
+        this(indexColumns(columns), new ArrayList<Object[]>(),
+                new HashMap<Integer, Map<String, List<Integer>>>());
+    }
+
+    private FakeTable(Map<String, Integer> columns, List<Object[]> rows,
+            Map<Integer, Map<String, List<Integer>>> indexes) {
+        mColumns = columns;
+        mRows = rows;
+        mIndexes = indexes;
+    }
+
+    private static Map<String, Integer> indexColumns(String[] columns) {
+        final Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            index.put(columns[i], i);
+        }
+        return index;
+    }
+
+    /**
+     * Returns a view of this table in which {@code alias} names the column {@code column}, like
+     * the provider's views that expose the same row under different column names.
+     */
+    public FakeTable withAlias(String alias, String column) {
+        final Map<String, Integer> columns = new HashMap<>(mColumns);
+        columns.put(alias, mColumns.get(column));
+        return new FakeTable(columns, mRows, mIndexes);
+    }
+
+    /**
+     * Indexes {@code column}. Must be called once all rows have been added.
+     */
+    public void addIndex(String column) {
+        final int position = mColumns.get(column);
+        final Map<String, List<Integer>> index = new HashMap<>();
+        for (int i = 0; i < mRows.size(); i++) {
+            final Object value = mRows.get(i)[position];
+            if (value == null) {
+                continue;
+            }
+            List<Integer> rows = index.get(value.toString());
+            if (rows == null) {
+                rows = new ArrayList<>(1);
+                index.put(value.toString(), rows);
+            }
+            rows.add(i);
+        }
+        mIndexes.put(position, index);
+    }
+
+    public void addRow(Object... values) {
+        mRows.add(values);
+    }
+
+    public int getCount() {
+        return mRows.size();
+    }
+
+    public Object get(int row, String column) {
+        return mRows.get(row)[mColumns.get(column)];
+    }
+
+    public Cursor query(String[] projection, String selection, String[] selectionArgs,
+            String sortOrder) {
+        final List<Object[]> rows = filter(selection, selectionArgs);
+        int limit = Integer.MAX_VALUE;
+        if (!TextUtils.isEmpty(sortOrder)) {
+            final Matcher matcher = ORDER.matcher(sortOrder);
+            if (matcher.matches()) {
+                final Integer column = mColumns.get(matcher.group(1));
+                if (column != null) {
+                    sort(rows, column, "DESC".equalsIgnoreCase(matcher.group(2)));
+                }
+                if (matcher.group(3) != null) {
+                    limit = Integer.parseInt(matcher.group(3));
+                }
+            }
+        }
+
+        final String[] columns = projection != null ? projection : getColumnNames();
+        final int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            final Integer index = mColumns.get(columns[i]);
+            indexes[i] = index == null ? -1 : index;
+        }
+        final int count = Math.min(limit, rows.size());
+        final MatrixCursor cursor = new MatrixCursor(columns, count);
+        final Object[] values = new Object[columns.length];
+        for (int i = 0; i < count; i++) {
+            final Object[] row = rows.get(i);
+            for (int j = 0; j < indexes.length; j++) {
+                values[j] = indexes[j] < 0 ? null : row[indexes[j]];
+            }
+            cursor.addRow(values);
+        }
+        return cursor;
+    }
+
+    /** Returns every column name, including aliases, in a stable order. */
+    private String[] getColumnNames() {
+        final List<String> names = new ArrayList<>(mColumns.keySet());
+        Collections.sort(names);
+        return names.toArray(new String[names.size()]);
+    }
+
+    private List<Object[]> filter(String selection, String[] selectionArgs) {
+        if (TextUtils.isEmpty(selection)) {
+            return new ArrayList<>(mRows);
+        }
+        final List<Integer> columns = new ArrayList<>();
+        final List<Set<String>> values = new ArrayList<>();
+        int nextArg = 0;
+        for (String term : AND.split(selection.trim())) {
+            Matcher matcher = EQUALS.matcher(term);
+            if (matcher.matches()) {
+                String value = matcher.group(2);
+                if ("?".equals(value)) {
+                    value = selectionArgs[nextArg++];
+                }
+                addTerm(columns, values, matcher.group(1), Collections.singleton(unquote(value)));
+                continue;
+            }
+            matcher = IN.matcher(term);
+            if (matcher.matches()) {
+                final Set<String> set = new HashSet<>();
+                for (String value : matcher.group(2).split(",")) {
+                    if (!TextUtils.isEmpty(value.trim())) {
+                        set.add(unquote(value.trim()));
+                    }
+                }
+                addTerm(columns, values, matcher.group(1), set);
+            }
+        }
+
+        final List<Object[]> result = new ArrayList<>();
+        for (Object[] row : getCandidateRows(columns, values)) {
+            boolean matches = true;
+            for (int i = 0; i < columns.size() && matches; i++) {
+                final Object value = row[columns.get(i)];
+                matches = value != null && values.get(i).contains(value.toString());
+            }
+            if (matches) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the rows that may match, using the index of the first indexed column of the
+     * selection if there is one. Rows are returned in table order.
+     */
+    private List<Object[]> getCandidateRows(List<Integer> columns, List<Set<String>> values) {
+        for (int i = 0; i < columns.size(); i++) {
+            final Map<String, List<Integer>> index = mIndexes.get(columns.get(i));
+            if (index == null) {
+                continue;
+            }
+            final List<Integer> positions = new ArrayList<>();
+            for (String value : values.get(i)) {
+                final List<Integer> rows = index.get(value);
+                if (rows != null) {
+                    positions.addAll(rows);
+                }
+            }
+            Collections.sort(positions);
+            final List<Object[]> candidates = new ArrayList<>(positions.size());
+            for (int position : positions) {
+                candidates.add(mRows.get(position));
+            }
+            return candidates;
+        }
+        return mRows;
+    }
+
+    private void addTerm(List<Integer> columns, List<Set<String>> values, String column,
+            Set<String> set) {
+        final Integer index = mColumns.get(column);
+        if (index != null) {
+            columns.add(index);
+            values.add(set);
+        }
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.charAt(0) == '\'') {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static void sort(List<Object[]> rows, final int column, final boolean descending) {
+        Collections.sort(rows, new Comparator<Object[]>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public int compare(Object[] lhs, Object[] rhs) {
+                final Comparable<Object> left = (Comparable<Object>) lhs[column];
+                final Object right = rhs[column];
+                final int result = left == null ? (right == null ? 0 : -1)
+                        : right == null ? 1 : left.compareTo(right);
+                return descending ? -result : result;
+            }
+        });
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.benchmark;
+
+import android.provider.CallLog.Calls;
+import android.provider.ContactsContract.CommonDataKinds.Email;
+import android.provider.ContactsContract.CommonDataKinds.GroupMembership;
+import android.provider.ContactsContract.CommonDataKinds.Phone;
+import android.provider.ContactsContract.CommonDataKinds.Photo;
+import android.provider.ContactsContract.CommonDataKinds.StructuredName;
+import android.provider.ContactsContract.Contacts;
+import android.provider.ContactsContract.Data;
+import android.provider.ContactsContract.DisplayNameSources;
+import android.provider.ContactsContract.Groups;
+import android.provider.ContactsContract.RawContacts;
+import android.provider.ContactsContract.RawContactsEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic contacts database used by the benchmarks.
+ *
+ * The same {@link Size} always produces the same rows, so results are comparable across builds.
+ * Names are drawn from small pools, so larger datasets contain more contacts with the same name,
+ * like a real address book that was synced from several sources.
+ */
+public final class SyntheticContacts {
+
+    public enum Size {
+        SMALL(1000),
+        MEDIUM(10000),
+        LARGE(50000);
+
+        public final int contactCount;
+
+        Size(int contactCount) {
+            this.contactCount = contactCount;
+        }
+    }
+
+    public static final String ACCOUNT_NAME = "benchmark@example.com";
+    public static final String ACCOUNT_TYPE = "com.android.contacts.benchmark";
+
+    private static final long SEED = 0x5eed;
+    private static final long NOW = 1451606400000L; // 2016-01-01, so dates don't depend on today
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /** Contacts that most calls are made to, see {@link #getFrequentNumber}. */
+    private static final int FREQUENT_CONTACT_COUNT = 10;
+
+    private static final String[] GIVEN_NAMES = {
+        "Alice", "Bob", "Carol", "Dave", "Erin", "Frank", "Grace", "Heidi", "Ivan", "Judy",
+        "Mallory", "Niaj", "Olivia", "Peggy", "Rupert", "Sybil", "Trent", "Victor", "Walter",
+        "Xavier", "Yvonne", "Zoe", "Anna", "Boris", "Chen", "Dmitri", "Elena", "Farah", "Goran",
+        "Hiro", "Ines", "Jamal"
+    };
+
+    private static final String[] FAMILY_NAMES = {
+        "Smith", "Jones", "Garcia", "Miller", "Davis", "Lopez", "Wilson", "Anderson", "Thomas",
+        "Taylor", "Moore", "Martin", "Lee", "Perez", "White", "Harris", "Clark", "Lewis",
+        "Walker", "Hall", "Young", "King", "Wright", "Scott", "Green", "Baker", "Adams", "Nelson",
+        "Hill", "Campbell", "Mitchell", "Roberts", "Carter", "Phillips", "Evans", "Turner",
+        "Torres", "Parker", "Collins", "Edwards", "Stewart", "Morris", "Murphy", "Cook", "Rogers",
+        "Morgan", "Cooper", "Peterson", "Reed", "Bailey", "Bell", "Kelly", "Howard", "Ward",
+        "Cox", "Diaz", "Richardson", "Wood", "Watson", "Brooks", "Bennett", "Gray", "James",
+        "Reyes"
+    };
+
+    private static final Map<Size, SyntheticContacts> sInstances = new HashMap<>();
+
+    public final Size size;
+    public final FakeTable contacts = new FakeTable(
+            Contacts._ID,
+            Contacts.DISPLAY_NAME_PRIMARY,
+            Contacts.DISPLAY_NAME_ALTERNATIVE,
+            Contacts.PHOTO_ID,
+            Contacts.LOOKUP_KEY,
+            RawContacts.ACCOUNT_TYPE,
+            RawContacts.ACCOUNT_NAME,
+            Contacts.NAME_RAW_CONTACT_ID,
+            Contacts.PHOTO_THUMBNAIL_URI,
+            Contacts.IN_VISIBLE_GROUP,
+            Contacts.STARRED);
+    public final FakeTable rawContacts = new FakeTable(
+            RawContacts._ID,
+            RawContacts.CONTACT_ID,
+            RawContacts.DISPLAY_NAME_PRIMARY,
+            RawContacts.DISPLAY_NAME_SOURCE,
+            RawContacts.ACCOUNT_NAME,
+            RawContacts.ACCOUNT_TYPE,
+            RawContacts.DATA_SET,
+            RawContacts.DELETED);
+    public final FakeTable data = new FakeTable(
+            Data._ID,
+            Data.RAW_CONTACT_ID,
+            Data.CONTACT_ID,
+            Data.MIMETYPE,
+            Data.DATA1,
+            Data.DATA2,
+            Data.DATA3,
+            Photo.PHOTO,
+            Data.IS_PRIMARY,
+            Data.IS_SUPER_PRIMARY,
+            Data.DISPLAY_NAME,
+            Data.LOOKUP_KEY,
+            Data.PHOTO_ID,
+            RawContacts.ACCOUNT_NAME,
+            RawContacts.ACCOUNT_TYPE,
+            RawContacts.DATA_SET,
+            RawContacts.DELETED);
+    /** {@link RawContactsEntity}: the data rows, identified by their raw contact. */
+    public final FakeTable rawContactEntities = data
+            .withAlias(RawContactsEntity.DATA_ID, Data._ID)
+            .withAlias(RawContactsEntity._ID, Data.RAW_CONTACT_ID);
+    public final FakeTable groups = new FakeTable(
+            Groups._ID,
+            Groups.ACCOUNT_NAME,
+            Groups.ACCOUNT_TYPE,
+            Groups.DATA_SET,
+            Groups.TITLE,
+            Groups.AUTO_ADD,
+            Groups.FAVORITES,
+            Groups.GROUP_IS_READ_ONLY,
+            Groups.DELETED,
+            Groups.GROUP_VISIBLE);
+    public final FakeTable calls = new FakeTable(
+            Calls._ID,
+            Calls.NUMBER,
+            Calls.CACHED_NORMALIZED_NUMBER,
+            Calls.DATE,
+            Calls.DURATION,
+            Calls.TYPE,
+            Calls.NEW,
+            Calls.IS_READ,
+            Calls.CACHED_NAME,
+            Calls.CACHED_NUMBER_TYPE,
+            Calls.CACHED_NUMBER_LABEL,
+            Calls.COUNTRY_ISO);
+
+    private final String[] mNames;
+    private final String[] mNumbers;
+    private final Map<String, List<Long>> mContactIdsByName = new HashMap<>();
+
+    /**
+     * Returns the dataset of the given size. The last dataset is kept, so consecutive benchmarks
+     * of the same size don't rebuild it.
+     */
+    public static synchronized SyntheticContacts get(Size size) {
+        SyntheticContacts dataset = sInstances.get(size);
+        if (dataset == null) {
+            // Only keep one dataset around, the large one takes a fair amount of memory.
+            sInstances.clear();
+            dataset = new SyntheticContacts(size);
+            sInstances.put(size, dataset);
+        }
+        return dataset;
+    }
+
+    private SyntheticContacts(Size size) {
+        this.size = size;
+        final int count = size.contactCount;
+        final Random random = new Random(SEED);
+        mNames = new String[count];
+        mNumbers = new String[count];
+
+        final int groupCount = Math.max(5, count / 100);
+        for (int i = 1; i <= groupCount; i++) {
+            groups.addRow((long) i, ACCOUNT_NAME, ACCOUNT_TYPE, null, "Group " + i, 0,
+                    i == 1 ? 1 : 0, 0, 0, 1);
+        }
+
+        long dataId = 0;
+        for (int i = 0; i < count; i++) {
+            final long contactId = i + 1;
+            final long rawContactId = i + 1;
+            final String given = GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)];
+            final String family = FAMILY_NAMES[random.nextInt(FAMILY_NAMES.length)];
+            final String name = given + " " + family;
+            final String lookupKey = "0r" + rawContactId;
+            final String number = String.format(Locale.US, "+1650%07d", 5550000 + i);
+            final long photoId = i % 10 == 0 ? dataId + 4 : 0;
+            mNames[i] = name;
+            mNumbers[i] = number;
+
+            List<Long> ids = mContactIdsByName.get(name.toLowerCase(Locale.US));
+            if (ids == null) {
+                ids = new ArrayList<>(1);
+                mContactIdsByName.put(name.toLowerCase(Locale.US), ids);
+            }
+            ids.add(contactId);
+
+            contacts.addRow(contactId, name, family + ", " + given, photoId, lookupKey,
+                    ACCOUNT_TYPE, ACCOUNT_NAME, rawContactId, null, 1, i % 50 == 0 ? 1 : 0);
+            rawContacts.addRow(rawContactId, contactId, name,
+                    DisplayNameSources.STRUCTURED_NAME, ACCOUNT_NAME,
+                    ACCOUNT_TYPE, null, 0);
+
+            addData(++dataId, rawContactId, contactId, StructuredName.CONTENT_ITEM_TYPE, name,
+                    given, family, name, lookupKey, photoId);
+            addData(++dataId, rawContactId, contactId, Phone.CONTENT_ITEM_TYPE, number,
+                    String.valueOf(Phone.TYPE_MOBILE), null, name, lookupKey, photoId);
+            if (i % 2 == 0) {
+                addData(++dataId, rawContactId, contactId, Email.CONTENT_ITEM_TYPE,
+                        given.toLowerCase(Locale.US) + "." + i + "@example.com",
+                        String.valueOf(Email.TYPE_HOME), null, name, lookupKey, photoId);
+            } else {
+                ++dataId;
+            }
+            if (photoId != 0) {
+                addData(++dataId, rawContactId, contactId, Photo.CONTENT_ITEM_TYPE, null, null,
+                        null, name, lookupKey, photoId);
+            } else {
+                ++dataId;
+            }
+            if (i % 3 == 0) {
+                addData(++dataId, rawContactId, contactId, GroupMembership.CONTENT_ITEM_TYPE,
+                        String.valueOf(1 + random.nextInt(groupCount)), null, null, name,
+                        lookupKey, photoId);
+            } else {
+                ++dataId;
+            }
+        }
+
+        // Two calls per contact on average, most of them with a few frequent contacts.
+        final int callCount = count * 2;
+        long date = NOW;
+        for (int i = 0; i < callCount; i++) {
+            final int contact = random.nextInt(10) < 3
+                    ? random.nextInt(Math.min(FREQUENT_CONTACT_COUNT, count))
+                    : random.nextInt(count);
+            date -= 1 + random.nextInt((int) (DAY_MILLIS / 4));
+            calls.addRow((long) i + 1, mNumbers[contact], mNumbers[contact], date,
+                    (long) random.nextInt(600), Calls.INCOMING_TYPE + random.nextInt(3), 0, 1,
+                    mNames[contact], Phone.TYPE_MOBILE, null, "US");
+        }
+
+        contacts.addIndex(Contacts._ID);
+        rawContacts.addIndex(RawContacts.CONTACT_ID);
+        data.addIndex(Data.CONTACT_ID);
+        data.addIndex(Data.RAW_CONTACT_ID);
+        groups.addIndex(Groups._ID);
+        calls.addIndex(Calls.CACHED_NORMALIZED_NUMBER);
+    }
+
+    private void addData(long dataId, long rawContactId, long contactId, String mimetype,
+            String data1, String data2, String data3, String displayName, String lookupKey,
+            long photoId) {
+        data.addRow(dataId, rawContactId, contactId, mimetype, data1, data2, data3, null, 0, 0,
+                displayName, lookupKey, photoId, ACCOUNT_NAME, ACCOUNT_TYPE, null, 0);
+    }
+
+    public String getName(int contactIndex) {
+        return mNames[contactIndex];
+    }
+
+    /**
+     * Returns the phone number of one of the contacts with the most calls.
+     */
+    public String getFrequentNumber(int index) {
+        return mNumbers[index % Math.min(FREQUENT_CONTACT_COUNT, mNumbers.length)];
+    }
+
+    /**
+     * Returns the display name shared by the most contacts.
+     */
+    public String getMostCommonName() {
+        String mostCommonName = null;
+        int mostContacts = 0;
+        for (Map.Entry<String, List<Long>> entry : mContactIdsByName.entrySet()) {
+            final int contactCount = entry.getValue().size();
+            if (contactCount > mostContacts || (contactCount == mostContacts
+                    && entry.getKey().compareTo(mostCommonName) < 0)) {
+                mostCommonName = entry.getKey();
+                mostContacts = contactCount;
+            }
+        }
+        return mostCommonName;
+    }
+
+    /**
+     * Returns the ids of the contacts with the given display name, ignoring case.
+     */
+    public List<Long> getContactIdsByName(String name) {
+        final List<Long> ids = mContactIdsByName.get(name.toLowerCase(Locale.US));
+        return ids != null ? ids : new ArrayList<Long>();
+    }
+}
@@ -128,6 +128,31 @@ public class ContactInteractionUtilTest extends AndroidTestCase {
                         getContext()));
     }
 
+    public void testFormatDateStringFromTimestamp_todayMidnight() {
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        assertEquals("12:00 AM",
+                ContactInteractionUtil.formatDateStringFromTimestamp(calendar.getTimeInMillis(),
+                        getContext()));
+
+        // The last millisecond of yesterday
+        assertEquals(getContext().getResources().getString(R.string.yesterday),
+                ContactInteractionUtil.formatDateStringFromTimestamp(
+                        calendar.getTimeInMillis() - 1, getContext()));
+    }
+
+    public void testFormatDateStringFromTimestamp_sameLabelWhenRepeated() {
+        calendar.set(Calendar.HOUR_OF_DAY, 9);
+        calendar.set(Calendar.MINUTE, 30);
+        final long timestamp = calendar.getTimeInMillis();
+        assertEquals("9:30 AM",
+                ContactInteractionUtil.formatDateStringFromTimestamp(timestamp, getContext()));
+        assertEquals("9:30 AM",
+                ContactInteractionUtil.formatDateStringFromTimestamp(timestamp, getContext()));
+    }
+
     private void setLocale(Locale locale) {
         Locale.setDefault(locale);
         Resources res = getContext().getResources();
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.multipicker;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.provider.CallLog.Calls;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.text.TextUtils;
+
+import java.util.Arrays;
+
+/**
+ * Tests for {@link CallLogGroupIndex} and {@link CallLogRowsCursor}.
+ */
+@SmallTest
+public class CallLogGroupIndexTest extends AndroidTestCase {
+
+    /** Groups the calls with the same number, and counts the comparisons. */
+    private static final class CountingGrouper implements CallLogGroupIndex.Grouper {
+        int comparisons;
+
+        @Override
+        public boolean shouldGroup(CallLogGroupIndex.CallRow first,
+                CallLogGroupIndex.CallRow call) {
+            comparisons++;
+            return TextUtils.equals(first.number, call.number);
+        }
+    }
+
+    private CountingGrouper mGrouper;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mGrouper = new CountingGrouper();
+    }
+
+    public void testBuild_groupsConsecutiveCalls() {
+        final CallLogGroupIndex index = CallLogGroupIndex.build(
+                createCursor(new long[] {6, 5, 4, 3, 2}, "a", "a", "b", "a", "a"),
+                CallLogGroupIndex.EMPTY, mGrouper);
+
+        assertEquals(5, index.getCallCount());
+        assertGroups(index, new int[] {0, 2, 3}, new int[] {2, 1, 2});
+        assertEquals(4, mGrouper.comparisons);
+        assertEquals(0, index.getReusedCount());
+        assertEquals(2, index.getPosition(4));
+        assertEquals(-1, index.getPosition(7));
+    }
+
+    public void testBuild_emptyCursor() {
+        assertSame(CallLogGroupIndex.EMPTY, CallLogGroupIndex.build(
+                createCursor(new long[0]), CallLogGroupIndex.EMPTY, mGrouper));
+        assertSame(CallLogGroupIndex.EMPTY,
+                CallLogGroupIndex.build(null, CallLogGroupIndex.EMPTY, mGrouper));
+    }
+
+    public void testBuild_reusesDecisionsOfPreviousIndex() {
+        final CallLogGroupIndex previous = CallLogGroupIndex.build(
+                createCursor(new long[] {6, 5, 4, 3, 2}, "a", "a", "b", "a", "a"),
+                CallLogGroupIndex.EMPTY, mGrouper);
+        mGrouper.comparisons = 0;
+
+        // A new call comes first, the other calls are compared with the same first calls.
+        final CallLogGroupIndex index = CallLogGroupIndex.build(
+                createCursor(new long[] {7, 6, 5, 4, 3, 2}, "c", "a", "a", "b", "a", "a"),
+                previous, mGrouper);
+
+        assertGroups(index, new int[] {0, 1, 3, 4}, new int[] {1, 2, 1, 2});
+        // Only call 6 is compared with the new call.
+        assertEquals(1, mGrouper.comparisons);
+        assertEquals(4, index.getReusedCount());
+    }
+
+    public void testBuild_comparesCallsWithNewFirstCall() {
+        final CallLogGroupIndex previous = CallLogGroupIndex.build(
+                createCursor(new long[] {6, 5, 4, 3, 2}, "a", "a", "b", "a", "a"),
+                CallLogGroupIndex.EMPTY, mGrouper);
+        mGrouper.comparisons = 0;
+
+        // Without call 4, calls 3 and 2 join the group of call 6.
+        final CallLogGroupIndex index = CallLogGroupIndex.build(
+                createCursor(new long[] {6, 5, 3, 2}, "a", "a", "a", "a"),
+                previous, mGrouper);
+
+        assertGroups(index, new int[] {0}, new int[] {4});
+        assertEquals(2, mGrouper.comparisons);
+        assertEquals(1, index.getReusedCount());
+    }
+
+    public void testGetRemovedIds() {
+        final CallLogGroupIndex index = CallLogGroupIndex.build(
+                createCursor(new long[] {6, 5, 4, 3, 2}, "a", "a", "b", "a", "a"),
+                CallLogGroupIndex.EMPTY, mGrouper);
+
+        assertTrue(Arrays.equals(new long[0], index.getRemovedIds(new long[] {2, 3, 4, 5, 6})));
+        assertTrue(Arrays.equals(new long[] {2, 4, 6}, index.getRemovedIds(new long[] {3, 5})));
+        assertTrue(Arrays.equals(new long[] {2, 3, 4, 5, 6}, index.getRemovedIds(new long[0])));
+        // New calls.
+        assertNull(index.getRemovedIds(new long[] {2, 3, 4, 5, 6, 7}));
+        assertNull(index.getRemovedIds(new long[] {1, 2, 3}));
+        assertNull(index.getRemovedIds(new long[] {3, 4, 8}));
+    }
+
+    public void testWithout_dropsCalls() {
+        final Cursor cursor = createCursor(new long[] {6, 5, 4, 3, 2}, "a", "a", "b", "a", "a");
+        final CallLogRowsCursor rows = CallLogRowsCursor.wrap(cursor);
+        final CallLogGroupIndex index = CallLogGroupIndex.build(rows, CallLogGroupIndex.EMPTY,
+                mGrouper);
+
+        final CallLogRowsCursor remaining = rows.without(new long[] {2, 5}, index);
+
+        assertEquals(3, remaining.getCount());
+        assertCallIds(remaining, 6, 4, 3);
+        // The base cursor is closed by the last cursor only.
+        rows.close();
+        assertFalse(cursor.isClosed());
+        remaining.close();
+        assertTrue(cursor.isClosed());
+    }
+
+    public void testWithout_mergesGroups() {
+        final CallLogRowsCursor rows = CallLogRowsCursor.wrap(
+                createCursor(new long[] {6, 5, 4, 3, 2}, "a", "a", "b", "a", "c"));
+        final CallLogGroupIndex previous = CallLogGroupIndex.build(rows,
+                CallLogGroupIndex.EMPTY, mGrouper);
+
+        final CallLogRowsCursor remaining = rows.without(new long[] {4}, previous);
+        final CallLogGroupIndex index = CallLogGroupIndex.build(remaining, previous, mGrouper);
+
+        assertCallIds(remaining, 6, 5, 3, 2);
+        assertGroups(index, new int[] {0, 3}, new int[] {3, 1});
+        // Call 3 joined the group of call 6, call 2 is still alone.
+        assertFalse(index.hasSameCalls(0, previous));
+        assertTrue(index.hasSameCalls(1, previous));
+        assertEquals(6, previous.getGroupFirstId(previous.getPosition(5)));
+        assertEquals(3, previous.getGroupFirstId(previous.getPosition(3)));
+        assertEquals(6, index.getGroupFirstId(index.getPosition(3)));
+        remaining.close();
+    }
+
+    public void testHasSameCalls_firstCallRemoved() {
+        final CallLogRowsCursor rows = CallLogRowsCursor.wrap(
+                createCursor(new long[] {6, 5, 4}, "a", "a", "b"));
+        final CallLogGroupIndex previous = CallLogGroupIndex.build(rows,
+                CallLogGroupIndex.EMPTY, mGrouper);
+
+        final CallLogRowsCursor remaining = rows.without(new long[] {6}, previous);
+        final CallLogGroupIndex index = CallLogGroupIndex.build(remaining, previous, mGrouper);
+
+        assertGroups(index, new int[] {0, 1}, new int[] {1, 1});
+        // Call 5 starts a group now.
+        assertFalse(index.hasSameCalls(0, previous));
+        assertTrue(index.hasSameCalls(1, previous));
+        remaining.close();
+    }
+
+    public void testHasSameCalls_lastCallOfGroupRemoved() {
+        final CallLogRowsCursor rows = CallLogRowsCursor.wrap(
+                createCursor(new long[] {6, 5, 4}, "a", "a", "b"));
+        final CallLogGroupIndex previous = CallLogGroupIndex.build(rows,
+                CallLogGroupIndex.EMPTY, mGrouper);
+
+        final CallLogRowsCursor remaining = rows.without(new long[] {5}, previous);
+        final CallLogGroupIndex index = CallLogGroupIndex.build(remaining, previous, mGrouper);
+
+        assertGroups(index, new int[] {0, 1}, new int[] {1, 1});
+        assertFalse(index.hasSameCalls(0, previous));
+        assertTrue(index.hasSameCalls(1, previous));
+        remaining.close();
+    }
+
+    private static void assertGroups(CallLogGroupIndex index, int[] starts, int[] sizes) {
+        assertEquals(starts.length, index.getGroupCount());
+        for (int group = 0; group < starts.length; group++) {
+            assertEquals(starts[group], index.getGroupStart(group));
+            assertEquals(sizes[group], index.getGroupSize(group));
+        }
+    }
+
+    private static void assertCallIds(Cursor cursor, long... ids) {
+        assertEquals(ids.length, cursor.getCount());
+        for (int i = 0; i < ids.length; i++) {
+            assertTrue(cursor.moveToPosition(i));
+            assertEquals(ids[i], cursor.getLong(CallLogQueryHandler.ID));
+        }
+    }
+
+    /** Returns a call log cursor with the given calls, most recent first. */
+    private static Cursor createCursor(long[] ids, String... numbers) {
+        final MatrixCursor cursor = new MatrixCursor(CallLogQueryHandler._PROJECTION);
+        for (int i = 0; i < ids.length; i++) {
+            final Object[] row = new Object[CallLogQueryHandler._PROJECTION.length];
+            row[CallLogQueryHandler.ID] = ids[i];
+            row[CallLogQueryHandler.NUMBER] = numbers[i];
+            row[CallLogQueryHandler.DATE] = 1000L * ids[i];
+            row[CallLogQueryHandler.CALL_TYPE] = Calls.INCOMING_TYPE;
+            row[CallLogQueryHandler.FEATURES] = 0;
+            cursor.addRow(row);
+        }
+        return cursor;
+    }
+}
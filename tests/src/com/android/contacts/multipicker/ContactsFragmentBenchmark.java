@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.contacts.multipicker;
+
+import android.database.Cursor;
+import android.os.Bundle;
+import android.provider.ContactsContract.Contacts;
+import android.test.InstrumentationTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+
+import com.android.contacts.benchmark.BenchmarkEnvironment;
+import com.android.contacts.benchmark.BenchmarkRunner;
+import com.android.contacts.benchmark.SyntheticContacts;
+import com.android.contacts.list.ContactsPickMode;
+import com.android.contacts.list.OnCheckListActionListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks selecting all contacts in the multipicker, {@link ContactsFragment#setSelectedAll}.
+ */
+@LargeTest
+public class ContactsFragmentBenchmark extends InstrumentationTestCase {
+    private BenchmarkEnvironment mEnvironment;
+    private Cursor mCursor;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mCursor != null) {
+            mCursor.close();
+        }
+        if (mEnvironment != null) {
+            mEnvironment.uninstall();
+        }
+        super.tearDown();
+    }
+
+    public void testSelectAll_small() throws Exception {
+        runBenchmark(SyntheticContacts.Size.SMALL);
+    }
+
+    public void testSelectAll_medium() throws Exception {
+        runBenchmark(SyntheticContacts.Size.MEDIUM);
+    }
+
+    public void testSelectAll_large() throws Exception {
+        runBenchmark(SyntheticContacts.Size.LARGE);
+    }
+
+    private void runBenchmark(SyntheticContacts.Size size) throws Exception {
+        mEnvironment = new BenchmarkEnvironment(getInstrumentation(), size);
+        mEnvironment.install();
+        mCursor = mEnvironment.resolver.query(Contacts.CONTENT_URI,
+                ContactsFragment.CONTACTS_SUMMARY_PROJECTION, null, null, null);
+
+        final ContactsFragment fragment = new ContactsFragment();
+        final ChoiceSetListener listener = new ChoiceSetListener();
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                fragment.setUpForTest(mEnvironment.context, ContactsPickMode.MODE_DEFAULT_CONTACT,
+                        listener, mCursor);
+            }
+        });
+
+        final int count = mCursor.getCount();
+        mEnvironment.runner.run(mEnvironment.getName("ContactsFragment.setSelectedAll"),
+                3, mEnvironment.getIterations(50), new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() {
+                        fragment.setSelectedAll(true);
+                        assertEquals(count, listener.mChoiceSet.size());
+                    }
+                }, new BenchmarkRunner.Operation() {
+                    @Override
+                    public void run() {
+                        fragment.setSelectedAll(false);
+                    }
+                });
+    }
+
+    /**
+     * Keeps the selection in a {@link Bundle}, like MultiPickContactsActivity.
+     */
+    private static class ChoiceSetListener implements OnCheckListActionListener {
+        final Bundle mChoiceSet = new Bundle();
+        private final List<Long> mGroups = new ArrayList<>();
+
+        @Override
+        public boolean onContainsKey(String key) {
+            return mChoiceSet.containsKey(key);
+        }
+
+        @Override
+        public boolean onContainsNumberKey(String key) {
+            return false;
+        }
+
+        @Override
+        public void putValue(String key, String[] value) {
+            mChoiceSet.putStringArray(key, value);
+        }
+
+        @Override
+        public void onRemove(String key) {
+            mChoiceSet.remove(key);
+        }
+
+        @Override
+        public void putNumberValue(String key, String[] value) {
+        }
+
+        @Override
+        public void onNumberRemove(String key) {
+        }
+
+        @Override
+        public void addGroupId(long groupId) {
+            mGroups.add(groupId);
+        }
+
+        @Override
+        public boolean onContainsGroupId(long groupId) {
+            return mGroups.contains(groupId);
+        }
+
+        @Override
+        public void onRemoveGroupId(long groupId) {
+            mGroups.remove(groupId);
+        }
+
+        @Override
+        public List<Long> getGroupsList() {
+            return mGroups;
+        }
+
+        @Override
+        public void onGroupClear() {
+            mGroups.clear();
+        }
+
+        @Override
+        public void onClear() {
+            mChoiceSet.clear();
+        }
+
+        @Override
+        public void onHideSoftKeyboard() {
+        }
+
+        @Override
+        public void onUpdateActionBar() {
+        }
+
+        @Override
+        public void exitSearch() {
+        }
+
+        @Override
+        public void appendStrangeCallLogId(String callLogid) {
+        }
+
+        @Override
+        public String getCallLogSelection() {
+            return null;
+        }
+
+        @Override
+        public void setSelectionPending(boolean pending) {
+        }
+    }
+}